@@ -0,0 +1,442 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.sim.GameMap;
+import icypc.sim.GameState;
+import icypc.sim.Match;
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.TurnSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import oocl.icypc.Seeker.Player;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * Timings for Seeker's hot paths, as a baseline for optimizing them.
+ *
+ * The board states are the ones the tests use (SeekerFixtures) and the
+ * opening position of each map in maps/.  Each benchmark runs for a few
+ * warmup iterations and then a few measured ones; setup for each call is
+ * left out of the timing.  Allocation is read from the thread's allocated
+ * byte counter, and the collections that happened during the measured
+ * iterations are counted.
+ *
+ * The version comparison records red's view of a game of Hunter against
+ * Planter on each map and feeds the same turns to Seeker and Seeker_V1..V5
+ * through their run() loops, so every version decides on exactly the same
+ * input.  A version that dies on a game (some still recurse until the stack
+ * runs out) is timed on the games it finished and the failures are counted.
+ *
+ * <pre>
+ *   java -cp out/production/ICPC_Challenge:out/bench oocl.icypc.SeekerBenchmark
+ *       [-filter name] [-warmup 3] [-iterations 5] [-time 500] [-maps maps] [-turns 150] [-compare]
+ * </pre>
+ */
+public class SeekerBenchmark {
+  /** Seed for every Seeker created here, so the runs are comparable. */
+  private static final long SEED = 1;
+
+  private static final String[] VERSIONS = {
+      "oocl.icypc.Seeker_V1",
+      "oocl.icypc.Seeker_V2",
+      "oocl.icypc.Seeker_V3",
+      "oocl.icypc.Seeker_V4",
+      "oocl.icypc.Seeker_V5",
+      "oocl.icypc.Seeker",
+  };
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final int warmup;
+
+  private final int iterations;
+
+  private final long iterationNanos;
+
+  private final String filter;
+
+  SeekerBenchmark(int warmup, int iterations, long iterationMillis, String filter) {
+    this.warmup = warmup;
+    this.iterations = iterations;
+    this.iterationNanos = iterationMillis * 1_000_000L;
+    this.filter = filter;
+  }
+
+  /**
+   * Time one operation.  The setup runs before every call and isn't
+   * counted, in time or in allocation.
+   */
+  <T> void measure(String name, Supplier<T> setup, Consumer<T> op) {
+    if (filter != null && !name.contains(filter)) {
+      return;
+    }
+    long thread = Thread.currentThread().getId();
+    for (int i = 0; i < warmup; i++) {
+      long end = System.nanoTime() + iterationNanos;
+      while (System.nanoTime() < end) {
+        op.accept(setup.get());
+      }
+    }
+
+    double[] nsPerOp = new double[iterations];
+    long totalOps = 0;
+    long totalNanos = 0;
+    long totalBytes = 0;
+    long gcCount = gcCount();
+    long gcMillis = gcMillis();
+    for (int i = 0; i < iterations; i++) {
+      long ops = 0;
+      long nanos = 0;
+      while (nanos < iterationNanos) {
+        T state = setup.get();
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        op.accept(state);
+        nanos += System.nanoTime() - start;
+        totalBytes += THREADS.getThreadAllocatedBytes(thread) - bytes;
+        ops++;
+      }
+      nsPerOp[i] = (double) nanos / ops;
+      totalOps += ops;
+      totalNanos += nanos;
+    }
+    report(name, nsPerOp, (double) totalBytes / totalOps,
+        totalBytes / (totalNanos / 1e9) / (1 << 20), gcCount() - gcCount, gcMillis() - gcMillis);
+  }
+
+  private static void header() {
+    System.out.printf("%-40s %12s %10s %12s %10s %5s %6s%n",
+        "Benchmark", "us/op", "error", "alloc B/op", "MB/s", "gc", "gc ms");
+  }
+
+  private static void report(String name, double[] nsPerOp, double bytesPerOp,
+      double mbPerSecond, long gcs, long gcMillis) {
+    double mean = Arrays.stream(nsPerOp).average().orElse(0);
+    double var = Arrays.stream(nsPerOp).map(x -> (x - mean) * (x - mean)).sum()
+        / Math.max(1, nsPerOp.length - 1);
+    double error = 1.96 * Math.sqrt(var / nsPerOp.length);
+    System.out.printf("%-40s %12.3f %10.3f %12.0f %10.1f %5d %6d%n",
+        name, mean / 1e3, error / 1e3, bytesPerOp, mbPerSecond, gcs, gcMillis);
+  }
+
+  private static long gcCount() {
+    long n = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      n += Math.max(0, gc.getCollectionCount());
+    }
+    return n;
+  }
+
+  private static long gcMillis() {
+    long n = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      n += Math.max(0, gc.getCollectionTime());
+    }
+    return n;
+  }
+
+  /**
+   * A Seeker that has read one of the fixtures, the same way the tests
+   * set it up.
+   */
+  static Seeker load(String fixture, boolean children) {
+    Seeker seeker = new Seeker(SEED);
+    Scanner in = new Scanner(fixture);
+    seeker.readCurrentMap(in);
+    if (children) {
+      seeker.readChildrenStates(in);
+    }
+    seeker.markChildren();
+    seeker.initializePlayerPositions();
+    return seeker;
+  }
+
+  /** Positions of the enemies a child would react to, nearest first. */
+  static List<Point> threats(Player player) {
+    return player.knownEnemies().stream().map(enemy -> enemy.pos()).collect(Collectors.toList());
+  }
+
+  /** A fixture as the engine sends it: turn and score first, a line for each child after the board. */
+  static String engineTurn(String fixture, boolean children) {
+    StringBuilder sb = new StringBuilder("1 0 0\n").append(fixture).append('\n');
+    for (int i = 0; !children && i < Const.CCOUNT * 2; i++) {
+      sb.append("* ");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Time reading a turn the way a game does: TurnSnapshot.read() parses
+   * it and markChildren() passes what changed to the listeners.  Each call
+   * gets a new Seeker, so every cell in view is news, as on the turn the
+   * board first comes into view.
+   */
+  void parse(String name, String fixture, boolean children) {
+    String text = engineTurn(fixture, children);
+    TurnSnapshot turn = new TurnSnapshot();
+    measure("parse." + name, () -> new Seeker(SEED), seeker -> {
+      turn.read(new Scanner(text));
+      seeker.copyTurn(turn);
+      seeker.markChildren();
+    });
+  }
+
+  void fixtures() {
+    parse("initial", SeekerFixtures.INITIAL_MAP, true);
+    parse("busy", SeekerFixtures.BUSY_MAP, false);
+    parse("turn53", SeekerFixtures.TURN_53, true);
+
+    // The same route the path-finding test checks, around the tree at [8, 15].
+    Seeker busy = load(SeekerFixtures.BUSY_MAP, false);
+    measure("freePath.busy", () -> null,
+        x -> busy.freePath(new Point(8, 10), new Point(8, 23), true));
+    measure("freePath.busy.crawling", () -> null,
+        x -> busy.freePath(new Point(8, 10), new Point(8, 23), false));
+
+    Seeker turn53 = load(SeekerFixtures.TURN_53, true);
+    Player player0 = turn53.players().get(0);
+    measure("freePath.turn53", () -> null,
+        x -> turn53.freePath(player0.pos(), new Point(22, 7), true));
+    measure("bestDestinationCloseTo.turn53", () -> null,
+        x -> turn53.bestDestinationCloseTo(new Point(0, 0), player0.pos(), false));
+
+    Seeker initial = load(SeekerFixtures.INITIAL_MAP, true);
+    List<Point> opening = initial.playerLocations();
+    measure("markVisibles.initial", initial::getGround, board -> initial.markVisibles(board, opening));
+    List<Point> spread = Arrays.asList(
+        new Point(7, 23), new Point(22, 22), new Point(22, 7), new Point(7, 7));
+    measure("markVisibles.spread", initial::getGround, board -> initial.markVisibles(board, spread));
+
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      Player player = turn53.players().get(i);
+      List<Point> targets = threats(player);
+      measure("handleThreats.turn53.child" + i, () -> null, x -> player.handleThreats(targets));
+    }
+
+    // Positions from the busy map test, with every child in view.
+    Seeker crowded = load(SeekerFixtures.BUSY_MAP, false);
+    List<Point> children = crowded.itemsMatching(Seeker.GROUND_CHILD);
+    List<Player> players = crowded.players();
+    int[] placement = {0, 1, 4, 7};
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      players.get(i).moveTo(children.get(placement[i]));
+    }
+    measure("reposition.busy", () -> null, x -> players.get(1).reposition());
+    measure("reposition.turn53", () -> null, x -> turn53.players().get(2).reposition());
+
+    // A full decision for the four children, from a fresh read of the board.
+    measure("chooseMove.initial", () -> load(SeekerFixtures.INITIAL_MAP, true),
+        SeekerBenchmark::chooseAll);
+    measure("chooseMove.turn53", () -> load(SeekerFixtures.TURN_53, true),
+        SeekerBenchmark::chooseAll);
+  }
+
+  static void chooseAll(Seeker seeker) {
+    for (Player player : seeker.players()) {
+      player.chooseMove();
+    }
+  }
+
+  /** The opening turn of each map, decided by a new Seeker. */
+  void openings(List<Path> maps) throws IOException {
+    for (Path file : maps) {
+      GameMap map = GameMap.load(file);
+      GameState state = new GameState();
+      map.initialize(state);
+      TurnSnapshot turn = new TurnSnapshot();
+      turn.fill(state, Const.RED);
+      MoveList moves = new MoveList();
+      measure("chooseMoves.opening." + map.getName(), () -> new Seeker(SEED), seeker -> {
+        moves.clear();
+        seeker.chooseMoves(turn, moves);
+      });
+    }
+  }
+
+  /**
+   * Record what red sees in a game of Hunter against Planter, in the
+   * engine's text protocol.
+   */
+  static byte[] record(GameMap map, int turns) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, false);
+    PlayerStrategy hunter = Match.newLocalPlayer("icypc.Hunter", SEED);
+    PlayerStrategy recorder = (turn, moves) -> {
+      turn.write(out);
+      hunter.chooseMoves(turn, moves);
+    };
+    new Match(map, recorder, Match.newLocalPlayer("icypc.Planter", SEED), turns).play();
+    out.println(-1);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Replay the recorded games through each version's run() loop and
+   * report the mean time per turn.
+   */
+  void compare(List<Path> maps, int turns) throws IOException {
+    List<byte[]> games = new ArrayList<>();
+    for (Path file : maps) {
+      games.add(record(GameMap.load(file), turns));
+    }
+
+    for (String version : VERSIONS) {
+      String name = "run." + version.substring(version.lastIndexOf('.') + 1);
+      if (filter != null && !name.contains(filter)) {
+        continue;
+      }
+      long thread = Thread.currentThread().getId();
+      double[] nsPerTurn = new double[iterations];
+      long totalBytes = 0;
+      long totalNanos = 0;
+      long totalTurns = 0;
+      int failed = 0;
+      long gcCount = gcCount();
+      long gcMillis = gcMillis();
+      for (int i = -warmup; i < iterations; i++) {
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long nanos = 0;
+        long played = 0;
+        failed = 0;
+        for (byte[] game : games) {
+          long elapsed = replay(version, game);
+          if (elapsed < 0) {
+            failed++;
+          } else {
+            nanos += elapsed;
+            played += turns;
+          }
+        }
+        if (i < 0) {
+          // leave the warmup passes out of the collector counts too
+          gcCount = gcCount();
+          gcMillis = gcMillis();
+          continue;
+        }
+        nsPerTurn[i] = played == 0 ? 0 : (double) nanos / played;
+        totalBytes += THREADS.getThreadAllocatedBytes(thread) - bytes;
+        totalNanos += nanos;
+        totalTurns += played;
+      }
+      report(name, nsPerTurn, totalTurns == 0 ? 0 : (double) totalBytes / totalTurns,
+          totalNanos == 0 ? 0 : totalBytes / (totalNanos / 1e9) / (1 << 20),
+          gcCount() - gcCount, gcMillis() - gcMillis);
+      if (failed > 0) {
+        System.out.printf("  %s failed on %d of %d games%n", name, failed, games.size());
+      }
+    }
+  }
+
+  /**
+   * Run one version over a recorded game, with its output thrown away.
+   *
+   * @return the time taken, or -1 if the player died during the game
+   */
+  static long replay(String version, byte[] game) {
+    InputStream stdin = System.in;
+    PrintStream stdout = System.out;
+    try {
+      Object player = Class.forName(version).getConstructor().newInstance();
+      System.setIn(new ByteArrayInputStream(game));
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      long start = System.nanoTime();
+      player.getClass().getMethod("run").invoke(player);
+      return System.nanoTime() - start;
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof RuntimeException || e.getCause() instanceof StackOverflowError) {
+        return -1;
+      }
+      throw new IllegalStateException(version + " failed", e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Can't run " + version, e);
+    } finally {
+      System.setIn(stdin);
+      System.setOut(stdout);
+    }
+  }
+
+  static List<Path> mapFiles(Path dir) throws IOException {
+    List<Path> maps = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.txt")) {
+      for (Path file : files) {
+        maps.add(file);
+      }
+    }
+    maps.sort(null);
+    return maps;
+  }
+
+  private static void usage() {
+    System.err.println("usage: SeekerBenchmark");
+    System.err.println("  [-filter <name>]");
+    System.err.println("  [-warmup <iterations>]");
+    System.err.println("  [-iterations <n>]");
+    System.err.println("  [-time <ms per iteration>]");
+    System.err.println("  [-maps <dir>]");
+    System.err.println("  [-turns <n>]");
+    System.err.println("  [-compare]");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int warmup = 3;
+    int iterations = 5;
+    long time = 500;
+    int turns = 150;
+    String filter = null;
+    Path mapDir = Paths.get("maps");
+    boolean compare = false;
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-filter") && i + 1 < args.length) {
+        filter = args[++i];
+      } else if (args[i].equals("-warmup") && i + 1 < args.length) {
+        warmup = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-iterations") && i + 1 < args.length) {
+        iterations = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-time") && i + 1 < args.length) {
+        time = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-maps") && i + 1 < args.length) {
+        mapDir = Paths.get(args[++i]);
+      } else if (args[i].equals("-turns") && i + 1 < args.length) {
+        turns = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-compare")) {
+        compare = true;
+      } else {
+        usage();
+      }
+    }
+
+    SeekerBenchmark bench = new SeekerBenchmark(warmup, iterations, time, filter);
+    List<Path> maps = mapFiles(mapDir);
+    header();
+    bench.fixtures();
+    bench.openings(maps);
+    if (compare) {
+      System.out.printf("%nus per turn over %d turns of %d maps%n", turns, maps.size());
+      header();
+      bench.compare(maps, turns);
+    }
+  }
+}
@@ -0,0 +1,385 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.LatencyHistogram;
+import icypc.sim.GameState;
+import icypc.sim.MatchTraceReader;
+import icypc.sim.TurnSnapshot;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays recorded games through Seeker.run() to see whether a change
+ * alters Seeker's moves and how long it takes over each turn.
+ *
+ * A recording is the exact text the engine sends a player, as a .txt file
+ * ending with the -1 that closes the game, or a .trace file saved by
+ * Match or Tournament, which gives one recording for each side.  Every
+ * recording is played by a fresh Seeker with the same seed, on a pool of
+ * one thread per core.  The input is handed over a turn at a time, and a
+ * turn's latency runs from handing it over until Seeker asks for the
+ * next, so it covers parsing, deciding and writing the moves.
+ *
+ * With -save the moves are written to the directory as the baseline; with
+ * -baseline they are compared against it, and the exit status is 1 if any
+ * recording's moves changed or any game failed.
+ *
+ * <pre>
+ *   java -cp out/production/ICPC_Challenge:out/bench oocl.icypc.SeekerReplay
+ *       [-threads n] [-save dir | -baseline dir] recording-or-dir...
+ * </pre>
+ */
+public class SeekerReplay {
+  /** Seed for every Seeker, so replays of the same input agree. */
+  private static final long SEED = 1;
+
+  /** Lines the engine sends each turn: turn, score, board and children. */
+  private static final int TURN_LINES = 2 + Const.SIZE + GameState.CHILDREN;
+
+  /** Slowest turns listed in the report. */
+  private static final int SLOWEST = 5;
+
+  /** One side's view of a game, split into turns. */
+  static final class Recording {
+    final String name;
+    final byte[][] turns;
+
+    Recording(String name, byte[][] turns) {
+      this.name = name;
+      this.turns = turns;
+    }
+  }
+
+  /** What Seeker did with a recording. */
+  static final class Replay {
+    final Recording recording;
+    final String moves;
+    final long[] nanos;
+    final String error;
+
+    Replay(Recording recording, String moves, long[] nanos, String error) {
+      this.recording = recording;
+      this.moves = moves;
+      this.nanos = nanos;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Hands over one turn of a recording at a time, noting when each turn
+   * is asked for.  Reads stop at the end of a turn, so Scanner can't run
+   * ahead into the next one before the moves are written.
+   */
+  static final class TurnInput extends InputStream {
+    private final byte[][] turns;
+    private final long[] nanos;
+    private int turn = -1;
+    private int pos;
+    private long start;
+
+    TurnInput(byte[][] turns) {
+      this.turns = turns;
+      this.nanos = new long[turns.length];
+    }
+
+    /** Time from handing over each turn until the next was asked for. */
+    long[] nanos() {
+      return nanos;
+    }
+
+    /** Turns handed over so far. */
+    int turns() {
+      return turn + 1;
+    }
+
+    private boolean advance() {
+      if (turn >= 0 && pos < turns[turn].length) {
+        return true;
+      }
+      long now = System.nanoTime();
+      if (turn >= 0) {
+        nanos[turn] = now - start;
+      }
+      if (turn + 1 == turns.length) {
+        return false;
+      }
+      turn++;
+      pos = 0;
+      start = now;
+      return true;
+    }
+
+    @Override
+    public int read() {
+      if (!advance()) {
+        return -1;
+      }
+      return turns[turn][pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!advance()) {
+        return -1;
+      }
+      int n = Math.min(len, turns[turn].length - pos);
+      System.arraycopy(turns[turn], pos, b, off, n);
+      pos += n;
+      return n;
+    }
+  }
+
+  /** Load the recordings in a file, or in every .txt and .trace file of a directory. */
+  static void load(Path path, List<Recording> into) throws IOException {
+    if (Files.isDirectory(path)) {
+      List<Path> files = new ArrayList<>();
+      try (DirectoryStream<Path> dir = Files.newDirectoryStream(path, "*.{txt,trace}")) {
+        for (Path file : dir) {
+          files.add(file);
+        }
+      }
+      files.sort(null);
+      for (Path file : files) {
+        load(file, into);
+      }
+    } else if (path.toString().endsWith(".trace")) {
+      loadTrace(path, into);
+    } else {
+      into.add(new Recording(baseName(path), split(Files.readAllBytes(path))));
+    }
+  }
+
+  private static String baseName(Path file) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(0, dot) : name;
+  }
+
+  /** Split engine text into turns of TURN_LINES lines; the rest ends the game. */
+  static byte[][] split(byte[] text) {
+    List<byte[]> turns = new ArrayList<>();
+    int start = 0;
+    int lines = 0;
+    for (int i = 0; i < text.length; i++) {
+      if (text[i] == '\n' && ++lines == TURN_LINES) {
+        turns.add(Arrays.copyOfRange(text, start, i + 1));
+        start = i + 1;
+        lines = 0;
+      }
+    }
+    turns.add(Arrays.copyOfRange(text, start, text.length));
+    return turns.toArray(new byte[0][]);
+  }
+
+  /** Render what each side was sent over the game in a trace. */
+  static void loadTrace(Path file, List<Recording> into) throws IOException {
+    MatchTraceReader trace = new MatchTraceReader(file);
+    GameState state = new GameState();
+    TurnSnapshot view = new TurnSnapshot();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    PrintStream out = new PrintStream(bytes, false, "UTF-8");
+    String[] sides = {"red", "blue"};
+    for (int side = 0; side < 2; side++) {
+      byte[][] turns = new byte[trace.turns() + 1][];
+      for (int t = 0; t < trace.turns(); t++) {
+        trace.read(t, state);
+        view.fill(state, side);
+        bytes.reset();
+        view.write(out);
+        out.flush();
+        turns[t] = bytes.toByteArray();
+      }
+      turns[trace.turns()] = "-1\n".getBytes(StandardCharsets.UTF_8);
+      into.add(new Recording(baseName(file) + "." + sides[side], turns));
+    }
+  }
+
+  static Replay replay(Recording recording) {
+    TurnInput in = new TurnInput(recording.turns);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(recording.turns.length * 64);
+    PrintStream out = new PrintStream(bytes, false);
+    String error = null;
+    try {
+      new Seeker(SEED).run(in, out);
+    } catch (RuntimeException | StackOverflowError e) {
+      error = "turn " + (in.turns() - 1) + ": " + e;
+    }
+    out.flush();
+    return new Replay(recording, new String(bytes.toByteArray(), StandardCharsets.UTF_8),
+        in.nanos(), error);
+  }
+
+  /** The moves of each turn, CCOUNT lines apiece. */
+  static List<String> turnsOf(String moves) {
+    String[] lines = moves.split("\n", -1);
+    List<String> turns = new ArrayList<>();
+    for (int i = 0; i + Const.CCOUNT <= lines.length; i += Const.CCOUNT) {
+      turns.add(String.join(" | ", Arrays.asList(lines).subList(i, i + Const.CCOUNT)));
+    }
+    return turns;
+  }
+
+  /**
+   * Compare a replay's moves with the baseline and print what changed.
+   *
+   * @return true if they are the same
+   */
+  static boolean compare(Replay replay, String baseline, PrintStream out) {
+    List<String> expected = turnsOf(baseline);
+    List<String> actual = turnsOf(replay.moves);
+    int changed = Math.abs(expected.size() - actual.size());
+    int first = -1;
+    for (int t = 0; t < Math.min(expected.size(), actual.size()); t++) {
+      if (!expected.get(t).equals(actual.get(t))) {
+        changed++;
+        if (first < 0) {
+          first = t;
+        }
+      }
+    }
+    if (first < 0 && changed > 0) {
+      first = Math.min(expected.size(), actual.size());
+    }
+    if (changed == 0) {
+      return true;
+    }
+    out.printf("%s: %d turns differ, first at turn %d%n", replay.recording.name, changed, first);
+    out.printf("  baseline: %s%n", first < expected.size() ? expected.get(first) : "(none)");
+    out.printf("  now:      %s%n", first < actual.size() ? actual.get(first) : "(none)");
+    return false;
+  }
+
+  private static void usage() {
+    System.err.println("usage: SeekerReplay [options] <recording or directory>...");
+    System.err.println("  -threads <n>      worker threads (default: cores)");
+    System.err.println("  -save <dir>       write the moves as the new baseline");
+    System.err.println("  -baseline <dir>   compare the moves with a saved baseline");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int threads = Runtime.getRuntime().availableProcessors();
+    Path save = null;
+    Path baseline = null;
+    List<Recording> recordings = new ArrayList<>();
+
+    for (int i = 0; i < args.length; i++) {
+      boolean hasValue = i + 1 < args.length;
+      if (args[i].equals("-threads") && hasValue) {
+        threads = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-save") && hasValue) {
+        save = Files.createDirectories(Paths.get(args[++i]));
+      } else if (args[i].equals("-baseline") && hasValue) {
+        baseline = Paths.get(args[++i]);
+      } else if (args[i].startsWith("-")) {
+        usage();
+      } else {
+        load(Paths.get(args[i]), recordings);
+      }
+    }
+    if (recordings.isEmpty()) {
+      usage();
+    }
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "replay");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<Future<Replay>> futures = new ArrayList<>();
+    for (Recording recording : recordings) {
+      futures.add(pool.submit(() -> replay(recording)));
+    }
+    List<Replay> replays = new ArrayList<>();
+    try {
+      for (Future<Replay> f : futures) {
+        replays.add(f.get());
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    PrintStream out = System.out;
+    LatencyHistogram latency = new LatencyHistogram();
+    long[] slowNanos = new long[SLOWEST];
+    String[] slowTurns = new String[SLOWEST];
+    int failed = 0;
+    int changed = 0;
+    for (Replay r : replays) {
+      long[] nanos = r.nanos;
+      // the last entry is the end of the game, not a turn
+      for (int t = 0; t < nanos.length - 1 && nanos[t] > 0; t++) {
+        latency.record(nanos[t]);
+        int k = SLOWEST;
+        while (k > 0 && slowNanos[k - 1] < nanos[t]) {
+          if (k < SLOWEST) {
+            slowNanos[k] = slowNanos[k - 1];
+            slowTurns[k] = slowTurns[k - 1];
+          }
+          k--;
+        }
+        if (k < SLOWEST) {
+          slowNanos[k] = nanos[t];
+          slowTurns[k] = r.recording.name + " turn " + t;
+        }
+      }
+      if (r.error != null) {
+        failed++;
+        out.printf("%s failed at %s%n", r.recording.name, r.error);
+      }
+      if (save != null) {
+        Files.write(save.resolve(r.recording.name + ".moves"),
+            r.moves.getBytes(StandardCharsets.UTF_8));
+      }
+      if (baseline != null) {
+        Path file = baseline.resolve(r.recording.name + ".moves");
+        if (!Files.exists(file)) {
+          out.printf("%s: no baseline%n", r.recording.name);
+          changed++;
+        } else if (!compare(r, new String(Files.readAllBytes(file), StandardCharsets.UTF_8), out)) {
+          changed++;
+        }
+      }
+    }
+
+    out.printf("%d recordings, %d turns on %d threads in %.2f s%n",
+        replays.size(), latency.count(), threads, elapsed / 1e9);
+    out.printf("turn latency (us): p50 %.1f  p99 %.1f  max %.1f  mean %.1f%n",
+        latency.percentile(0.5) / 1e3, latency.percentile(0.99) / 1e3, latency.max() / 1e3,
+        latency.count() == 0 ? 0 : latency.total() / 1e3 / latency.count());
+    out.println("slowest turns:");
+    for (int k = 0; k < SLOWEST && slowTurns[k] != null; k++) {
+      out.printf("  %-32s %10.3f ms%n", slowTurns[k], slowNanos[k] / 1e6);
+    }
+    if (failed > 0) {
+      out.printf("%d of %d games failed%n", failed, replays.size());
+    }
+    if (baseline != null) {
+      out.printf("%d of %d recordings changed moves%n", changed, replays.size());
+    }
+    if (failed > 0 || changed > 0) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,470 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.Seeds;
+import icypc.sim.GameMap;
+import icypc.sim.Match;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.ProcessPlayer;
+import icypc.sim.Rules;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tunes SeekerParams by self-play: a separable CMA-ES (Ros and Hansen,
+ * 2008) over the parameters, scaled so each one's search range is 0 to 1,
+ * where a candidate's fitness is Seeker's mean score margin over a set of
+ * games against the opponents.
+ *
+ * Every candidate in a generation plays the same games, on every map,
+ * against every opponent, on both sides, with the same seeds, so the
+ * differences between them aren't down to luck of the draw.  The seeds
+ * change from one generation to the next.  Games are played in this JVM on
+ * a thread per core; opponents that don't implement PlayerStrategy are
+ * started as processes, as Tournament does.  A game that crashes or runs
+ * past the timeout counts as a heavy loss for the candidate instead of
+ * stopping the run.
+ *
+ * The mean of the search and the best parameters so far, starting with
+ * the ones the search starts from, play the generation's games too.  If
+ * the mean does better than the best on them it is only a challenger: it
+ * plays more games against the best, and against the starting parameters,
+ * and takes over only if it leads both by more than the noise, judged by a
+ * one-sided 95% confidence bound on its margin per game over theirs.  The
+ * best is kept across generations and is written to the profile, for
+ * SEEKER_PARAMS, only when it changes, so the profile is never one that
+ * lost to the start.  Candidates never become the best themselves: with
+ * this much noise in a few games, the best candidate is mostly the
+ * luckiest.
+ *
+ * <pre>
+ *   java -cp out/production/ICPC_Challenge:out/bench oocl.icypc.SeekerTuner
+ *       -map maps/map1.txt -map maps/box-map.txt -generations 30 -rounds 2
+ *       -out seeker.properties icypc.Hunter icypc.Planter
+ * </pre>
+ */
+public class SeekerTuner {
+
+  private static final int N = SeekerParams.Param.values().length;
+
+  /**
+   * Stack for each worker thread, as deep as a player's main thread gets
+   * when the engine starts it, so a game goes as deep here as it would
+   * there.
+   */
+  private static final long WORKER_STACK_SIZE = 16L << 20;
+
+  /**
+   * Margin a game scores when it fails, as if the opponent owned the whole
+   * field: no game that plays out does worse.
+   */
+  static final int FAILED_MARGIN = -Const.SIZE * Const.SIZE;
+
+  /** Standard errors a challenger has to lead by: one-sided, 95%. */
+  static final double CONFIDENCE = 1.645;
+
+  private final Map<String, GameMap> maps = new LinkedHashMap<>();
+
+  private final List<String> opponents = new ArrayList<>();
+
+  private int generations = 20;
+
+  private int lambda = 4 + (int) (3 * Math.log(N));
+
+  private int rounds = 1;
+
+  private int confirmRounds = 4;
+
+  private long seed = 1;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  private int turns = Rules.TURNS;
+
+  private long timeoutMillis = 60_000;
+
+  private double sigma = 0.2;
+
+  private SeekerParams start = SeekerParams.DEFAULTS;
+
+  private Path out = Paths.get("seeker.properties");
+
+  private String classPath = System.getProperty("java.class.path");
+
+  /** Games that crashed or timed out, in all. */
+  private final AtomicInteger failures = new AtomicInteger();
+
+  /** One game a candidate plays. */
+  static final class Game {
+    final GameMap map;
+    final String opponent;
+    final int side;
+    final long seed;
+
+    Game(GameMap map, String opponent, int side, long seed) {
+      this.map = map;
+      this.opponent = opponent;
+      this.side = side;
+      this.seed = seed;
+    }
+  }
+
+  /**
+   * The games of a generation, seeded from it.  A generation's first
+   * rounds are the ones every candidate plays; the ones after them give a
+   * challenger games nobody has been picked on.
+   */
+  List<Game> games(int generation, int rounds) {
+    List<Game> games = new ArrayList<>();
+    for (int round = 0; round < rounds; round++) {
+      for (GameMap map : maps.values()) {
+        for (String opponent : opponents) {
+          // both sides of a pairing share a seed, so colour is the only difference
+          long gameSeed = Seeds.derive(seed + generation, games.size() / 2);
+          games.add(new Game(map, opponent, Const.RED, gameSeed));
+          games.add(new Game(map, opponent, Const.BLUE, gameSeed));
+        }
+      }
+    }
+    return games;
+  }
+
+  /**
+   * Seeker's score margin in one game with the parameters, or
+   * FAILED_MARGIN if the game crashes or runs past the timeout.  On a
+   * timeout the opponent's process is closed and the worker is
+   * interrupted, as in Tournament.  A failed game isn't retried: with the
+   * same seeds it would most likely fail the same way.
+   */
+  int play(SeekerParams params, Game game, ScheduledExecutorService watchdog) {
+    PlayerStrategy[] opponent = new PlayerStrategy[1];
+    AtomicBoolean timedOut = new AtomicBoolean();
+    Thread worker = Thread.currentThread();
+    ScheduledFuture<?> alarm = watchdog.schedule(() -> {
+      timedOut.set(true);
+      close(opponent[0]);
+      worker.interrupt();
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+    String error;
+    try {
+      PlayerStrategy seeker = new Seeker(Seeds.derive(game.seed, 0), params);
+      opponent[0] = newOpponent(game.opponent, Seeds.derive(game.seed, 1));
+      Match match = game.side == Const.RED ? new Match(game.map, seeker, opponent[0], turns)
+          : new Match(game.map, opponent[0], seeker, turns);
+      Match.Result result = match.play();
+      return result.score[game.side] - result.score[1 - game.side];
+    } catch (StackOverflowError e) {
+      error = "stack overflow";
+    } catch (IOException | RuntimeException e) {
+      error = timedOut.get() ? "timeout" : String.valueOf(e);
+    } finally {
+      alarm.cancel(false);
+      close(opponent[0]);
+      // Clear an interrupt that arrived after the game finished.
+      Thread.interrupted();
+    }
+    failures.incrementAndGet();
+    System.err.printf("game against %s, seed %d, side %d failed: %s%n",
+        game.opponent, game.seed, game.side, error);
+    return FAILED_MARGIN;
+  }
+
+  private static void close(PlayerStrategy p) {
+    if (p instanceof ProcessPlayer) {
+      ((ProcessPlayer) p).close();
+    }
+  }
+
+  PlayerStrategy newOpponent(String className, long seed) throws IOException {
+    try {
+      if (PlayerStrategy.class.isAssignableFrom(Class.forName(className))) {
+        return Match.newLocalPlayer(className, seed);
+      }
+    } catch (ClassNotFoundException e) {
+      // not on our class path, but it may be on the one given with -cp
+    }
+    return new ProcessPlayer(Arrays.asList("java", "-cp", classPath, className), seed);
+  }
+
+  /** Margin of each candidate in each of the games, played on the pool. */
+  int[][] evaluate(ExecutorService pool, ScheduledExecutorService watchdog,
+      List<SeekerParams> candidates, List<Game> games) throws InterruptedException {
+    List<List<Future<Integer>>> margins = new ArrayList<>();
+    for (SeekerParams params : candidates) {
+      List<Future<Integer>> own = new ArrayList<>();
+      for (Game game : games) {
+        own.add(pool.submit(() -> play(params, game, watchdog)));
+      }
+      margins.add(own);
+    }
+    int[][] result = new int[candidates.size()][games.size()];
+    for (int k = 0; k < candidates.size(); k++) {
+      for (int i = 0; i < games.size(); i++) {
+        try {
+          result[k][i] = margins.get(k).get(i).get();
+        } catch (ExecutionException | CancellationException e) {
+          // play() catches what a game throws, so this is a bug in the tuner
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return result;
+  }
+
+  static double mean(int[] margins) {
+    return Arrays.stream(margins).average().orElse(Double.NaN);
+  }
+
+  /**
+   * How far a's margin per game is ahead of b's, less CONFIDENCE standard
+   * errors, over games both played.  Pairing the games takes out how hard
+   * each one was.
+   */
+  static double lowerBound(int[] a, int[] b) {
+    int n = a.length;
+    double sum = 0;
+    double squares = 0;
+    for (int i = 0; i < n; i++) {
+      double d = a[i] - b[i];
+      sum += d;
+      squares += d * d;
+    }
+    double mean = sum / n;
+    double variance = n > 1 ? (squares - n * mean * mean) / (n - 1) : Double.POSITIVE_INFINITY;
+    return mean - CONFIDENCE * Math.sqrt(Math.max(0, variance) / n);
+  }
+
+  /** The parameters at a point of the search space, clamped to the ranges. */
+  static SeekerParams decode(double[] x) {
+    double[] values = new double[N];
+    for (SeekerParams.Param p : SeekerParams.Param.values()) {
+      double v = Math.max(0, Math.min(1, x[p.ordinal()]));
+      values[p.ordinal()] = p.min + v * (p.max - p.min);
+    }
+    return new SeekerParams(values);
+  }
+
+  static double[] encode(SeekerParams params) {
+    double[] x = new double[N];
+    for (SeekerParams.Param p : SeekerParams.Param.values()) {
+      x[p.ordinal()] = (params.value(p) - p.min) / (p.max - p.min);
+    }
+    return x;
+  }
+
+  public void run() throws IOException, InterruptedException {
+    // strategy parameters, with the defaults from the paper
+    int mu = lambda / 2;
+    double[] weights = new double[mu];
+    double weightSum = 0;
+    for (int i = 0; i < mu; i++) {
+      weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+      weightSum += weights[i];
+    }
+    double weightSquares = 0;
+    for (int i = 0; i < mu; i++) {
+      weights[i] /= weightSum;
+      weightSquares += weights[i] * weights[i];
+    }
+    double muEff = 1 / weightSquares;
+    double cSigma = (muEff + 2) / (N + muEff + 5);
+    double dSigma = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (N + 1)) - 1) + cSigma;
+    double cc = (4 + muEff / N) / (N + 4 + 2 * muEff / N);
+    // a diagonal covariance can learn faster than a full one
+    double c1 = (N + 2) / 3.0 * 2 / ((N + 1.3) * (N + 1.3) + muEff);
+    double cMu = Math.min(1 - c1,
+        (N + 2) / 3.0 * 2 * (muEff - 2 + 1 / muEff) / ((N + 2) * (N + 2) + muEff));
+    double chiN = Math.sqrt(N) * (1 - 1.0 / (4 * N) + 1.0 / (21 * N * N));
+
+    double[] mean = encode(start);
+    double[] variance = new double[N];
+    Arrays.fill(variance, 1);
+    double[] pathSigma = new double[N];
+    double[] pathC = new double[N];
+    Random rnd = new Random(seed);
+
+    SeekerParams best = start;
+    double bestFitness = Double.NaN;
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(null, r, "tuner", WORKER_STACK_SIZE);
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+    try {
+      for (int g = 0; g < generations; g++) {
+        double[][] z = new double[lambda][N];
+        double[][] y = new double[lambda][N];
+        List<SeekerParams> candidates = new ArrayList<>();
+        for (int k = 0; k < lambda; k++) {
+          double[] x = new double[N];
+          for (int j = 0; j < N; j++) {
+            z[k][j] = rnd.nextGaussian();
+            y[k][j] = Math.sqrt(variance[j]) * z[k][j];
+            x[j] = mean[j] + sigma * y[k][j];
+          }
+          candidates.add(decode(x));
+        }
+        candidates.add(decode(mean));
+        candidates.add(best);
+        List<Game> games = games(g, rounds + confirmRounds);
+        int played = games.size() / (rounds + confirmRounds) * rounds;
+        int[][] margins = evaluate(pool, watchdog, candidates, games.subList(0, played));
+        double[] fitness = new double[candidates.size()];
+        for (int k = 0; k < fitness.length; k++) {
+          fitness[k] = mean(margins[k]);
+        }
+
+        if (fitness[lambda] > fitness[lambda + 1] && confirmRounds > 0) {
+          List<SeekerParams> rivals = new ArrayList<>(candidates.subList(lambda, lambda + 2));
+          if (best != start) {
+            rivals.add(start);
+          }
+          int[][] confirm = evaluate(pool, watchdog, rivals, games.subList(played, games.size()));
+          double overBest = lowerBound(confirm[0], confirm[1]);
+          double overStart = best != start ? lowerBound(confirm[0], confirm[2]) : overBest;
+          System.err.printf("generation %d: challenger %.1f against best %.1f over %d games, lead %.1f over"
+              + " the best and %.1f over the start at 95%%%n", g, mean(confirm[0]), mean(confirm[1]),
+              confirm[0].length, overBest, overStart);
+          if (overBest > 0 && overStart > 0) {
+            best = rivals.get(0);
+            bestFitness = mean(confirm[0]);
+            best.save(out, String.format("SeekerTuner generation %d, mean margin %.1f over %d games",
+                g, bestFitness, confirm[0].length));
+          }
+        }
+        System.err.printf("generation %d: mean %.1f, best %.1f, best candidate %.1f, sigma %.3f,"
+            + " %d games failed: %s%n", g, fitness[lambda], fitness[lambda + 1],
+            Arrays.stream(fitness, 0, lambda).max().getAsDouble(), sigma, failures.get(), candidates.get(lambda));
+
+        // recombine the best mu, highest margin first
+        Integer[] order = new Integer[lambda];
+        for (int k = 0; k < lambda; k++) {
+          order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(k -> -fitness[k]));
+        double[] yw = new double[N];
+        double[] zw = new double[N];
+        for (int i = 0; i < mu; i++) {
+          for (int j = 0; j < N; j++) {
+            yw[j] += weights[i] * y[order[i]][j];
+            zw[j] += weights[i] * z[order[i]][j];
+          }
+        }
+        double norm = 0;
+        for (int j = 0; j < N; j++) {
+          mean[j] += sigma * yw[j];
+          pathSigma[j] = (1 - cSigma) * pathSigma[j] + Math.sqrt(cSigma * (2 - cSigma) * muEff) * zw[j];
+          norm += pathSigma[j] * pathSigma[j];
+        }
+        norm = Math.sqrt(norm);
+        boolean stalled = norm / Math.sqrt(1 - Math.pow(1 - cSigma, 2 * (g + 1))) >= (1.4 + 2.0 / (N + 1)) * chiN;
+        for (int j = 0; j < N; j++) {
+          pathC[j] = (1 - cc) * pathC[j] + (stalled ? 0 : Math.sqrt(cc * (2 - cc) * muEff) * yw[j]);
+          double rankMu = 0;
+          for (int i = 0; i < mu; i++) {
+            rankMu += weights[i] * y[order[i]][j] * y[order[i]][j];
+          }
+          variance[j] = (1 - c1 - cMu) * variance[j]
+              + c1 * (pathC[j] * pathC[j] + (stalled ? cc * (2 - cc) * variance[j] : 0))
+              + cMu * rankMu;
+        }
+        sigma *= Math.exp(cSigma / dSigma * (norm / chiN - 1));
+      }
+    } finally {
+      pool.shutdownNow();
+      watchdog.shutdownNow();
+    }
+    if (best != start) {
+      System.out.printf("best mean margin %.1f when it took over: %s%n", bestFitness, best);
+      System.out.println("written to " + out);
+    } else {
+      System.out.println("nothing beat the starting parameters; " + out + " not written");
+    }
+  }
+
+  private static void usage() {
+    System.err.println("usage: SeekerTuner [options] [opponent class...]");
+    System.err.println("  -map <map_file>      add a map (repeatable, default map if none)");
+    System.err.println("  -generations <n>     generations to run");
+    System.err.println("  -lambda <n>          candidates per generation");
+    System.err.println("  -rounds <n>          games per candidate, opponent, side and map");
+    System.err.println("  -confirm <n>         rounds a challenger plays before it replaces the best");
+    System.err.println("  -sigma <x>           first step size, as a fraction of each range");
+    System.err.println("  -seed <n>            first seed");
+    System.err.println("  -threads <n>         worker threads (default: cores)");
+    System.err.println("  -duration <n>        turns per game");
+    System.err.println("  -timeout <seconds>   per game, after which it counts as failed");
+    System.err.println("  -start <profile>     parameters to start from (default: built in)");
+    System.err.println("  -out <profile>       where to write the best parameters");
+    System.err.println("  -cp <path>           class path for opponents run as processes");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    SeekerTuner t = new SeekerTuner();
+    for (int i = 0; i < args.length; i++) {
+      boolean hasValue = i + 1 < args.length;
+      if (args[i].equals("-map") && hasValue) {
+        String name = args[++i];
+        t.maps.put(name, GameMap.load(Paths.get(name)));
+      } else if (args[i].equals("-generations") && hasValue) {
+        t.generations = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-lambda") && hasValue) {
+        t.lambda = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-rounds") && hasValue) {
+        t.rounds = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-confirm") && hasValue) {
+        t.confirmRounds = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-sigma") && hasValue) {
+        t.sigma = Double.parseDouble(args[++i]);
+      } else if (args[i].equals("-seed") && hasValue) {
+        t.seed = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-threads") && hasValue) {
+        t.threads = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-duration") && hasValue) {
+        t.turns = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-timeout") && hasValue) {
+        t.timeoutMillis = Long.parseLong(args[++i]) * 1000;
+      } else if (args[i].equals("-start") && hasValue) {
+        t.start = SeekerParams.load(Paths.get(args[++i]));
+      } else if (args[i].equals("-out") && hasValue) {
+        t.out = Paths.get(args[++i]);
+      } else if (args[i].equals("-cp") && hasValue) {
+        t.classPath = args[++i];
+      } else if (args[i].startsWith("-")) {
+        usage();
+      } else {
+        t.opponents.add(args[i]);
+      }
+    }
+    if (t.lambda < 2) {
+      usage();
+    }
+    if (t.opponents.isEmpty()) {
+      t.opponents.add("icypc.Hunter");
+    }
+    if (t.maps.isEmpty()) {
+      t.maps.put("default", GameMap.defaultMap());
+    }
+    t.run();
+  }
+}
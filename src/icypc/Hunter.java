@@ -6,12 +6,17 @@ package icypc;// A simple player that just tries to hit children on the opponent
 // ICPC Challenge
 // Sturgill, Baylor University
 
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.TurnSnapshot;
+
 import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.Random;
 import java.awt.Point;
 
-public class Hunter {
+public class Hunter implements PlayerStrategy {
   // Constant used to mark child locations in the map.
   public static final int GROUND_CHILD = 10;
 
@@ -28,8 +33,6 @@ public class Hunter {
     Point dest = null;
   }
 
-  static Random rnd = new Random();
-
   /**
    * Return the value of x, clamped to the [ a, b ] range.
    */
@@ -88,139 +91,158 @@ public class Hunter {
     }
   }
 
-  public static void main(String[] args) {
-    // Current game score for self (red) and opponent (blue).
-    int[] score = new int[2];
+  // Current game score for self (red) and opponent (blue).
+  private final int[] score = new int[2];
+
+  // Current snow height in each cell.
+  private final int[][] height = new int[Const.SIZE][Const.SIZE];
+
+  // Contents of each cell.
+  private final int[][] ground = new int[Const.SIZE][Const.SIZE];
+
+  // List of children on the field, half for each team.
+  private final Child[] cList = new Child[2 * Const.CCOUNT];
+
+  // Random destination for each player.
+  private final Point[] runTarget = new Point[Const.CCOUNT];
 
-    // Current snow height in each cell.
-    int[][] height = new int[Const.SIZE][Const.SIZE];
+  // How long the child has left to run toward its destination.
+  private final int[] runTimer = new int[Const.CCOUNT];
 
-    // Contents of each cell.
-    int[][] ground = new int[Const.SIZE][Const.SIZE];
+  // Source of randomness for each of our children.
+  private final Random[] rnd;
 
-    // List of children on the field, half for each team.
-    Child[] cList = new Child[2 * Const.CCOUNT];
+  public Hunter() {
+    this(Seeds.fromEnvironment());
+  }
+
+  public Hunter(long seed) {
+    rnd = Seeds.perChild(seed, Const.CCOUNT);
     for (int i = 0; i < cList.length; i++) {
       cList[i] = new Child();
     }
-
-    // Scanner to parse input from the game engine.
-    Scanner in = new Scanner(System.in);
-
-    // Random destination for each player.
-    Point[] runTarget = new Point[Const.CCOUNT];
     for (int i = 0; i < runTarget.length; i++) {
       runTarget[i] = new Point();
     }
+  }
 
-    // How long the child has left to run toward its destination.
-    int[] runTimer = new int[Const.CCOUNT];
+  @Override
+  public void chooseMoves(TurnSnapshot turn, MoveList moves) {
+    // Copy the current score, map and children.
+    score[Const.RED] = turn.score[Const.RED];
+    score[Const.BLUE] = turn.score[Const.BLUE];
+    for (int i = 0; i < Const.SIZE; i++) {
+      System.arraycopy(turn.height[i], 0, height[i], 0, Const.SIZE);
+      System.arraycopy(turn.ground[i], 0, ground[i], 0, Const.SIZE);
+    }
+    readChildrenStates(cList, turn);
 
-    // Keep reading states until the game ends.
-    int turnNum = in.nextInt();
-    while (turnNum >= 0) {
-      String token;
-
-      // Read current game score.
-      score[Const.RED] = in.nextInt();
-      score[Const.BLUE] = in.nextInt();
-
-      // Parse the current map.
-      readCurrentMap(height, ground, in);
-
-      // Read the states of all the children.
-      readChildrenStates(cList, in);
-
-      // Mark all the children in the map, so they are easy to
-      // look up.
-      markChildren(ground, cList);
-
-      // Decide what each child should do
-      for (int i = 0; i < Const.CCOUNT; i++) {
-        Child c = cList[i];
-        Move m = new Move();
-
-        if (c.dazed == 0) {
-          // See if the child needs a new destination.
-          while (runTimer[i] <= 0 || runTarget[i].equals(c.pos)) {
-            runTarget[i].setLocation(rnd.nextInt(Const.SIZE), rnd.nextInt(Const.SIZE));
-            runTimer[i] = 1 + rnd.nextInt(14);
-          }
+    // Mark all the children in the map, so they are easy to
+    // look up.
+    markChildren(ground, cList);
 
-          // Try to acquire a snowball if we need one.
-          if (c.holding != Const.HOLD_S1) {
-            // Crush into a snowball, if we have snow.
-            if (c.holding == Const.HOLD_P1) {
-              m.action = "crush";
-            } else {
-              // We don't have snow, see if there is some nearby.
-              int sx = -1, sy = -1;
-              for (int ox = c.pos.x - 1; ox <= c.pos.x + 1; ox++)
-                for (int oy = c.pos.y - 1; oy <= c.pos.y + 1; oy++) {
-                  // Is there snow to pick up?
-                  if (ox >= 0 && ox < Const.SIZE &&
-                      oy >= 0 && oy < Const.SIZE &&
-                      (ox != c.pos.x || oy != c.pos.y) &&
-                      ground[ox][oy] == Const.GROUND_EMPTY &&
-                      height[ox][oy] > 0) {
-                    sx = ox;
-                    sy = oy;
-                  }
-                }
+    // Decide what each child should do
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      Child c = cList[i];
+      Move m = new Move();
 
-              // If there is snow, try to get it.
-              if (sx >= 0) {
-                if (c.standing) {
-                  m.action = "crouch";
-                } else {
-                  m.action = "pickup";
-                  m.dest = new Point(sx, sy);
+      if (c.dazed == 0) {
+        // See if the child needs a new destination.
+        while (runTimer[i] <= 0 || runTarget[i].equals(c.pos)) {
+          runTarget[i].setLocation(rnd[i].nextInt(Const.SIZE), rnd[i].nextInt(Const.SIZE));
+          runTimer[i] = 1 + rnd[i].nextInt(14);
+        }
+
+        // Try to acquire a snowball if we need one.
+        if (c.holding != Const.HOLD_S1) {
+          // Crush into a snowball, if we have snow.
+          if (c.holding == Const.HOLD_P1) {
+            m.action = "crush";
+          } else {
+            // We don't have snow, see if there is some nearby.
+            int sx = -1, sy = -1;
+            for (int ox = c.pos.x - 1; ox <= c.pos.x + 1; ox++)
+              for (int oy = c.pos.y - 1; oy <= c.pos.y + 1; oy++) {
+                // Is there snow to pick up?
+                if (ox >= 0 && ox < Const.SIZE &&
+                    oy >= 0 && oy < Const.SIZE &&
+                    (ox != c.pos.x || oy != c.pos.y) &&
+                    ground[ox][oy] == Const.GROUND_EMPTY &&
+                    height[ox][oy] > 0) {
+                  sx = ox;
+                  sy = oy;
                 }
               }
+
+            // If there is snow, try to get it.
+            if (sx >= 0) {
+              if (c.standing) {
+                m.action = "crouch";
+              } else {
+                m.action = "pickup";
+                m.dest = new Point(sx, sy);
+              }
             }
+          }
+        } else {
+          // Stand up if the child is armed.
+          if (!c.standing) {
+            m.action = "stand";
           } else {
-            // Stand up if the child is armed.
-            if (!c.standing) {
-              m.action = "stand";
-            } else {
-              // Try to find a victim.
-              boolean victimFound = false;
-              for (int j = Const.CCOUNT; !victimFound && j < Const.CCOUNT * 2; j++) {
-                if (cList[j].pos.x >= 0) {
-                  int dx = cList[j].pos.x - c.pos.x;
-                  int dy = cList[j].pos.y - c.pos.y;
-                  int dsq = dx * dx + dy * dy;
-                  if (dsq < 8 * 8) {
-                    victimFound = true;
-                    m.action = "throw";
-                    // throw past the victim, so we will probably hit them
-                    // before the snowball falls into the snow.
-                    m.dest = new Point(c.pos.x + dx * 2, c.pos.y + dy * 2);
-                  }
+            // Try to find a victim.
+            boolean victimFound = false;
+            for (int j = Const.CCOUNT; !victimFound && j < Const.CCOUNT * 2; j++) {
+              if (cList[j].pos.x >= 0) {
+                int dx = cList[j].pos.x - c.pos.x;
+                int dy = cList[j].pos.y - c.pos.y;
+                int dsq = dx * dx + dy * dy;
+                if (dsq < 8 * 8) {
+                  victimFound = true;
+                  m.action = "throw";
+                  // throw past the victim, so we will probably hit them
+                  // before the snowball falls into the snow.
+                  m.dest = new Point(c.pos.x + dx * 2, c.pos.y + dy * 2);
                 }
               }
             }
           }
-
-          // Try to run toward the destination.
-          if (m.action.equals("idle")) {
-            moveToward(c, runTarget[i], m);
-            runTimer[i]--;
-          }
         }
 
-        /** Write out the child's move */
-        if (m.dest == null) {
-          System.out.println(m.action);
-        } else {
-          System.out.println(m.action + " " + m.dest.x + " " + m.dest.y);
+        // Try to run toward the destination.
+        if (m.action.equals("idle")) {
+          moveToward(c, runTarget[i], m);
+          runTimer[i]--;
         }
       }
 
-      turnNum = in.nextInt();
+      if (m.dest == null) {
+        moves.set(i, Rules.actionCode(m.action));
+      } else {
+        moves.set(i, Rules.actionCode(m.action), m.dest.x, m.dest.y);
+      }
+    }
+  }
+
+  public void run() {
+    // Scanner to parse input from the game engine.
+    Scanner in = new Scanner(System.in);
+    TurnSnapshot turn = new TurnSnapshot();
+    MoveList moves = new MoveList();
+
+    // Keep reading states until the game ends.
+    while (turn.read(in)) {
+      chooseMoves(turn, moves);
+
+      /** Write out the children's moves */
+      moves.write(System.out);
     }
   }
 
+  public static void main(String[] args) {
+    Hunter hunter = new Hunter();
+    hunter.run();
+  }
+
   private static void markChildren(int[][] ground, Child[] cList) {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Child c = cList[i];
@@ -230,50 +252,27 @@ public class Hunter {
     }
   }
 
-  private static void readCurrentMap(int[][] height, int[][] ground, Scanner in) {
-    String token;
-    for (int i = 0; i < Const.SIZE; i++) {
-      for (int j = 0; j < Const.SIZE; j++) {
-        // Can we see this cell?
-        token = in.next();
-        if (token.charAt(0) == '*') {
-          height[i][j] = -1;
-          ground[i][j] = -1;
-        } else {
-          height[i][j] = token.charAt(0) - '0';
-          ground[i][j] = token.charAt(1) - 'a';
-        }
-      }
-    }
-  }
-
-  private static void readChildrenStates(Child[] cList, Scanner in) {
-    String token;
+  private static void readChildrenStates(Child[] cList, TurnSnapshot turn) {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Child c = cList[i];
 
       // Can we see this child?
-      token = in.next();
-      if (token.equals("*")) {
+      if (turn.x[i] < 0) {
         c.pos.x = -1;
         c.pos.y = -1;
       } else {
         // Record the child's location.
-        c.pos.x = Integer.parseInt(token);
-        c.pos.y = in.nextInt();
+        c.pos.x = turn.x[i];
+        c.pos.y = turn.y[i];
 
         // Compute child color based on it's index.
         c.color = (i < Const.CCOUNT ? Const.RED : Const.BLUE);
 
-        // Read the stance, what the child is holding and how much
+        // Record the stance, what the child is holding and how much
         // longer he's dazed.
-        token = in.next();
-        c.standing = token.equals("S");
-
-        token = in.next();
-        c.holding = token.charAt(0) - 'a';
-
-        c.dazed = in.nextInt();
+        c.standing = turn.standing[i];
+        c.holding = turn.holding[i];
+        c.dazed = turn.dazed[i];
       }
     }
   }
@@ -0,0 +1,112 @@
+package icypc;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds.
+ *
+ * Buckets are log-linear: each power of two is split into 16 equal
+ * buckets, so a recorded value is known to within about 6% whatever its
+ * size.  Recording is a few shifts and an array increment, with no
+ * allocation, so it can be left in a player's turn loop.
+ */
+public final class LatencyHistogram {
+  /** Linear buckets per power of two, as a power of two. */
+  private static final int SUB_BITS = 4;
+
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+
+  /** Largest power of two kept apart; anything longer (about 18 minutes) shares the top bucket. */
+  private static final int MAX_EXPONENT = 40;
+
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+  private final long[] counts = new long[BUCKETS];
+
+  private long count;
+
+  private long total;
+
+  private long max;
+
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts[Math.min(index(nanos), BUCKETS - 1)]++;
+    count++;
+    total += nanos;
+    if (nanos > max) {
+      max = nanos;
+    }
+  }
+
+  static int index(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BITS;
+    return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+  }
+
+  /** Largest value that falls in a bucket. */
+  static long upperBound(int index) {
+    if (index < SUB_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BITS) - 1;
+    long low = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+    return low + (1L << shift) - 1;
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public long total() {
+    return total;
+  }
+
+  public long max() {
+    return max;
+  }
+
+  /**
+   * The value below which the given fraction of the recorded values fall,
+   * to the resolution of the buckets.
+   *
+   * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+   */
+  public long percentile(double fraction) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(fraction * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return Math.min(upperBound(i), max);
+      }
+    }
+    return max;
+  }
+
+  /** Add another histogram's values to this one. */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    total += other.total;
+    max = Math.max(max, other.max);
+  }
+
+  public void clear() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    total = 0;
+    max = 0;
+  }
+}
@@ -6,11 +6,16 @@ package icypc;// A simple player that just tries to plant snowmen in interesting
 // ICPC Challenge
 // Sturgill, Baylor University
 
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.TurnSnapshot;
+
 import java.util.Scanner;
 import java.util.Random;
 import java.awt.Point;
 
-public class Planter {
+public class Planter implements PlayerStrategy {
   // Constant used to mark child locations in the map.
   public static final int GROUND_CHILD = 10;
 
@@ -35,9 +40,9 @@ public class Planter {
   private Child[] cList = new Child[2 * Const.CCOUNT];
 
   /**
-   * Source of randomness for this player.
+   * Source of randomness for each of our children.
    */
-  static Random rnd = new Random();
+  private final Random[] rnd;
 
   /**
    * Return the value of x, clamped to the [ a, b ] range.
@@ -116,6 +121,15 @@ public class Planter {
   // Child that moves away from other children and
   // then builds a snowman.
   public class SnowmanMaker extends Child {
+    /**
+     * Source of randomness for this child.
+     */
+    final Random rnd;
+
+    SnowmanMaker(Random rnd) {
+      this.rnd = rnd;
+    }
+
     /**
      * Current instruction this child is executing.
      */
@@ -251,111 +265,88 @@ public class Planter {
     }
   }
 
-  public void run() {
+  public Planter() {
+    this(Seeds.fromEnvironment());
+  }
+
+  public Planter(long seed) {
+    rnd = Seeds.perChild(seed, Const.CCOUNT);
     for (int i = 0; i < cList.length; i++) {
       if (i < Const.CCOUNT) {
-        cList[i] = new SnowmanMaker();
+        cList[i] = new SnowmanMaker(rnd[i]);
       } else {
         cList[i] = new Child();
       }
     }
+  }
 
-    // Scanner to parse input from the game engine.
-    Scanner in = new Scanner(System.in);
-
-    // Random destination for each player.
-    Point[] runTarget = new Point[Const.CCOUNT];
-    for (int i = 0; i < runTarget.length; i++) {
-      runTarget[i] = new Point();
+  @Override
+  public void chooseMoves(TurnSnapshot turn, MoveList moves) {
+    // Copy the current score, map and children.
+    score[Const.RED] = turn.score[Const.RED];
+    score[Const.BLUE] = turn.score[Const.BLUE];
+    for (int i = 0; i < Const.SIZE; i++) {
+      System.arraycopy(turn.height[i], 0, height[i], 0, Const.SIZE);
+      System.arraycopy(turn.ground[i], 0, ground[i], 0, Const.SIZE);
     }
+    readChildrenStates(turn);
 
-    // How long the child has left to run toward its destination.
-    int[] runTimer = new int[Const.CCOUNT];
-
-    // Keep reading states until the game ends.
-    int turnNum = in.nextInt();
-    while (turnNum >= 0) {
-      String token;
-
-      // Read current game score.
-      score[Const.RED] = in.nextInt();
-      score[Const.BLUE] = in.nextInt();
-
-      // Parse the current map.
-      readCurrentMap(in);
-
-      // Read the states of all the children.
-      readChildrenStates(in);
-
-      // Mark all the children in the map, so they are easy to
-      // look up.
-      for (int i = 0; i < Const.CCOUNT * 2; i++) {
-        Child c = cList[i];
-        if (c.pos.x >= 0) {
-          ground[c.pos.x][c.pos.y] = GROUND_CHILD;
-        }
+    // Mark all the children in the map, so they are easy to
+    // look up.
+    for (int i = 0; i < Const.CCOUNT * 2; i++) {
+      Child c = cList[i];
+      if (c.pos.x >= 0) {
+        ground[c.pos.x][c.pos.y] = GROUND_CHILD;
       }
+    }
 
-      // Decide what each child should do
-      for (int i = 0; i < Const.CCOUNT; i++) {
-        Move m = cList[i].chooseMove();
-
-        /** Write out the child's move */
-        if (m.dest == null) {
-          System.out.println(m.action);
-        } else {
-          System.out.println(m.action + " " + m.dest.x + " " + m.dest.y);
-        }
+    // Decide what each child should do
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      Move m = cList[i].chooseMove();
+      if (m.dest == null) {
+        moves.set(i, Rules.actionCode(m.action));
+      } else {
+        moves.set(i, Rules.actionCode(m.action), m.dest.x, m.dest.y);
       }
-
-      turnNum = in.nextInt();
     }
   }
 
-  private void readCurrentMap(Scanner in) {
-    String token;
-    for (int i = 0; i < Const.SIZE; i++) {
-      for (int j = 0; j < Const.SIZE; j++) {
-        // Can we see this cell?
-        token = in.next();
-        if (token.charAt(0) == '*') {
-          height[i][j] = -1;
-          ground[i][j] = -1;
-        } else {
-          height[i][j] = token.charAt(0) - '0';
-          ground[i][j] = token.charAt(1) - 'a';
-        }
-      }
+  public void run() {
+    // Scanner to parse input from the game engine.
+    Scanner in = new Scanner(System.in);
+    TurnSnapshot turn = new TurnSnapshot();
+    MoveList moves = new MoveList();
+
+    // Keep reading states until the game ends.
+    while (turn.read(in)) {
+      chooseMoves(turn, moves);
+
+      /** Write out the children's moves */
+      moves.write(System.out);
     }
   }
 
-  private void readChildrenStates(Scanner in) {
-    String token;
+  private void readChildrenStates(TurnSnapshot turn) {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Child c = cList[i];
 
       // Can we see this child?
-      token = in.next();
-      if (token.equals("*")) {
+      if (turn.x[i] < 0) {
         c.pos.x = -1;
         c.pos.y = -1;
       } else {
         // Record the child's location.
-        c.pos.x = Integer.parseInt(token);
-        c.pos.y = in.nextInt();
+        c.pos.x = turn.x[i];
+        c.pos.y = turn.y[i];
 
         // Compute child color based on it's index.
         c.color = (i < Const.CCOUNT ? Const.RED : Const.BLUE);
 
-        // Read the stance, what the child is holding and how much
+        // Record the stance, what the child is holding and how much
         // longer he's dazed.
-        token = in.next();
-        c.standing = token.equals("S");
-
-        token = in.next();
-        c.holding = token.charAt(0) - 'a';
-
-        c.dazed = in.nextInt();
+        c.standing = turn.standing[i];
+        c.holding = turn.holding[i];
+        c.dazed = turn.dazed[i];
       }
     }
   }
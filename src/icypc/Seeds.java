@@ -0,0 +1,55 @@
+package icypc;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Random seeds for the players, so that a game can be replayed exactly.
+ *
+ * A player started by the engine can't be given arguments, so the seed
+ * comes from the ICYPC_SEED environment variable; without it every game
+ * is different, as before.  Each child gets its own stream derived from
+ * the player's seed, so a change in how often one child draws a number
+ * doesn't change what the others do.
+ */
+public final class Seeds {
+  /** Environment variable holding the seed. */
+  public static final String SEED_ENV = "ICYPC_SEED";
+
+  private Seeds() {
+  }
+
+  /**
+   * The seed from ICYPC_SEED, or a random one if it isn't set.
+   */
+  public static long fromEnvironment() {
+    String value = System.getenv(SEED_ENV);
+    if (value != null && !value.trim().isEmpty()) {
+      return Long.parseLong(value.trim());
+    }
+    return new Random().nextLong();
+  }
+
+  /**
+   * An independent seed for one stream of a seed, such as one child of a
+   * player or one side of a game.
+   */
+  public static long derive(long seed, int stream) {
+    SplittableRandom root = new SplittableRandom(seed);
+    for (int i = 0; i < stream; i++) {
+      root.split();
+    }
+    return root.split().nextLong();
+  }
+
+  /**
+   * One generator per child.
+   */
+  public static Random[] perChild(long seed, int count) {
+    Random[] streams = new Random[count];
+    for (int i = 0; i < count; i++) {
+      streams[i] = new Random(derive(seed, i));
+    }
+    return streams;
+  }
+}
@@ -0,0 +1,101 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tree layout for a game, either the engine's built-in layout or one of
+ * the files in maps/.  A map file has one line per row, top row first,
+ * with '.' for open snow and any other character for a tree.
+ */
+public final class GameMap {
+  private final String name;
+
+  private final boolean[] tree = new boolean[GameState.CELLS];
+
+  private GameMap(String name) {
+    this.name = name;
+  }
+
+  /** The layout the engine uses when it's not given a -map argument. */
+  public static GameMap defaultMap() {
+    GameMap map = new GameMap("default");
+    for (int[] t : Rules.DEFAULT_TREES) {
+      map.tree[GameState.cell(t[0], t[1])] = true;
+    }
+    return map;
+  }
+
+  /**
+   * Load a map file, with the same orientation and symmetry requirement
+   * as the engine.
+   */
+  public static GameMap load(Path file) throws IOException {
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    String fileName = file.getFileName().toString();
+    GameMap map = new GameMap(fileName.endsWith(".txt") ?
+        fileName.substring(0, fileName.length() - 4) : fileName);
+
+    for (int i = 0; i < Const.SIZE; i++) {
+      String line = i < lines.size() ? lines.get(i) : "";
+      for (int j = 0; j < Const.SIZE && j < line.length(); j++) {
+        if (line.charAt(j) != '.') {
+          map.tree[GameState.cell(j, Const.SIZE - i - 1)] = true;
+        }
+      }
+    }
+
+    for (int c = 0; c < GameState.CELLS; c++) {
+      if (map.tree[c] != map.tree[GameState.CELLS - 1 - c]) {
+        throw new IOException("Map is not symmetric: " + file);
+      }
+    }
+    return map;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isTree(int x, int y) {
+    return tree[GameState.cell(x, y)];
+  }
+
+  /** Reset a state to the start of a game on this map. */
+  public void initialize(GameState s) {
+    s.clear();
+    for (int c = 0; c < GameState.CELLS; c++) {
+      if (tree[c]) {
+        s.height[c] = 0;
+        s.ground[c] = Const.GROUND_TREE;
+      } else {
+        s.height[c] = Rules.INITIAL_SNOW_HEIGHT;
+        s.ground[c] = Const.GROUND_EMPTY;
+      }
+    }
+
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      int[] p = Rules.INITIAL_CHILD_POSITIONS[i];
+      s.cx[i] = p[0];
+      s.cy[i] = p[1];
+      // Blue children are listed in reverse, so child 4 + i mirrors child 3 - i.
+      int[] q = Rules.INITIAL_CHILD_POSITIONS[Const.CCOUNT - 1 - i];
+      s.cx[Const.CCOUNT + i] = Const.SIZE - 1 - q[0];
+      s.cy[Const.CCOUNT + i] = Const.SIZE - 1 - q[1];
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      s.standing[i] = true;
+    }
+    s.computeDomain();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,169 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.util.Arrays;
+
+/**
+ * Complete state of a game in world coordinates (red's point of view).
+ * Everything is kept in flat primitive arrays, indexed by
+ * {@link #cell(int, int)} for the board and 0..7 for the children, so a
+ * state can be copied or reset without allocating.
+ */
+public final class GameState {
+  public static final int CELLS = Const.SIZE * Const.SIZE;
+
+  public static final int CHILDREN = 2 * Const.CCOUNT;
+
+  /** Number of turns played so far. */
+  public int turn;
+
+  /** Snow height in each cell. */
+  public final int[] height = new int[CELLS];
+
+  /** Contents of each cell. */
+  public final int[] ground = new int[CELLS];
+
+  /** Child positions, stance, holding and daze countdown, red first. */
+  public final int[] cx = new int[CHILDREN];
+  public final int[] cy = new int[CHILDREN];
+  public final boolean[] standing = new boolean[CHILDREN];
+  public final int[] holding = new int[CHILDREN];
+  public final int[] dazed = new int[CHILDREN];
+
+  /** Knockback accumulated from hits, applied on the child's next move. */
+  public final int[] kx = new int[CHILDREN];
+  public final int[] ky = new int[CHILDREN];
+
+  /** Score, points from hits and cumulative territory for each team. */
+  public final int[] score = new int[2];
+  public final int[] hitScore = new int[2];
+  public final int[] domainVolume = new int[2];
+
+  /** Cells each team can see, as of the last call to computeDomain. */
+  public final boolean[][] visible = new boolean[2][CELLS];
+
+  /** Scratch distances to the nearest snowman of each team. */
+  private final int[][] snowmanDist = new int[2][CELLS];
+
+  public static int cell(int x, int y) {
+    return x * Const.SIZE + y;
+  }
+
+  public static int team(int child) {
+    return child < Const.CCOUNT ? Const.RED : Const.BLUE;
+  }
+
+  void clear() {
+    turn = 0;
+    Arrays.fill(height, 0);
+    Arrays.fill(ground, 0);
+    for (int i = 0; i < CHILDREN; i++) {
+      cx[i] = cy[i] = 0;
+      standing[i] = true;
+      holding[i] = Const.HOLD_EMPTY;
+      dazed[i] = 0;
+      kx[i] = ky[i] = 0;
+    }
+    for (int t = 0; t < 2; t++) {
+      score[t] = hitScore[t] = domainVolume[t] = 0;
+    }
+  }
+
+  /** Overwrite this state with a copy of another. */
+  public void copyFrom(GameState o) {
+    turn = o.turn;
+    System.arraycopy(o.height, 0, height, 0, CELLS);
+    System.arraycopy(o.ground, 0, ground, 0, CELLS);
+    System.arraycopy(o.cx, 0, cx, 0, CHILDREN);
+    System.arraycopy(o.cy, 0, cy, 0, CHILDREN);
+    System.arraycopy(o.standing, 0, standing, 0, CHILDREN);
+    System.arraycopy(o.holding, 0, holding, 0, CHILDREN);
+    System.arraycopy(o.dazed, 0, dazed, 0, CHILDREN);
+    System.arraycopy(o.kx, 0, kx, 0, CHILDREN);
+    System.arraycopy(o.ky, 0, ky, 0, CHILDREN);
+    System.arraycopy(o.score, 0, score, 0, 2);
+    System.arraycopy(o.hitScore, 0, hitScore, 0, 2);
+    System.arraycopy(o.domainVolume, 0, domainVolume, 0, 2);
+    System.arraycopy(o.visible[0], 0, visible[0], 0, CELLS);
+    System.arraycopy(o.visible[1], 0, visible[1], 0, CELLS);
+  }
+
+  public GameState copy() {
+    GameState s = new GameState();
+    s.copyFrom(this);
+    return s;
+  }
+
+  /** Index of the child standing in the given cell, or -1. */
+  public int childAt(int x, int y) {
+    for (int i = 0; i < CHILDREN; i++) {
+      if (cx[i] == x && cy[i] == y) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Recompute what each team can see, which cells each team's snowmen
+   * claim and the resulting scores.
+   */
+  public void computeDomain() {
+    final int r = Rules.VISIBILITY_RADIUS;
+    for (int t = 0; t < 2; t++) {
+      Arrays.fill(visible[t], false);
+      Arrays.fill(snowmanDist[t], Rules.VISIBILITY_SQUARED);
+    }
+
+    for (int i = 0; i < CHILDREN; i++) {
+      boolean[] vis = visible[team(i)];
+      int x0 = Math.max(cx[i] - r, 0), x1 = Math.min(cx[i] + r, Const.SIZE - 1);
+      int y0 = Math.max(cy[i] - r, 0), y1 = Math.min(cy[i] + r, Const.SIZE - 1);
+      for (int x = x0; x <= x1; x++) {
+        int dx = x - cx[i];
+        for (int y = y0; y <= y1; y++) {
+          int dy = y - cy[i];
+          if (dx * dx + dy * dy < Rules.VISIBILITY_SQUARED) {
+            vis[cell(x, y)] = true;
+          }
+        }
+      }
+    }
+
+    for (int sx = 0; sx < Const.SIZE; sx++) {
+      for (int sy = 0; sy < Const.SIZE; sy++) {
+        int g = ground[cell(sx, sy)];
+        if (g != Const.GROUND_SMR && g != Const.GROUND_SMB) {
+          continue;
+        }
+        int[] dist = snowmanDist[g == Const.GROUND_SMR ? Const.RED : Const.BLUE];
+        int x0 = Math.max(sx - r, 0), x1 = Math.min(sx + r, Const.SIZE - 1);
+        int y0 = Math.max(sy - r, 0), y1 = Math.min(sy + r, Const.SIZE - 1);
+        for (int x = x0; x <= x1; x++) {
+          for (int y = y0; y <= y1; y++) {
+            int d = (x - sx) * (x - sx) + (y - sy) * (y - sy);
+            if (d < dist[cell(x, y)]) {
+              dist[cell(x, y)] = d;
+            }
+          }
+        }
+      }
+    }
+
+    int ownedRed = 0, ownedBlue = 0;
+    int[] red = snowmanDist[Const.RED], blue = snowmanDist[Const.BLUE];
+    for (int c = 0; c < CELLS; c++) {
+      if (red[c] < Rules.VISIBILITY_SQUARED && red[c] < blue[c]) {
+        ownedRed++;
+        visible[Const.RED][c] = true;
+      }
+      if (blue[c] < Rules.VISIBILITY_SQUARED && blue[c] < red[c]) {
+        ownedBlue++;
+        visible[Const.BLUE][c] = true;
+      }
+    }
+    score[Const.RED] = hitScore[Const.RED] + ownedRed;
+    score[Const.BLUE] = hitScore[Const.BLUE] + ownedBlue;
+  }
+}
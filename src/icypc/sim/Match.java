@@ -0,0 +1,250 @@
+package icypc.sim;
+
+import icypc.Const;
+import icypc.Seeds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Plays one game between two players entirely inside the simulator.
+ *
+ * From the command line it takes the same arguments as the engine, so
+ * existing players can be run without the engine's process pipeline:
+ *
+ * <pre>
+ *   java icypc.sim.Match [-map maps/map1.txt] [-duration 180]
+ *       -player java [-cp path] icypc.Hunter -player java [-cp path] oocl.icypc.Seeker
+ * </pre>
+ *
+ * Players given as "-player local &lt;class&gt;" are created in this JVM and
+ * called directly, skipping the text protocol altogether.  With
+ * "-trace &lt;file&gt;" the game is saved for MatchTraceReader.
+ */
+public class Match {
+  /** Final scores of a game. */
+  public static final class Result {
+    public final int[] score;
+    public final int[] hitScore;
+    public final int[] domainVolume;
+
+    Result(GameState s) {
+      score = s.score.clone();
+      hitScore = s.hitScore.clone();
+      domainVolume = s.domainVolume.clone();
+    }
+
+    /**
+     * The winning side, decided the same way as the engine: score, then
+     * points from hits, then territory held over the game.
+     *
+     * @return RED, BLUE or -1 for a tie
+     */
+    public int winner() {
+      int[][] keys = {score, hitScore, domainVolume};
+      for (int[] k : keys) {
+        if (k[Const.RED] != k[Const.BLUE]) {
+          return k[Const.RED] > k[Const.BLUE] ? Const.RED : Const.BLUE;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Score: %d (%d %d) %d (%d %d)",
+          score[Const.RED], hitScore[Const.RED], domainVolume[Const.RED],
+          score[Const.BLUE], hitScore[Const.BLUE], domainVolume[Const.BLUE]);
+    }
+  }
+
+  private final GameMap map;
+
+  private final PlayerStrategy[] players;
+
+  private final int turns;
+
+  public Match(GameMap map, PlayerStrategy red, PlayerStrategy blue) {
+    this(map, red, blue, Rules.TURNS);
+  }
+
+  public Match(GameMap map, PlayerStrategy red, PlayerStrategy blue, int turns) {
+    this.map = map;
+    this.players = new PlayerStrategy[]{red, blue};
+    this.turns = turns;
+  }
+
+  public Result play() {
+    try {
+      return play(null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Play the game, recording every turn in the given trace unless it is
+   * null.  The trace is left open.
+   */
+  public Result play(MatchTraceWriter trace) throws IOException {
+    GameState state = new GameState();
+    map.initialize(state);
+    Simulator sim = new Simulator(state);
+    TurnSnapshot[] views = {new TurnSnapshot(), new TurnSnapshot()};
+    MoveList[] moves = {new MoveList(), new MoveList()};
+    if (trace != null) {
+      trace.start(state);
+    }
+
+    while (state.turn < turns) {
+      if (Thread.interrupted()) {
+        throw new CancellationException("Interrupted at turn " + state.turn);
+      }
+      sim.beginTurn();
+      for (int side = 0; side < 2; side++) {
+        views[side].fill(state, side);
+        moves[side].clear();
+        players[side].chooseMoves(views[side], moves[side]);
+        sim.setMoves(side, moves[side]);
+      }
+      sim.endTurn();
+      if (trace != null) {
+        trace.turn(state, moves[Const.RED], moves[Const.BLUE]);
+      }
+    }
+
+    for (PlayerStrategy p : players) {
+      p.gameOver();
+    }
+    return new Result(state);
+  }
+
+  /** Instantiate a player that runs inside this JVM. */
+  public static PlayerStrategy newLocalPlayer(String className) {
+    try {
+      return (PlayerStrategy) Class.forName(className).getConstructor().newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Not a PlayerStrategy: " + className, e);
+    }
+  }
+
+  /**
+   * Instantiate a player that runs inside this JVM with the given seed,
+   * if it has a constructor that takes one.
+   */
+  public static PlayerStrategy newLocalPlayer(String className, long seed) {
+    try {
+      Class<?> type = Class.forName(className);
+      try {
+        return (PlayerStrategy) type.getConstructor(long.class).newInstance(seed);
+      } catch (NoSuchMethodException e) {
+        return (PlayerStrategy) type.getConstructor().newInstance();
+      }
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Not a PlayerStrategy: " + className, e);
+    }
+  }
+
+  private static void usage() {
+    System.err.println("usage: Match");
+    System.err.println("  [-player java [-cp path] <main_class>]*");
+    System.err.println("  [-player pipe <n> <cmd/arg>{n}]*");
+    System.err.println("  [-player local <class implementing PlayerStrategy>]*");
+    System.err.println("  [-duration <n>]");
+    System.err.println("  [-seed <n>]");
+    System.err.println("  [-map <map_file>]");
+    System.err.println("  [-trace <trace_file>]");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws IOException {
+    GameMap map = GameMap.defaultMap();
+    int turns = Rules.TURNS;
+    Long seed = null;
+    String traceFile = null;
+    List<List<String>> commands = new ArrayList<>();
+    BitSet local = new BitSet();
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-map") && i + 1 < args.length) {
+        map = GameMap.load(Paths.get(args[++i]));
+      } else if (args[i].equals("-duration") && i + 1 < args.length) {
+        turns = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-trace") && i + 1 < args.length) {
+        traceFile = args[++i];
+      } else if (args[i].equals("-seed") && i + 1 < args.length) {
+        seed = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-player") && i + 2 < args.length && args[i + 1].equals("java")) {
+        List<String> cmd = new ArrayList<>(Arrays.asList("java"));
+        i += 2;
+        if (args[i].equals("-cp") && i + 2 < args.length) {
+          cmd.add("-cp");
+          cmd.add(args[i + 1]);
+          i += 2;
+        }
+        cmd.add(args[i]);
+        commands.add(cmd);
+      } else if (args[i].equals("-player") && i + 2 < args.length && args[i + 1].equals("local")) {
+        commands.add(Collections.singletonList(args[i + 2]));
+        local.set(commands.size() - 1);
+        i += 2;
+      } else if (args[i].equals("-player") && i + 2 < args.length && args[i + 1].equals("pipe")) {
+        int n = Integer.parseInt(args[i + 2]);
+        if (i + 2 + n >= args.length) {
+          usage();
+        }
+        commands.add(new ArrayList<>(Arrays.asList(args).subList(i + 3, i + 3 + n)));
+        i += 2 + n;
+      } else {
+        usage();
+      }
+    }
+    if (commands.size() != 2) {
+      usage();
+    }
+
+    PlayerStrategy[] players = new PlayerStrategy[2];
+    try {
+      for (int side = 0; side < 2; side++) {
+        if (seed == null) {
+          players[side] = local.get(side) ? newLocalPlayer(commands.get(side).get(0))
+              : new ProcessPlayer(commands.get(side));
+        } else {
+          long sideSeed = Seeds.derive(seed, side);
+          players[side] = local.get(side) ? newLocalPlayer(commands.get(side).get(0), sideSeed)
+              : new ProcessPlayer(commands.get(side), sideSeed);
+        }
+      }
+
+      long start = System.nanoTime();
+      Match match = new Match(map, players[Const.RED], players[Const.BLUE], turns);
+      Result result;
+      if (traceFile == null) {
+        result = match.play();
+      } else {
+        try (MatchTraceWriter trace = new MatchTraceWriter(Paths.get(traceFile))) {
+          result = match.play(trace);
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+
+      int winner = result.winner();
+      System.out.println("Winner: " + (winner < 0 ? "Tie" : Integer.toString(winner)));
+      System.out.println(result);
+      System.err.printf("%d turns in %.1f ms%n", turns, elapsed / 1e6);
+    } finally {
+      for (PlayerStrategy p : players) {
+        if (p instanceof ProcessPlayer) {
+          ((ProcessPlayer) p).close();
+        }
+      }
+    }
+  }
+}
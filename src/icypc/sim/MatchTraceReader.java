@@ -0,0 +1,202 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a trace written by MatchTraceWriter through a read-only memory
+ * mapping.  The footer's index gives each record's offset, so reaching a
+ * turn means going back to the nearest whole board, at most
+ * KEYFRAME_INTERVAL records, and applying the changes from there.  The
+ * last board built is kept, so stepping forward through a game applies
+ * one record's changes per turn.
+ *
+ * A reader is not safe for use by several threads; open one per thread.
+ *
+ * <pre>
+ *   java icypc.sim.MatchTraceReader game.trace [turn]
+ * </pre>
+ */
+public final class MatchTraceReader {
+  private final ByteBuffer data;
+
+  private final long[] offsets;
+
+  /** The board as of record cached. */
+  private final int[] height = new int[GameState.CELLS];
+
+  private final int[] ground = new int[GameState.CELLS];
+
+  private int cached = -1;
+
+  public MatchTraceReader(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < MatchTraceWriter.HEADER_SIZE + MatchTraceWriter.FOOTER_SIZE) {
+        throw new IOException(file + " is not a match trace");
+      }
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    int limit = data.limit();
+    if (data.getInt(0) != MatchTraceWriter.MAGIC
+        || data.getInt(limit - 4) != MatchTraceWriter.MAGIC) {
+      throw new IOException(file + " is not a complete match trace");
+    }
+    if (data.getInt(4) != MatchTraceWriter.VERSION || data.getInt(8) != Const.SIZE
+        || data.getInt(12) != GameState.CHILDREN) {
+      throw new IOException(file + " was written by an incompatible version");
+    }
+    long indexOffset = data.getLong(limit - MatchTraceWriter.FOOTER_SIZE);
+    int records = data.getInt(limit - 8);
+    offsets = new long[records];
+    for (int i = 0; i < records; i++) {
+      offsets[i] = data.getLong((int) indexOffset + 8 * i);
+    }
+  }
+
+  /** Turns played; records run from 0, the start, to this. */
+  public int turns() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Fill in the state after the given number of turns.  What each team
+   * can see is worked out again from the board.
+   */
+  public void read(int turn, GameState into) {
+    board(turn);
+    System.arraycopy(height, 0, into.height, 0, GameState.CELLS);
+    System.arraycopy(ground, 0, into.ground, 0, GameState.CELLS);
+
+    int p = offset(turn);
+    into.turn = data.getInt(p);
+    int scores = p + 5;
+    p = scores + 6 * 4;
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      into.cx[i] = data.get(p);
+      into.cy[i] = data.get(p + 1);
+      into.standing[i] = data.get(p + 2) != 0;
+      into.holding[i] = data.get(p + 3);
+      into.dazed[i] = data.get(p + 4);
+      into.kx[i] = data.get(p + 5);
+      into.ky[i] = data.get(p + 6);
+      p += MatchTraceWriter.CHILD_BYTES;
+    }
+    into.computeDomain();
+    for (int t = 0; t < 2; t++) {
+      into.score[t] = data.getInt(scores + 12 * t);
+      into.hitScore[t] = data.getInt(scores + 12 * t + 4);
+      into.domainVolume[t] = data.getInt(scores + 12 * t + 8);
+    }
+  }
+
+  /** Snow height in each cell after the given number of turns. */
+  public int[] height(int turn) {
+    board(turn);
+    return height.clone();
+  }
+
+  /** Contents of each cell after the given number of turns. */
+  public int[] ground(int turn) {
+    board(turn);
+    return ground.clone();
+  }
+
+  /**
+   * The moves one side gave for the given turn, numbered from 1, in its
+   * own frame of reference.
+   */
+  public void moves(int turn, int side, MoveList into) {
+    int p = offset(turn) + 5 + 6 * 4 + GameState.CHILDREN * MatchTraceWriter.CHILD_BYTES
+        + side * Const.CCOUNT * MatchTraceWriter.MOVE_BYTES;
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      into.set(i, data.get(p), data.get(p + 1), data.get(p + 2));
+      p += MatchTraceWriter.MOVE_BYTES;
+    }
+  }
+
+  private int offset(int turn) {
+    if (turn < 0 || turn >= offsets.length) {
+      throw new IndexOutOfBoundsException("turn " + turn + " of " + turns());
+    }
+    return (int) offsets[turn];
+  }
+
+  /** Build the board for a record in height and ground. */
+  private void board(int turn) {
+    int key = turn;
+    while (data.get(offset(key) + 4) != MatchTraceWriter.KEY) {
+      key--;
+    }
+    int from;
+    if (cached >= key && cached <= turn) {
+      from = cached + 1;
+    } else {
+      int p = offset(key) + MatchTraceWriter.FIXED_SIZE;
+      for (int c = 0; c < GameState.CELLS; c++) {
+        height[c] = data.get(p++);
+        ground[c] = data.get(p++);
+      }
+      from = key + 1;
+    }
+    for (int r = from; r <= turn; r++) {
+      int p = offset(r) + MatchTraceWriter.FIXED_SIZE;
+      int count = data.getShort(p);
+      p += 2;
+      for (int k = 0; k < count; k++) {
+        int c = data.getShort(p);
+        height[c] = data.get(p + 2);
+        ground[c] = data.get(p + 3);
+        p += MatchTraceWriter.DELTA_CELL_BYTES;
+      }
+    }
+    cached = turn;
+  }
+
+  /** Print a turn of a trace, the last one by default. */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("usage: MatchTraceReader <trace> [<turn>]");
+      System.exit(2);
+    }
+    MatchTraceReader trace = new MatchTraceReader(Paths.get(args[0]));
+    int turn = args.length > 1 ? Integer.parseInt(args[1]) : trace.turns();
+    GameState s = new GameState();
+    trace.read(turn, s);
+
+    StringBuilder sb = new StringBuilder(4096);
+    sb.append("Turn ").append(s.turn).append(" of ").append(trace.turns()).append('\n');
+    sb.append(new Match.Result(s)).append('\n');
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        int c = GameState.cell(i, j);
+        sb.append(j > 0 ? " " : "").append(s.height[c]).append((char) ('a' + s.ground[c]));
+      }
+      sb.append('\n');
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      sb.append(s.cx[i]).append(' ').append(s.cy[i]).append(' ')
+          .append(s.standing[i] ? 'S' : 'C').append(' ')
+          .append((char) ('a' + s.holding[i])).append(' ')
+          .append(s.dazed[i]).append('\n');
+    }
+    if (turn > 0) {
+      MoveList moves = new MoveList();
+      for (int side = 0; side < 2; side++) {
+        trace.moves(turn, side, moves);
+        sb.append(side == Const.RED ? "red:" : "blue:");
+        for (int i = 0; i < Const.CCOUNT; i++) {
+          sb.append("  ").append(moves.toString(i));
+        }
+        sb.append('\n');
+      }
+    }
+    System.out.print(sb);
+  }
+}
@@ -0,0 +1,184 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a game as a compact binary trace that MatchTraceReader can open
+ * at any turn without reading the turns before it.
+ *
+ * The file is a header, one record per turn and a footer.  Record 0 is
+ * the starting position and record n the state after turn n, along with
+ * the moves both players gave for it, in their own frame of reference as
+ * MoveList holds them.  Every record has the scores and all the children;
+ * the board is stored whole every KEYFRAME_INTERVAL records and otherwise
+ * as just the cells that changed.  The footer is an index of where each
+ * record starts, followed by the index's own offset, the number of
+ * records and the magic number again, so a reader finds it from the end
+ * of the file.  A trace with no footer was never closed and is rejected.
+ *
+ * <pre>
+ *   header:  magic, version, board size, children           (4 ints)
+ *   record:  turn (int), kind (byte), score, hitScore and domainVolume
+ *            for red then blue (6 ints), per child x, y, standing,
+ *            holding, dazed, kx, ky (7 bytes), per side and child action,
+ *            x, y (3 bytes), then
+ *              KEY:   height, ground for every cell (2 bytes each)
+ *              DELTA: count (short), then cell (short), height, ground
+ *   footer:  record offsets (longs), index offset (long), records (int),
+ *            magic (int)
+ * </pre>
+ *
+ * All values are big-endian.  A record is a few hundred bytes at most
+ * once the opening turns are over, so a 180 turn game is around 30KB.
+ */
+public final class MatchTraceWriter implements AutoCloseable {
+  static final int MAGIC = 0x49435431; // "ICT1"
+
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 16;
+
+  static final int FOOTER_SIZE = 16;
+
+  /** Every this many records the whole board is stored. */
+  static final int KEYFRAME_INTERVAL = 32;
+
+  static final byte KEY = 0;
+
+  static final byte DELTA = 1;
+
+  static final int CHILD_BYTES = 7;
+
+  static final int MOVE_BYTES = 3;
+
+  /** Turn, kind, scores, children and moves. */
+  static final int FIXED_SIZE = 4 + 1 + 6 * 4 + GameState.CHILDREN * CHILD_BYTES
+      + GameState.CHILDREN * MOVE_BYTES;
+
+  static final int KEY_SIZE = GameState.CELLS * 2;
+
+  static final int DELTA_CELL_BYTES = 4;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + KEY_SIZE);
+
+  /** The board as of the last record. */
+  private final int[] height = new int[GameState.CELLS];
+
+  private final int[] ground = new int[GameState.CELLS];
+
+  /** Cells that changed since the last record. */
+  private final int[] changed = new int[GameState.CELLS];
+
+  private final MoveList idle = new MoveList();
+
+  private long[] offsets = new long[Rules.TURNS + 1];
+
+  private int records;
+
+  private long position;
+
+  public MatchTraceWriter(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    buffer.clear();
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(Const.SIZE).putInt(GameState.CHILDREN);
+    flush();
+  }
+
+  /** Record the starting position, before any moves. */
+  public void start(GameState s) throws IOException {
+    write(s, idle, idle);
+  }
+
+  /** Record the state after a turn and the moves that led to it. */
+  public void turn(GameState s, MoveList red, MoveList blue) throws IOException {
+    write(s, red, blue);
+  }
+
+  private void write(GameState s, MoveList red, MoveList blue) throws IOException {
+    int count = 0;
+    if (records % KEYFRAME_INTERVAL != 0) {
+      for (int c = 0; c < GameState.CELLS; c++) {
+        if (s.height[c] != height[c] || s.ground[c] != ground[c]) {
+          changed[count++] = c;
+        }
+      }
+    }
+    boolean key = records % KEYFRAME_INTERVAL == 0 || 2 + count * DELTA_CELL_BYTES >= KEY_SIZE;
+
+    buffer.clear();
+    buffer.putInt(s.turn);
+    buffer.put(key ? KEY : DELTA);
+    for (int t = 0; t < 2; t++) {
+      buffer.putInt(s.score[t]).putInt(s.hitScore[t]).putInt(s.domainVolume[t]);
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      buffer.put((byte) s.cx[i]).put((byte) s.cy[i]).put((byte) (s.standing[i] ? 1 : 0))
+          .put((byte) s.holding[i]).put((byte) s.dazed[i])
+          .put((byte) s.kx[i]).put((byte) s.ky[i]);
+    }
+    putMoves(red);
+    putMoves(blue);
+
+    if (key) {
+      for (int c = 0; c < GameState.CELLS; c++) {
+        buffer.put((byte) s.height[c]).put((byte) s.ground[c]);
+      }
+    } else {
+      buffer.putShort((short) count);
+      for (int k = 0; k < count; k++) {
+        int c = changed[k];
+        buffer.putShort((short) c).put((byte) s.height[c]).put((byte) s.ground[c]);
+      }
+    }
+    System.arraycopy(s.height, 0, height, 0, GameState.CELLS);
+    System.arraycopy(s.ground, 0, ground, 0, GameState.CELLS);
+
+    if (records == offsets.length) {
+      offsets = Arrays.copyOf(offsets, 2 * records);
+    }
+    offsets[records++] = position;
+    flush();
+  }
+
+  private void putMoves(MoveList moves) {
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      buffer.put((byte) moves.action[i]).put((byte) moves.x[i]).put((byte) moves.y[i]);
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer);
+    }
+  }
+
+  /** Write the index and footer. */
+  @Override
+  public void close() throws IOException {
+    try {
+      ByteBuffer index = ByteBuffer.allocate(records * 8 + FOOTER_SIZE);
+      long indexOffset = position;
+      for (int i = 0; i < records; i++) {
+        index.putLong(offsets[i]);
+      }
+      index.putLong(indexOffset).putInt(records).putInt(MAGIC);
+      index.flip();
+      while (index.hasRemaining()) {
+        channel.write(index);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.PrintStream;
+
+/**
+ * The moves one player makes in a turn, one per child, in the player's
+ * own frame of reference.  Reused from turn to turn.
+ */
+public final class MoveList {
+  public final int[] action = new int[Const.CCOUNT];
+  public final int[] x = new int[Const.CCOUNT];
+  public final int[] y = new int[Const.CCOUNT];
+
+  public MoveList() {
+    clear();
+  }
+
+  /** Set every child to idle. */
+  public void clear() {
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      set(i, Rules.IDLE);
+    }
+  }
+
+  public void set(int child, int act) {
+    action[child] = act;
+    x[child] = -1;
+    y[child] = -1;
+  }
+
+  public void set(int child, int act, int destX, int destY) {
+    action[child] = act;
+    x[child] = destX;
+    y[child] = destY;
+  }
+
+  /**
+   * Parse one line of the text protocol, such as "run 3 4" or "crush",
+   * into the move for the given child.  Anything unrecognized is idle.
+   */
+  public void parse(int child, String line) {
+    String[] tokens = line.trim().split("\\s+");
+    int act = Rules.actionCode(tokens[0]);
+    if (Rules.REQUIRES_DEST[act]) {
+      try {
+        set(child, act, Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+      } catch (RuntimeException e) {
+        set(child, Rules.IDLE);
+      }
+    } else {
+      set(child, act);
+    }
+  }
+
+  /** Write the moves in the text protocol, one line per child. */
+  public void write(PrintStream out) {
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      out.println(toString(i));
+    }
+  }
+
+  public String toString(int child) {
+    int act = action[child];
+    if (Rules.REQUIRES_DEST[act]) {
+      return Rules.ACTION_NAMES[act] + " " + x[child] + " " + y[child];
+    }
+    return Rules.ACTION_NAMES[act];
+  }
+}
@@ -0,0 +1,68 @@
+package icypc.sim;
+
+import icypc.Seeds;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stand-in for a player that the engine can start with
+ * "-player java icypc.sim.PlayerLauncher".  It connects to a running
+ * PlayerServer and copies the engine's input and the player's output
+ * between the two, so the game is played by an already-warm JVM.
+ *
+ * The engine passes no arguments to players, so the socket and the
+ * player class come from the ICYPC_PLAYER_SOCKET and ICYPC_PLAYER
+ * environment variables.  ICYPC_SEED, if set, is passed on to the server
+ * with the class, since the player is made in the server's JVM and can't
+ * see the launcher's environment.
+ */
+public class PlayerLauncher {
+  private static final int BUFFER_SIZE = 8192;
+
+  public static void main(String[] args) throws IOException {
+    String socket = System.getenv().getOrDefault(PlayerServer.SOCKET_ENV, PlayerServer.DEFAULT_SOCKET);
+    String player = System.getenv().getOrDefault(PlayerServer.PLAYER_ENV, PlayerServer.DEFAULT_PLAYER);
+
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socket));
+      String seed = System.getenv(Seeds.SEED_ENV);
+      String hello = seed == null || seed.trim().isEmpty() ? player : player + " " + seed.trim();
+      write(channel, (hello + "\n").getBytes(StandardCharsets.UTF_8), -1);
+
+      // The channel is used directly; the stream wrappers from Channels lock
+      // the channel, so a blocked read would stop the other thread writing.
+      Thread upstream = new Thread(() -> {
+        try {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          int n;
+          while ((n = System.in.read(buffer)) >= 0) {
+            write(channel, buffer, n);
+          }
+          channel.shutdownOutput();
+        } catch (IOException e) {
+          // The server closed the connection first; nothing left to send.
+        }
+      });
+      upstream.setDaemon(true);
+      upstream.start();
+
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (channel.read(buffer) >= 0) {
+        System.out.write(buffer.array(), 0, buffer.position());
+        System.out.flush();
+        buffer.clear();
+      }
+    }
+  }
+
+  private static void write(SocketChannel channel, byte[] bytes, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length < 0 ? bytes.length : length);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
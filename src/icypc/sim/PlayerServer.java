@@ -0,0 +1,148 @@
+package icypc.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+
+/**
+ * A long-lived JVM that plays games for the engine.  The engine starts
+ * PlayerLauncher instead of the player, and the launcher connects here
+ * over a Unix domain socket, names the player class and then relays the
+ * engine's text protocol.  Each connection gets a new player instance on
+ * its own thread, so games don't share state, but the classes are loaded
+ * and compiled once for all of them.
+ *
+ * <pre>
+ *   java icypc.sim.PlayerServer [-socket /tmp/icypc-player.sock] [-warmup 5] [-player oocl.icypc.Seeker]
+ *   java -jar icypc.jar -player java icypc.sim.PlayerLauncher -player java icypc.Hunter
+ * </pre>
+ */
+public class PlayerServer {
+  /** Socket used when neither side is told otherwise. */
+  public static final String DEFAULT_SOCKET = "/tmp/icypc-player.sock";
+
+  /** Environment variable naming the socket, for the launcher. */
+  public static final String SOCKET_ENV = "ICYPC_PLAYER_SOCKET";
+
+  /** Environment variable naming the player class, for the launcher. */
+  public static final String PLAYER_ENV = "ICYPC_PLAYER";
+
+  /** Player hosted when the launcher doesn't name one. */
+  public static final String DEFAULT_PLAYER = "oocl.icypc.Seeker";
+
+  /** Same depth as a player's main thread would get from the engine. */
+  static final long STACK_SIZE = 16L << 20;
+
+  private final Path socket;
+
+  public PlayerServer(Path socket) {
+    this.socket = socket;
+  }
+
+  /**
+   * Play some games against itself so the player's hot paths are already
+   * compiled when the first real game starts.
+   */
+  public static void warmUp(String className, int games) {
+    for (int i = 0; i < games; i++) {
+      new Match(GameMap.defaultMap(), Match.newLocalPlayer(className),
+          Match.newLocalPlayer(className)).play();
+    }
+  }
+
+  public void serve() throws IOException {
+    Files.deleteIfExists(socket);
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      socket.toFile().deleteOnExit();
+      System.err.println("Serving players on " + socket);
+
+      int games = 0;
+      while (true) {
+        SocketChannel channel = server.accept();
+        Thread game = new Thread(null, () -> play(channel), "game-" + games++, STACK_SIZE);
+        game.setDaemon(true);
+        game.start();
+      }
+    }
+  }
+
+  /** Play one game over an accepted connection. */
+  static void play(SocketChannel channel) {
+    try (SocketChannel c = channel) {
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(Channels.newInputStream(c), StandardCharsets.UTF_8));
+      PrintStream out = new PrintStream(
+          new BufferedOutputStream(Channels.newOutputStream(c)), false, "UTF-8");
+
+      // The launcher sends the player class on the first line, followed by
+      // the launcher's ICYPC_SEED if it has one.
+      String hello = in.readLine();
+      if (hello == null) {
+        return;
+      }
+      PlayerStrategy player = newPlayer(hello);
+
+      Scanner scanner = new Scanner(in);
+      TurnSnapshot turn = new TurnSnapshot();
+      MoveList moves = new MoveList();
+      while (turn.read(scanner)) {
+        moves.clear();
+        player.chooseMoves(turn, moves);
+        moves.write(out);
+        out.flush();
+      }
+      player.gameOver();
+    } catch (IOException | RuntimeException | StackOverflowError e) {
+      System.err.println("Game ended with " + e);
+    }
+  }
+
+  /** The player named by the launcher's first line, "class [seed]". */
+  static PlayerStrategy newPlayer(String hello) {
+    String[] words = hello.trim().split("\\s+");
+    if (words.length > 1) {
+      return Match.newLocalPlayer(words[0], Long.parseLong(words[1]));
+    }
+    return Match.newLocalPlayer(words[0]);
+  }
+
+  public static void main(String[] args) throws IOException {
+    String socket = System.getenv().getOrDefault(SOCKET_ENV, DEFAULT_SOCKET);
+    String player = DEFAULT_PLAYER;
+    int warmup = 0;
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-socket") && i + 1 < args.length) {
+        socket = args[++i];
+      } else if (args[i].equals("-player") && i + 1 < args.length) {
+        player = args[++i];
+      } else if (args[i].equals("-warmup") && i + 1 < args.length) {
+        warmup = Integer.parseInt(args[++i]);
+      } else {
+        System.err.println("usage: PlayerServer [-socket <path>] [-player <class>] [-warmup <games>]");
+        System.exit(2);
+      }
+    }
+
+    if (warmup > 0) {
+      long start = System.nanoTime();
+      warmUp(player, warmup);
+      System.err.printf("Warmed up %s with %d games in %.1f s%n", player, warmup,
+          (System.nanoTime() - start) / 1e9);
+    }
+    new PlayerServer(Paths.get(socket)).serve();
+  }
+}
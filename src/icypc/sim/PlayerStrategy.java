@@ -0,0 +1,18 @@
+package icypc.sim;
+
+/**
+ * A player that can be driven directly by the simulator.  Each turn it is
+ * given a parsed snapshot in its own frame of reference and fills in one
+ * move per child.
+ */
+public interface PlayerStrategy {
+  /**
+   * Choose the moves for this turn.  The snapshot and move list are owned
+   * by the caller and reused between turns.
+   */
+  void chooseMoves(TurnSnapshot snapshot, MoveList moves);
+
+  /** Called once when the game is over. */
+  default void gameOver() {
+  }
+}
@@ -0,0 +1,95 @@
+package icypc.sim;
+
+import icypc.Const;
+import icypc.Seeds;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an unmodified player in its own process and talks to it over the
+ * engine's text protocol, so any existing player can be used with the
+ * simulator.
+ */
+public class ProcessPlayer implements PlayerStrategy, AutoCloseable {
+  /** How long close() waits for the player to exit on its own. */
+  private static final long EXIT_WAIT_MILLIS = 1000;
+
+  private final Process process;
+
+  private final PrintStream toPlayer;
+
+  private final BufferedReader fromPlayer;
+
+  public ProcessPlayer(List<String> command) throws IOException {
+    this(new ProcessBuilder(command));
+  }
+
+  /**
+   * Start a player with its random seed in the environment, for players
+   * that read it with Seeds.fromEnvironment().
+   */
+  public ProcessPlayer(List<String> command, long seed) throws IOException {
+    this(withSeed(new ProcessBuilder(command), seed));
+  }
+
+  private ProcessPlayer(ProcessBuilder builder) throws IOException {
+    process = builder
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    toPlayer = new PrintStream(new BufferedOutputStream(process.getOutputStream()), false, "UTF-8");
+    fromPlayer = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  private static ProcessBuilder withSeed(ProcessBuilder builder, long seed) {
+    builder.environment().put(Seeds.SEED_ENV, Long.toString(seed));
+    return builder;
+  }
+
+  @Override
+  public void chooseMoves(TurnSnapshot snapshot, MoveList moves) {
+    snapshot.write(toPlayer);
+    toPlayer.flush();
+    try {
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        String line = fromPlayer.readLine();
+        if (line == null) {
+          throw new IOException("Player exited during turn " + snapshot.turn);
+        }
+        if (line.trim().isEmpty()) {
+          i--;
+          continue;
+        }
+        moves.parse(i, line);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void gameOver() {
+    toPlayer.println(-1);
+    toPlayer.flush();
+  }
+
+  @Override
+  public void close() {
+    toPlayer.close();
+    try {
+      // give a player that has been told the game is over a moment to
+      // write out anything it keeps until the end
+      process.waitFor(EXIT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    process.destroy();
+  }
+}
@@ -0,0 +1,138 @@
+package icypc.sim;
+
+import icypc.Const;
+
+/**
+ * Rule tables for the game, transcribed from the reference engine
+ * (icypc.jar).  Tables are indexed by the holding and ground constants
+ * in {@link Const}; an entry of {@link #INVALID} means the action is not
+ * allowed in that state.
+ */
+public final class Rules {
+  private Rules() {
+  }
+
+  /** Actions a child can take, in the order used by the engine. */
+  public static final int IDLE = 0;
+  public static final int RUN = 1;
+  public static final int CRAWL = 2;
+  public static final int CROUCH = 3;
+  public static final int STAND = 4;
+  public static final int PICKUP = 5;
+  public static final int DROP = 6;
+  public static final int CRUSH = 7;
+  public static final int THROW = 8;
+  public static final int CATCH = 9;
+
+  /** Names of the actions, as written in the text protocol. */
+  public static final String[] ACTION_NAMES = {
+      "idle", "run", "crawl", "crouch", "stand", "pickup", "drop", "crush", "throw", "catch"
+  };
+
+  /** True for the actions that take a destination. */
+  public static final boolean[] REQUIRES_DEST = {
+      false, true, true, false, false, true, true, false, true, true
+  };
+
+  /** Marker for a disallowed transition. */
+  public static final int INVALID = -1;
+
+  /** Total number of turns in a game. */
+  public static final int TURNS = 180;
+
+  /** Initial snow height in every cell. */
+  public static final int INITIAL_SNOW_HEIGHT = 3;
+
+  /** Farthest a child can run or crawl in one turn, as a squared distance. */
+  public static final int RUN_LIMIT_SQUARED = 4;
+  public static final int CRAWL_LIMIT_SQUARED = 1;
+
+  /** Throw range, as a squared distance. */
+  public static final int THROW_LIMIT_SQUARED = Const.THROW_LIMIT * Const.THROW_LIMIT;
+
+  /** Radius children and snowmen can see and claim, as a squared distance. */
+  public static final int VISIBILITY_SQUARED = 64;
+
+  /** Radius children and snowmen can see and claim, in cells. */
+  public static final int VISIBILITY_RADIUS = 8;
+
+  /** Points for hitting a child on the other team. */
+  public static final int HIT_SCORE = 10;
+
+  /** Daze countdown assigned to a child that gets hit. */
+  public static final int DAZE_COUNTDOWN = 5;
+
+  /** Starting positions of the red children; blue starts at the mirror image. */
+  public static final int[][] INITIAL_CHILD_POSITIONS = {{0, 2}, {1, 2}, {2, 1}, {2, 0}};
+
+  /** Trees used when no map is given. */
+  public static final int[][] DEFAULT_TREES = {{15, 8}, {8, 15}, {15, 15}, {22, 15}, {15, 22}};
+
+  /** Snow carried for each holding state. */
+  public static final int[] HOLDING_HEIGHT = {0, 1, 2, 3, 1, 2, 3, 2, 3};
+
+  public static final int[] HOLDING_DROP_UPDATE = {-1, 0, 0, 0, 0, 4, 5, 0, 0};
+
+  public static final int[] HOLDING_CRUSH_UPDATE = {-1, 4, 7, 8, -1, -1, -1, -1, -1};
+
+  public static final int[] HOLDING_CATCH_UPDATE = {4, -1, -1, -1, 5, 6, -1, -1, -1};
+
+  public static final int[] HOLDING_THROW_UPDATE = {-1, -1, -1, -1, 0, 4, 5, -1, -1};
+
+  /** New ground, indexed by [holding][ground], after a drop. */
+  public static final int[][] GROUND_DROP_UPDATE = {
+      {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {0, -1, 2, 3, 4, 5, 6, 7, 8, 8},
+      {0, -1, 2, 3, 4, 5, 6, 7, 8, 8},
+      {0, -1, 2, 3, 4, 5, 6, 7, 8, 8},
+      {2, -1, 2, 4, 4, 7, 8, 7, 8, 8},
+      {2, -1, 2, 4, 4, 7, 8, 7, 8, 8},
+      {2, -1, 2, 4, 4, 7, 8, 7, 8, 8},
+      {3, -1, 3, 3, 3, 6, 6, 6, 6, 6},
+      {5, -1, 5, 5, 5, 5, 5, 5, 5, 5},
+  };
+
+  /** New ground, indexed by ground, after a pickup. */
+  public static final int[] GROUND_PICKUP_UPDATE = {0, -1, 0, 0, 3, 0, 5, 5, 6, 6};
+
+  /** New holding, indexed by [holding][ground], after a pickup. */
+  public static final int[][] HOLDING_PICKUP_UPDATE = {
+      {1, -1, 4, 7, 4, 8, 7, 4, 4, 4},
+      {2, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {3, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {-1, -1, 5, -1, 5, -1, -1, 5, 5, 5},
+      {-1, -1, 6, -1, 6, -1, -1, 6, 6, 6},
+      {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+      {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1},
+  };
+
+  /** Ground types a child can't move into. */
+  public static final boolean[] GROUND_OBSTACLE = {
+      false, true, false, false, false, false, false, false, true, true
+  };
+
+  /**
+   * Round to the nearest integer, with halves rounded away from zero, the
+   * same way the engine interpolates movement and snowball flight.
+   */
+  public static int round(double v) {
+    return v < 0 ? -(int) Math.round(-v) : (int) Math.round(v);
+  }
+
+  /** Chebyshev distance between two cells. */
+  public static int maxDist(int x1, int y1, int x2, int y2) {
+    return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2));
+  }
+
+  /** Action code for a protocol name, or IDLE if the name is unknown. */
+  public static int actionCode(String name) {
+    for (int i = 0; i < ACTION_NAMES.length; i++) {
+      if (ACTION_NAMES[i].equals(name)) {
+        return i;
+      }
+    }
+    return IDLE;
+  }
+}
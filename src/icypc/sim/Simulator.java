@@ -0,0 +1,524 @@
+package icypc.sim;
+
+import icypc.Const;
+
+/**
+ * Applies the game rules to a {@link GameState}, one turn at a time.
+ * This is a transcription of the reference engine's turn logic, in the
+ * same order, so a game replayed here matches one played by icypc.jar
+ * given the same moves.  All working storage is preallocated, so turns
+ * don't allocate.
+ *
+ * A turn is played in three steps: {@link #beginTurn()} counts down the
+ * daze timers (players see the result), then each side's moves are set,
+ * then {@link #endTurn()} resolves them.
+ */
+public final class Simulator {
+  /** Most interpolated movements in one turn: every child, every snowball. */
+  private static final int MAX_MOVERS = 2 * GameState.CHILDREN;
+
+  private final GameState s;
+
+  /** Pending action and destination for each child, in world coordinates. */
+  private final int[] action = new int[GameState.CHILDREN];
+  private final int[] ax = new int[GameState.CHILDREN];
+  private final int[] ay = new int[GameState.CHILDREN];
+
+  /** Cells holding a child when drops and pickups are resolved. */
+  private final boolean[] occupied = new boolean[GameState.CELLS];
+
+  /** Number of drops or pickups aimed at each cell. */
+  private final int[] targetCount = new int[GameState.CELLS];
+
+  /**
+   * Movements in progress.  Each one steps from p toward p + v over num
+   * sub-steps.  Child movements have the index of the child, snowballs
+   * have -1 and keep their own position and height.
+   */
+  private int moverCount;
+  private final int[] order = new int[MAX_MOVERS];
+  private final int[] mT = new int[MAX_MOVERS];
+  private final int[] mNum = new int[MAX_MOVERS];
+  private final int[] mPx = new int[MAX_MOVERS];
+  private final int[] mPy = new int[MAX_MOVERS];
+  private final int[] mVx = new int[MAX_MOVERS];
+  private final int[] mVy = new int[MAX_MOVERS];
+  private final int[] mChild = new int[MAX_MOVERS];
+  private final boolean[] mLive = new boolean[MAX_MOVERS];
+  private final boolean[] mBlocked = new boolean[MAX_MOVERS];
+  private final int[] sbX = new int[MAX_MOVERS];
+  private final int[] sbY = new int[MAX_MOVERS];
+  private final int[] sbHeight = new int[MAX_MOVERS];
+  private final int[] sbStartHeight = new int[MAX_MOVERS];
+  private final int[] sbColor = new int[MAX_MOVERS];
+
+  public Simulator(GameState s) {
+    this.s = s;
+  }
+
+  public GameState getState() {
+    return s;
+  }
+
+  public boolean isGameOver() {
+    return s.turn >= Rules.TURNS;
+  }
+
+  /** Count down daze timers at the start of a turn. */
+  public void beginTurn() {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (s.dazed[i] > 0) {
+        s.dazed[i]--;
+      }
+      action[i] = Rules.IDLE;
+    }
+  }
+
+  /** Set the move for one child, in world coordinates. */
+  public void setMove(int child, int act, int x, int y) {
+    action[child] = act;
+    ax[child] = x;
+    ay[child] = y;
+  }
+
+  /**
+   * Set the moves for one side, given in that side's frame of reference.
+   * Blue's children and coordinates are mirrored the same way the engine
+   * mirrors its view of the board.
+   */
+  public void setMoves(int side, MoveList moves) {
+    final int last = Const.SIZE - 1;
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      if (side == Const.RED) {
+        setMove(i, moves.action[i], moves.x[i], moves.y[i]);
+      } else {
+        int j = Const.CCOUNT - 1 - i;
+        int act = moves.action[j];
+        if (Rules.REQUIRES_DEST[act]) {
+          setMove(Const.CCOUNT + i, act, last - moves.x[j], last - moves.y[j]);
+        } else {
+          setMove(Const.CCOUNT + i, act, -1, -1);
+        }
+      }
+    }
+  }
+
+  /** Play a whole turn with the given moves. */
+  public void turn(MoveList red, MoveList blue) {
+    beginTurn();
+    setMoves(Const.RED, red);
+    setMoves(Const.BLUE, blue);
+    endTurn();
+  }
+
+  private static boolean onBoard(int x, int y) {
+    return x >= 0 && x < Const.SIZE && y >= 0 && y < Const.SIZE;
+  }
+
+  private int squaredDist(int i) {
+    int dx = ax[i] - s.cx[i], dy = ay[i] - s.cy[i];
+    return dx * dx + dy * dy;
+  }
+
+  /** Resolve the moves that have been set for this turn. */
+  public void endTurn() {
+    validateMoves();
+    resolveDrops();
+    resolvePickups();
+    resolveInPlaceActions();
+    startMovement();
+    runMovement();
+    checkSnowballHits();
+    s.computeDomain();
+    for (int t = 0; t < 2; t++) {
+      s.domainVolume[t] += s.score[t] - s.hitScore[t];
+    }
+    s.turn++;
+  }
+
+  /** Cancel malformed moves, and replace the moves of dazed children. */
+  private void validateMoves() {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      int act = action[i];
+      if (Rules.REQUIRES_DEST[act] && act != Rules.THROW && !onBoard(ax[i], ay[i])) {
+        act = Rules.IDLE;
+      }
+      if ((act == Rules.PICKUP || act == Rules.DROP) &&
+          Rules.maxDist(s.cx[i], s.cy[i], ax[i], ay[i]) != 1) {
+        act = Rules.IDLE;
+      }
+      if (act == Rules.RUN && (squaredDist(i) > Rules.RUN_LIMIT_SQUARED || squaredDist(i) == 0)) {
+        act = Rules.IDLE;
+      }
+      if (act == Rules.CRAWL && (squaredDist(i) > Rules.CRAWL_LIMIT_SQUARED || squaredDist(i) == 0)) {
+        act = Rules.IDLE;
+      }
+      action[i] = act;
+
+      if (s.dazed[i] > 0) {
+        action[i] = Rules.IDLE;
+        int kx = s.kx[i], ky = s.ky[i];
+        if (kx != 0 || ky != 0) {
+          // Knockback moves one cell, in the dominant direction of the hits.
+          if (Math.abs(kx) >= 2 * Math.abs(ky)) {
+            kx = Integer.signum(kx);
+            ky = 0;
+          } else if (Math.abs(ky) >= 2 * Math.abs(kx)) {
+            kx = 0;
+            ky = Integer.signum(ky);
+          } else {
+            kx = Integer.signum(kx);
+            ky = Integer.signum(ky);
+          }
+          int nx = s.cx[i] + kx, ny = s.cy[i] + ky;
+          if (onBoard(nx, ny)) {
+            action[i] = s.standing[i] ? Rules.RUN : Rules.CRAWL;
+            ax[i] = nx;
+            ay[i] = ny;
+          }
+          s.kx[i] = 0;
+          s.ky[i] = 0;
+        }
+      }
+    }
+  }
+
+  private void resolveDrops() {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      occupied[GameState.cell(s.cx[i], s.cy[i])] = true;
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] == Rules.DROP) {
+        targetCount[GameState.cell(ax[i], ay[i])] = 0;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] != Rules.DROP) {
+        continue;
+      }
+      int c = GameState.cell(ax[i], ay[i]);
+      if (occupied[c] ||
+          Rules.GROUND_DROP_UPDATE[s.holding[i]][s.ground[c]] == Rules.INVALID ||
+          s.height[c] >= Const.MAX_PILE) {
+        action[i] = Rules.IDLE;
+      } else {
+        targetCount[c]++;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] == Rules.DROP && targetCount[GameState.cell(ax[i], ay[i])] > 1) {
+        action[i] = Rules.IDLE;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] != Rules.DROP) {
+        continue;
+      }
+      int c = GameState.cell(ax[i], ay[i]);
+      int old = s.holding[i];
+      s.holding[i] = Rules.HOLDING_DROP_UPDATE[old];
+      s.ground[c] = Rules.GROUND_DROP_UPDATE[old][s.ground[c]];
+      s.height[c] += Rules.HOLDING_HEIGHT[old] - Rules.HOLDING_HEIGHT[s.holding[i]];
+      if (s.ground[c] == Const.GROUND_SMR && GameState.team(i) == Const.BLUE) {
+        s.ground[c] = Const.GROUND_SMB;
+      }
+    }
+  }
+
+  private void resolvePickups() {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] == Rules.PICKUP) {
+        targetCount[GameState.cell(ax[i], ay[i])] = 0;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] != Rules.PICKUP) {
+        continue;
+      }
+      int c = GameState.cell(ax[i], ay[i]);
+      if (s.standing[i] || occupied[c] ||
+          Rules.HOLDING_PICKUP_UPDATE[s.holding[i]][s.ground[c]] == Rules.INVALID ||
+          s.height[c] == 0) {
+        action[i] = Rules.IDLE;
+      } else {
+        targetCount[c]++;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] == Rules.PICKUP && targetCount[GameState.cell(ax[i], ay[i])] > 1) {
+        action[i] = Rules.IDLE;
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (action[i] != Rules.PICKUP) {
+        continue;
+      }
+      int c = GameState.cell(ax[i], ay[i]);
+      int old = s.holding[i];
+      int g = s.ground[c];
+      s.holding[i] = Rules.HOLDING_PICKUP_UPDATE[old][g];
+      s.ground[c] = Rules.GROUND_PICKUP_UPDATE[g];
+      s.height[c] -= Rules.HOLDING_HEIGHT[s.holding[i]] - Rules.HOLDING_HEIGHT[old];
+    }
+
+    // Nobody has moved yet, so this leaves the occupancy map clear for next turn.
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      occupied[GameState.cell(s.cx[i], s.cy[i])] = false;
+    }
+  }
+
+  /** Crouch, stand, crush, and sanity checks for catch. */
+  private void resolveInPlaceActions() {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      switch (action[i]) {
+        case Rules.CROUCH:
+          if (s.standing[i]) {
+            s.standing[i] = false;
+          } else {
+            action[i] = Rules.IDLE;
+          }
+          break;
+        case Rules.STAND:
+          if (!s.standing[i]) {
+            s.standing[i] = true;
+          } else {
+            action[i] = Rules.IDLE;
+          }
+          break;
+        case Rules.CRUSH:
+          if (Rules.HOLDING_CRUSH_UPDATE[s.holding[i]] != Rules.INVALID) {
+            s.holding[i] = Rules.HOLDING_CRUSH_UPDATE[s.holding[i]];
+          } else {
+            action[i] = Rules.IDLE;
+          }
+          break;
+        case Rules.CATCH:
+          int d = squaredDist(i);
+          if (d > Rules.THROW_LIMIT_SQUARED || d == 0 ||
+              Rules.HOLDING_CATCH_UPDATE[s.holding[i]] == Rules.INVALID) {
+            action[i] = Rules.IDLE;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** Create the interpolated movements for runs, crawls and throws. */
+  private void startMovement() {
+    moverCount = 0;
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      int act = action[i];
+      if (act == Rules.RUN && !s.standing[i] || act == Rules.CRAWL && s.standing[i]) {
+        action[i] = Rules.IDLE;
+      } else if (act == Rules.RUN || act == Rules.CRAWL) {
+        addMover(i, s.cx[i], s.cy[i], ax[i], ay[i]);
+      } else if (act == Rules.THROW) {
+        int d = squaredDist(i);
+        if (d > Rules.THROW_LIMIT_SQUARED || d == 0 ||
+            Rules.HOLDING_THROW_UPDATE[s.holding[i]] == Rules.INVALID) {
+          action[i] = Rules.IDLE;
+        } else {
+          s.holding[i] = Rules.HOLDING_THROW_UPDATE[s.holding[i]];
+          int m = addMover(-1, s.cx[i], s.cy[i], ax[i], ay[i]);
+          sbX[m] = s.cx[i];
+          sbY[m] = s.cy[i];
+          sbStartHeight[m] = s.standing[i] ? Const.STANDING_HEIGHT : Const.CROUCHING_HEIGHT;
+          sbHeight[m] = sbStartHeight[m];
+          sbColor[m] = GameState.team(i);
+        }
+      }
+    }
+  }
+
+  private int addMover(int child, int x, int y, int destX, int destY) {
+    int m = moverCount++;
+    order[m] = m;
+    mT[m] = 0;
+    mNum[m] = Rules.maxDist(x, y, destX, destY);
+    mPx[m] = x;
+    mPy[m] = y;
+    mVx[m] = destX - x;
+    mVy[m] = destY - y;
+    mChild[m] = child;
+    mLive[m] = true;
+    return m;
+  }
+
+  /** Order movers by the fraction of their path they reach on their next step. */
+  private int compare(int a, int b) {
+    long l = (long) (mT[a] + 1) * mNum[b];
+    long r = (long) (mT[b] + 1) * mNum[a];
+    return l < r ? -1 : (l > r ? 1 : 0);
+  }
+
+  /** Stable insertion sort of the mover order, as Collections.sort would do. */
+  private void sortMovers() {
+    for (int i = 1; i < moverCount; i++) {
+      int m = order[i];
+      int j = i - 1;
+      while (j >= 0 && compare(order[j], m) > 0) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = m;
+    }
+  }
+
+  private int destX(int m, int t) {
+    return mPx[m] + Rules.round((double) t * mVx[m] / mNum[m]);
+  }
+
+  private int destY(int m, int t) {
+    return mPy[m] + Rules.round((double) t * mVy[m] / mNum[m]);
+  }
+
+  private void step(int m) {
+    mT[m]++;
+    if (!mLive[m]) {
+      return;
+    }
+    int c = mChild[m];
+    if (c >= 0) {
+      s.cx[c] = destX(m, mT[m]);
+      s.cy[c] = destY(m, mT[m]);
+    } else {
+      sbX[m] = destX(m, mT[m]);
+      sbY[m] = destY(m, mT[m]);
+      sbHeight[m] = sbStartHeight[m] - Rules.round(mT[m] * 9.0 / mNum[m]);
+    }
+  }
+
+  private void retract(int m) {
+    mT[m]--;
+    int c = mChild[m];
+    s.cx[c] = destX(m, mT[m]);
+    s.cy[c] = destY(m, mT[m]);
+  }
+
+  /**
+   * Advance every mover in lockstep.  Children that run into something
+   * are put back and stop where they are; snowballs fly until they hit
+   * something or land.
+   */
+  private void runMovement() {
+    if (moverCount == 0) {
+      return;
+    }
+    sortMovers();
+    while (mT[order[0]] < mNum[order[0]]) {
+      checkSnowballHits();
+
+      // Everything tied with the first mover moves now.
+      int k = 1;
+      while (k < moverCount && compare(order[0], order[k]) == 0) {
+        k++;
+      }
+
+      boolean clear;
+      do {
+        clear = true;
+        for (int i = 0; i < k; i++) {
+          if (mChild[order[i]] >= 0) {
+            step(order[i]);
+          }
+        }
+        for (int i = 0; i < k; i++) {
+          int m = order[i];
+          mBlocked[m] = false;
+          int c = mChild[m];
+          if (!mLive[m] || c < 0) {
+            continue;
+          }
+          int cell = GameState.cell(s.cx[c], s.cy[c]);
+          if (s.height[cell] >= Const.OBSTACLE_HEIGHT || Rules.GROUND_OBSTACLE[s.ground[cell]]) {
+            mBlocked[m] = true;
+            clear = false;
+          }
+          for (int j = 0; j < GameState.CHILDREN; j++) {
+            if (j != c && s.cx[j] == s.cx[c] && s.cy[j] == s.cy[c]) {
+              mBlocked[m] = true;
+              clear = false;
+            }
+          }
+        }
+        if (!clear) {
+          for (int i = 0; i < k; i++) {
+            int m = order[i];
+            if (mLive[m] && mChild[m] >= 0) {
+              retract(m);
+              if (mBlocked[m]) {
+                mLive[m] = false;
+              }
+            }
+          }
+        }
+      } while (!clear);
+
+      // Children trample any snowballs lying where they stand.
+      for (int j = 0; j < GameState.CHILDREN; j++) {
+        int cell = GameState.cell(s.cx[j], s.cy[j]);
+        if (s.ground[cell] > Const.GROUND_TREE) {
+          s.ground[cell] = Const.GROUND_EMPTY;
+        }
+      }
+
+      for (int i = 0; i < k; i++) {
+        if (mChild[order[i]] < 0) {
+          step(order[i]);
+        }
+      }
+      sortMovers();
+    }
+  }
+
+  /** Resolve snowballs that have reached a child, a snowman, a tree or the snow. */
+  private void checkSnowballHits() {
+    for (int i = 0; i < moverCount; i++) {
+      int m = order[i];
+      if (mChild[m] >= 0 || mT[m] == 0) {
+        continue;
+      }
+      int x = sbX[m], y = sbY[m], h = sbHeight[m];
+      if (!onBoard(x, y)) {
+        mLive[m] = false;
+      }
+      if (!mLive[m]) {
+        continue;
+      }
+      int cell = GameState.cell(x, y);
+      if (s.height[cell] == h &&
+          (s.ground[cell] == Const.GROUND_SMR || s.ground[cell] == Const.GROUND_SMB)) {
+        // Knock the head off a snowman.
+        s.ground[cell] = Const.GROUND_LM;
+        mLive[m] = false;
+        continue;
+      }
+
+      for (int j = 0; j < GameState.CHILDREN; j++) {
+        if (s.cx[j] != x || s.cy[j] != y || !s.standing[j] && h > Const.CROUCHING_HEIGHT) {
+          continue;
+        }
+        if (action[j] == Rules.CATCH && ax[j] == mPx[m] && ay[j] == mPy[m]) {
+          s.holding[j] = Rules.HOLDING_CATCH_UPDATE[s.holding[j]];
+        } else {
+          if (sbColor[m] != GameState.team(j)) {
+            s.hitScore[sbColor[m]] += Rules.HIT_SCORE;
+          }
+          s.dazed[j] = Rules.DAZE_COUNTDOWN;
+          s.kx[j] += mVx[m];
+          s.ky[j] += mVy[m];
+        }
+        mLive[m] = false;
+      }
+      if (!mLive[m]) {
+        continue;
+      }
+
+      if (s.ground[cell] == Const.GROUND_TREE || s.height[cell] >= h) {
+        mLive[m] = false;
+      }
+    }
+  }
+}
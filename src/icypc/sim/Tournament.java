@@ -0,0 +1,446 @@
+package icypc.sim;
+
+import icypc.Const;
+import icypc.Seeds;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Round-robin tournament between any number of players, played on a
+ * fixed pool of worker threads.  Every pair of players meets on every map
+ * for the requested number of rounds, once on each side.  Results are
+ * written one line per game as the games finish, and a summary with win
+ * rates and score margins is printed at the end.
+ *
+ * <pre>
+ *   java icypc.sim.Tournament -map maps/map1.txt -map maps/box-map.txt -rounds 10
+ *       -out results.csv oocl.icypc.Seeker oocl.icypc.Seeker_V5 icypc.Hunter
+ * </pre>
+ *
+ * Players that implement PlayerStrategy are created in this JVM for each
+ * game; any other class is started as a separate process with "-cp".
+ * With "-traces &lt;dir&gt;" every game is also saved there as a compact
+ * trace for MatchTraceReader; a retried game overwrites its trace.
+ * Games that fail are counted for both players, and those that failed by
+ * overflowing the stack, a bug in one of the players, are also counted on
+ * their own.
+ */
+public class Tournament {
+  /** Map name used for the built-in map. */
+  public static final String DEFAULT_MAP = "default";
+
+  /** One game to be played. */
+  static final class Game {
+    final int index;
+    final String red;
+    final String blue;
+    final String mapName;
+    final GameMap map;
+    final long seed;
+
+    Game(int index, String red, String blue, String mapName, GameMap map, long seed) {
+      this.index = index;
+      this.red = red;
+      this.blue = blue;
+      this.mapName = mapName;
+      this.map = map;
+      this.seed = seed;
+    }
+  }
+
+  /** Error of a game a player lost by overflowing the stack, a bug in the player. */
+  static final String STACK_OVERFLOW = "stack overflow";
+
+  /** The outcome of one game; result is null if every attempt failed. */
+  static final class Outcome {
+    final Game game;
+    final Match.Result result;
+    final int attempts;
+    final long millis;
+    final String error;
+
+    Outcome(Game game, Match.Result result, int attempts, long millis, String error) {
+      this.game = game;
+      this.result = result;
+      this.attempts = attempts;
+      this.millis = millis;
+      this.error = error;
+    }
+  }
+
+  /** Running totals for one player over all its games. */
+  static final class Totals {
+    int games;
+    int wins;
+    int ties;
+    int failures;
+    /** Failures that were stack overflows, also counted in failures. */
+    int overflows;
+    double marginSum;
+    double marginSquares;
+
+    void add(int margin, int winner, int side) {
+      games++;
+      if (winner == side) {
+        wins++;
+      } else if (winner < 0) {
+        ties++;
+      }
+      marginSum += margin;
+      marginSquares += (double) margin * margin;
+    }
+
+    /** Fraction of games won, counting a tie as half a win. */
+    double winRate() {
+      return games == 0 ? 0 : (wins + ties / 2.0) / games;
+    }
+
+    double meanMargin() {
+      return games == 0 ? 0 : marginSum / games;
+    }
+
+    /** Half width of the 95% confidence interval of the mean margin. */
+    double marginInterval() {
+      if (games < 2) {
+        return Double.NaN;
+      }
+      double mean = meanMargin();
+      double variance = (marginSquares - games * mean * mean) / (games - 1);
+      return Z95 * Math.sqrt(Math.max(variance, 0) / games);
+    }
+  }
+
+  /** Normal quantile for a two-sided 95% interval. */
+  static final double Z95 = 1.96;
+
+  /**
+   * Wilson score interval for a proportion, which behaves sensibly for
+   * small samples and for win rates near 0 or 1.
+   *
+   * @return the lower and upper bounds of the 95% interval
+   */
+  static double[] wilson(double rate, int n) {
+    if (n == 0) {
+      return new double[]{0, 1};
+    }
+    double z2 = Z95 * Z95;
+    double centre = (rate + z2 / (2 * n)) / (1 + z2 / n);
+    double half = Z95 * Math.sqrt(rate * (1 - rate) / n + z2 / (4.0 * n * n)) / (1 + z2 / n);
+    return new double[]{Math.max(0, centre - half), Math.min(1, centre + half)};
+  }
+
+  private final List<String> players = new ArrayList<>();
+
+  private final Map<String, GameMap> maps = new LinkedHashMap<>();
+
+  private int rounds = 1;
+
+  private long seed = 1;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  private long timeoutMillis = 60_000;
+
+  private int retries = 1;
+
+  private int turns = Rules.TURNS;
+
+  private String classPath = System.getProperty("java.class.path");
+
+  /** Directory to save each game's trace in, or null. */
+  private Path traceDir;
+
+  private final Map<String, Totals> totals = new LinkedHashMap<>();
+
+  private final Map<String, Totals> pairings = new LinkedHashMap<>();
+
+  List<Game> schedule() {
+    List<Game> games = new ArrayList<>();
+    for (int round = 0; round < rounds; round++) {
+      for (Map.Entry<String, GameMap> map : maps.entrySet()) {
+        for (int a = 0; a < players.size(); a++) {
+          for (int b = a + 1; b < players.size(); b++) {
+            // Same seed for both sides of a pairing, so colour is the only difference.
+            long gameSeed = seed + games.size() / 2;
+            games.add(new Game(games.size(), players.get(a), players.get(b),
+                map.getKey(), map.getValue(), gameSeed));
+            games.add(new Game(games.size(), players.get(b), players.get(a),
+                map.getKey(), map.getValue(), gameSeed));
+          }
+        }
+      }
+    }
+    return games;
+  }
+
+  /**
+   * Create a player for a game.  Each player's seed depends on the game
+   * and on the player, not on its side, so swapping sides replays the
+   * same choices.
+   */
+  PlayerStrategy newPlayer(String className, long gameSeed) throws IOException {
+    long seed = Seeds.derive(gameSeed, players.indexOf(className));
+    Class<?> type;
+    try {
+      type = Class.forName(className);
+    } catch (ClassNotFoundException e) {
+      type = null;
+    }
+    if (type != null && PlayerStrategy.class.isAssignableFrom(type)) {
+      return Match.newLocalPlayer(className, seed);
+    }
+    return new ProcessPlayer(Arrays.asList("java", "-cp", classPath, className), seed);
+  }
+
+  /**
+   * Play one game, retrying if it fails or runs past the timeout.  On a
+   * timeout the players' processes are closed and the worker is
+   * interrupted; a player running in this JVM that ignores the interrupt
+   * keeps its worker busy until it returns.
+   */
+  Outcome play(Game game, ScheduledExecutorService watchdog) {
+    long start = System.nanoTime();
+    String error = null;
+    int attempt = 0;
+    while (attempt++ <= retries) {
+      PlayerStrategy[] sides = new PlayerStrategy[2];
+      AtomicBoolean timedOut = new AtomicBoolean();
+      Thread worker = Thread.currentThread();
+      ScheduledFuture<?> alarm = watchdog.schedule(() -> {
+        timedOut.set(true);
+        close(sides);
+        worker.interrupt();
+      }, timeoutMillis, TimeUnit.MILLISECONDS);
+      try {
+        sides[Const.RED] = newPlayer(game.red, game.seed);
+        sides[Const.BLUE] = newPlayer(game.blue, game.seed);
+        Match match = new Match(game.map, sides[Const.RED], sides[Const.BLUE], turns);
+        Match.Result result;
+        if (traceDir == null) {
+          result = match.play();
+        } else {
+          try (MatchTraceWriter trace = new MatchTraceWriter(tracePath(game))) {
+            result = match.play(trace);
+          }
+        }
+        return new Outcome(game, result, attempt, (System.nanoTime() - start) / 1_000_000, null);
+      } catch (StackOverflowError e) {
+        error = STACK_OVERFLOW;
+      } catch (IOException | RuntimeException e) {
+        error = timedOut.get() ? "timeout" : String.valueOf(e);
+      } finally {
+        alarm.cancel(false);
+        close(sides);
+        // Clear an interrupt that arrived after the game finished.
+        Thread.interrupted();
+      }
+    }
+    return new Outcome(game, null, attempt - 1, (System.nanoTime() - start) / 1_000_000, error);
+  }
+
+  /** Where a game's trace is saved: one file per game, named by its index. */
+  Path tracePath(Game game) {
+    return traceDir.resolve(String.format("game-%05d.trace", game.index));
+  }
+
+  private static void close(PlayerStrategy[] sides) {
+    for (PlayerStrategy p : sides) {
+      if (p instanceof ProcessPlayer) {
+        ((ProcessPlayer) p).close();
+      }
+    }
+  }
+
+  public void run(PrintStream out, boolean json) throws InterruptedException {
+    List<Game> games = schedule();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "tournament");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+    CompletionService<Outcome> done = new ExecutorCompletionService<>(pool);
+    try {
+      for (Game game : games) {
+        done.submit(() -> play(game, watchdog));
+      }
+      if (!json) {
+        out.println("game,red,blue,map,seed,winner,red_score,blue_score,red_hits,blue_hits,"
+            + "red_domain,blue_domain,attempts,millis,error");
+      }
+      for (int i = 0; i < games.size(); i++) {
+        Outcome o;
+        try {
+          o = done.take().get();
+        } catch (ExecutionException | CancellationException e) {
+          throw new IllegalStateException(e);
+        }
+        record(o);
+        out.println(json ? toJson(o) : toCsv(o));
+        out.flush();
+        System.err.printf("%d/%d %s vs %s on %s: %s%n", i + 1, games.size(), o.game.red, o.game.blue,
+            o.game.mapName, o.result == null ? o.error : o.result.toString());
+      }
+    } finally {
+      pool.shutdownNow();
+      watchdog.shutdownNow();
+    }
+  }
+
+  private void record(Outcome o) {
+    Totals red = totals.computeIfAbsent(o.game.red, k -> new Totals());
+    Totals blue = totals.computeIfAbsent(o.game.blue, k -> new Totals());
+    if (o.result == null) {
+      red.failures++;
+      blue.failures++;
+      if (STACK_OVERFLOW.equals(o.error)) {
+        red.overflows++;
+        blue.overflows++;
+      }
+      return;
+    }
+    int winner = o.result.winner();
+    int margin = o.result.score[Const.RED] - o.result.score[Const.BLUE];
+    red.add(margin, winner, Const.RED);
+    blue.add(-margin, winner, Const.BLUE);
+
+    // Pairings are kept from the point of view of the first player listed.
+    boolean redFirst = players.indexOf(o.game.red) < players.indexOf(o.game.blue);
+    String key = redFirst ? o.game.red + " vs " + o.game.blue : o.game.blue + " vs " + o.game.red;
+    pairings.computeIfAbsent(key, k -> new Totals())
+        .add(redFirst ? margin : -margin, winner, redFirst ? Const.RED : Const.BLUE);
+  }
+
+  private static String toCsv(Outcome o) {
+    Game g = o.game;
+    Match.Result r = o.result;
+    if (r == null) {
+      return String.format("%d,%s,%s,%s,%d,,,,,,,,%d,%d,\"%s\"", g.index, g.red, g.blue, g.mapName,
+          g.seed, o.attempts, o.millis, o.error.replace("\"", "'"));
+    }
+    return String.format("%d,%s,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,", g.index, g.red, g.blue,
+        g.mapName, g.seed, r.winner(), r.score[0], r.score[1], r.hitScore[0], r.hitScore[1],
+        r.domainVolume[0], r.domainVolume[1], o.attempts, o.millis);
+  }
+
+  private static String toJson(Outcome o) {
+    Game g = o.game;
+    Match.Result r = o.result;
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("{\"game\":%d,\"red\":\"%s\",\"blue\":\"%s\",\"map\":\"%s\",\"seed\":%d",
+        g.index, g.red, g.blue, g.mapName.replace("\\", "/"), g.seed));
+    if (r != null) {
+      sb.append(String.format(",\"winner\":%d,\"score\":[%d,%d],\"hits\":[%d,%d],\"domain\":[%d,%d]",
+          r.winner(), r.score[0], r.score[1], r.hitScore[0], r.hitScore[1],
+          r.domainVolume[0], r.domainVolume[1]));
+    } else {
+      sb.append(String.format(",\"error\":\"%s\"", o.error.replace("\\", "/").replace("\"", "'")));
+    }
+    sb.append(String.format(",\"attempts\":%d,\"millis\":%d}", o.attempts, o.millis));
+    return sb.toString();
+  }
+
+  public void printSummary(PrintStream out) {
+    out.printf("%-44s %6s %5s %5s %5s %5s %16s %18s%n",
+        "player", "games", "wins", "ties", "fail", "stack", "win rate (95%)", "mean margin (95%)");
+    for (Map.Entry<String, Totals> e : totals.entrySet()) {
+      printTotals(out, e.getKey(), e.getValue());
+    }
+    out.println();
+    for (Map.Entry<String, Totals> e : pairings.entrySet()) {
+      printTotals(out, e.getKey(), e.getValue());
+    }
+  }
+
+  private static void printTotals(PrintStream out, String name, Totals t) {
+    double[] ci = wilson(t.winRate(), t.games);
+    out.printf("%-44s %6d %5d %5d %5d %5d %4.0f%% [%3.0f-%3.0f] %8.1f +/- %6.1f%n",
+        name, t.games, t.wins, t.ties, t.failures, t.overflows, 100 * t.winRate(), 100 * ci[0],
+        100 * ci[1], t.meanMargin(), t.marginInterval());
+  }
+
+  private static void usage() {
+    System.err.println("usage: Tournament [options] <player class> <player class>...");
+    System.err.println("  -map <map_file>      add a map (repeatable, default map if none)");
+    System.err.println("  -rounds <n>          games per pairing, side and map");
+    System.err.println("  -seed <n>            first seed");
+    System.err.println("  -threads <n>         worker threads (default: cores)");
+    System.err.println("  -timeout <seconds>   per game");
+    System.err.println("  -retries <n>         extra attempts for failed games");
+    System.err.println("  -duration <n>        turns per game");
+    System.err.println("  -cp <path>           class path for players run as processes");
+    System.err.println("  -out <file>          results file, JSON lines if it ends in .jsonl");
+    System.err.println("  -traces <dir>        save a trace of every game in this directory");
+    System.exit(2);
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    Tournament t = new Tournament();
+    String outFile = null;
+
+    for (int i = 0; i < args.length; i++) {
+      boolean hasValue = i + 1 < args.length;
+      if (args[i].equals("-map") && hasValue) {
+        String name = args[++i];
+        t.maps.put(name, GameMap.load(Paths.get(name)));
+      } else if (args[i].equals("-rounds") && hasValue) {
+        t.rounds = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-seed") && hasValue) {
+        t.seed = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-threads") && hasValue) {
+        t.threads = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-timeout") && hasValue) {
+        t.timeoutMillis = Long.parseLong(args[++i]) * 1000;
+      } else if (args[i].equals("-retries") && hasValue) {
+        t.retries = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-duration") && hasValue) {
+        t.turns = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-cp") && hasValue) {
+        t.classPath = args[++i];
+      } else if (args[i].equals("-out") && hasValue) {
+        outFile = args[++i];
+      } else if (args[i].equals("-traces") && hasValue) {
+        t.traceDir = Files.createDirectories(Paths.get(args[++i]));
+      } else if (args[i].startsWith("-")) {
+        usage();
+      } else {
+        t.players.add(args[i]);
+      }
+    }
+    if (t.players.size() < 2) {
+      usage();
+    }
+    if (t.maps.isEmpty()) {
+      t.maps.put(DEFAULT_MAP, GameMap.defaultMap());
+    }
+
+    if (outFile == null) {
+      t.run(System.out, false);
+    } else {
+      try (PrintStream out = new PrintStream(outFile, "UTF-8")) {
+        t.run(out, outFile.endsWith(".jsonl"));
+      }
+    }
+    System.out.println();
+    t.printSummary(System.out);
+  }
+}
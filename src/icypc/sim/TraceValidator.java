@@ -0,0 +1,179 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a trace written by the reference engine (the run_with_trace
+ * target, "-view trace trace.txt") through the simulator and checks that
+ * both agree on the board, the children and the score after every turn.
+ *
+ * The trace starts with a full snapshot of the world, then for each turn
+ * lists the moves both players asked for, followed by the changes the
+ * engine made.  The moves are fed to the simulator while the changes are
+ * applied to a second copy of the state, and the two are compared at
+ * every "snap" line.
+ */
+public class TraceValidator {
+  /** Stop reporting differences after this many. */
+  private static final int MAX_REPORTED = 20;
+
+  private final GameState expected = new GameState();
+
+  private final GameState actual = new GameState();
+
+  private final Simulator sim = new Simulator(actual);
+
+  private final List<String> problems = new ArrayList<>();
+
+  private int turns;
+
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  public int getTurns() {
+    return turns;
+  }
+
+  public boolean validate(BufferedReader in) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      String[] f = line.trim().split("\\s+");
+      switch (f[0]) {
+        case "snapshot":
+          readWorld(in, expected);
+          actual.copyFrom(expected);
+          break;
+        case "moveReport":
+          sim.beginTurn();
+          for (int i = 0; i < GameState.CHILDREN; i++) {
+            String[] m = in.readLine().trim().split("\\s+");
+            int act = Rules.actionCode(m[0]);
+            if (Rules.REQUIRES_DEST[act]) {
+              sim.setMove(i, act, Integer.parseInt(m[1]), Integer.parseInt(m[2]));
+            } else {
+              sim.setMove(i, act, -1, -1);
+            }
+          }
+          sim.endTurn();
+          break;
+        case "mapChange": {
+          int c = GameState.cell(Integer.parseInt(f[2]), Integer.parseInt(f[3]));
+          expected.height[c] = Integer.parseInt(f[4]);
+          expected.ground[c] = Integer.parseInt(f[5]);
+          break;
+        }
+        case "childChange": {
+          int i = Integer.parseInt(f[2]);
+          expected.standing[i] = Integer.parseInt(f[3]) != 0;
+          expected.holding[i] = Integer.parseInt(f[4]);
+          expected.dazed[i] = Integer.parseInt(f[5]);
+          break;
+        }
+        case "moveChild": {
+          int i = Integer.parseInt(f[3]);
+          expected.cx[i] = Integer.parseInt(f[6]);
+          expected.cy[i] = Integer.parseInt(f[7]);
+          break;
+        }
+        case "snap":
+          turns++;
+          expected.score[Const.RED] = Integer.parseInt(f[2]);
+          expected.score[Const.BLUE] = Integer.parseInt(f[3]);
+          compare();
+          break;
+        default:
+          break;
+      }
+    }
+    return problems.isEmpty();
+  }
+
+  /** Read the score, board and children as written by the engine's encoder. */
+  private static void readWorld(BufferedReader in, GameState s) throws IOException {
+    String[] f = in.readLine().trim().split("\\s+");
+    s.clear();
+    s.score[Const.RED] = Integer.parseInt(f[0]);
+    s.score[Const.BLUE] = Integer.parseInt(f[1]);
+    for (int x = 0; x < Const.SIZE; x++) {
+      f = in.readLine().trim().split("\\s+");
+      for (int y = 0; y < Const.SIZE; y++) {
+        int c = GameState.cell(x, y);
+        s.height[c] = f[y].charAt(0) - '0';
+        s.ground[c] = f[y].charAt(1) - 'a';
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      f = in.readLine().trim().split("\\s+");
+      s.cx[i] = Integer.parseInt(f[0]);
+      s.cy[i] = Integer.parseInt(f[1]);
+      s.standing[i] = f[2].equals("S");
+      s.holding[i] = f[3].charAt(0) - 'a';
+      s.dazed[i] = Integer.parseInt(f[4]);
+    }
+    s.computeDomain();
+  }
+
+  private void report(String format, Object... args) {
+    if (problems.size() < MAX_REPORTED) {
+      problems.add(String.format("turn %d: ", turns) + String.format(format, args));
+    }
+  }
+
+  private void compare() {
+    for (int c = 0; c < GameState.CELLS; c++) {
+      if (expected.height[c] != actual.height[c] || expected.ground[c] != actual.ground[c]) {
+        report("cell %d %d is %d%c, expected %d%c", c / Const.SIZE, c % Const.SIZE,
+            actual.height[c], (char) ('a' + actual.ground[c]),
+            expected.height[c], (char) ('a' + expected.ground[c]));
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      // The trace only reports the daze countdown when it starts and ends.
+      if (expected.cx[i] != actual.cx[i] || expected.cy[i] != actual.cy[i] ||
+          expected.standing[i] != actual.standing[i] ||
+          expected.holding[i] != actual.holding[i] ||
+          (expected.dazed[i] > 0) != (actual.dazed[i] > 0)) {
+        report("child %d is %s, expected %s", i, child(actual, i), child(expected, i));
+      }
+    }
+    if (expected.score[Const.RED] != actual.score[Const.RED] ||
+        expected.score[Const.BLUE] != actual.score[Const.BLUE]) {
+      report("score is %d %d, expected %d %d",
+          actual.score[Const.RED], actual.score[Const.BLUE],
+          expected.score[Const.RED], expected.score[Const.BLUE]);
+    }
+  }
+
+  private static String child(GameState s, int i) {
+    return String.format("(%d, %d) %s %c %d", s.cx[i], s.cy[i], s.standing[i] ? "S" : "C",
+        (char) ('a' + s.holding[i]), s.dazed[i]);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("usage: TraceValidator <trace file>...");
+      System.exit(2);
+    }
+
+    boolean ok = true;
+    for (String file : args) {
+      TraceValidator validator = new TraceValidator();
+      try (BufferedReader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+        ok &= validator.validate(in);
+      }
+      System.out.printf("%s: %d turns, %s%n", file, validator.getTurns(),
+          validator.getProblems().isEmpty() ? "OK" : "MISMATCH");
+      validator.getProblems().forEach(p -> System.out.println("  " + p));
+    }
+    System.exit(ok ? 0 : 1);
+  }
+}
@@ -0,0 +1,156 @@
+package icypc.sim;
+
+import icypc.Const;
+
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * Everything a player is told at the start of a turn, already parsed and
+ * in the player's own frame of reference: its children are 0..3 and
+ * start in the lower left, and its snowmen are GROUND_SMR.  Cells and
+ * enemy children the player can't see are -1, exactly as the players
+ * record them when they read the text protocol.
+ */
+public final class TurnSnapshot {
+  public int turn;
+
+  /** Score for self and opponent. */
+  public final int[] score = new int[2];
+
+  /** Snow height in each cell, or -1 if not visible. */
+  public final int[][] height = new int[Const.SIZE][Const.SIZE];
+
+  /** Contents of each cell, or -1 if not visible. */
+  public final int[][] ground = new int[Const.SIZE][Const.SIZE];
+
+  /**
+   * Child states; x and y are -1 for enemy children that can't be seen,
+   * and the rest is left as it was when they were last seen.
+   */
+  public final int[] x = new int[GameState.CHILDREN];
+  public final int[] y = new int[GameState.CHILDREN];
+  public final boolean[] standing = new boolean[GameState.CHILDREN];
+  public final int[] holding = new int[GameState.CHILDREN];
+  public final int[] dazed = new int[GameState.CHILDREN];
+
+  /**
+   * Fill in the view of the given side, flipping the board for blue and
+   * hiding whatever the side can't see.
+   */
+  public void fill(GameState s, int side) {
+    boolean flip = side == Const.BLUE;
+    boolean[] vis = s.visible[side];
+    final int last = Const.SIZE - 1;
+
+    turn = s.turn;
+    score[0] = s.score[side];
+    score[1] = s.score[1 - side];
+
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        int c = flip ? GameState.cell(last - i, last - j) : GameState.cell(i, j);
+        if (!vis[c]) {
+          height[i][j] = -1;
+          ground[i][j] = -1;
+        } else {
+          height[i][j] = s.height[c];
+          int g = s.ground[c];
+          if (flip && g == Const.GROUND_SMR) {
+            g = Const.GROUND_SMB;
+          } else if (flip && g == Const.GROUND_SMB) {
+            g = Const.GROUND_SMR;
+          }
+          ground[i][j] = g;
+        }
+      }
+    }
+
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      int k = flip ? GameState.CHILDREN - 1 - i : i;
+      if (vis[GameState.cell(s.cx[k], s.cy[k])]) {
+        x[i] = flip ? last - s.cx[k] : s.cx[k];
+        y[i] = flip ? last - s.cy[k] : s.cy[k];
+        standing[i] = s.standing[k];
+        holding[i] = s.holding[k];
+        dazed[i] = s.dazed[k];
+      } else {
+        x[i] = -1;
+        y[i] = -1;
+      }
+    }
+  }
+
+  /** Write this snapshot in the engine's text protocol. */
+  public void write(PrintStream out) {
+    StringBuilder sb = new StringBuilder(4096);
+    sb.append(turn).append('\n');
+    sb.append(score[0]).append(' ').append(score[1]).append('\n');
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        if (j > 0) {
+          sb.append(' ');
+        }
+        if (height[i][j] < 0) {
+          sb.append('*');
+        } else {
+          sb.append(height[i][j]).append((char) ('a' + ground[i][j]));
+        }
+      }
+      sb.append('\n');
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (x[i] < 0) {
+        sb.append("*\n");
+      } else {
+        sb.append(x[i]).append(' ').append(y[i]).append(' ')
+            .append(standing[i] ? 'S' : 'C').append(' ')
+            .append((char) ('a' + holding[i])).append(' ')
+            .append(dazed[i]).append('\n');
+      }
+    }
+    out.print(sb);
+  }
+
+  /**
+   * Read a snapshot in the engine's text protocol.
+   *
+   * @return false if the engine signalled the end of the game
+   */
+  public boolean read(Scanner in) {
+    turn = in.nextInt();
+    if (turn < 0) {
+      return false;
+    }
+    score[0] = in.nextInt();
+    score[1] = in.nextInt();
+
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        String token = in.next();
+        if (token.charAt(0) == '*') {
+          height[i][j] = -1;
+          ground[i][j] = -1;
+        } else {
+          height[i][j] = token.charAt(0) - '0';
+          ground[i][j] = token.charAt(1) - 'a';
+        }
+      }
+    }
+
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      String token = in.next();
+      if (token.equals("*")) {
+        x[i] = -1;
+        y[i] = -1;
+      } else {
+        x[i] = Integer.parseInt(token);
+        y[i] = in.nextInt();
+        standing[i] = in.next().equals("S");
+        holding[i] = in.next().charAt(0) - 'a';
+        dazed[i] = in.nextInt();
+      }
+    }
+    return true;
+  }
+}
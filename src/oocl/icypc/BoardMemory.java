@@ -0,0 +1,91 @@
+package oocl.icypc;
+
+import icypc.Const;
+import java.util.Arrays;
+
+/**
+ * What Seeker last saw in every cell, for planning through cells it can't
+ * see now.  Trees never move, and most of the board only changes where
+ * someone is building, so an old view is far better than none.
+ *
+ * Each cell is one int: the ground (4 bits, UNKNOWN if never seen), the
+ * snow height (8 bits), one more than the turn it was last seen, so 0 is
+ * never (19 bits), and whether it can be seen now (the top bit).  A child standing in a cell hides the
+ * ground under it, so GROUND_CHILD is never remembered; the cell keeps
+ * what was there before, or stays unknown.
+ */
+final class BoardMemory implements TurnChanges.Listener {
+
+  /** Ground of a cell that has never been seen. */
+  static final int UNKNOWN = 0xF;
+
+  private static final int HEIGHT_SHIFT = 4;
+
+  private static final int TURN_SHIFT = 12;
+
+  private static final int TURN_MASK = (1 << 19) - 1;
+
+  private static final int VISIBLE = 1 << 31;
+
+  private final int[] cells = new int[TurnChanges.CELLS];
+
+  /** Turn of the last update. */
+  private int turn;
+
+  BoardMemory() {
+    Arrays.fill(cells, UNKNOWN);
+  }
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    int previous = turn;
+    turn = changes.turn();
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      int g = ground[TurnChanges.x(c)][TurnChanges.y(c)];
+      int h = height[TurnChanges.x(c)][TurnChanges.y(c)];
+      int old = cells[c];
+      if (g >= 0) {
+        int remembered = g == Seeker.GROUND_CHILD ? old & 0xF : g;
+        cells[c] = VISIBLE | remembered | (h & 0xFF) << HEIGHT_SHIFT;
+      } else if ((old & VISIBLE) != 0) {
+        // it was last seen in the previous update
+        cells[c] = (old & ~VISIBLE & ~(TURN_MASK << TURN_SHIFT))
+            | (previous + 1 & TURN_MASK) << TURN_SHIFT;
+      }
+    }
+  }
+
+  /** Ground in the cell now, or when it was last seen, or UNKNOWN. */
+  int ground(int x, int y) {
+    return cells[TurnChanges.cell(x, y)] & 0xF;
+  }
+
+  /** Snow height in the cell now, or when it was last seen; 0 if never seen. */
+  int height(int x, int y) {
+    return cells[TurnChanges.cell(x, y)] >>> HEIGHT_SHIFT & 0xFF;
+  }
+
+  boolean isVisible(int x, int y) {
+    return (cells[TurnChanges.cell(x, y)] & VISIBLE) != 0;
+  }
+
+  /** The turn the cell was last seen, this turn if it can be seen now, or -1 if never. */
+  int lastSeen(int x, int y) {
+    int cell = cells[TurnChanges.cell(x, y)];
+    if ((cell & VISIBLE) != 0) {
+      return turn;
+    }
+    return (cell >>> TURN_SHIFT & TURN_MASK) - 1;
+  }
+
+  /**
+   * True if a child could run through the cell as far as we know: it is
+   * empty with low snow now, or was when it was last seen.
+   */
+  boolean isPassable(int x, int y) {
+    int cell = cells[TurnChanges.cell(x, y)];
+    return (cell & 0xF) == Const.GROUND_EMPTY
+        && (cell >>> HEIGHT_SHIFT & 0xFF) < Const.OBSTACLE_HEIGHT;
+  }
+}
@@ -0,0 +1,409 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.sim.Rules;
+import java.util.Arrays;
+
+/**
+ * The fewest pickups, crushes and drops that turn a child's neighbourhood
+ * into one with a snowman of ours in it, found by A* search over what the
+ * child holds and the ground and height of the 8 cells around it, with
+ * the rules of icypc.sim.Rules.
+ *
+ * Any of the cells can become the snowman, so the search also picks the
+ * site: a large snowball or a large and medium already on the ground is
+ * finished in a few moves, snowballs lying around are picked up rather
+ * than made, and a snowman of theirs can be finished as ours.  Snowmen of
+ * ours are never touched.  Trees, children and cells that can't be seen
+ * are left out.  The rules treat every neighbour alike, so states that
+ * differ only in which neighbour is which count as one.
+ *
+ * A neighbourhood is packed in a long, a byte per cell with the ground in
+ * the high 4 bits and the height in the low 4, in the order of OFFSETS.
+ * Plans are cached by neighbourhood and holding, so children in the same
+ * situation, such as every child on fresh snow with empty hands, share
+ * one search.
+ */
+final class BuildPlanner {
+
+  /** The neighbours, as x and y offsets, in the order they are packed. */
+  static final int[][] OFFSETS = {
+      {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1},
+  };
+
+  /** Ground of a cell the plan can't use. */
+  static final int BLOCKED = 0xF;
+
+  /** Longest plan looked for; a whole snowman from nothing takes 12 moves. */
+  static final int MAX_STEPS = 16;
+
+  private static final int MAX_NODES = 1 << 16;
+
+  private static final int CACHE_SIZE = 512;
+
+  /** A plan: each step is an action from Rules and the neighbour it's done to. */
+  static final class Plan {
+    final int[] action = new int[MAX_STEPS];
+    final int[] cell = new int[MAX_STEPS];
+
+    /** The neighbourhood and holding before each step, and after the last. */
+    final long[] cells = new long[MAX_STEPS + 1];
+    final int[] holding = new int[MAX_STEPS + 1];
+
+    private int length;
+
+    int length() {
+      return length;
+    }
+
+    /** The neighbour that becomes the snowman. */
+    int site() {
+      return cell[length - 1];
+    }
+
+    /** Make this a copy of the plan. */
+    void copy(Plan plan) {
+      length = plan.length;
+      System.arraycopy(plan.action, 0, action, 0, length);
+      System.arraycopy(plan.cell, 0, cell, 0, length);
+      System.arraycopy(plan.cells, 0, cells, 0, length + 1);
+      System.arraycopy(plan.holding, 0, holding, 0, length + 1);
+    }
+  }
+
+  // the search tree, reused by every search
+  private final long[] nodeCells = new long[MAX_NODES];
+  private final byte[] nodeHolding = new byte[MAX_NODES];
+  private final byte[] nodeSteps = new byte[MAX_NODES];
+  private final int[] parent = new int[MAX_NODES];
+  private final byte[] nodeAction = new byte[MAX_NODES];
+  private final byte[] nodeCell = new byte[MAX_NODES];
+  private final boolean[] nodeDone = new boolean[MAX_NODES];
+
+  /**
+   * Nodes waiting to be expanded, by steps taken plus the estimate of
+   * steps to go: the last node queued with each total, each linking to the
+   * one queued before it, or -1.
+   */
+  private final int[] open = new int[MAX_STEPS + 1];
+  private final int[] next = new int[MAX_NODES];
+
+  /** Open-addressed map of the states reached, as keys, to the fewest steps; 0 is empty. */
+  private final long[] seen = new long[2 * MAX_NODES];
+  private final byte[] seenSteps = new byte[2 * MAX_NODES];
+
+  private final int[] bytes = new int[OFFSETS.length];
+
+  /**
+   * Plans by StateKeys.mix() of the neighbourhood and holding, a slot per
+   * key with a newer plan taking the slot of an older one, so looking a
+   * plan up or making a new one doesn't allocate.
+   */
+  private final long[] cacheKeys = new long[CACHE_SIZE];
+  private final byte[] cached = new byte[CACHE_SIZE];
+  private final Plan[] cache = new Plan[CACHE_SIZE];
+
+  private static final byte EMPTY = 0;
+  private static final byte NO_PLAN = 1;
+  private static final byte PLANNED = 2;
+
+  BuildPlanner() {
+    for (int i = 0; i < CACHE_SIZE; i++) {
+      cache[i] = new Plan();
+    }
+  }
+
+  /**
+   * Pack the neighbourhood of (x, y) from Seeker's board, where children
+   * are GROUND_CHILD and hidden cells -1.
+   */
+  static long pack(int[][] height, int[][] ground, int x, int y) {
+    long cells = 0;
+    for (int n = 0; n < OFFSETS.length; n++) {
+      int nx = x + OFFSETS[n][0];
+      int ny = y + OFFSETS[n][1];
+      int g = BLOCKED;
+      int h = 0;
+      if (nx >= 0 && nx < Const.SIZE && ny >= 0 && ny < Const.SIZE && ground[nx][ny] >= 0 &&
+          ground[nx][ny] != Seeker.GROUND_CHILD && ground[nx][ny] != Const.GROUND_TREE) {
+        g = ground[nx][ny];
+        h = Math.min(height[nx][ny], 0xF);
+      }
+      cells |= (long) (g << 4 | h) << (8 * n);
+    }
+    return cells;
+  }
+
+  static int ground(long cells, int n) {
+    return (int) (cells >>> (8 * n + 4)) & 0xF;
+  }
+
+  static int height(long cells, int n) {
+    return (int) (cells >>> (8 * n)) & 0xF;
+  }
+
+  /** The neighbourhood with neighbour n left out of the plan. */
+  static long block(long cells, int n) {
+    return with(cells, n, BLOCKED, 0);
+  }
+
+  private static long with(long cells, int n, int ground, int height) {
+    return cells & ~(0xFFL << (8 * n)) | (long) (ground << 4 | height) << (8 * n);
+  }
+
+  /**
+   * The shortest plan from the neighbourhood and holding, or null if there
+   * isn't one.  The plan is the cache's, and a later plan may take its
+   * place, so copy it to follow it.
+   */
+  Plan plan(long cells, int holding) {
+    long key = StateKeys.mix(cells, holding);
+    int slot = (int) key & (CACHE_SIZE - 1);
+    if (cached[slot] == EMPTY || cacheKeys[slot] != key) {
+      cacheKeys[slot] = key;
+      cached[slot] = search(cells, holding, cache[slot]) ? PLANNED : NO_PLAN;
+    }
+    return cached[slot] == PLANNED ? cache[slot] : null;
+  }
+
+  /** Search for the shortest plan, leaving it in the plan given; false if there isn't one. */
+  private boolean search(long start, int startHolding, Plan plan) {
+    int estimate = estimate(start, startHolding);
+    if (estimate > MAX_STEPS) {
+      return false;
+    }
+    Arrays.fill(seen, 0L);
+    Arrays.fill(open, -1);
+    add(0, -1, start, startHolding, 0, Rules.IDLE, 0, false);
+    reach(start, startHolding, 0);
+    next[0] = -1;
+    open[estimate] = 0;
+    int count = 1;
+
+    for (int f = estimate; f <= MAX_STEPS; f++) {
+      // expanding can queue more nodes with this total, which come out first
+      while (open[f] >= 0) {
+        int node = open[f];
+        open[f] = next[node];
+        if (nodeDone[node]) {
+          fill(plan, node);
+          return true;
+        }
+        long cells = nodeCells[node];
+        int holding = nodeHolding[node];
+        int steps = nodeSteps[node];
+        if (steps > seenSteps(cells, holding)) {
+          // reached again in fewer steps since it was queued
+          continue;
+        }
+
+        int crushed = Rules.HOLDING_CRUSH_UPDATE[holding];
+        if (crushed != Rules.INVALID) {
+          count = push(count, node, f, cells, crushed, steps + 1, Rules.CRUSH, 0, false);
+        }
+
+        for (int n = 0; n < OFFSETS.length && count < MAX_NODES; n++) {
+          int g = ground(cells, n);
+          int h = height(cells, n);
+          if (g == BLOCKED || g == Const.GROUND_SMR || sameAsEarlier(cells, n)) {
+            continue;
+          }
+
+          if (h > 0) {
+            int held = Rules.HOLDING_PICKUP_UPDATE[holding][g];
+            if (held != Rules.INVALID) {
+              int left = h - (Rules.HOLDING_HEIGHT[held] - Rules.HOLDING_HEIGHT[holding]);
+              long next = with(cells, n, Rules.GROUND_PICKUP_UPDATE[g], Math.max(left, 0));
+              count = push(count, node, f, next, held, steps + 1, Rules.PICKUP, n, false);
+            }
+          }
+
+          if (holding != Const.HOLD_EMPTY && h < Const.MAX_PILE && count < MAX_NODES) {
+            int dropped = Rules.GROUND_DROP_UPDATE[holding][g];
+            if (dropped != Rules.INVALID) {
+              int held = Rules.HOLDING_DROP_UPDATE[holding];
+              int raised = Math.min(h + Rules.HOLDING_HEIGHT[holding] - Rules.HOLDING_HEIGHT[held], 0xF);
+              long next = with(cells, n, dropped, raised);
+              count = push(count, node, f, next, held, steps + 1, Rules.DROP, n,
+                  dropped == Const.GROUND_SMR);
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /** True if an earlier neighbour is the same as neighbour n, so doing the same to it is no different. */
+  private static boolean sameAsEarlier(long cells, int n) {
+    long cell = (cells >>> (8 * n)) & 0xFF;
+    for (int m = 0; m < n; m++) {
+      if (((cells >>> (8 * m)) & 0xFF) == cell) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Queue the state reached from the node, unless it has already been reached in as few steps. */
+  private int push(int count, int from, int total, long cells, int holding, int steps, int action,
+      int cell, boolean done) {
+    if (count >= MAX_NODES) {
+      return count;
+    }
+    // never below the total of the node it came from, which may have estimated higher
+    int f = Math.max(done ? steps : steps + estimate(cells, holding), total);
+    if (f > MAX_STEPS || !done && !reach(cells, holding, steps)) {
+      return count;
+    }
+    add(count, from, cells, holding, steps, action, cell, done);
+    next[count] = open[f];
+    open[f] = count;
+    return count + 1;
+  }
+
+  private void add(int node, int from, long cells, int holding, int steps, int action, int cell,
+      boolean done) {
+    nodeCells[node] = cells;
+    nodeHolding[node] = (byte) holding;
+    nodeSteps[node] = (byte) steps;
+    parent[node] = from;
+    nodeAction[node] = (byte) action;
+    nodeCell[node] = (byte) cell;
+    nodeDone[node] = done;
+  }
+
+  /**
+   * A lower bound on the steps from the state to a snowman, found by
+   * relaxing the rules: piles have no height limit, snowballs can be
+   * picked up from under others, and coming by each snowball the site
+   * still needs is counted as if the others weren't needed.
+   *
+   * A snowball already held costs nothing to come by and one lying in a
+   * neighbour a pickup.  One made from snow costs a pickup for each unit
+   * short and a crush, and snow already held counts towards only one of
+   * them.  Then each snowball costs a drop, except that anything but a
+   * large or medium snowball finishes a snowman of theirs.
+   */
+  static int estimate(long cells, int holding) {
+    boolean groundL = false;
+    boolean groundM = false;
+    boolean groundS = false;
+    boolean site = false;
+    boolean siteL = false;
+    boolean siteLM = false;
+    boolean siteSMB = false;
+    for (int n = 0; n < OFFSETS.length; n++) {
+      int g = ground(cells, n);
+      if (g == BLOCKED || g == Const.GROUND_SMR) {
+        continue;
+      }
+      site = true;
+      groundL |= g == Const.GROUND_L || g == Const.GROUND_LM || g == Const.GROUND_LS ||
+          g == Const.GROUND_SMB;
+      groundM |= g == Const.GROUND_M || g == Const.GROUND_MS || g == Const.GROUND_LM ||
+          g == Const.GROUND_SMB;
+      groundS |= g == Const.GROUND_S || g == Const.GROUND_MS || g == Const.GROUND_LS ||
+          g == Const.GROUND_SMB;
+      siteL |= g == Const.GROUND_L || g == Const.GROUND_LS;
+      siteLM |= g == Const.GROUND_LM;
+      siteSMB |= g == Const.GROUND_SMB;
+    }
+    if (!site) {
+      return MAX_STEPS + 1;
+    }
+    if (siteSMB) {
+      return holding >= Const.HOLD_P1 && holding <= Const.HOLD_S3 ? 1 : 2;
+    }
+
+    int powder = holding >= Const.HOLD_P1 && holding <= Const.HOLD_P3 ? holding : 0;
+    int s = holding >= Const.HOLD_S1 && holding <= Const.HOLD_S3 ? 0 : groundS ? 1 : 2;
+    int m = holding == Const.HOLD_M ? 0 : groundM ? 1 : 3;
+    int l = holding == Const.HOLD_L ? 0 : groundL ? 1 : 4;
+    // what the snow held saves on the snowball it's best used for
+    int saveS = s == 2 ? Math.min(powder, 1) : 0;
+    int saveM = m == 3 ? Math.min(powder, 2) : 0;
+    int saveL = l == 4 ? powder : 0;
+    if (siteLM) {
+      return 1 + s - saveS;
+    }
+    if (siteL) {
+      return 2 + s + m - Math.max(saveS, saveM);
+    }
+    return 3 + s + m + l - Math.max(saveS, Math.max(saveM, saveL));
+  }
+
+  /**
+   * Record that the state was reached in the steps, returning false if it
+   * had already been reached in as few.
+   */
+  private boolean reach(long cells, int holding, int steps) {
+    long key = key(cells, holding);
+    int mask = seen.length - 1;
+    for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+      if (seen[slot] == 0) {
+        seen[slot] = key;
+        seenSteps[slot] = (byte) steps;
+        return true;
+      }
+      if (seen[slot] == key) {
+        if (seenSteps[slot] <= steps) {
+          return false;
+        }
+        seenSteps[slot] = (byte) steps;
+        return true;
+      }
+    }
+  }
+
+  /** Fewest steps the state has been reached in. */
+  private int seenSteps(long cells, int holding) {
+    long key = key(cells, holding);
+    int mask = seen.length - 1;
+    for (int slot = (int) key & mask; seen[slot] != 0; slot = (slot + 1) & mask) {
+      if (seen[slot] == key) {
+        return seenSteps[slot];
+      }
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  private long key(long cells, int holding) {
+    long key = StateKeys.mix(sorted(cells), holding);
+    return key == 0 ? 1 : key;
+  }
+
+  /** The cells in order of their packed bytes. */
+  private long sorted(long cells) {
+    int[] b = bytes;
+    for (int n = 0; n < b.length; n++) {
+      int v = (int) (cells >>> (8 * n)) & 0xFF;
+      int k = n;
+      for (; k > 0 && b[k - 1] > v; k--) {
+        b[k] = b[k - 1];
+      }
+      b[k] = v;
+    }
+    long packed = 0;
+    for (int n = 0; n < b.length; n++) {
+      packed |= (long) b[n] << (8 * n);
+    }
+    return packed;
+  }
+
+  /** Fill in the plan that ends at the node, read back up the tree. */
+  private void fill(Plan plan, int last) {
+    int steps = nodeSteps[last];
+    plan.length = steps;
+    int node = last;
+    for (int s = steps - 1; s >= 0; s--) {
+      plan.action[s] = nodeAction[node];
+      plan.cell[s] = nodeCell[node];
+      plan.cells[s + 1] = nodeCells[node];
+      plan.holding[s + 1] = nodeHolding[node];
+      node = parent[node];
+    }
+    plan.cells[0] = nodeCells[node];
+    plan.holding[0] = nodeHolding[node];
+  }
+}
@@ -0,0 +1,122 @@
+package oocl.icypc;
+
+import icypc.Const;
+import java.util.Arrays;
+
+/**
+ * What Seeker knows of all eight children, as parallel arrays indexed
+ * like cList, our team first.  The turn's input is written straight into
+ * it, and Seeker.Player is a view of one row.
+ *
+ * Questions about several children at once, such as which armed enemies
+ * are near a snowman, are answered as masks with a bit for each child, so
+ * they are a short loop with no branches that callers can combine.
+ */
+final class ChildTable {
+
+  static final int CHILDREN = 2 * Const.CCOUNT;
+
+  /** Mask of the children on our team. */
+  static final int OURS = (1 << Const.CCOUNT) - 1;
+
+  /** Mask of the children on their team. */
+  static final int THEIRS = OURS << Const.CCOUNT;
+
+  private final int[] x = new int[CHILDREN];
+  private final int[] y = new int[CHILDREN];
+  private final boolean[] standing = new boolean[CHILDREN];
+  private final int[] holding = new int[CHILDREN];
+  private final int[] dazed = new int[CHILDREN];
+
+  /** The turn each child was last seen, or -1 if never. */
+  private final int[] lastSeen = new int[CHILDREN];
+
+  /** Bit i set while child i can be seen; they all start at (0, 0). */
+  private int visible = (1 << CHILDREN) - 1;
+
+  ChildTable() {
+    Arrays.fill(lastSeen, -1);
+  }
+
+  /**
+   * Record the state of one child at the start of a turn.  A child that
+   * can't be seen is at (-1, -1) and keeps its stance, holding and daze
+   * from when it was last seen.
+   *
+   * @param x column, or -1 if the child can't be seen
+   */
+  void update(int i, int x, int y, boolean standing, int holding, int dazed, int turn) {
+    if (x < 0) {
+      moveTo(i, -1, -1);
+      return;
+    }
+    moveTo(i, x, y);
+    this.standing[i] = standing;
+    this.holding[i] = holding;
+    this.dazed[i] = dazed;
+    lastSeen[i] = turn;
+  }
+
+  /** Put the child somewhere else, or out of sight for x < 0, changing nothing else. */
+  void moveTo(int i, int x, int y) {
+    this.x[i] = x;
+    this.y[i] = y;
+    visible = x >= 0 ? visible | 1 << i : visible & ~(1 << i);
+  }
+
+  int x(int i) {
+    return x[i];
+  }
+
+  int y(int i) {
+    return y[i];
+  }
+
+  boolean standing(int i) {
+    return standing[i];
+  }
+
+  int holding(int i) {
+    return holding[i];
+  }
+
+  int dazed(int i) {
+    return dazed[i];
+  }
+
+  int lastSeen(int i) {
+    return lastSeen[i];
+  }
+
+  boolean isVisible(int i) {
+    return (visible & 1 << i) != 0;
+  }
+
+  /** Mask of the children that can be seen. */
+  int visible() {
+    return visible;
+  }
+
+  /** The children of the mask holding a snowball and not dazed, seen or not. */
+  int armed(int mask) {
+    int armed = 0;
+    for (int i = 0; i < CHILDREN; i++) {
+      int h = holding[i];
+      armed |= (dazed[i] == 0 & h >= Const.HOLD_S1 & h <= Const.HOLD_S3 ? 1 : 0) << i;
+    }
+    return armed & mask;
+  }
+
+  /** The children of the mask closer than range to (px, py), by Seeker.euclidean(). */
+  int within(int mask, int px, int py, int range) {
+    int near = 0;
+    for (int i = 0; i < CHILDREN; i++) {
+      near |= (Seeker.euclidean(x[i], y[i], px, py) < range ? 1 : 0) << i;
+    }
+    return near & mask;
+  }
+
+  static boolean has(int mask, int i) {
+    return (mask & 1 << i) != 0;
+  }
+}
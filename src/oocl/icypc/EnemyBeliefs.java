@@ -0,0 +1,234 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.sim.Rules;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import oocl.icypc.Seeker.Player;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * Where each enemy child probably is, as a probability mass over the
+ * cells of the board.
+ *
+ * While an enemy can be seen all its mass is on its cell.  Once it drops
+ * out of sight, each update spreads the mass to every cell within a run
+ * of where it was, then removes it from every cell we can see, since the
+ * child would be visible there, and from every cell no child can stand
+ * in as far as we know, and scales what's left back to one.  If nothing
+ * is left the child got somewhere we didn't expect, and it could be in
+ * any hidden cell it can stand in.  An enemy that has never been seen has
+ * no mass at all.
+ *
+ * The grids are flat float arrays indexed like TurnChanges.cell(), and
+ * the spreading is done a row segment at a time so the loops are simple
+ * enough for the JIT to vectorize.  Updated once a turn from the turn's
+ * changes.
+ */
+final class EnemyBeliefs implements TurnChanges.Listener {
+
+  private static final int CELLS = TurnChanges.CELLS;
+
+  /** Cells reachable in one run, as x and y offsets. */
+  private static final int[][] STEPS;
+
+  static {
+    int r = (int) Math.sqrt(Rules.RUN_LIMIT_SQUARED);
+    int n = 0;
+    int[][] steps = new int[(2 * r + 1) * (2 * r + 1)][];
+    for (int dx = -r; dx <= r; dx++) {
+      for (int dy = -r; dy <= r; dy++) {
+        if (dx * dx + dy * dy <= Rules.RUN_LIMIT_SQUARED) {
+          steps[n++] = new int[]{dx, dy};
+        }
+      }
+    }
+    STEPS = Arrays.copyOf(steps, n);
+  }
+
+  /** Probability of each enemy being in each cell. */
+  private final float[][] mass = new float[Const.CCOUNT][CELLS];
+
+  /** 1 for cells we can't see, 0 for the rest. */
+  private final float[] hidden = new float[CELLS];
+
+  /**
+   * 1 for cells a child could stand in, or that have never been seen, 0
+   * for trees, snowmen and deep snow, from the layout and the board memory.
+   */
+  private final float[] passable = new float[CELLS];
+
+  private final float[] scratch = new float[CELLS];
+
+  private final boolean[] tracked = new boolean[Const.CCOUNT];
+
+  private final Player[] cList;
+
+  private final BoardMemory memory;
+
+  private final MapLayout layout;
+
+  /**
+   * The memory and layout must be subscribed to the same TurnChanges
+   * ahead of this, so they are up to date when it is updated.
+   */
+  EnemyBeliefs(Player[] cList, BoardMemory memory, MapLayout layout) {
+    this.cList = cList;
+    this.memory = memory;
+    this.layout = layout;
+    Arrays.fill(passable, 1f);
+  }
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      hidden[c] = ground[TurnChanges.x(c)][TurnChanges.y(c)] < 0 ? 1f : 0f;
+    }
+    // the layout can learn of trees in cells that didn't change, by symmetry
+    for (int c = 0; c < CELLS; c++) {
+      passable[c] = canStand(TurnChanges.x(c), TurnChanges.y(c)) ? 1f : 0f;
+    }
+
+    for (int e = 0; e < Const.CCOUNT; e++) {
+      Point pos = cList[Const.CCOUNT + e].pos();
+      float[] m = mass[e];
+      if (pos.x >= 0) {
+        Arrays.fill(m, 0f);
+        m[TurnChanges.cell(pos.x, pos.y)] = 1f;
+        tracked[e] = true;
+      } else if (tracked[e]) {
+        spread(m);
+      }
+    }
+  }
+
+  private boolean canStand(int x, int y) {
+    return !layout.isTree(x, y)
+        && (memory.ground(x, y) == BoardMemory.UNKNOWN || memory.isPassable(x, y));
+  }
+
+  /** Move one enemy's mass on by a turn of running, into hidden cells it can stand in. */
+  private void spread(float[] m) {
+    float[] next = scratch;
+    Arrays.fill(next, 0f);
+    for (int[] step : STEPS) {
+      int dx = step[0];
+      int dy = step[1];
+      int x0 = Math.max(0, dx);
+      int x1 = Math.min(Const.SIZE, Const.SIZE + dx);
+      int y0 = Math.max(0, dy);
+      int y1 = Math.min(Const.SIZE, Const.SIZE + dy);
+      int shift = dx * Const.SIZE + dy;
+      for (int x = x0; x < x1; x++) {
+        int row = x * Const.SIZE;
+        for (int c = row + y0; c < row + y1; c++) {
+          next[c] += m[c - shift];
+        }
+      }
+    }
+
+    float total = 0f;
+    for (int c = 0; c < CELLS; c++) {
+      next[c] *= hidden[c] * passable[c];
+      total += next[c];
+    }
+    if (total == 0f) {
+      // not where we thought; it could be anywhere we can't see
+      for (int c = 0; c < CELLS; c++) {
+        next[c] = hidden[c] * passable[c];
+        total += next[c];
+      }
+      if (total == 0f) {
+        Arrays.fill(m, 0f);
+        return;
+      }
+    }
+    float scale = 1f / total;
+    for (int c = 0; c < CELLS; c++) {
+      m[c] = next[c] * scale;
+    }
+  }
+
+  /** Probability that the enemy (0 to CCOUNT - 1) is in the cell. */
+  float probability(int enemy, int x, int y) {
+    return mass[enemy][TurnChanges.cell(x, y)];
+  }
+
+  /** Probability that the enemy is no further than r from the point. */
+  float probabilityWithin(int enemy, Point p, int r) {
+    float[] m = mass[enemy];
+    float sum = 0f;
+    int x0 = Math.max(0, p.x - r);
+    int x1 = Math.min(Const.SIZE - 1, p.x + r);
+    for (int x = x0; x <= x1; x++) {
+      int dx = x - p.x;
+      int dy = (int) Math.sqrt(r * r - dx * dx);
+      int y0 = Math.max(0, p.y - dy);
+      int y1 = Math.min(Const.SIZE - 1, p.y + dy);
+      int row = x * Const.SIZE;
+      for (int c = row + y0; c <= row + y1; c++) {
+        sum += m[c];
+      }
+    }
+    return sum;
+  }
+
+  /** Number of enemies expected no further than r from the point, seen or not. */
+  float expectedWithin(Point p, int r) {
+    float sum = 0f;
+    for (int e = 0; e < Const.CCOUNT; e++) {
+      sum += probabilityWithin(e, p, r);
+    }
+    return sum;
+  }
+
+  /** Number of enemies expected in the given cells, seen or not. */
+  float expectedIn(List<Point> points) {
+    float sum = 0f;
+    for (int i = 0; i < points.size(); i++) {
+      Point p = points.get(i);
+      int c = TurnChanges.cell(p.x, p.y);
+      for (int e = 0; e < Const.CCOUNT; e++) {
+        sum += mass[e][c];
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * A cell drawn at random by the enemy's probability of being in it, as
+   * TurnChanges.cell(), or -1 if it has never been seen.
+   */
+  int sample(int enemy, Random rnd) {
+    float[] m = mass[enemy];
+    float u = rnd.nextFloat();
+    int last = -1;
+    for (int c = 0; c < CELLS; c++) {
+      if (m[c] > 0f) {
+        last = c;
+        u -= m[c];
+        if (u < 0f) {
+          return c;
+        }
+      }
+    }
+    // what rounding left over
+    return last;
+  }
+
+  /** The enemy's most likely cell, or null if it has never been seen. */
+  Point mostLikely(int enemy) {
+    float[] m = mass[enemy];
+    int best = -1;
+    float most = 0f;
+    for (int c = 0; c < CELLS; c++) {
+      if (m[c] > most) {
+        most = m[c];
+        best = c;
+      }
+    }
+    return best < 0 ? null : Seeker.at(best);
+  }
+}
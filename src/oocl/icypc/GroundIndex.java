@@ -0,0 +1,69 @@
+package oocl.icypc;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * The cells holding each kind of ground, including hidden cells (-1) and
+ * children (GROUND_CHILD), kept up to date from each turn's changes
+ * instead of scanning the board every time Seeker looks for something.
+ */
+final class GroundIndex implements TurnChanges.Listener {
+
+  /** One set of cells per ground value, from -1 up to GROUND_CHILD. */
+  private final BitSet[] cells = new BitSet[Seeker.GROUND_CHILD + 2];
+
+  GroundIndex() {
+    for (int g = 0; g < cells.length; g++) {
+      cells[g] = new BitSet(TurnChanges.CELLS);
+    }
+  }
+
+  private BitSet cellsOf(int ground) {
+    return ground >= -1 && ground <= Seeker.GROUND_CHILD ? cells[ground + 1] : null;
+  }
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      BitSet old = cellsOf(changes.oldGround(k));
+      if (old != null) {
+        old.clear(c);
+      }
+      BitSet now = cellsOf(ground[TurnChanges.x(c)][TurnChanges.y(c)]);
+      if (now != null) {
+        now.set(c);
+      }
+    }
+  }
+
+  /**
+   * The cells holding the given ground, in the order of a scan of the
+   * board, column by column.
+   */
+  List<Point> matching(int ground) {
+    List<Point> found = new ArrayList<>();
+    for (int c = next(ground, 0); c >= 0; c = next(ground, c + 1)) {
+      found.add(Seeker.at(c));
+    }
+    return found;
+  }
+
+  /**
+   * The first cell from the given one on holding the ground, as
+   * TurnChanges.cell(), or -1; for going through matching() a cell at a
+   * time without a list.
+   */
+  int next(int ground, int from) {
+    BitSet set = cellsOf(ground);
+    return set == null ? -1 : set.nextSetBit(from);
+  }
+
+  int count(int ground) {
+    BitSet set = cellsOf(ground);
+    return set == null ? 0 : set.cardinality();
+  }
+}
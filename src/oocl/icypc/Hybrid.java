@@ -7,36 +7,41 @@ package oocl.icypc;// A simple player that just tries to hit children on the opp
 // Sturgill, Baylor University
 
 import icypc.Const;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import icypc.Seeds;
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.TurnSnapshot;
+
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.Random;
 import java.awt.Point;
 
-public class Hybrid {
+public class Hybrid implements PlayerStrategy {
   // Constant used to mark child locations in the map.
   public static final int GROUND_CHILD = 10;
 
   /**
    * Current game score for self (red) and opponent (blue).
    */
-  private static int[] score = new int[2];
+  private final int[] score = new int[2];
 
   /**
    * Current snow height in each cell.
    */
-  private static int[][] height = new int[Const.SIZE][Const.SIZE];
+  private final int[][] height = new int[Const.SIZE][Const.SIZE];
 
   /**
    * Contents of each cell.
    */
-  private static int[][] ground = new int[Const.SIZE][Const.SIZE];
+  private final int[][] ground = new int[Const.SIZE][Const.SIZE];
 
   /**
    * List of children on the field, half for each team.
    */
-  private static Child[] cList = new Child[2 * Const.CCOUNT];
+  private final Child[] cList = new Child[2 * Const.CCOUNT];
 
   /*
    * Return the value of x, clamped to the [ a, b ] range.
@@ -51,7 +56,7 @@ public class Hybrid {
     return x;
   }
 
-  static class Child {
+  class Child {
 
     Point pos = new Point();
     boolean standing;
@@ -147,42 +152,46 @@ public class Hybrid {
   /*
    * An activity is a named list of moves carried out according to some policy (maybe ad-hoc)
    */
-  abstract static class Activity {
+  abstract class Activity {
     Move[] instructions;
     Point runTarget = new Point();
 
+    // Source of randomness for the child doing this activity.
+    final Random rnd;
+
     // How long the child has left to run toward its destination.
     int runTimer;
 
-    Activity(Move[] instructions) {
+    Activity(Move[] instructions, Random rnd) {
       this.instructions = instructions;
+      this.rnd = rnd;
     }
 
     abstract public Move chooseMove(Child c);
   }
 
-  static class PlanterActivity extends Activity {
-
-    static Move[] snowmanMoves = {
-        new Move("idle"),
-        new Move("crouch"),
-        new Move("pickup", 1, 0),
-        new Move("pickup", 1, 0),
-        new Move("pickup", 1, 0),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("pickup", 1, 1),
-        new Move("pickup", 1, 1),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("pickup", 1, 1),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("stand"),
-    };
-
-    PlanterActivity() {
-      super(snowmanMoves);
+  static Move[] snowmanMoves = {
+      new Move("idle"),
+      new Move("crouch"),
+      new Move("pickup", 1, 0),
+      new Move("pickup", 1, 0),
+      new Move("pickup", 1, 0),
+      new Move("crush"),
+      new Move("drop", 1, 0),
+      new Move("pickup", 1, 1),
+      new Move("pickup", 1, 1),
+      new Move("crush"),
+      new Move("drop", 1, 0),
+      new Move("pickup", 1, 1),
+      new Move("crush"),
+      new Move("drop", 1, 0),
+      new Move("stand"),
+  };
+
+  class PlanterActivity extends Activity {
+
+    PlanterActivity(Random rnd) {
+      super(snowmanMoves, rnd);
     }
 
     public Move chooseMove(Child c) {
@@ -264,10 +273,10 @@ public class Hybrid {
     }
   }
 
-  static class HunterActivity extends Activity {
+  class HunterActivity extends Activity {
 
-    public HunterActivity() {
-      super(null);
+    public HunterActivity(Random rnd) {
+      super(null, rnd);
     }
 
     public Move chooseMove(Child c) {
@@ -349,65 +358,85 @@ public class Hybrid {
     }
   }
 
-  static Random rnd = new Random();
+  /**
+   * Record the visible map whenever an opponent is hidden.  Only done
+   * when playing against the engine.
+   */
+  private boolean recordVisibility;
 
-  public void run() {
+  private VisibilityRecorder visibility;
+
+  public Hybrid() {
+    this(Seeds.fromEnvironment());
+  }
 
+  public Hybrid(long seed) {
+    Random[] rnd = Seeds.perChild(seed, Const.CCOUNT);
     for (int i = 0; i < cList.length; i++) {
       Child player = new Child();
       if (i == 0 || i == 1) {
-        player.activity = new HunterActivity();
+        player.activity = new HunterActivity(rnd[i]);
       }
       if (i == 2 || i == 3) {
-        player.activity = new PlanterActivity();
+        player.activity = new PlanterActivity(rnd[i]);
       }
       cList[i] = player;
     }
+  }
 
-    // Scanner to parse input from the game engine.
-    Scanner in = new Scanner(System.in);
+  @Override
+  public void chooseMoves(TurnSnapshot turn, MoveList moves) {
+    // Copy the current score and map.
+    score[Const.RED] = turn.score[Const.RED];
+    score[Const.BLUE] = turn.score[Const.BLUE];
+    for (int i = 0; i < Const.SIZE; i++) {
+      System.arraycopy(turn.height[i], 0, height[i], 0, Const.SIZE);
+      System.arraycopy(turn.ground[i], 0, ground[i], 0, Const.SIZE);
+    }
 
-    // Keep reading states until the game ends.
-    int turnNum = in.nextInt();
-    while (turnNum >= 0) {
-      String token;
+    // Copy the states of all the children.
+    readChildrenStates(cList, turn);
 
-      // Read current game score.
-      score[Const.RED] = in.nextInt();
-      score[Const.BLUE] = in.nextInt();
+    if (recordVisibility && !areAllOpponentsVisible()) {
+      recordVisibility(turn);
+    }
 
-      // Parse the current map.
-      readCurrentMap(height, ground, in);
+    // Mark all the children in the map, so they are easy to
+    // look up.
+    markChildren(ground, cList);
 
-      if (!areAllOpponentsVisible()) {
-        recordMapVisibilityWithPrefix("Map Visibility at turn " + turnNum);
-      }
+    // Decide what each child should do
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      Move m = cList[i].chooseMove();
+//        System.err.println(String.format("child %d move is %s", i, m.action));
 
-      // Read the states of all the children.
-      readChildrenStates(cList, in);
+      if (m.dest == null) {
+        moves.set(i, Rules.actionCode(m.action));
+      } else {
+        moves.set(i, Rules.actionCode(m.action), m.dest.x, m.dest.y);
+      }
+    }
+  }
 
-      // Mark all the children in the map, so they are easy to
-      // look up.
-      markChildren(ground, cList);
+  public void run() {
+    recordVisibility = true;
 
-      // Decide what each child should do
-      for (int i = 0; i < Const.CCOUNT; i++) {
-        Move m = cList[i].chooseMove();
-//        System.err.println(String.format("child %d move is %s", i, m.action));
+    // Scanner to parse input from the game engine.
+    Scanner in = new Scanner(System.in);
+    TurnSnapshot turn = new TurnSnapshot();
+    MoveList moves = new MoveList();
 
-        /** Write out the child's move */
-        if (m.dest == null) {
-          System.out.println(m.action);
-        } else {
-          System.out.println(m.action + " " + m.dest.x + " " + m.dest.y);
-        }
-      }
+    // Keep reading states until the game ends.
+    while (turn.read(in)) {
+      chooseMoves(turn, moves);
 
-      turnNum = in.nextInt();
+      /** Write out the children's moves */
+      moves.write(System.out);
     }
+    gameOver();
   }
 
-  public static boolean areAllOpponentsVisible() {
+  public boolean areAllOpponentsVisible() {
     // last 4 children in the array represent opponents
     for (int i = Const.CCOUNT; i < Const.CCOUNT * 2; i++) {
       if (cList[i].pos.x == -1 || cList[i].pos.y == -1) {
@@ -417,43 +446,33 @@ public class Hybrid {
     return true;
   }
 
-  public static void recordMapVisibilityWithPrefix(String prefixMessage) {
-    String fileName = "visibility.txt";
-
+  /**
+   * Queue this turn's view for visibility.bin, opening it on first use.
+   * VisibilityReader turns the file back into text.
+   */
+  void recordVisibility(TurnSnapshot turn) {
     try {
-      // Open given file in append mode.
-      BufferedWriter out = new BufferedWriter(
-          new FileWriter(fileName, true));
-      out.write(prefixMessage);
-      out.write('\n');
-      for (int i = 0; i < Const.SIZE; i++) {
-        for (int j = 0; j < Const.SIZE; j++) {
-          // translate ground map back to original format
-          if (j > 0) out.write(' ');
-          if (ground[i][j] == -1) {
-            out.write("*");
-          }
-          else {
-            String code = String.format("%d%s", height[i][j], (char)(ground[i][j] + 'a'));
-            out.write(code);
-          }
-        }
-        out.write('\n');
-      }
-
-      // now write children state
-      for (int i = 0; i < Const.CCOUNT * 2; i++) {
-        // {x:0, y:2, stance:'S', carry:'a', dazed:0}
-        Child c = cList[i];
-        String status = String.format("%d %d %s %s %d\n", c.pos.x, c.pos.y,
-            c.standing ? "S" : "C", (char)(c.holding + 'a'), c.dazed);
-        out.write(status);
+      if (visibility == null) {
+        visibility = new VisibilityRecorder(Paths.get("visibility.bin"));
       }
-
-      out.close();
+      visibility.record(turn);
     }
     catch (IOException e) {
       System.err.println("exception occurred" + e);
+      recordVisibility = false;
+    }
+  }
+
+  @Override
+  public void gameOver() {
+    if (visibility != null) {
+      try {
+        visibility.close();
+      }
+      catch (IOException e) {
+        System.err.println("exception occurred" + e);
+      }
+      visibility = null;
     }
   }
 
@@ -471,50 +490,27 @@ public class Hybrid {
     }
   }
 
-  private static void readCurrentMap(int[][] height, int[][] ground, Scanner in) {
-    String token;
-    for (int i = 0; i < Const.SIZE; i++) {
-      for (int j = 0; j < Const.SIZE; j++) {
-        // Can we see this cell?
-        token = in.next();
-        if (token.charAt(0) == '*') {
-          height[i][j] = -1;
-          ground[i][j] = -1;
-        } else {
-          height[i][j] = token.charAt(0) - '0';
-          ground[i][j] = token.charAt(1) - 'a';
-        }
-      }
-    }
-  }
-
-  private static void readChildrenStates(Child[] cList, Scanner in) {
-    String token;
+  private static void readChildrenStates(Child[] cList, TurnSnapshot turn) {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Child c = cList[i];
 
       // Can we see this child?
-      token = in.next();
-      if (token.equals("*")) {
+      if (turn.x[i] < 0) {
         c.pos.x = -1;
         c.pos.y = -1;
       } else {
         // Record the child's location.
-        c.pos.x = Integer.parseInt(token);
-        c.pos.y = in.nextInt();
+        c.pos.x = turn.x[i];
+        c.pos.y = turn.y[i];
 
         // Compute child color based on it's index.
         c.color = (i < Const.CCOUNT ? Const.RED : Const.BLUE);
 
-        // Read the stance, what the child is holding and how much
+        // Record the stance, what the child is holding and how much
         // longer he's dazed.
-        token = in.next();
-        c.standing = token.equals("S");
-
-        token = in.next();
-        c.holding = token.charAt(0) - 'a';
-
-        c.dazed = in.nextInt();
+        c.standing = turn.standing[i];
+        c.holding = turn.holding[i];
+        c.dazed = turn.dazed[i];
       }
     }
   }
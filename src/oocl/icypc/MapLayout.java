@@ -0,0 +1,563 @@
+package oocl.icypc;
+
+import icypc.Const;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * The trees on the board, which never move, and what follows from them:
+ * which cells are connected, which cells every path between two parts of
+ * the board has to go through, and how many turns it takes to walk
+ * between any two cells.
+ *
+ * The layout is learned from what Seeker sees.  Every map is symmetric
+ * about the centre, so seeing a cell also tells us about the opposite
+ * one.  Cells never seen are taken to be open.
+ *
+ * If SEEKER_MAP_CACHE names a directory, the layout and everything worked
+ * out from it are saved there at the end of the game, in a file named
+ * after a fingerprint of the layout.  The first turn only shows the corner
+ * the children start in, which looks the same on most maps, so a game
+ * can't tell at the start which file is its map.  Instead it keeps every
+ * cached layout that agrees with everything seen so far, and once only
+ * one is left and it has the trees we've seen, it maps that file instead
+ * of learning and working it all out again.  If anything seen later
+ * contradicts it, it's dropped for the rest of the game.  When a layout
+ * is saved, files that agree with it on at least MIN_OVERLAP cells are
+ * merged into it and removed, so the directory ends up with one file per
+ * map.  Two views that share only a little, like the starting corners,
+ * could be of different maps, so they are kept as separate files.
+ *
+ * File: magic, version, board size, a spare int and the fingerprint, then
+ * a byte per cell for the layout, a short per cell for the region, a byte
+ * per cell for chokepoints and a byte per pair of cells for the distance.
+ */
+final class MapLayout implements TurnChanges.Listener {
+
+  /** Environment variable naming the cache directory; no caching if unset. */
+  static final String CACHE_ENV = "SEEKER_MAP_CACHE";
+
+  static final int MAGIC = 0x49434d31; // "ICM1"
+
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 24;
+
+  private static final int CELLS = TurnChanges.CELLS;
+
+  static final int FILE_SIZE = HEADER_SIZE + CELLS * 4 + CELLS * CELLS;
+
+  static final byte UNKNOWN = 0;
+
+  static final byte OPEN = 1;
+
+  static final byte TREE = 2;
+
+  /** Distance between cells that aren't connected. */
+  static final int UNREACHABLE = 255;
+
+  /** Cells two layouts must both know, and agree on, to be merged as one map. */
+  static final int MIN_OVERLAP = CELLS / 2;
+
+  /** A layout in the cache. */
+  private static final class Cached {
+    final Path file;
+    final MappedByteBuffer map;
+    final byte[] layout = new byte[CELLS];
+
+    Cached(Path file, MappedByteBuffer map) {
+      this.file = file;
+      this.map = map;
+      map.position(HEADER_SIZE);
+      map.get(layout);
+    }
+  }
+
+  private final Path directory;
+
+  /** What's known about each cell, from this game and the cache. */
+  private final byte[] cells = new byte[CELLS];
+
+  /** What's been seen this game. */
+  private final byte[] seen = new byte[CELLS];
+
+  /** Cached layouts that agree with everything seen; null until the first update. */
+  private List<Cached> candidates;
+
+  /** The cached layout in use, if any. */
+  private Cached adopted;
+
+  private boolean sawTree;
+
+  /** True if there is more known than the adopted layout has. */
+  private boolean dirty;
+
+  // worked out from cells when they are asked for, and again if a tree turns up
+  private final int[] region = new int[CELLS];
+  private final BitSet chokepoints = new BitSet(CELLS);
+  private List<Point> trees = Collections.emptyList();
+  private boolean stale = true;
+
+  // turns between cells, filled in a row at a time as rows are needed
+  private final byte[] distances = new byte[CELLS * CELLS];
+  private final BitSet rows = new BitSet(CELLS);
+  private int[][] runs;
+  private final int[] queue = new int[CELLS];
+
+  private static final ThreadLocal<int[]> QUEUES = ThreadLocal.withInitial(() -> new int[CELLS]);
+
+  MapLayout(Path directory) {
+    this.directory = directory;
+  }
+
+  /** A layout cached in the directory named by SEEKER_MAP_CACHE, if set. */
+  static MapLayout fromEnvironment() {
+    String dir = System.getenv(CACHE_ENV);
+    return new MapLayout(dir == null || dir.isEmpty() ? null : Paths.get(dir));
+  }
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    if (candidates == null) {
+      candidates = cached();
+    }
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      int g = ground[TurnChanges.x(c)][TurnChanges.y(c)];
+      if (g >= 0) {
+        byte state = g == Const.GROUND_TREE ? TREE : OPEN;
+        learn(c, state);
+        learn(CELLS - 1 - c, state);
+      }
+    }
+    if (adopted == null && sawTree && candidates.size() == 1) {
+      adopt(candidates.get(0));
+    }
+  }
+
+  private void learn(int c, byte state) {
+    if (seen[c] == state) {
+      return;
+    }
+    seen[c] = state;
+    sawTree |= state == TREE;
+    for (int i = candidates.size() - 1; i >= 0; i--) {
+      byte known = candidates.get(i).layout[c];
+      if (known != UNKNOWN && known != state) {
+        candidates.remove(i);
+      }
+    }
+    if (cells[c] == state) {
+      return;
+    }
+    if (cells[c] != UNKNOWN) {
+      // not the map we thought it was
+      System.arraycopy(seen, 0, cells, 0, CELLS);
+      adopted = null;
+      dirty = true;
+      stale = true;
+      return;
+    }
+    cells[c] = state;
+    dirty = true;
+    // unknown cells were taken to be open
+    stale |= state == TREE;
+  }
+
+  /** Use a cached layout, and what was worked out from it if nothing seen changes that. */
+  private void adopt(Cached m) {
+    adopted = m;
+    dirty = false;
+    boolean newTrees = false;
+    for (int c = 0; c < CELLS; c++) {
+      if (m.layout[c] == UNKNOWN && seen[c] != UNKNOWN) {
+        dirty = true;
+        newTrees |= seen[c] == TREE;
+      } else {
+        cells[c] = m.layout[c];
+      }
+    }
+    stale = true;
+    if (newTrees) {
+      return;
+    }
+
+    ByteBuffer map = m.map.duplicate();
+    map.position(HEADER_SIZE + CELLS);
+    List<Point> t = new ArrayList<>();
+    for (int c = 0; c < CELLS; c++) {
+      region[c] = map.getShort();
+      if (cells[c] == TREE) {
+        t.add(new Point(TurnChanges.x(c), TurnChanges.y(c)));
+      }
+    }
+    trees = Collections.unmodifiableList(t);
+    chokepoints.clear();
+    for (int c = 0; c < CELLS; c++) {
+      if (map.get() != 0) {
+        chokepoints.set(c);
+      }
+    }
+    map.get(distances);
+    rows.set(0, CELLS);
+    stale = false;
+  }
+
+  static long fingerprint(byte[] cells) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : cells) {
+      h = (h ^ b) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /** Fingerprint of the layout as it's known now. */
+  long fingerprint() {
+    return fingerprint(cells);
+  }
+
+  /** True if the layout came from the cache. */
+  boolean isCached() {
+    return adopted != null;
+  }
+
+  /** True if there is known to be a tree in the cell, seen or not. */
+  boolean isTree(int x, int y) {
+    return cells[TurnChanges.cell(x, y)] == TREE;
+  }
+
+  /** True if the cell has been seen, this game or in the cache. */
+  boolean isKnown(int x, int y) {
+    return cells[TurnChanges.cell(x, y)] != UNKNOWN;
+  }
+
+  /** Every cell known to have a tree. */
+  List<Point> trees() {
+    derive();
+    return trees;
+  }
+
+  /** The connected part of the board the cell is in, or -1 for a tree. */
+  int region(int x, int y) {
+    derive();
+    return region[TurnChanges.cell(x, y)];
+  }
+
+  /** True if a child could walk between the cells if nobody was in the way. */
+  boolean connected(Point a, Point b) {
+    int r = region(a.x, a.y);
+    return r >= 0 && r == region(b.x, b.y);
+  }
+
+  /** True if some cells can only be walked between through this one. */
+  boolean isChokepoint(int x, int y) {
+    derive();
+    return chokepoints.get(TurnChanges.cell(x, y));
+  }
+
+  /**
+   * Turns a standing child needs to get between the cells, running where
+   * it can, if there was nothing but trees in the way; UNREACHABLE if
+   * they aren't connected.
+   */
+  int distance(int x0, int y0, int x1, int y1) {
+    return distance(TurnChanges.cell(x0, y0), TurnChanges.cell(x1, y1));
+  }
+
+  /**
+   * distance() between cells given as TurnChanges.cell().  The first
+   * time a cell's distances are needed they are all found with one
+   * breadth-first search, after that it's a lookup.
+   */
+  int distance(int a, int b) {
+    derive();
+    if (!rows.get(a)) {
+      if (rows.get(b)) {
+        return distances[b * CELLS + a] & 0xFF;
+      }
+      search(runs(), a, queue);
+      rows.set(a);
+    }
+    return distances[a * CELLS + b] & 0xFF;
+  }
+
+  /** Fill in the distances between every pair of cells, several rows at a time. */
+  void distances() {
+    derive();
+    int[][] adj = runs();
+    IntStream.range(0, CELLS).parallel()
+        .filter(s -> !rows.get(s))
+        .forEach(s -> search(adj, s, QUEUES.get()));
+    rows.set(0, CELLS);
+  }
+
+  private int[][] runs() {
+    if (runs == null) {
+      runs = adjacency(true);
+    }
+    return runs;
+  }
+
+  /** Bring regions, chokepoints and the tree list up to date with the layout. */
+  private void derive() {
+    if (!stale) {
+      return;
+    }
+    stale = false;
+    rows.clear();
+    runs = null;
+
+    List<Point> t = new ArrayList<>();
+    for (int c = 0; c < CELLS; c++) {
+      if (cells[c] == TREE) {
+        t.add(new Point(TurnChanges.x(c), TurnChanges.y(c)));
+      }
+    }
+    trees = Collections.unmodifiableList(t);
+
+    int[][] steps = adjacency(false);
+    regions(steps);
+    chokepoints(steps);
+  }
+
+  /**
+   * The cells a standing child can get to in one turn from each cell,
+   * one step in any direction, or also two in a straight line if runs.
+   */
+  private int[][] adjacency(boolean runs) {
+    int[][] adj = new int[CELLS][];
+    int[] buf = new int[12];
+    for (int c = 0; c < CELLS; c++) {
+      if (cells[c] == TREE) {
+        adj[c] = new int[0];
+        continue;
+      }
+      int x = TurnChanges.x(c);
+      int y = TurnChanges.y(c);
+      int n = 0;
+      for (int dx = -1; dx <= 1; dx++) {
+        for (int dy = -1; dy <= 1; dy++) {
+          if ((dx != 0 || dy != 0) && open(x + dx, y + dy)) {
+            buf[n++] = TurnChanges.cell(x + dx, y + dy);
+            if (runs && (dx == 0 || dy == 0) && open(x + 2 * dx, y + 2 * dy)) {
+              buf[n++] = TurnChanges.cell(x + 2 * dx, y + 2 * dy);
+            }
+          }
+        }
+      }
+      adj[c] = Arrays.copyOf(buf, n);
+    }
+    return adj;
+  }
+
+  private boolean open(int x, int y) {
+    return x >= 0 && x < Const.SIZE && y >= 0 && y < Const.SIZE
+        && cells[TurnChanges.cell(x, y)] != TREE;
+  }
+
+  private void regions(int[][] adj) {
+    Arrays.fill(region, -1);
+    int[] queue = new int[CELLS];
+    int next = 0;
+    for (int start = 0; start < CELLS; start++) {
+      if (cells[start] == TREE || region[start] >= 0) {
+        continue;
+      }
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = start;
+      region[start] = next;
+      while (head < tail) {
+        for (int v : adj[queue[head++]]) {
+          if (region[v] < 0) {
+            region[v] = next;
+            queue[tail++] = v;
+          }
+        }
+      }
+      next++;
+    }
+  }
+
+  /** Articulation points, by depth-first search without recursion. */
+  private void chokepoints(int[][] adj) {
+    chokepoints.clear();
+    int[] disc = new int[CELLS];
+    int[] low = new int[CELLS];
+    int[] parent = new int[CELLS];
+    int[] edge = new int[CELLS];
+    int[] stack = new int[CELLS];
+    Arrays.fill(disc, -1);
+    int time = 0;
+    for (int root = 0; root < CELLS; root++) {
+      if (cells[root] == TREE || disc[root] >= 0) {
+        continue;
+      }
+      int rootChildren = 0;
+      int top = 0;
+      stack[top++] = root;
+      parent[root] = -1;
+      disc[root] = low[root] = time++;
+      while (top > 0) {
+        int u = stack[top - 1];
+        if (edge[u] < adj[u].length) {
+          int v = adj[u][edge[u]++];
+          if (disc[v] < 0) {
+            parent[v] = u;
+            disc[v] = low[v] = time++;
+            stack[top++] = v;
+            if (u == root) {
+              rootChildren++;
+            }
+          } else if (v != parent[u]) {
+            low[u] = Math.min(low[u], disc[v]);
+          }
+        } else {
+          top--;
+          int p = parent[u];
+          if (p >= 0) {
+            low[p] = Math.min(low[p], low[u]);
+            if (p != root && low[u] >= disc[p]) {
+              chokepoints.set(p);
+            }
+          }
+        }
+      }
+      if (rootChildren > 1) {
+        chokepoints.set(root);
+      }
+    }
+  }
+
+  /** Breadth-first search from one cell, filling in its row. */
+  private void search(int[][] adj, int s, int[] queue) {
+    int row = s * CELLS;
+    Arrays.fill(distances, row, row + CELLS, (byte) UNREACHABLE);
+    distances[row + s] = 0;
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = s;
+    while (head < tail) {
+      int u = queue[head++];
+      byte next = (byte) ((distances[row + u] & 0xFF) + 1);
+      for (int v : adj[u]) {
+        if ((distances[row + v] & 0xFF) == UNREACHABLE) {
+          distances[row + v] = next;
+          queue[tail++] = v;
+        }
+      }
+    }
+  }
+
+  /** Every readable layout in the cache directory. */
+  private List<Cached> cached() {
+    List<Cached> found = new ArrayList<>();
+    if (directory == null || !Files.isDirectory(directory)) {
+      return found;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.map")) {
+      for (Path file : files) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          if (channel.size() != FILE_SIZE) {
+            continue;
+          }
+          MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+          if (map.getInt(0) == MAGIC && map.getInt(4) == VERSION && map.getInt(8) == Const.SIZE) {
+            found.add(new Cached(file, map));
+          }
+        } catch (IOException e) {
+          // being replaced by another game; it'll be there next time
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("exception occurred" + e);
+    }
+    return found;
+  }
+
+  /** Number of cells both layouts know and agree on, or -1 if they disagree on any. */
+  private static int overlap(byte[] a, byte[] b) {
+    int same = 0;
+    for (int c = 0; c < CELLS; c++) {
+      if (a[c] != UNKNOWN && b[c] != UNKNOWN) {
+        if (a[c] != b[c]) {
+          return -1;
+        }
+        same++;
+      }
+    }
+    return same;
+  }
+
+  /**
+   * Write the layout and what follows from it to the cache, if there is
+   * one and we know something it doesn't.  Cached layouts that agree with
+   * this one on at least MIN_OVERLAP cells are merged into it first and
+   * removed.  The file is written
+   * under another name and moved into place, so games running at the same
+   * time never see half a file.
+   */
+  void save() {
+    if (directory == null || candidates == null || (adopted != null && !dirty)) {
+      return;
+    }
+    List<Path> merged = new ArrayList<>();
+    for (Cached m : cached()) {
+      if (overlap(m.layout, cells) >= MIN_OVERLAP) {
+        for (int c = 0; c < CELLS; c++) {
+          if (cells[c] == UNKNOWN && m.layout[c] != UNKNOWN) {
+            cells[c] = m.layout[c];
+            stale |= m.layout[c] == TREE;
+          }
+        }
+        merged.add(m.file);
+      }
+    }
+    distances();
+
+    try {
+      Files.createDirectories(directory);
+      Path file = directory.resolve(String.format("%016x.map", fingerprint()));
+      Path temp = Files.createTempFile(directory, "layout", ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        map.putInt(MAGIC).putInt(VERSION).putInt(Const.SIZE).putInt(0).putLong(fingerprint());
+        map.put(cells);
+        for (int c = 0; c < CELLS; c++) {
+          map.putShort((short) region[c]);
+        }
+        for (int c = 0; c < CELLS; c++) {
+          map.put((byte) (chokepoints.get(c) ? 1 : 0));
+        }
+        map.put(distances);
+        map.force();
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      for (Path old : merged) {
+        if (!old.equals(file)) {
+          Files.deleteIfExists(old);
+        }
+      }
+      dirty = false;
+    } catch (IOException e) {
+      System.err.println("exception occurred" + e);
+    }
+  }
+}
@@ -10,6 +10,7 @@
 package oocl.icypc;
 
 import icypc.Const;
+import icypc.Seeds;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -34,7 +35,7 @@ public class RandomSeeker_V4 {
   // Constant used to mark child locations in the map.
   public static final int GROUND_CHILD = 10;
 
-  private final Random rnd = new Random();
+  private final Random rnd = new Random(Seeds.fromEnvironment());
 
   /**
    * Current game score for self (red) and opponent (blue).
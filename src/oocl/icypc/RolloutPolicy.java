@@ -0,0 +1,127 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.sim.GameState;
+import icypc.sim.Rules;
+import java.util.Random;
+
+/**
+ * Cheap moves for playing a game forward in SearchSeeker's rollouts: the
+ * same priorities as Seeker's children, without the planning.  A child
+ * with a snowball throws at the nearest enemy in range, overshooting so
+ * the ball is still high enough to clear the snow when it gets there, or
+ * runs toward it; an empty-handed child crouches, picks up snow and packs
+ * it into a snowball.  Children holding anything else are left to finish
+ * whatever they were doing, which the rollouts don't model.
+ *
+ * Works on a GameState in world coordinates and knows where every child
+ * is, so the rollouts see through the fog.
+ */
+final class RolloutPolicy {
+
+  /** Seeker rarely hits from further away than this. */
+  static final int THROW_RANGE_SQUARED = 8 * 8;
+
+  /** Chance of a random run instead, so rollouts don't all play out alike. */
+  static final float WANDER = 0.1f;
+
+  private RolloutPolicy() {
+  }
+
+  /**
+   * Choose moves for the children of one team, writing the action and
+   * destination of each into the arrays, which are indexed like the
+   * children of the state.
+   */
+  static void choose(GameState s, int team, Random rnd, int[] act, int[] ax, int[] ay) {
+    int first = team * Const.CCOUNT;
+    for (int i = first; i < first + Const.CCOUNT; i++) {
+      act[i] = Rules.IDLE;
+      if (s.dazed[i] > 0) {
+        continue;
+      }
+      int x = s.cx[i];
+      int y = s.cy[i];
+      int enemy = nearestEnemy(s, i);
+      int holding = s.holding[i];
+
+      if (s.standing[i] && rnd.nextFloat() < WANDER) {
+        int dx = rnd.nextInt(3) - 1;
+        int dy = rnd.nextInt(3) - 1;
+        if ((dx != 0 || dy != 0) && onBoard(x + dx, y + dy)) {
+          set(i, Rules.RUN, x + dx, y + dy, act, ax, ay);
+        }
+      } else if (holding >= Const.HOLD_S1 && holding <= Const.HOLD_S3) {
+        if (enemy < 0) {
+          continue;
+        }
+        int dx = s.cx[enemy] - x;
+        int dy = s.cy[enemy] - y;
+        if (dx * dx + dy * dy <= THROW_RANGE_SQUARED) {
+          if (4 * (dx * dx + dy * dy) <= Rules.THROW_LIMIT_SQUARED) {
+            set(i, Rules.THROW, x + 2 * dx, y + 2 * dy, act, ax, ay);
+          } else {
+            set(i, Rules.THROW, x + dx, y + dy, act, ax, ay);
+          }
+        } else if (!s.standing[i]) {
+          act[i] = Rules.STAND;
+        } else {
+          set(i, Rules.RUN, x + step(dx, dy == 0 ? 2 : 1), y + step(dy, dx == 0 ? 2 : 1),
+              act, ax, ay);
+        }
+      } else if (holding == Const.HOLD_P1) {
+        act[i] = Rules.CRUSH;
+      } else if (holding == Const.HOLD_EMPTY) {
+        if (s.standing[i]) {
+          act[i] = Rules.CROUCH;
+          continue;
+        }
+        for (int dx = -1; dx <= 1 && act[i] == Rules.IDLE; dx++) {
+          for (int dy = -1; dy <= 1; dy++) {
+            if ((dx != 0 || dy != 0) && onBoard(x + dx, y + dy)) {
+              int c = GameState.cell(x + dx, y + dy);
+              if (s.ground[c] == Const.GROUND_EMPTY && s.height[c] > 0) {
+                set(i, Rules.PICKUP, x + dx, y + dy, act, ax, ay);
+                break;
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** The closest enemy of the child that isn't dazed, or -1. */
+  private static int nearestEnemy(GameState s, int child) {
+    int first = GameState.team(child) == Const.RED ? Const.CCOUNT : 0;
+    int best = -1;
+    int bestDist = Integer.MAX_VALUE;
+    for (int j = first; j < first + Const.CCOUNT; j++) {
+      if (s.dazed[j] > 0) {
+        continue;
+      }
+      int dx = s.cx[j] - s.cx[child];
+      int dy = s.cy[j] - s.cy[child];
+      if (dx * dx + dy * dy < bestDist) {
+        bestDist = dx * dx + dy * dy;
+        best = j;
+      }
+    }
+    return best;
+  }
+
+  /** The offset d clamped to at most limit either way. */
+  private static int step(int d, int limit) {
+    return Math.max(-limit, Math.min(limit, d));
+  }
+
+  private static boolean onBoard(int x, int y) {
+    return x >= 0 && x < Const.SIZE && y >= 0 && y < Const.SIZE;
+  }
+
+  private static void set(int i, int action, int x, int y, int[] act, int[] ax, int[] ay) {
+    act[i] = action;
+    ax[i] = x;
+    ay[i] = y;
+  }
+}
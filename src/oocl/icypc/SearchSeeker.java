@@ -0,0 +1,454 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.Seeds;
+import icypc.sim.GameState;
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.Simulator;
+import icypc.sim.TurnSnapshot;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.stream.IntStream;
+
+/**
+ * Seeker with a flat Monte Carlo search on top.
+ *
+ * Each turn Seeker chooses the moves as usual.  Then, for each child, a
+ * handful of other moves are tried against Seeker's: every step or run
+ * it could take, a throw at each enemy in range, crouching, standing and
+ * picking up snow.  A move is tried by playing the game forward a few
+ * turns from a guess at the whole board, with the other children making
+ * Seeker's moves on the first turn and everyone playing RolloutPolicy
+ * after that, and scoring the difference in score at the end.  The
+ * guesses fill in hidden cells from what Seeker remembers of them and
+ * hidden enemies from where it thinks they are, a different guess for
+ * each round.  Every move is tried in the same worlds with the same
+ * random choices, so the comparison is fair even with few rollouts.
+ *
+ * Rounds of rollouts are spread across the cores until the turn's budget
+ * runs out, SEEKER_SEARCH_MILLIS milliseconds or 50 by default.  A child
+ * only changes its move if another did clearly better than Seeker's.
+ */
+public class SearchSeeker implements PlayerStrategy {
+
+  /** Environment variable giving the search time per turn, in milliseconds. */
+  static final String BUDGET_ENV = "SEEKER_SEARCH_MILLIS";
+
+  static final long DEFAULT_BUDGET = 50;
+
+  /** Turns each rollout plays. */
+  static final int HORIZON = 8;
+
+  /** Points a move must beat Seeker's by on average to replace it. */
+  static final double MARGIN = 5.0;
+
+  /** Rollouts each move needs before it can replace Seeker's. */
+  static final int MIN_ROLLOUTS = 8;
+
+  /** Most moves tried for one child, Seeker's included. */
+  private static final int MAX_CANDIDATES = 24;
+
+  /** Working state of one thread's rollouts. */
+  private static final class Rollout {
+    final GameState state = new GameState();
+    final Simulator sim = new Simulator(state);
+    final Random rnd = new Random();
+    final int[] act = new int[GameState.CHILDREN];
+    final int[] ax = new int[GameState.CHILDREN];
+    final int[] ay = new int[GameState.CHILDREN];
+  }
+
+  private static final ThreadLocal<Rollout> ROLLOUTS = ThreadLocal.withInitial(Rollout::new);
+
+  private final Seeker seeker;
+
+  private final long budgetNanos;
+
+  private final Random rnd;
+
+  // this turn's candidate moves; candidate 0 of each child is Seeker's
+  private final int[] child = new int[Const.CCOUNT * MAX_CANDIDATES];
+  private final int[] action = new int[Const.CCOUNT * MAX_CANDIDATES];
+  private final int[] destX = new int[Const.CCOUNT * MAX_CANDIDATES];
+  private final int[] destY = new int[Const.CCOUNT * MAX_CANDIDATES];
+  private final double[] total = new double[Const.CCOUNT * MAX_CANDIDATES];
+  private final int[] count = new int[Const.CCOUNT * MAX_CANDIDATES];
+  private int candidates;
+
+  /** Key of each candidate in its position, for the results table. */
+  private final long[] key = new long[Const.CCOUNT * MAX_CANDIDATES];
+
+  /**
+   * Total and number of rollouts of each move tried, by candidate key.  A
+   * child can face the same enemies from the same spot again, in a
+   * stand-off say, and the rollouts already played there still count.
+   * The rest of the board is left out of the key; it changes every turn,
+   * and matters less to a fight.
+   */
+  private final TranspositionTable results = new TranspositionTable(16);
+
+  /** The world guessed for this round. */
+  private final GameState world = new GameState();
+
+  public SearchSeeker() {
+    this(Seeds.fromEnvironment());
+  }
+
+  public SearchSeeker(long seed) {
+    this(seed, budgetFromEnvironment());
+  }
+
+  /**
+   * @param budgetMillis time to search each turn, in milliseconds
+   */
+  SearchSeeker(long seed, long budgetMillis) {
+    seeker = new Seeker(seed);
+    budgetNanos = budgetMillis * 1_000_000L;
+    rnd = new Random(Seeds.derive(seed, 2 * Const.CCOUNT));
+  }
+
+  private static long budgetFromEnvironment() {
+    String value = System.getenv(BUDGET_ENV);
+    return value == null || value.trim().isEmpty() ? DEFAULT_BUDGET : Long.parseLong(value.trim());
+  }
+
+  @Override
+  public void chooseMoves(TurnSnapshot turn, MoveList moves) {
+    long deadline = System.nanoTime() + budgetNanos;
+    seeker.chooseMoves(turn, moves);
+    int horizon = Math.min(HORIZON, Rules.TURNS - turn.turn);
+    if (horizon <= 0) {
+      return;
+    }
+    generate(turn, moves, horizon);
+    if (candidates == 0) {
+      return;
+    }
+
+    // Whole rounds only, so every move is tried in the same worlds; stop
+    // when another round as long as the last wouldn't finish in time.
+    long now = System.nanoTime();
+    long last = 0;
+    while (now + last < deadline) {
+      guess(turn, world);
+      long seed = rnd.nextLong();
+      IntStream.range(0, candidates).parallel()
+          .forEach(k -> {
+            total[k] += rollout(k, moves, seed, horizon);
+            count[k]++;
+          });
+      long end = System.nanoTime();
+      last = end - now;
+      now = end;
+    }
+    for (int k = 0; k < candidates; k++) {
+      results.put(key[k], (long) Float.floatToIntBits((float) total[k]) << 32 | count[k]);
+    }
+
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      int prior = -1;
+      int best = -1;
+      for (int k = 0; k < candidates; k++) {
+        if (child[k] != i) {
+          continue;
+        }
+        if (prior < 0) {
+          prior = k;
+        }
+        if (count[k] >= MIN_ROLLOUTS && (best < 0 || mean(k) > mean(best))) {
+          best = k;
+        }
+      }
+      if (best >= 0 && best != prior && count[prior] >= MIN_ROLLOUTS
+          && mean(best) - mean(prior) > MARGIN) {
+        moves.set(i, action[best], destX[best], destY[best]);
+      }
+    }
+  }
+
+  private double mean(int k) {
+    return total[k] / count[k];
+  }
+
+  /**
+   * Seeker's move and the alternatives for each child that can move, with
+   * what was found out about them last time the child was in the same
+   * spot against the same enemies.
+   *
+   * @param horizon turns each rollout will play
+   */
+  private void generate(TurnSnapshot turn, MoveList moves, int horizon) {
+    candidates = 0;
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      if (turn.dazed[i] > 0 || !fighting(turn, i)) {
+        continue;
+      }
+      int first = candidates;
+      add(first, i, moves.action[i], moves.x[i], moves.y[i]);
+      add(first, i, Rules.IDLE, -1, -1);
+      int x = turn.x[i];
+      int y = turn.y[i];
+      if (turn.standing[i]) {
+        for (int dx = -2; dx <= 2; dx++) {
+          for (int dy = -2; dy <= 2; dy++) {
+            int d = dx * dx + dy * dy;
+            if (d > 0 && d <= Rules.RUN_LIMIT_SQUARED && open(turn, x + dx, y + dy)
+                && (d < 4 || open(turn, x + dx / 2, y + dy / 2))) {
+              add(first, i, Rules.RUN, x + dx, y + dy);
+            }
+          }
+        }
+        if (turn.holding[i] == Const.HOLD_EMPTY) {
+          add(first, i, Rules.CROUCH, -1, -1);
+        }
+      } else {
+        add(first, i, Rules.STAND, -1, -1);
+        for (int dx = -1; dx <= 1; dx++) {
+          for (int dy = -1; dy <= 1; dy++) {
+            if (dx * dx + dy * dy != 1 || !onBoard(x + dx, y + dy)) {
+              continue;
+            }
+            if (open(turn, x + dx, y + dy)) {
+              add(first, i, Rules.CRAWL, x + dx, y + dy);
+            }
+            if (turn.holding[i] == Const.HOLD_EMPTY && turn.height[x + dx][y + dy] > 0
+                && turn.ground[x + dx][y + dy] == Const.GROUND_EMPTY) {
+              add(first, i, Rules.PICKUP, x + dx, y + dy);
+            }
+          }
+        }
+      }
+      if (turn.holding[i] >= Const.HOLD_S1 && turn.holding[i] <= Const.HOLD_S3) {
+        for (int e = Const.CCOUNT; e < GameState.CHILDREN; e++) {
+          int dx = turn.x[e] - x;
+          int dy = turn.y[e] - y;
+          if (turn.x[e] < 0 || dx * dx + dy * dy > Rules.THROW_LIMIT_SQUARED) {
+            continue;
+          }
+          add(first, i, Rules.THROW, turn.x[e], turn.y[e]);
+          if (4 * (dx * dx + dy * dy) <= Rules.THROW_LIMIT_SQUARED) {
+            add(first, i, Rules.THROW, x + 2 * dx, y + 2 * dy);
+          }
+        }
+      }
+    }
+    long enemies = 0;
+    for (int e = Const.CCOUNT; e < GameState.CHILDREN; e++) {
+      enemies ^= seeker.keys.child(e);
+    }
+    for (int k = 0; k < candidates; k++) {
+      long position = StateKeys.mix(seeker.keys.child(child[k]) ^ enemies, horizon);
+      key[k] = StateKeys.mix(position, (long) child[k] << 48 | (long) action[k] << 32
+          | (destX[k] & 0xFFFF) << 16 | destY[k] & 0xFFFF);
+      long result = results.get(key[k], 0L);
+      total[k] = Float.intBitsToFloat((int) (result >>> 32));
+      count[k] = (int) result;
+    }
+  }
+
+  /**
+   * True if child i is in a fight: an enemy it can see is close enough
+   * for a throw to hit, and it has its hands free or full of snowballs.  The rollouts
+   * are too short to see a snowman through, so children busy building are
+   * left to Seeker.
+   */
+  private static boolean fighting(TurnSnapshot turn, int i) {
+    int h = turn.holding[i];
+    if (h != Const.HOLD_EMPTY && (h < Const.HOLD_S1 || h > Const.HOLD_S3)) {
+      return false;
+    }
+    for (int e = Const.CCOUNT; e < GameState.CHILDREN; e++) {
+      int dx = turn.x[e] - turn.x[i];
+      int dy = turn.y[e] - turn.y[i];
+      if (turn.x[e] >= 0 && dx * dx + dy * dy <= RolloutPolicy.THROW_RANGE_SQUARED) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Add a move for child i unless it's already one of the child's, from first on. */
+  private void add(int first, int i, int act, int x, int y) {
+    if (!Rules.REQUIRES_DEST[act]) {
+      x = -1;
+      y = -1;
+    }
+    for (int k = first; k < candidates; k++) {
+      if (action[k] == act && destX[k] == x && destY[k] == y) {
+        return;
+      }
+    }
+    if (candidates - first >= MAX_CANDIDATES) {
+      return;
+    }
+    child[candidates] = i;
+    action[candidates] = act;
+    destX[candidates] = x;
+    destY[candidates] = y;
+    candidates++;
+  }
+
+  private static boolean onBoard(int x, int y) {
+    return x >= 0 && x < Const.SIZE && y >= 0 && y < Const.SIZE;
+  }
+
+  /** True if a child could move into the cell, as far as we can see. */
+  private static boolean open(TurnSnapshot turn, int x, int y) {
+    return onBoard(x, y) && turn.ground[x][y] == Const.GROUND_EMPTY
+        && turn.height[x][y] < Const.OBSTACLE_HEIGHT && childAt(turn, x, y) < 0;
+  }
+
+  private static int childAt(TurnSnapshot turn, int x, int y) {
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      if (turn.x[i] == x && turn.y[i] == y) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Fill in a whole board from what we can see: hidden cells as Seeker
+   * remembers them, or as the map's trees and fresh snow, and hidden
+   * enemies somewhere they might be.  We are red.
+   */
+  void guess(TurnSnapshot turn, GameState s) {
+    s.turn = turn.turn;
+    for (int x = 0; x < Const.SIZE; x++) {
+      for (int y = 0; y < Const.SIZE; y++) {
+        int c = GameState.cell(x, y);
+        if (turn.ground[x][y] >= 0) {
+          s.height[c] = turn.height[x][y];
+          s.ground[c] = turn.ground[x][y];
+        } else if (seeker.memory.ground(x, y) != BoardMemory.UNKNOWN) {
+          s.height[c] = seeker.memory.height(x, y);
+          s.ground[c] = seeker.memory.ground(x, y);
+        } else if (seeker.layout.isTree(x, y)) {
+          s.height[c] = 0;
+          s.ground[c] = Const.GROUND_TREE;
+        } else {
+          s.height[c] = Rules.INITIAL_SNOW_HEIGHT;
+          s.ground[c] = Const.GROUND_EMPTY;
+        }
+      }
+    }
+
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      s.standing[i] = turn.standing[i];
+      s.holding[i] = turn.holding[i];
+      s.dazed[i] = turn.dazed[i];
+      s.kx[i] = 0;
+      s.ky[i] = 0;
+      s.cx[i] = turn.x[i];
+      s.cy[i] = turn.y[i];
+    }
+    for (int i = Const.CCOUNT; i < GameState.CHILDREN; i++) {
+      if (s.cx[i] < 0) {
+        place(s, i);
+      }
+    }
+
+    s.hitScore[Const.RED] = 0;
+    s.hitScore[Const.BLUE] = 0;
+    s.computeDomain();
+    s.hitScore[Const.RED] = turn.score[0] - s.score[Const.RED];
+    s.hitScore[Const.BLUE] = turn.score[1] - s.score[Const.BLUE];
+    s.score[Const.RED] = turn.score[0];
+    s.score[Const.BLUE] = turn.score[1];
+  }
+
+  /** Put a hidden enemy in a free cell it might be in. */
+  private void place(GameState s, int i) {
+    int e = i - Const.CCOUNT;
+    for (int tries = 0; tries < 8; tries++) {
+      int c = seeker.enemies.sample(e, rnd);
+      if (c < 0) {
+        break;
+      }
+      if (free(s, TurnChanges.x(c), TurnChanges.y(c))) {
+        s.cx[i] = TurnChanges.x(c);
+        s.cy[i] = TurnChanges.y(c);
+        return;
+      }
+    }
+    // never seen, so probably near where it started
+    int[] p = Rules.INITIAL_CHILD_POSITIONS[GameState.CHILDREN - 1 - i];
+    int x = Const.SIZE - 1 - p[0];
+    int y = Const.SIZE - 1 - p[1];
+    for (int r = 0; !free(s, x, y) && r < 4 * Const.SIZE; r++) {
+      x = Math.max(0, Math.min(Const.SIZE - 1, x + rnd.nextInt(3) - 1));
+      y = Math.max(0, Math.min(Const.SIZE - 1, y + rnd.nextInt(3) - 1));
+    }
+    s.cx[i] = x;
+    s.cy[i] = y;
+  }
+
+  private static boolean free(GameState s, int x, int y) {
+    int c = GameState.cell(x, y);
+    return !Rules.GROUND_OBSTACLE[s.ground[c]] && s.height[c] < Const.OBSTACLE_HEIGHT
+        && s.childAt(x, y) < 0;
+  }
+
+  /**
+   * Play the game forward from this round's world with candidate k in
+   * place of Seeker's move for its child.
+   *
+   * @return our lead at the end
+   */
+  private double rollout(int k, MoveList moves, long seed, int horizon) {
+    Rollout r = ROLLOUTS.get();
+    GameState s = r.state;
+    s.copyFrom(world);
+    r.rnd.setSeed(seed);
+
+    for (int t = 0; t < horizon; t++) {
+      r.sim.beginTurn();
+      RolloutPolicy.choose(s, Const.BLUE, r.rnd, r.act, r.ax, r.ay);
+      if (t == 0) {
+        for (int i = 0; i < Const.CCOUNT; i++) {
+          r.act[i] = moves.action[i];
+          r.ax[i] = moves.x[i];
+          r.ay[i] = moves.y[i];
+        }
+        r.act[child[k]] = action[k];
+        r.ax[child[k]] = destX[k];
+        r.ay[child[k]] = destY[k];
+      } else {
+        RolloutPolicy.choose(s, Const.RED, r.rnd, r.act, r.ax, r.ay);
+      }
+      for (int i = 0; i < GameState.CHILDREN; i++) {
+        r.sim.setMove(i, r.act[i], r.ax[i], r.ay[i]);
+      }
+      r.sim.endTurn();
+    }
+    return s.score[Const.RED] - s.score[Const.BLUE];
+  }
+
+  @Override
+  public void gameOver() {
+    seeker.gameOver();
+  }
+
+  /**
+   * Play a game read from input in the engine's text protocol, writing
+   * the moves to output.
+   */
+  public void run(InputStream input, PrintStream output) {
+    Scanner in = new Scanner(input);
+    TurnSnapshot turn = new TurnSnapshot();
+    MoveList moves = new MoveList();
+    while (turn.read(in)) {
+      chooseMoves(turn, moves);
+      moves.write(output);
+    }
+    gameOver();
+  }
+
+  public static void main(String[] args) {
+    new SearchSeeker().run(System.in, System.out);
+  }
+}
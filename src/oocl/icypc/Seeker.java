@@ -10,19 +10,23 @@
 package oocl.icypc;
 
 import icypc.Const;
+import icypc.Seeds;
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.TurnSnapshot;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class Seeker {
+public class Seeker implements PlayerStrategy {
   // Constant used to mark child locations in the map.
   public static final int GROUND_CHILD = 10;
 
-  private final Random rnd = new Random();
-
   /**
    * Current game score for self (red) and opponent (blue).
    */
@@ -48,19 +52,82 @@ public class Seeker {
     return copyBoard(ground);
   }
 
+  /** The numbers Seeker plays by, from SEEKER_PARAMS if it names a profile. */
+  final SeekerParams params;
+
   /**
    * List of children on the field, half for each team.
    */
   private final Player[] cList = new Player[2 * Const.CCOUNT];
 
+  /** Where the children are and what they hold; each Player is a view of a row. */
+  final ChildTable children = new ChildTable();
+
   public Seeker() {
+    this(Seeds.fromEnvironment());
+  }
+
+  /**
+   * @param seed seed for the children's random choices, for replaying a game exactly
+   */
+  public Seeker(long seed) {
+    this(seed, SeekerParams.fromEnvironment());
+  }
+
+  /**
+   * @param seed seed for the children's random choices, for replaying a game exactly
+   * @param params the numbers to play by
+   */
+  Seeker(long seed, SeekerParams params) {
+    this.params = params;
+    Random[] rnd = Seeds.perChild(seed, 2 * Const.CCOUNT);
     for (int i = 0; i < 2 * Const.CCOUNT; i++) {
-      cList[i] = new Player();
-    }
-    initializeZones();
+      cList[i] = new Player(i, rnd[i]);
+    }
+    changes.subscribe(items);
+    changes.subscribe(zoneStats);
+    changes.subscribe(memory);
+    changes.subscribe(layout);
+    changes.subscribe(enemies);
+    changes.subscribe(keys);
   }
 
-  List<Zone> hotZones;
+  /**
+   * What changed on the board since the last turn, and the state kept up
+   * to date from it.
+   */
+  final TurnChanges changes = new TurnChanges();
+
+  private final GroundIndex items = new GroundIndex();
+
+  final ZoneStats zoneStats = new ZoneStats();
+
+  /** The board as last seen, for planning through cells out of sight. */
+  final BoardMemory memory = new BoardMemory();
+
+  /** The trees, seen or not, and what follows from them; cached per map. */
+  final MapLayout layout = MapLayout.fromEnvironment();
+
+  /** Where the enemy children probably are, including those out of sight. */
+  final EnemyBeliefs enemies = new EnemyBeliefs(cList, memory, layout);
+
+  /** Zobrist keys of the board and children as they are now. */
+  final StateKeys keys = new StateKeys(cList);
+
+  /** The turn each of our children was last in each position, by its key. */
+  private final TranspositionTable visits = new TranspositionTable(12);
+
+  /** Turns within which coming back to a position counts as going in circles. */
+  static final int OSCILLATION_WINDOW = 4;
+
+  /** Turns in a row going in circles before a child counts as stuck. */
+  static final int MAX_REVISITS = 4;
+
+  /** Who does what this turn, so no two children go after the same thing. */
+  final TaskAssignment tasks = new TaskAssignment(Const.CCOUNT);
+
+  /** Shortest ways to a snowman from each neighbourhood the children build in. */
+  final BuildPlanner planner = new BuildPlanner();
 
   /**
    * Minimum and maximum extents of each zone/sector on the playfield
@@ -80,6 +147,10 @@ public class Seeker {
 
   static final public List<Zone> Zones = new ArrayList<>();
 
+  static {
+    initializeZones();
+  }
+
   /**
    * Find the zone containing the point provided
    *
@@ -105,7 +176,7 @@ public class Seeker {
     return Zones.get(index);
   }
 
-  private void initializeZones() {
+  private static void initializeZones() {
     for (int zb = 0; zb < ZoneBoundaries.length; zb += 2) {
       Point min = ZoneBoundaries[zb];
       Point max = ZoneBoundaries[zb + 1];
@@ -124,7 +195,11 @@ public class Seeker {
     }
   }
 
-  public class Zone {
+  /**
+   * Zones are shared by every Seeker in the JVM, so anything that depends
+   * on the current game is passed in by the caller.
+   */
+  public static class Zone {
     public List<Point> points;
     public Point centroid;
 
@@ -136,7 +211,7 @@ public class Seeker {
       return String.format("Zone %d: %d points, extent:%s-%s, center:%s", index, size, min, max, centroid);
     }
 
-    public int hiddenCount() {
+    public int hiddenCount(int[][] ground) {
       int count = 0;
       for (Point p : points) {
         if (ground[p.x][p.y] < 0) {
@@ -150,6 +225,14 @@ public class Seeker {
       this.points = points;
     }
 
+    /** points.contains(p), without searching the list */
+    public boolean contains(Point p) {
+      int index = Zones.indexOf(this);
+      Point min = ZoneBoundaries[index * 2];
+      Point max = ZoneBoundaries[index * 2 + 1];
+      return p.x >= min.x && p.x <= max.x && p.y >= min.y && p.y <= max.y;
+    }
+
     /**
      * Lower-right corner of the zone, leaving a 2-unit margin
      *
@@ -185,25 +268,23 @@ public class Seeker {
       return new Point(min.x + 2, max.y - 2);
     }
 
-    public Point randomPosition() {
+    public Point randomPosition(Random rnd) {
       int index = Zones.indexOf(this);
       Point min = ZoneBoundaries[index * 2];
       Point max = ZoneBoundaries[index * 2 + 1];
-      return new Point(min.x + 2 + rnd.nextInt(max.x - min.x - 4),
-                       min.y + 2 + rnd.nextInt(max.y - min.y - 4));
+      return at(min.x + 2 + rnd.nextInt(max.x - min.x - 4),
+                min.y + 2 + rnd.nextInt(max.y - min.y - 4));
     }
   }
 
   /* --- Geometry --- */
 
   /**
-   * 2d point class
+   * 2d point class; immutable, so the same point can be shared freely
    */
   public static class Point implements Cloneable {
-    public int x;
-    public int y;
-
-    public Point() {}
+    public final int x;
+    public final int y;
 
     public Point(int x, int y) {
       this.x = x;
@@ -307,6 +388,48 @@ public class Seeker {
       new Point(-1, 1),   // northwest
   };
 
+  /** The point for each cell of the board; see at(). */
+  private static final Point[] CELL_POINTS = new Point[TurnChanges.CELLS];
+
+  static {
+    for (int x = 0; x < Const.SIZE; x++) {
+      for (int y = 0; y < Const.SIZE; y++) {
+        CELL_POINTS[TurnChanges.cell(x, y)] = new Point(x, y);
+      }
+    }
+  }
+
+  /**
+   * The point for a cell of the board, the same object every time, so
+   * the turn's work can hand cells around without allocating.  Points
+   * can't be changed, so sharing them between Seekers is safe.
+   */
+  static Point at(int x, int y) {
+    return CELL_POINTS[TurnChanges.cell(x, y)];
+  }
+
+  /** at() for a cell given as TurnChanges.cell(). */
+  static Point at(int cell) {
+    return CELL_POINTS[cell];
+  }
+
+  /** Where a child that can't be seen is. */
+  static final Point NOWHERE = new Point(-1, -1);
+
+  static boolean onBoard(int x, int y) {
+    return x >= 0 && x < Const.SIZE && y >= 0 && y < Const.SIZE;
+  }
+
+  /** neighbors4(a).contains(b), without the list */
+  static boolean isNeighbor4(Point a, Point b) {
+    return Math.abs(a.x - b.x) + Math.abs(a.y - b.y) == 1 && onBoard(b.x, b.y);
+  }
+
+  /** neighbors8(a).contains(b), without the list */
+  static boolean isNeighbor8(Point a, Point b) {
+    return Math.max(Math.abs(a.x - b.x), Math.abs(a.y - b.y)) == 1 && onBoard(b.x, b.y);
+  }
+
   /**
    * The player locations used for path finding etc.
    *
@@ -314,7 +437,7 @@ public class Seeker {
    */
   public List<Point> playerLocations() {
     return Arrays.stream(Arrays.copyOfRange(cList, 0, Const.CCOUNT))
-        .map(c -> c.pos)
+        .map(c -> c.pos())
         .filter(pos -> pos.x >= 0 && pos.y >= 0)
         .collect(Collectors.toList());
   }
@@ -326,7 +449,7 @@ public class Seeker {
    */
   public List<Point> enemyLocations() {
     return Arrays.stream(Arrays.copyOfRange(cList, Const.CCOUNT, Const.CCOUNT * 2))
-        .map(c -> c.pos)
+        .map(c -> c.pos())
         .filter(pos -> pos.x >= 0 && pos.y >= 0)
         .collect(Collectors.toList());
   }
@@ -353,6 +476,14 @@ public class Seeker {
     return (int)(Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1)));
   }
 
+  /**
+   * Turns it takes a standing child to get from p1 to p2 around the trees,
+   * ignoring everything else in the way
+   */
+  int walking(Point p1, Point p2) {
+    return layout.distance(p1.x, p1.y, p2.x, p2.y);
+  }
+
   /**
    * Interpolate the linear path between p0 and p1
    *
@@ -369,11 +500,7 @@ public class Seeker {
     int n = Math.max(Math.abs(p1.x - p0.x), Math.abs(p1.y - p0.y));
 
     for (int t = 0; t <= n; t++) {
-      int xt = p0.x + round(t * (float)(p1.x - p0.x) / n);
-      int yt = p0.y + round(t * (float)(p1.y - p0.y) / n);
-      int ht = round(h0 - (float)t * h0 / n);
-
-      points.add(new Point3(xt, yt, ht));
+      points.add(new Point3(lerp(p0.x, p1.x, t, n), lerp(p0.y, p1.y, t, n), lerp(h0, t, n)));
     }
     return points;
   }
@@ -393,14 +520,24 @@ public class Seeker {
     int n = Math.max(Math.abs(p1.x - p0.x), Math.abs(p1.y - p0.y));
 
     for (int t = 0; t <= n; t++) {
-      int xt = p0.x + round(t * (float)(p1.x - p0.x) / n);
-      int yt = p0.y + round(t * (float)(p1.y - p0.y) / n);
-
-      points.add(new Point(xt, yt));
+      points.add(new Point(lerp(p0.x, p1.x, t, n), lerp(p0.y, p1.y, t, n)));
     }
     return points;
   }
 
+  /**
+   * One coordinate of point t of the n steps interpolate() takes from a
+   * to b, for walking the line without the list
+   */
+  static int lerp(int a, int b, int t, int n) {
+    return a + round(t * (float)(b - a) / n);
+  }
+
+  /** Height at point t of the n steps of a throw from height h0 down to 0 */
+  static int lerp(int h0, int t, int n) {
+    return round(h0 - (float)t * h0 / n);
+  }
+
   /**
    * Return the point between p1 and p2 that is closest to p1
    *
@@ -409,8 +546,44 @@ public class Seeker {
    * @return the point between p1 and p2 that is closest to p1
    */
   static Point nearestPointBetween(Point p1, Point p2) {
-    List<Point> path = interpolate(p1, p2);
-    return (path.size() > 2) ? path.get(1) : p1;
+    int n = Math.max(Math.abs(p2.x - p1.x), Math.abs(p2.y - p1.y));
+    return (n > 1) ? at(lerp(p1.x, p2.x, 1, n), lerp(p1.y, p2.y, 1, n)) : p1;
+  }
+
+  /** The ground holding partly built snowmen, and theirs, for nearestIncomplete(). */
+  private static final int[] INCOMPLETE = {Const.GROUND_LM, Const.GROUND_L, Const.GROUND_SMB};
+
+  /** The ground a child can pick a snowball up from, in the order acquireSnowball() prefers. */
+  private static final int[] SNOWBALLS = {Const.GROUND_S, Const.GROUND_MS, Const.GROUND_LS, Const.GROUND_SMB};
+
+  /** Any ground at all, for Player.neighbor8() */
+  private static final int ANY_GROUND = Integer.MIN_VALUE;
+
+  /** True if the first count cells, as TurnChanges.cell(), include the point */
+  static boolean contains(int[] cells, int count, Point p) {
+    int cell = TurnChanges.cell(p.x, p.y);
+    for (int i = 0; i < count; i++) {
+      if (cells[i] == cell) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stable sort for the short lists of a turn, which unlike List.sort
+   * never allocates
+   */
+  static <T> void sort(List<T> list, Comparator<? super T> order) {
+    for (int i = 1; i < list.size(); i++) {
+      T item = list.get(i);
+      int j = i;
+      while (j > 0 && order.compare(list.get(j - 1), item) > 0) {
+        list.set(j, list.get(j - 1));
+        j--;
+      }
+      list.set(j, item);
+    }
   }
 
   /**
@@ -436,47 +609,66 @@ public class Seeker {
   }
 
   /**
-   * Check for obstacles and accuracy of the path provided
+   * Check for obstacles and accuracy of a throw, along the path
+   * interpolate(from, to, h0) would give
    *
-   * @param path a list of 3d points (including height) in case a snowman is the target
+   * @param from where the snowball is thrown from
+   * @param to where it's thrown to, which may be off the board
+   * @param h0 the height it's thrown from
    * @param target the 2d point for the target
-   * @return true if the target is in the path provided and there are no obstacles
+   * @return true if the target is in the path and there are no obstacles
    */
-  public boolean isAccurateTrajectory(List<Point3> path, Point target) {
+  public boolean isAccurateTrajectory(Point from, Point to, int h0, Point target) {
+    return isAccurateTrajectory(from, to.x, to.y, h0, target);
+  }
+
+  /** isAccurateTrajectory() to (toX, toY), which may be off the board. */
+  boolean isAccurateTrajectory(Point from, int toX, int toY, int h0, Point target) {
+    SeekerEvents.TrajectoryCheck check = SeekerEvents.TrajectoryCheck.start();
+    int n = Math.max(Math.abs(toX - from.x), Math.abs(toY - from.y));
+    boolean accurate = checkTrajectory(from, toX, toY, h0, n, target);
+    SeekerEvents.TrajectoryCheck.end(check, n + 1, target, accurate);
+    return accurate;
+  }
+
+  private boolean checkTrajectory(Point from, int toX, int toY, int h0, int n, Point target) {
     boolean isSnowman = ground[target.x][target.y] == Const.GROUND_SMB;
-    List<Point> friendlies = players().stream().map(ea -> ea.pos).collect(Collectors.toList());
 
     // assume the start point of the path contains a player, so don't check it
-    for (int i = 1; i < path.size(); i++) {
-      Point3 pt = path.get(i);
+    for (int t = 1; t <= n; t++) {
+      int x = lerp(from.x, toX, t, n);
+      int y = lerp(from.y, toY, t, n);
+      int h = lerp(h0, t, n);
       // start with the happy case
-      if (pt.x == target.x && pt.y == target.y) {
+      if (x == target.x && y == target.y) {
         return true;
       }
       // it's okay if the path goes off the board
-      if (pt.x < 0 || pt.x >= Const.SIZE || pt.y < 0 || pt.y >= Const.SIZE) {
+      if (!onBoard(x, y)) {
         continue;
       }
-      if (friendlies.stream().anyMatch(p -> p.x == pt.x && p.y == pt.y)) {
-        log("invalid trajectory: friendly at " + pt);
-        return false;
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        if (cList[i].pos().x == x && cList[i].pos().y == y) {
+          trace.record(Trace.Event.TRAJECTORY_FRIENDLY, -1, Trace.point(x, y), h);
+          return false;
+        }
       }
       // don't worry about snowballs blocking our shots
-      if (ground[pt.x][pt.y] == Const.GROUND_TREE ||
-          ground[pt.x][pt.y] == Const.GROUND_SMR ||
-          height[pt.x][pt.y] >= pt.h) {
-        log("invalid trajectory: obstacle at " + pt);
+      if (ground[x][y] == Const.GROUND_TREE ||
+          ground[x][y] == Const.GROUND_SMR ||
+          height[x][y] >= h) {
+        trace.record(Trace.Event.TRAJECTORY_OBSTACLE, -1, Trace.point(x, y), h);
         return false;
       }
     }
 
-    if (isSnowman) {
-      int h = height[target.x][target.y];
-      return path.stream().anyMatch(el -> el.x == target.x && el.y == target.y && el.h == h);
-    }
-    else {
-      return path.stream().anyMatch(el -> el.x == target.x && el.y == target.y);
+    for (int t = 0; t <= n; t++) {
+      if (lerp(from.x, toX, t, n) == target.x && lerp(from.y, toY, t, n) == target.y &&
+          (!isSnowman || lerp(h0, t, n) == height[target.x][target.y])) {
+        return true;
+      }
     }
+    return false;
   }
 
   /**
@@ -486,15 +678,15 @@ public class Seeker {
    * @return a list of items on the ground matching cover
    */
   public List<Point> itemsMatching(int cover) {
-    List<Point> nearby = new ArrayList<>();
-    for (int i = 0; i < Const.SIZE; i++) {
-      for (int j = 0; j < Const.SIZE; j++) {
-        if (ground[i][j] == cover) {
-          nearby.add(new Point(i, j));
-        }
-      }
-    }
-    return nearby;
+    return items.matching(cover);
+  }
+
+  /**
+   * The next cell from the given one on matching cover, as
+   * TurnChanges.cell(), or -1; itemsMatching() a cell at a time
+   */
+  int nextItem(int cover, int from) {
+    return items.next(cover, from);
   }
 
   /**
@@ -522,37 +714,71 @@ public class Seeker {
   }
 
   public List<Point> neighbors12(Point origin, boolean standing) {
+    return neighbors12(origin, standing, false);
+  }
 
-    List<Point> neighbors = standing ? neighbors8(origin) : neighbors4(origin);
+  /**
+   * @param throughFog if true, cells out of sight that were empty when last
+   *                   seen count as free too
+   */
+  List<Point> neighbors12(Point origin, boolean standing, boolean throughFog) {
+    int[] cells = new int[12];
+    int count = neighbors12(cells, origin.x, origin.y, standing, throughFog);
+    List<Point> neighbors = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      neighbors.add(at(cells[i]));
+    }
+    return neighbors;
+  }
 
-    // awkward logic for running positions
-    Point[] run_cardinals = {
-        new Point(0, 2),    // north
-        new Point(2, 0),    // east
-        new Point(0, -2),   // south
-        new Point(-2, 0),   // west
-    };
+  /**
+   * neighbors12() into a buffer, as TurnChanges.cell(), in the same order
+   *
+   * @param cells room for at least 12 cells
+   * @return the number of cells written
+   */
+  int neighbors12(int[] cells, int x, int y, boolean standing, boolean throughFog) {
+    int count = 0;
+    for (int i = 0; i < (standing ? 8 : 4); i++) {
+      int nx = x + permutations[i].x;
+      int ny = y + permutations[i].y;
+      if (onBoard(nx, ny)) {
+        cells[count++] = TurnChanges.cell(nx, ny);
+      }
+    }
 
     if (standing) {
+      // awkward logic for running positions
       for (int i = 0; i < 4; i++) { // N, E, S, W are cardinal directions
-        Point r = origin.plus(run_cardinals[i]);
-        Point n = origin.plus(permutations[i]);
-
-        if (r.x >= 0 && r.x < Const.SIZE &&
-            r.y >= 0 && r.y < Const.SIZE &&
-            (ground[n.x][n.y] == Const.GROUND_EMPTY)) {
+        int rx = x + 2 * permutations[i].x;
+        int ry = y + 2 * permutations[i].y;
 
-          neighbors.add(r);
+        if (onBoard(rx, ry) && isOpen(x + permutations[i].x, y + permutations[i].y, throughFog)) {
+          cells[count++] = TurnChanges.cell(rx, ry);
         }
       }
       // prefer the far distances to the near ones
       // but keep the close ones just in case the far ones lead to dead-ends
-      Collections.reverse(neighbors);
+      for (int i = 0, j = count - 1; i < j; i++, j--) {
+        int swap = cells[i];
+        cells[i] = cells[j];
+        cells[j] = swap;
+      }
     }
 
-    return neighbors.stream()
-        .filter(pt -> ground[pt.x][pt.y] == Const.GROUND_EMPTY)
-        .collect(Collectors.toList());
+    int open = 0;
+    for (int i = 0; i < count; i++) {
+      int c = cells[i];
+      if (isOpen(TurnChanges.x(c), TurnChanges.y(c), throughFog)) {
+        cells[open++] = c;
+      }
+    }
+    return open;
+  }
+
+  private boolean isOpen(int x, int y, boolean throughFog) {
+    int g = ground[x][y];
+    return g == Const.GROUND_EMPTY || (throughFog && g < 0 && memory.isPassable(x, y));
   }
 
   /**
@@ -566,7 +792,65 @@ public class Seeker {
   boolean isBlocked(Point target) {
     return height[target.x][target.y] >= Const.OBSTACLE_HEIGHT ||
         ground[target.x][target.y] == Const.GROUND_TREE ||
-        ground[target.x][target.y] == GROUND_CHILD;
+        ground[target.x][target.y] == GROUND_CHILD ||
+        layout.isTree(target.x, target.y);
+  }
+
+  /** Working storage for the breadth-first searches, reused every time. */
+  private final int[] frontier = new int[TurnChanges.CELLS];
+  private final int[] cameFrom = new int[TurnChanges.CELLS];
+
+  /** The search each cell was last reached in; the others are stale. */
+  private final int[] reachedIn = new int[TurnChanges.CELLS];
+  private int searches = 0;
+
+  private final int[] around = new int[12];
+
+  /**
+   * The cells of the last path findPath() found, as TurnChanges.cell(),
+   * from the start
+   */
+  final int[] path = new int[TurnChanges.CELLS];
+
+  /**
+   * Breadth-first search from one cell, standing or crouching, leaving
+   * the cells reached in frontier in the order they were reached, and
+   * where each came from in cameFrom
+   *
+   * @param to the cell to stop at, or -1 to reach every cell possible
+   * @return the number of cells reached, including from
+   */
+  private int search(int from, int to, boolean standing, boolean throughFog) {
+    if (++searches == 0) {
+      // the stamps went all the way round, so start them again
+      Arrays.fill(reachedIn, 0);
+      searches = 1;
+    }
+    int head = 0;
+    int tail = 0;
+    frontier[tail++] = from;
+    reachedIn[from] = searches;
+    cameFrom[from] = -1;
+
+    while (head < tail) {
+      int current = frontier[head++];
+
+      // early exit (we are looking only for one destination)
+      if (current == to) {
+        break;
+      }
+
+      int count = neighbors12(around, TurnChanges.x(current), TurnChanges.y(current), standing, throughFog);
+      for (int i = 0; i < count; i++) {
+        int next = around[i];
+        if (reachedIn[next] != searches) {
+          reachedIn[next] = searches;
+          cameFrom[next] = current;
+          frontier[tail++] = next;
+        }
+      }
+    }
+    return tail;
   }
 
   /**
@@ -574,9 +858,9 @@ public class Seeker {
    * It's a small map, no need to get fancy
    *
    * Complicated by the fact that a cell might be invisible!
-   * This method will treat invisible locations as inaccessible
-   * If the target is invisible, or unreachable because parts of the path
-   * are invisible, try finding a path to the furthest visible point instead.
+   * Invisible locations are taken to be as they were when last seen, so
+   * a path can run through cells that were empty; cells never seen are
+   * inaccessible.
    *
    * See this article for a wonderful introduction
    * https://www.redblobgames.com/pathfinding/a-star/introduction.html
@@ -587,73 +871,106 @@ public class Seeker {
    * @return a list of points representing the shortest path
    */
   List<Point> freePath(Point start, Point target, boolean standing) {
+    int length = findPath(start, target, standing);
+    List<Point> points = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      points.add(at(path[i]));
+    }
+    return points;
+  }
+
+  /**
+   * freePath() into the path field
+   *
+   * @return the number of cells in the path, start and target included,
+   *     or 0 if there is none
+   */
+  int findPath(Point start, Point target, boolean standing) {
+    SeekerEvents.PathSearch event = SeekerEvents.PathSearch.start();
 
     // let the caller deal with this bad decision
-    if (isBlocked(target)) {
-      return Collections.emptyList();
+    if (isBlocked(target)
+        || ground[target.x][target.y] < 0 && !memory.isPassable(target.x, target.y)) {
+      SeekerEvents.PathSearch.end(event, "freePath", start, target, 0, 0);
+      return 0;
     }
 
-    Queue<Point> frontier = new LinkedList<>();
-    frontier.add(start);
-    Map<Point, Point> cameFrom = new HashMap<>();
-    cameFrom.put(start, null);
+    int from = TurnChanges.cell(start.x, start.y);
+    int to = TurnChanges.cell(target.x, target.y);
+    int reached = search(from, to, standing, true);
 
-    while (!frontier.isEmpty()) {
-      Point current = frontier.remove();
+    // found the path, now unwrap it
+    if (reachedIn[to] != searches) {
+      // this may happen if the destination is unreachable
+      SeekerEvents.PathSearch.end(event, "freePath", start, target, reached, 0);
+      return 0;
+    }
+    int length = 0;
+    for (int c = to; c != from; c = cameFrom[c]) {
+      path[length++] = c;
+    }
+    path[length++] = from;
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      int swap = path[i];
+      path[i] = path[j];
+      path[j] = swap;
+    }
+    SeekerEvents.PathSearch.end(event, "freePath", start, target, reached, length);
 
-      // early exit (we are looking only for one destination)
-      if (current.equals(target)) {
-        break;
-      }
+    trace.record(Trace.Event.PATH, -1, Trace.point(start), Trace.point(target), length);
 
-      List<Point> neighbors = neighbors12(current, standing);
+    return length;
+  }
 
-      for (Point next : neighbors) {
-        if (!cameFrom.containsKey(next)) {
-          frontier.add(next);
-          cameFrom.put(next, current);
-        }
-      }
-    }
+  public class Player {
 
-//    log("found path from %s to %s", start, target);
+    /**
+     * Index of this child, our team first
+     */
+    final int id;
 
-    // found the path, now unwrap it
-    Point current = target;
-    List<Point> path = new ArrayList<>();
-    while (!current.equals(start)) {
-      path.add(current);
-      current = cameFrom.get(current);
-      if (current == null) {
-        // this may happen if the destination is unreachable
-        return Collections.emptyList();
-      }
+    /**
+     * Source of randomness for this child only
+     */
+    final Random rnd;
+
+    Player(int id, Random rnd) {
+      this.id = id;
+      this.rnd = rnd;
+      Arrays.fill(visitedAt, -VISIT_MEMORY);
     }
-    path.add(start);
-    Collections.reverse(path);
 
-    String pathString = path.stream().map(Point::toString)
-        .collect(Collectors.joining("-"));
-    log(" => path from %s to %s is %s", start, target, pathString);
+    /** Where the child is, or NOWHERE if it can't be seen. */
+    public Point pos() {
+      return children.x(id) < 0 ? NOWHERE : at(children.x(id), children.y(id));
+    }
 
-    return path;
-  }
+    /** Put the child somewhere else, for setting up a board. */
+    void moveTo(Point p) {
+      children.moveTo(id, p.x, p.y);
+    }
 
-  public class Player {
+    boolean standing() {
+      return children.standing(id);
+    }
+
+    int holding() {
+      return children.holding(id);
+    }
 
-    public Point pos = new Point();
-    boolean standing;
-    int color;
-    int holding;
-    int dazed;
+    int dazed() {
+      return children.dazed(id);
+    }
 
     int previousSnowballCount = 0;
     int missedCatchCount = 0;
-    Point previousPosition = null;
+    Point previousPosition = NOWHERE;
     int currentPositionDuration = 0;
+    /** Turns in a row the child moved back to where it was a few turns before. */
+    int revisits = 0;
 
     public int currentSnowballCount() {
-      switch(holding) {
+      switch(holding()) {
         case Const.HOLD_S1:
           return 1;
         case Const.HOLD_S2:
@@ -665,21 +982,96 @@ public class Seeker {
       }
     }
 
-    // avoid returning to the same destinations repeatedly
-    List<Point> visited = new ArrayList<>();
-    Move lastMove = null;
+    /** Turns a destination stays forbidden after the child has been there. */
+    static final int VISIT_MEMORY = 100;
+
+    /** Random positions reposition() draws in a zone looking for one that isn't forbidden. */
+    static final int VISIT_TRIES = 8;
+
+    /**
+     * Turns added to the cost of a task next to where the child has been
+     * posted lately, so a teammate that hasn't takes it if it's about as
+     * close.
+     */
+    static final int REVISIT_COST = 3;
+
+    /**
+     * The turn the child was last at each cell as a destination, so it
+     * avoids returning to the same ones repeatedly; older visits lapse, so
+     * the size is the same all game.
+     */
+    private final int[] visitedAt = new int[TurnChanges.CELLS];
+
+    /** A bit for each cell next to where a child of ours is headed, filled in by reposition(). */
+    private final long[] nearTargets = new long[(TurnChanges.CELLS + 63) >> 6];
+
+    /** A copy of the move sent last turn, idle before the first. */
+    final Move lastMove = new Move();
+
+    /**
+     * The moves made while choosing this turn's move.  None is reused
+     * until the next chooseMove(), which starts again from the first, so
+     * a move can be kept until then however many more are made; there are
+     * more slots if a turn needs them.  The one chosen is copied into
+     * lastMove.
+     */
+    private Move[] moves = new Move[16];
+    private int nextMove = 0;
+
+    Move move(String action) {
+      if (nextMove == moves.length) {
+        moves = Arrays.copyOf(moves, 2 * moves.length);
+      }
+      Move m = moves[nextMove];
+      if (m == null) {
+        m = moves[nextMove] = new Move();
+      }
+      nextMove++;
+      return m.set(action);
+    }
+
+    Move move(String action, int x, int y) {
+      return move(action).set(action, x, y);
+    }
+
+    /** The snowman this child builds, restarted for each new one. */
+    private final Build build = new Build();
+
+    /*
+     * Scratch for chooseMove, refilled each time so a turn allocates
+     * nothing once the lists have grown.
+     */
+    private final int[] cells = new int[12];
+    private final Player[] nearest = new Player[Const.CCOUNT];
+    private final Player[] armed = new Player[Const.CCOUNT];
+    private final List<Point> armedPositions = new ArrayList<>();
+    private final List<Point> theirSnowmen = new ArrayList<>();
+    private final List<Point> threats = new ArrayList<>();
+    private final List<Point> ourSnowmen = new ArrayList<>();
+    private final List<Point> partials = new ArrayList<>();
+
+    /** Nearest to this child first */
+    private final Comparator<Point> nearestFirst = Comparator.comparingInt(a -> euclidean(pos(), a));
+
+    /** Shortest walk from this child first, then nearest */
+    private final Comparator<Point> closestWalk =
+        Comparator.<Point>comparingInt(a -> walking(pos(), a)).thenComparingInt(a -> euclidean(pos(), a));
+
+    /**
+     * Which branch of chooseMove produced the last move, for profiling
+     */
+    String branch;
 
     public String toString() {
-      int id = Arrays.asList(cList).indexOf(this);
-      int zone = (pos.x > 0 && pos.y > 0) ? Zones.indexOf(zoneContaining(pos)) : -1;
+      int zone = (pos().x > 0 && pos().y > 0) ? Zones.indexOf(zoneContaining(pos())) : -1;
 
       List<String> status = new ArrayList<>();
-      status.add(String.format("pos:%s", pos));
+      status.add(String.format("pos:%s", pos()));
       status.add(String.format("dest:%s", runTarget));
       status.add(String.format("zone:%s", zone));
-      status.add(String.format("hold:%s", holding));
-      status.add(String.format("stand:%s", standing ? "S" : "C"));
-      if (dazed > 0) status.add(String.format("dazed:%d", dazed));
+      status.add(String.format("hold:%s", holding()));
+      status.add(String.format("stand:%s", standing() ? "S" : "C"));
+      if (dazed() > 0) status.add(String.format("dazed:%d", dazed()));
       if (activity != null) status.add(String.format("act:%s", activity.code()));
 
       return String.format("Player %d {%s}", id, String.join(", ", status));
@@ -736,18 +1128,80 @@ public class Seeker {
      */
     public List<Point> nearbyItems(int cover) {
       List<Point> nearby = itemsMatching(cover);
-      nearby.sort(Comparator.comparingInt(a -> euclidean(pos, a)));
+      nearby.sort(Comparator.comparingInt(a -> euclidean(pos(), a)));
       return nearby;
     }
 
+    /**
+     * nearbyItems() into a list, which is cleared first
+     */
+    List<Point> nearbyItems(int cover, List<Point> into) {
+      into.clear();
+      for (int c = nextItem(cover, 0); c >= 0; c = nextItem(cover, c + 1)) {
+        into.add(at(c));
+      }
+      sort(into, nearestFirst);
+      return into;
+    }
+
+    /**
+     * The partly built snowmen, and theirs, as nearestIncomplete() lists
+     * them, into a list, which is cleared first
+     */
+    List<Point> nearestIncomplete(List<Point> into) {
+      into.clear();
+      for (int cover : INCOMPLETE) {
+        for (int c = nextItem(cover, 0); c >= 0; c = nextItem(cover, c + 1)) {
+          into.add(at(c));
+        }
+      }
+      sort(into, closestWalk);
+      return into;
+    }
+
+    /**
+     * knownEnemies() into the nearest array
+     *
+     * @return how many there are
+     */
+    int nearestEnemies() {
+      int count = 0;
+      for (int known = children.visible() & ChildTable.THEIRS; known != 0; known &= known - 1) {
+        Player enemy = cList[Integer.numberOfTrailingZeros(known)];
+        // insertion sort, keeping the order of enemies as far away
+        int j = count++;
+        while (j > 0 && euclidean(nearest[j - 1].pos(), pos()) > euclidean(enemy.pos(), pos())) {
+          nearest[j] = nearest[j - 1];
+          j--;
+        }
+        nearest[j] = enemy;
+      }
+      return count;
+    }
+
+    /**
+     * The known enemies that are armed and not dazed, into the armed
+     * array, nearest first
+     *
+     * @return how many there are
+     */
+    int armedEnemies() {
+      int known = nearestEnemies();
+      int threats = children.armed(ChildTable.THEIRS);
+      int count = 0;
+      for (int i = 0; i < known; i++) {
+        if (ChildTable.has(threats, nearest[i].id)) {
+          armed[count++] = nearest[i];
+        }
+      }
+      return count;
+    }
+
     /**
      * @return a list of known enemies on the board
      */
     public List<Player> knownEnemies() {
-      return Arrays.stream(Arrays.copyOfRange(cList, Const.CCOUNT, Const.CCOUNT * 2))
-          .filter(enemy -> enemy.pos.x >= 0 && enemy.pos.y >= 0)
-          .sorted(Comparator.comparingInt(enemy -> euclidean(enemy.pos, pos)))
-          .collect(Collectors.toList());
+      return new ArrayList<>(Arrays.asList(nearest).subList(0, nearestEnemies()));
     }
 
     /**
@@ -764,15 +1218,15 @@ public class Seeker {
 
       // last 4 children in the array represent opponents
       for (int i = Const.CCOUNT; i < Const.CCOUNT * 2; i++) {
-        if (cList[i].pos.x > 0 && cList[i].pos.y > 0) {
+        if (cList[i].pos().x > 0 && cList[i].pos().y > 0) {
 
-          if (euclidean(cList[i].pos, this.pos) > max_range) {
+          if (euclidean(cList[i].pos(), this.pos()) > max_range) {
             continue;
           }
 
           // filter out opponents who are obstructed
 
-          List<Point> obstacles = interpolate(pos, cList[i].pos).stream()
+          List<Point> obstacles = interpolate(pos(), cList[i].pos()).stream()
               .filter(p -> (
                   ground[p.x][p.y] != Const.GROUND_EMPTY &&
                   ground[p.x][p.y] != GROUND_CHILD))
@@ -786,10 +1240,10 @@ public class Seeker {
 
       // sort from nearest to farthest (ascending)
       visible.sort((a, b) -> {
-        int ax = a.pos.x - pos.x;
-        int ay = a.pos.y - pos.y;
-        int bx = b.pos.x - pos.x;
-        int by = b.pos.y - pos.y;
+        int ax = a.pos().x - pos().x;
+        int ay = a.pos().y - pos().y;
+        int bx = b.pos().x - pos().x;
+        int by = b.pos().y - pos().y;
 
         return (ax * ax + ay * ay) - (bx * bx + by * by);
       });
@@ -799,18 +1253,20 @@ public class Seeker {
 
     /**
      * Used to determine which team has superior strength in a given zone.
+     * Enemies out of sight count by how likely they are to be there.
      *
      * @param points the region of the board to check
      * @return the difference between the number of enemies and the number of teammates
      */
-    int superiority(List<Point> points) {
-      Set<Point> friends = new HashSet<>(points);
-      friends.retainAll(playerLocations());
-
-      Set<Point> enemies = new HashSet<>(points);
-      enemies.retainAll(enemyLocations());
-
-      return enemies.size() - friends.size();
+    float superiority(List<Point> points) {
+      int friends = 0;
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Point p = cList[i].pos();
+        if (p.x >= 0 && p.y >= 0 && points.contains(p)) {
+          friends++;
+        }
+      }
+      return enemies.expectedIn(points) - friends;
     }
 
     /**
@@ -821,16 +1277,16 @@ public class Seeker {
      * If there are points on the board where we expect visibility,
      * we can send our players there to better address the threat.
      *
-     * @param pos the origin of one of our snowmen
+     * @param ours the origin of one of our snowmen
      * @return a list of points with unexpected zero visibility
      */
-    List<Point> encroachments(Point pos) {
+    List<Point> encroachments(Point ours) {
       int range = 8;
       List<Point> encroachments = new ArrayList<>();
-      for (int i = pos.x - range; i < pos.x + range; i++) {
-        for (int j = pos.y - range; j < pos.y + range; j++) {
+      for (int i = ours.x - range; i < ours.x + range; i++) {
+        for (int j = ours.y - range; j < ours.y + range; j++) {
           if (i < 0 || i >= Const.SIZE || j < 0 || j >= Const.SIZE ||
-              (pos.x - i) * (pos.x - i) + (pos.y - j) * (pos.y - j) >= 8*8) {
+              (ours.x - i) * (ours.x - i) + (ours.y - j) * (ours.y - j) >= 8*8) {
             continue;
           }
           // we should be able to see this, but if we can't there is probably an enemy snowman nearby
@@ -842,103 +1298,276 @@ public class Seeker {
       return encroachments;
     }
 
+    /** Remember that the child has been at p as a destination this turn; see reposition(). */
+    void visited(Point p) {
+      visitedAt[TurnChanges.cell(p.x, p.y)] = changes.turn();
+    }
+
     /**
-     * Find a new strategic position for the player
+     * True if the cell shouldn't be a new run target: it's been visited
+     * lately, it's a tree or it's next to where a teammate is headed
      */
-    public void reposition() {
-      List<Point> our_snowmen = nearbyItems(Const.GROUND_SMR);
-      Set<Point> forbidden = new HashSet<>(visited);
-
-      forbidden.addAll(itemsMatching(Const.GROUND_TREE));
-
-      for (Player p : players()) {
-        forbidden.addAll(neighbors8(p.runTarget));
-      }
-
-      for (Point ours : our_snowmen) {
-        List<Point> encroachments = encroachments(ours);
-        if (!encroachments.isEmpty()) {
-          encroachments.sort(Comparator.comparingInt(e -> euclidean(e, pos)));
-          Collections.reverse(encroachments);
-          String encroachmentString = encroachments.stream().map(Point::toString)
-              .collect(Collectors.joining(", "));
-          log("%s is encroached at %s", ours, encroachmentString);
-          for (Point enc : encroachments) {
-            if (!forbidden.contains(enc)) {
-              log("%s is repositioning to encroachment at %s", this, enc);
-              setRunTarget(enc);
-              return;
+    boolean forbidden(Point p) {
+      int cell = TurnChanges.cell(p.x, p.y);
+      return (nearTargets[cell >> 6] & 1L << cell) != 0 ||
+          visitedLately(cell) ||
+          layout.isTree(p.x, p.y);
+    }
+
+    private boolean visitedLately(int cell) {
+      return changes.turn() - visitedAt[cell] < VISIT_MEMORY;
+    }
+
+    /** True if the child has been at the cell or one next to it as a destination lately */
+    boolean visitedNear(Point p) {
+      for (int x = Math.max(0, p.x - 1); x <= Math.min(Const.SIZE - 1, p.x + 1); x++) {
+        for (int y = Math.max(0, p.y - 1); y <= Math.min(Const.SIZE - 1, p.y + 1); y++) {
+          if (visitedLately(TurnChanges.cell(x, y))) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * A random position in the zone that isn't forbidden, if one of a few
+     * draws finds one, or else the last drawn
+     */
+    Point unvisitedPosition(Zone zone) {
+      Point p = zone.randomPosition(rnd);
+      for (int i = 1; i < VISIT_TRIES && forbidden(p); i++) {
+        p = zone.randomPosition(rnd);
+      }
+      return p;
+    }
+
+    /** Set the bits of nearTargets for the cells around each of our children's run targets. */
+    private void markNearTargets() {
+      Arrays.fill(nearTargets, 0L);
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Point t = cList[i].runTarget;
+        for (int dx = -1; dx <= 1; dx++) {
+          for (int dy = -1; dy <= 1; dy++) {
+            if ((dx != 0 || dy != 0) && onBoard(t.x + dx, t.y + dy)) {
+              int cell = TurnChanges.cell(t.x + dx, t.y + dy);
+              nearTargets[cell >> 6] |= 1L << cell;
             }
           }
         }
       }
+    }
 
-      List<Point> team = friends().stream()
-          .map(f -> f.pos)
-          .collect(Collectors.toList());
+    /**
+     * Head for the encroachment on our snowman furthest from this child,
+     * as listed by encroachments(), that isn't forbidden
+     *
+     * @return true if there was one
+     */
+    boolean repositionNear(Point ours) {
+      int range = 8;
+      int count = 0;
+      Point nearestEncroachment = null;
+      Point furthest = null;
+      for (int i = ours.x - range; i < ours.x + range; i++) {
+        for (int j = ours.y - range; j < ours.y + range; j++) {
+          if (i < 0 || i >= Const.SIZE || j < 0 || j >= Const.SIZE ||
+              (ours.x - i) * (ours.x - i) + (ours.y - j) * (ours.y - j) >= 8*8) {
+            continue;
+          }
+          // we should be able to see this, but if we can't there is probably an enemy snowman nearby
+          if (ground[i][j] < 0) {
+            Point enc = at(i, j);
+            int dist = euclidean(enc, pos());
+            count++;
+            if (nearestEncroachment == null || dist < euclidean(nearestEncroachment, pos())) {
+              nearestEncroachment = enc;
+            }
+            // the last of the furthest, as the reversed sort would have it
+            if ((furthest == null || dist >= euclidean(furthest, pos())) && !forbidden(enc)) {
+              furthest = enc;
+            }
+          }
+        }
+      }
+      if (count == 0) {
+        return false;
+      }
+      trace.record(Trace.Event.ENCROACHED, id, Trace.point(ours), count, Trace.point(nearestEncroachment));
+      if (furthest == null) {
+        return false;
+      }
+      trace.record(Trace.Event.REPOSITION_ENCROACHMENT, id, Trace.point(furthest));
+      setRunTarget(furthest);
+      return true;
+    }
+
+    /**
+     * Find a new strategic position for the player, remembering the one
+     * it's leaving if it got there
+     */
+    public void reposition() {
+      if (onBoard(runTarget.x, runTarget.y) && reachedTarget()) {
+        visited(runTarget);
+      }
+      // with somewhere new to go the child isn't stuck, which is also what
+      // stops moveToTarget() repositioning again in the same turn
+      currentPositionDuration = 0;
+      revisits = 0;
+      markNearTargets();
+      nearbyItems(Const.GROUND_SMR, ourSnowmen);
+      for (int i = 0; i < ourSnowmen.size(); i++) {
+        if (repositionNear(ourSnowmen.get(i))) {
+          return;
+        }
+      }
 
       // find a zone that contains fewer teammates than enemies
-      List<Zone> hotZones = Zones.stream()
-          .sorted(Comparator.comparingInt(z -> superiority(z.points)))
-          .collect(Collectors.toList());
+      Zone hotZone = null;
+      float hottest = 0;
+      for (int i = 0; i < Zones.size(); i++) {
+        Zone z = Zones.get(i);
+        float superiority = superiority(z.points);
+        if (hotZone == null || superiority < hottest) {
+          hotZone = z;
+          hottest = superiority;
+        }
+      }
 
-      if (!hotZones.isEmpty()) {
-        Zone zone = hotZones.get(0);
-        log("%s is repositioning to hot zone: %s", this, zone);
+      if (hotZone != null) {
+        trace.record(Trace.Event.REPOSITION_HOT_ZONE, id, Zones.indexOf(hotZone));
 
-        setRunTarget(zone.points.get(rnd.nextInt(zone.points.size())));
+        setRunTarget(hotZone.points.get(rnd.nextInt(hotZone.points.size())));
       }
 
       // no encroachment - not good if are we losing snowmen
-      // return a random square in the nearest dark zone (>30% hidden)
+      // return a random square in the nearest dark zone (more than darkZoneRatio hidden)
 
-      log("%s is repositioning. Current zone is %s", this, zoneContaining(pos));
+      if (Trace.ENABLED) {
+        trace.record(Trace.Event.REPOSITIONING, id, Zones.indexOf(zoneContaining(pos())));
+      }
 
-      List<Zone> darkZones = Zones.stream()
-          .filter(z -> (float) z.hiddenCount() / z.points.size() > 0.30 &&
-              !z.points.contains(team.get(0)) &&
-              !z.points.contains(team.get(1)) &&
-              !z.points.contains(team.get(2)))
-          .sorted(Comparator.comparingInt(z -> euclidean(pos, z.centroid)))
-          .collect(Collectors.toList());
+      Zone darkZone = null;
+      for (int i = 0; i < Zones.size(); i++) {
+        Zone z = Zones.get(i);
+        if ((float) zoneStats.hiddenCount(z) / z.points.size() > params.darkZoneRatio &&
+            !hasFriendIn(z) &&
+            (darkZone == null || euclidean(pos(), z.centroid) < euclidean(pos(), darkZone.centroid))) {
+          darkZone = z;
+        }
+      }
 
       // if there are not dark zones, just continue to patrol current zone
-      Zone zone = darkZones.isEmpty() ? zoneContaining(pos) : darkZones.get(0);
+      Zone zone = darkZone == null ? zoneContaining(pos()) : darkZone;
+
+      trace.record(Trace.Event.REPOSITION_DARK_ZONE, id, Zones.indexOf(zone));
+
+      setRunTarget(unvisitedPosition(zone));
+    }
+
+    /** True if one of the other children on our team is in the zone */
+    boolean hasFriendIn(Zone zone) {
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        if (cList[i] != this && zone.contains(cList[i].pos())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * What doing the task would cost this child, as TaskAssignment
+     * expects: about the number of turns it would take, or INFEASIBLE if
+     * the child isn't in a position to do it.
+     */
+    int taskCost(int task) {
+      if (dazed() > 0 || pos().x < 0) {
+        return TaskAssignment.INFEASIBLE;
+      }
+      Point target = at(tasks.x(task), tasks.y(task));
+      int dist = euclidean(pos(), target);
+      switch (tasks.kind(task)) {
+        case TaskAssignment.BUILD:
+          if (isBuilding() && target.equals(activity.site)) {
+            return 0;
+          }
+          return (holding() == Const.HOLD_EMPTY || holding() == Const.HOLD_S1) && dist < params.partialRange ?
+              walking(pos(), target) + revisitCost(target) : TaskAssignment.INFEASIBLE;
+        case TaskAssignment.DEFEND:
+          return dist < params.guardRange ? walking(pos(), target) + revisitCost(target) : TaskAssignment.INFEASIBLE;
+        case TaskAssignment.DECAP:
+          if (canEquipSnowball() && dist < 2) {
+            return 0;
+          }
+          // knocking a head off from further away takes a throw
+          return holding() >= Const.HOLD_S1 && holding() <= Const.HOLD_S3 && dist <= Const.THROW_LIMIT ?
+              dist : TaskAssignment.INFEASIBLE;
+        default:
+          return TaskAssignment.INFEASIBLE;
+      }
+    }
 
-      log("%s is repositioning to dark zone: %s", this, zone);
+    /** REVISIT_COST if the child has been posted next to the target lately, or else nothing */
+    int revisitCost(Point target) {
+      return visitedNear(target) ? REVISIT_COST : 0;
+    }
 
-      setRunTarget(zone.randomPosition());
+    /**
+     * True if the task of this kind at the point was given to this child,
+     * or wasn't listed at all.  A listed task that no child was given is
+     * closed to all of them, so two can't drift onto it together.
+     */
+    boolean mayDo(int kind, Point target) {
+      int t = tasks.find(kind, target.x, target.y);
+      return t < 0 || tasks.child(t) == id;
     }
 
     Move handleDefense() {
-      List<Point> nearbyOurSnowmen = nearbyItems(Const.GROUND_SMR).stream()
-          .filter(sm -> euclidean(pos, sm) < 3)
-          .collect(Collectors.toList());
+      Point nearestOurSnowman = null;
+      for (int c = nextItem(Const.GROUND_SMR, 0); c >= 0; c = nextItem(Const.GROUND_SMR, c + 1)) {
+        Point sm = at(c);
+        if (euclidean(pos(), sm) < params.guardRange && mayDo(TaskAssignment.DEFEND, sm) &&
+            (nearestOurSnowman == null || euclidean(pos(), sm) < euclidean(pos(), nearestOurSnowman))) {
+          nearestOurSnowman = sm;
+        }
+      }
 
-      if (nearbyOurSnowmen.isEmpty()) {
+      if (nearestOurSnowman == null) {
         return null;
       }
 
-      Point nearestOurSnowman = nearbyOurSnowmen.get(0);
+      List<Point> nearbyThreats = threats;
+      nearbyThreats.clear();
+      int armedNear = children.within(children.armed(ChildTable.THEIRS & children.visible()),
+          nearestOurSnowman.x, nearestOurSnowman.y, params.defenseRange);
+      int known = nearestEnemies();
+      for (int i = 0; i < known; i++) {
+        if (ChildTable.has(armedNear, nearest[i].id)) {
+          nearbyThreats.add(nearest[i].pos());
+        }
+      }
 
-      List<Point> nearbyThreats = knownEnemies().stream()
-          .filter(threat -> threat.dazed == 0 &&
-              (euclidean(threat.pos, nearestOurSnowman) < 10) &&
-              threat.holding >= Const.HOLD_S1 &&
-              threat.holding <= Const.HOLD_S3)
-          .map(player -> player.pos)
-          .sorted(Comparator.comparingInt(threat -> euclidean(pos, nearestOurSnowman)))
-          .collect(Collectors.toList());
+      // an armed enemy we can't see is a threat where it most likely is, if
+      // that is as close as a visible one has to be
+      for (int hidden = children.armed(ChildTable.THEIRS & ~children.visible()); hidden != 0; hidden &= hidden - 1) {
+        int e = Integer.numberOfTrailingZeros(hidden) - Const.CCOUNT;
+        if (enemies.probabilityWithin(e, nearestOurSnowman, params.defenseRange - 1) > 0.5f) {
+          nearbyThreats.add(enemies.mostLikely(e));
+        }
+      }
 
-      for (Point threat : nearbyThreats) {
+      for (int i = 0; i < nearbyThreats.size(); i++) {
+        Point threat = nearbyThreats.get(i);
         // if we are closer to the snowman than the threat, get in between them
-        if (euclidean(pos, nearestOurSnowman) < euclidean(threat, nearestOurSnowman)) {
-          List<Point> pathBetweenSnowmanAndThreat = interpolate(nearestOurSnowman, threat);
+        if (euclidean(pos(), nearestOurSnowman) < euclidean(threat, nearestOurSnowman)) {
+          // the second point of interpolate(nearestOurSnowman, threat)
+          int n = Math.max(Math.abs(threat.x - nearestOurSnowman.x), Math.abs(threat.y - nearestOurSnowman.y));
 
-          if (pathBetweenSnowmanAndThreat.size() > 1) {
-            Point pointToMoveTo = pathBetweenSnowmanAndThreat.get(1);
+          if (n > 0) {
+            Point pointToMoveTo = at(lerp(nearestOurSnowman.x, threat.x, 1, n),
+                lerp(nearestOurSnowman.y, threat.y, 1, n));
 
-            log("%s defensive move to %s", this,pointToMoveTo);
+            trace.record(Trace.Event.DEFENSIVE_MOVE, id, Trace.point(pointToMoveTo));
             setRunTarget(pointToMoveTo);
             Move currentMove = moveToTarget();
 
@@ -965,57 +1594,60 @@ public class Seeker {
     Move moveToTarget(Point target) {
       Point dest = target;
 
-      log(this + " is moving toward " + dest);
-      if (ground[dest.x][dest.y] < 0) {
-        // temporary destination
-        dest = furthestVisiblePointBetween(pos, target);
-        log(" => %s is invisible, temporary dest is %s", target, dest);
+      trace.record(Trace.Event.MOVING_TOWARD, id, Trace.point(dest));
+      if (ground[dest.x][dest.y] < 0 && !memory.isPassable(dest.x, dest.y)) {
+        // temporary destination, unless we remember the way is clear
+        dest = furthestVisiblePointBetween(pos(), target);
+        trace.record(Trace.Event.TARGET_INVISIBLE, id, Trace.point(target), Trace.point(dest));
       }
-      Iterator<Point> niter = neighbors12(dest, standing).iterator();
+      int around = neighbors12(cells, dest.x, dest.y, standing(), false);
 
       // don't walk into trees, children or high snow (including snowmen)
-      while (isBlocked(dest) && niter.hasNext()) {
-        log(" => %s is occupied (%d)", dest, ground[dest.x][dest.y]);
-        dest = niter.next();
+      for (int i = 0; isBlocked(dest) && i < around; i++) {
+        trace.record(Trace.Event.DEST_OCCUPIED, id, Trace.point(dest), ground[dest.x][dest.y]);
+        dest = at(cells[i]);
       }
 
-      if (pos.equals(dest)) {
-        log(" => %s is unable to move to target at %s, all neighbors of %s are blocked", target);
-        return new Move("idle");
+      if (pos().equals(dest)) {
+        trace.record(Trace.Event.ALL_BLOCKED, id, Trace.point(target), Trace.point(dest));
+        return move("idle");
       }
 
       // could be crouched to build a snowman and bumped away from the site
       // otherwise, stand up to continue
-      if (!standing && !neighbors4(pos).contains(target) && !isBuilding()) {
-        return new Move("stand");
+      if (!standing() && !isNeighbor4(pos(), target) && !isBuilding()) {
+        return move("stand");
       }
 
-      List<Point> path = freePath(pos, dest, standing);
+      int length = findPath(pos(), dest, standing());
 
-      List<Point> interpolation = interpolate(pos, dest);
-      int lastIndex = interpolation.size() - 1;
+      // back along interpolate(pos, dest) until there's a way there
+      Point goal = dest;
+      int steps = Math.max(Math.abs(goal.x - pos().x), Math.abs(goal.y - pos().y));
+      int lastIndex = steps;
 
-      while (path.isEmpty() && lastIndex >= 0) {
-        log(" => %s is unreachable, temporary dest is %s", target, dest);
-        dest = interpolation.get(lastIndex);
-        path = freePath(pos, dest, standing);
+      while (length == 0 && lastIndex >= 0) {
+        trace.record(Trace.Event.UNREACHABLE, id, Trace.point(target), Trace.point(dest));
+        dest = at(lerp(pos().x, goal.x, lastIndex, steps), lerp(pos().y, goal.y, lastIndex, steps));
+        // no point searching for a way around the trees if there isn't one
+        length = layout.connected(pos(), dest) ? findPath(pos(), dest, standing()) : 0;
 
         // no move possible?
         if (lastIndex-- == 0) {
-          log(" => %s is unreachable, idling", target);
+          trace.record(Trace.Event.UNREACHABLE_IDLE, id, Trace.point(target));
           if (checkExcessiveDuration()) {
             reposition();
             return moveToTarget();
           }
-          return new Move();
+          return move("idle");
         }
       }
 
-      dest = path.get(1);
+      dest = at(path[1]);
 
       // the first element of the path is the starting point
-      log(this + " is moving toward " + dest);
-      return new Move(standing ? "run" : "crawl", dest.x, dest.y);
+      trace.record(Trace.Event.MOVING_TOWARD, id, Trace.point(dest));
+      return move(standing() ? "run" : "crawl", dest.x, dest.y);
     }
 
     /**
@@ -1025,13 +1657,19 @@ public class Seeker {
      * @return the teammate nearest to the point p
      */
     Player nearestPlayer(Point p0) {
-      Optional<Player> closest = players().stream()
-          .min(Comparator.comparingInt(p1 -> euclidean(p0, p1.pos)));
+      Player closest = null;
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Player p1 = cList[i];
+        if (closest == null || walking(p0, p1.pos()) < walking(p0, closest.pos()) ||
+            walking(p0, p1.pos()) == walking(p0, closest.pos()) && euclidean(p0, p1.pos()) < euclidean(p0, closest.pos())) {
+          closest = p1;
+        }
+      }
 
-      if (closest.isPresent()) {
-        return closest.get();
+      if (closest != null) {
+        return closest;
       }
-      log("There must be a player close to %s", p0);
+      trace.record(Trace.Event.NO_PLAYER_NEAR, id, Trace.point(p0));
       return null;
     }
 
@@ -1043,7 +1681,8 @@ public class Seeker {
      */
     Optional<Player> nearestEnemy(Point p0) {
       return knownEnemies().stream()
-          .min(Comparator.comparingInt(p1 -> euclidean(p0, p1.pos)));
+          .min(Comparator.<Player>comparingInt(p1 -> walking(p0, p1.pos()))
+              .thenComparingInt(p1 -> euclidean(p0, p1.pos())));
     }
 
     /**
@@ -1052,12 +1691,12 @@ public class Seeker {
      * @return a move instruction for a random destination
      */
     Move dodge() {
-      List<Point> dodges = neighbors12(pos, standing);
-      if (dodges.isEmpty() && !standing) {
-        return new Move("stand");
+      int dodges = neighbors12(cells, pos().x, pos().y, standing(), false);
+      if (dodges == 0 && !standing()) {
+        return move("stand");
       }
-      Point dodge = dodges.get(rnd.nextInt(dodges.size()));
-      return new Move(standing ? "run" : "crawl", dodge.x, dodge.y);
+      int dodge = cells[rnd.nextInt(dodges)];
+      return move(standing() ? "run" : "crawl", TurnChanges.x(dodge), TurnChanges.y(dodge));
     }
 
     /**
@@ -1067,17 +1706,16 @@ public class Seeker {
      */
     Move handleThreats(List<Point> targets) {
       if (!targets.isEmpty()) {
-        String threatString = targets.stream().map(Point::toString)
-            .collect(Collectors.joining(", "));
-        log(this + " sees targets at " + threatString);
+        trace.record(Trace.Event.SEES_TARGETS, id, targets.size(), Trace.point(targets.get(0)));
       }
 
-      for (Point target : targets) {
+      for (int t = 0; t < targets.size(); t++) {
+        Point target = targets.get(t);
         boolean isSnowman = ground[target.x][target.y] == Const.GROUND_SMB;
 
-        int dist = euclidean(this.pos, target);
-        int dx = target.x - pos.x;
-        int dy = target.y - pos.y;
+        int dist = euclidean(this.pos(), target);
+        int dx = target.x - pos().x;
+        int dy = target.y - pos().y;
 
         // it's a snowball fight, not hand-to-hand combat
         if (dist < 2 && !isSnowman) {
@@ -1087,7 +1725,7 @@ public class Seeker {
         double angle = Math.atan2(dy, dx);
 
         // height of the player throwing the snowball
-        int h0 = standing ? Const.STANDING_HEIGHT : Const.CROUCHING_HEIGHT;
+        int h0 = standing() ? Const.STANDING_HEIGHT : Const.CROUCHING_HEIGHT;
         // height of the target's head (only matters for snowmen; for players we just need h > 0)
 
         int min_h = isSnowman ? height[target.x][target.y] : 4;
@@ -1096,7 +1734,7 @@ public class Seeker {
         // if the snowman is 9 units tall, we need to be within 2 units
         if (h0 == min_h) {
           if (nearestPlayer(target) == this) {
-            Point dest = nearestPointBetween(target, this.pos);
+            Point dest = nearestPointBetween(target, this.pos());
             return moveToTarget(dest);
           }
           else {
@@ -1116,25 +1754,27 @@ public class Seeker {
           int max_range = Const.THROW_LIMIT / (h0 / (h0 - h));
 
           // clear and present danger
-          if (holding >= Const.HOLD_S1 && holding <= Const.HOLD_S3) {
+          if (holding() >= Const.HOLD_S1 && holding() <= Const.HOLD_S3) {
             // stand up if the player is armed
-            if (!standing) {
-              return new Move("stand");
+            if (!standing()) {
+              return move("stand");
             }
             // excellent, we are prepared
             if (dx * dx + dy * dy < max_range * max_range) {
-              Point p1 = new Point((int) (pos.x + overthrow * Math.cos(angle)),
-                  (int) (pos.y + overthrow * Math.sin(angle)));
+              // may be off the board
+              int aimX = (int) (pos().x + overthrow * Math.cos(angle));
+              int aimY = (int) (pos().y + overthrow * Math.sin(angle));
 
-              List<Point3> path = interpolate(pos, p1, h0);
-              log("  => overthrow = %d, interpolate %s to %s is %s", overthrow, pos, p1, pathString(path));
+              int steps = Math.max(Math.abs(aimX - pos().x), Math.abs(aimY - pos().y));
+              trace.record(Trace.Event.OVERTHROW, id, overthrow, Trace.point(pos()), Trace.point(aimX, aimY),
+                  steps + 1);
 
-              if (isAccurateTrajectory(path, target)) {
-                log("%s *** distance %d to target %s: %s, p1:%s, h:%d, path:%s", this, dist,
-                    (isSnowman ? "snowman" : "player"), target, p1, h, pathString(path));
+              if (isAccurateTrajectory(pos(), aimX, aimY, h0, target)) {
+                trace.record(Trace.Event.THROW, id, dist, isSnowman ? 1 : 0, Trace.point(target),
+                    Trace.point(aimX, aimY), h);
                 lastTarget = target;
 
-                return new Move("throw", p1.x, p1.y);
+                return move("throw", aimX, aimY);
               }
             }
           }
@@ -1149,65 +1789,61 @@ public class Seeker {
      * @return optimal next move for the player to obtain a snowball
      */
     Move acquireSnowball() {
-      Move m = new Move();
-
-      // look for a nearby snowball
-      List<Point> nearby = nearbyItems(Const.GROUND_S);
-      nearby.addAll(nearbyItems(Const.GROUND_MS));  // some of these might be lying around
-      nearby.addAll(nearbyItems(Const.GROUND_LS));
-      nearby.addAll(nearbyItems(Const.GROUND_SMB)); // pick up a snowball from enemy snowman?
-      nearby.sort(Comparator.comparingInt(pt -> euclidean(pt, pos)));
+      Move m = move("idle");
+
+      // look for a nearby snowball, the first of the nearest
+      Point nearby = null;
+      for (int cover : SNOWBALLS) {
+        for (int c = nextItem(cover, 0); c >= 0; c = nextItem(cover, c + 1)) {
+          if (nearby == null || euclidean(at(c), pos()) < euclidean(nearby, pos())) {
+            nearby = at(c);
+          }
+        }
+      }
 
       // Crush into a snowball, if we have snow.
-      if (holding == Const.HOLD_P1) {
+      if (holding() == Const.HOLD_P1) {
         m.action = "crush";
       }
       // holding something that won't help build a snowball, put it down
-      else if (holding == Const.HOLD_L) {
-        m.action = "drop";
-        Optional<Point> dest = neighbors8(pos).stream()
-            .filter(p -> ground[p.x][p.y] == Const.GROUND_EMPTY).findAny();
-        if (dest.isPresent()) {
-          m.dest = dest.get();
-          log("%s is dropping a large snowball at %s", this, m.dest);
+      else if (holding() == Const.HOLD_L) {
+        Point dest = neighbor8(pos(), Const.GROUND_EMPTY);
+        m.set("drop", dest);
+        if (dest != null) {
+          trace.record(Trace.Event.DROP_LARGE, id, Trace.point(dest));
         }
       }
       // holding something that won't help build a snowball, put it down
-      else if (holding == Const.HOLD_M) {
-        m.action = "drop";
+      else if (holding() == Const.HOLD_M) {
         // first choice is to drop on a large snowball if there is one
-        Optional<Point> dest = neighbors8(pos).stream()
-            .filter(p -> ground[p.x][p.y] == Const.GROUND_L).findAny();
-        m.dest = dest.orElseGet(() -> neighbors8(pos).get(0));
+        Point dest = neighbor8(pos(), Const.GROUND_L);
+        m.set("drop", dest != null ? dest : neighbor8(pos(), ANY_GROUND));
       }
       // holding something that won't help build a snowball, put it down anywhere
-      else if (holding > 0) {
-        Optional<Point> dest = neighbors8(pos).stream()
-            .filter(p -> ground[p.x][p.y] == Const.GROUND_EMPTY)
-            .findAny();
-        m.action = "drop";
-        m.dest = dest.orElseGet(() -> neighbors8(pos).get(0));
+      else if (holding() > 0) {
+        Point dest = neighbor8(pos(), Const.GROUND_EMPTY);
+        m.set("drop", dest != null ? dest : neighbor8(pos(), ANY_GROUND));
       }
       // we can get there in 2 turns or so it's cheaper than building a new one
-      else if (!nearby.isEmpty() && neighbors8(pos).contains(nearby.get(0))) {
-        if (standing) {
+      else if (nearby != null && isNeighbor8(pos(), nearby)) {
+        if (standing()) {
           m.action = "crouch";
         }
         else {
-          m.action = "pickup";
-          m.dest = nearby.get(0);
+          m.set("pickup", nearby);
         }
       }
-      else if (!nearby.isEmpty() && neighbors12(pos, standing).contains(nearby.get(0))) {
-        if (!standing) {
+      else if (nearby != null && contains(cells, neighbors12(cells, pos().x, pos().y, standing(), false), nearby)) {
+        if (!standing()) {
           m.action = "stand";
         }
         else {
-          m.action = "run";
           // don't step on the snowball
-          Point sb = new Point(Math.max(nearby.get(0).x, pos.x), Math.max(nearby.get(0).y, pos.y));
-          m.dest = bestDestinationCloseTo(sb, pos, true);
-          log("%s %s to %s to pick up a snowball at %s", this, m.action, m.dest, nearby);
+          Point sb = at(Math.max(nearby.x, pos().x), Math.max(nearby.y, pos().y));
+          Point dest = bestDestinationCloseTo(sb, pos(), true);
+          m.set("run", dest);
+          trace.record(Trace.Event.TO_SNOWBALL, id, Trace.action(m.action), Trace.point(dest),
+              Trace.point(nearby));
         }
       }
       // otherwise just make one
@@ -1215,21 +1851,22 @@ public class Seeker {
         // We don't have snow, see if there is some nearby.
         int sx = -1, sy = -1;
         // Look in front of us first
-        for (Point n : neighbors8(pos)) {
-          if (ground[n.x][n.y] == Const.GROUND_EMPTY && height[n.x][n.y] > 0) {
-            sx = n.x;
-            sy = n.y;
+        for (int i = 0; i < 8; i++) {
+          int x = pos().x + permutations[i].x;
+          int y = pos().y + permutations[i].y;
+          if (onBoard(x, y) && ground[x][y] == Const.GROUND_EMPTY && height[x][y] > 0) {
+            sx = x;
+            sy = y;
             break;
           }
         }
         // If there is snow, try to get it.
         if (sx >= 0) {
-          if (standing) {
+          if (standing()) {
             m.action = "crouch";
           }
           else {
-            m.action = "pickup";
-            m.dest = new Point(sx, sy);
+            m.set("pickup", sx, sy);
           }
         }
         // go somewhere else if there's no snow nearby
@@ -1242,15 +1879,32 @@ public class Seeker {
     }
 
     /**
-     * Return the points containing red snowmen in the current zone
+     * The first of neighbors8(origin) on the ground given, or on any
+     * ground for ANY_GROUND
      *
-     * @return the points containing red snowmen in the current zone
+     * @return the cell, or null if there isn't one
+     */
+    Point neighbor8(Point origin, int cover) {
+      for (int i = 0; i < 8; i++) {
+        int x = origin.x + permutations[i].x;
+        int y = origin.y + permutations[i].y;
+        if (onBoard(x, y) && (cover == ANY_GROUND || ground[x][y] == cover)) {
+          return at(x, y);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * True if one of our snowmen is in the zone
      */
-    List<Point> ourSnowmen(Zone zone) {
-      return nearbyItems(Const.GROUND_SMR).stream()
-          .filter(pt -> zoneContaining(pt) == zone)
-          .sorted(Comparator.comparingInt(pt -> euclidean(pt, pos)))
-          .collect(Collectors.toList());
+    boolean hasOurSnowmanIn(Zone zone) {
+      for (int c = nextItem(Const.GROUND_SMR, 0); c >= 0; c = nextItem(Const.GROUND_SMR, c + 1)) {
+        if (zone.contains(at(c))) {
+          return true;
+        }
+      }
+      return false;
     }
 
     /**
@@ -1262,12 +1916,12 @@ public class Seeker {
      * @return true if we are in the zone specified by the runTarget
      */
     boolean reachedTarget() {
-      if (pos.equals(runTarget)) {
+      if (pos().equals(runTarget)) {
         return true;
       }
       else if (ground[runTarget.x][runTarget.y] != Const.GROUND_EMPTY ||
                height[runTarget.x][runTarget.y] >= Const.OBSTACLE_HEIGHT) {
-        return neighbors8(runTarget).contains(pos);
+        return isNeighbor8(runTarget, pos());
       }
       else {
         return false;
@@ -1275,12 +1929,12 @@ public class Seeker {
     }
 
     Move decap(Point snowman) {
-      if (standing) {
-        return new Move("crouch");
+      if (standing()) {
+        return move("crouch");
       }
       else {
-        log("%s decap snowman at %s", this, snowman);
-        return new Move("pickup", snowman.x, snowman.y);
+        trace.record(Trace.Event.DECAP, id, Trace.point(snowman));
+        return move("pickup", snowman.x, snowman.y);
       }
     }
 
@@ -1290,7 +1944,7 @@ public class Seeker {
      * @return true if there is room for another snowball in the players hands
      */
     boolean canEquipSnowball() {
-      return holding == Const.HOLD_EMPTY || holding == Const.HOLD_S1 || holding == Const.HOLD_S2;
+      return holding() == Const.HOLD_EMPTY || holding() == Const.HOLD_S1 || holding() == Const.HOLD_S2;
     }
 
     /**
@@ -1303,7 +1957,7 @@ public class Seeker {
     }
 
     boolean missedCatch() {
-      return lastMove != null && lastMove.action.equals("catch") &&
+      return lastMove.action.equals("catch") &&
           previousSnowballCount == currentSnowballCount();
     }
 
@@ -1315,9 +1969,9 @@ public class Seeker {
      * @return true if we think we are the best player to catch the snowball
      */
     boolean prioritizeCatch(Player threat) {
-      int dist = euclidean(threat.pos, pos);
+      int dist = euclidean(threat.pos(), pos());
 
-      if (!canEquipSnowball() || dist > 8) {
+      if (!canEquipSnowball() || dist > params.catchRange) {
         return false;
       }
 
@@ -1326,36 +1980,48 @@ public class Seeker {
         return false;
       }
 
-      return players().stream().noneMatch(ea -> ea.canEquipSnowball() &&
-          ea.lastMove != null && "catch".equals(ea.lastMove.action) &&
-          ea.dazed == 0 && ea != this && euclidean(ea.pos, threat.pos) < dist);
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Player ea = cList[i];
+        if (ea.canEquipSnowball() && "catch".equals(ea.lastMove.action) &&
+            ea.dazed() == 0 && ea != this && euclidean(ea.pos(), threat.pos()) < dist) {
+          return false;
+        }
+      }
+      return true;
     }
 
     void setAvailableRunTarget(Point dest) {
       if (isBlocked(dest)) {
-        log("%s runTarget is blocked", this);
-        List<Point> neighbors = neighbors8(dest).stream()
-            .sorted(Comparator.comparingInt(ea -> euclidean(ea, pos)))
-            .collect(Collectors.toList());
-        for (Point n : neighbors) {
-          if (!isBlocked(n)) {
-            setRunTarget(n);
-            return;
+        trace.record(Trace.Event.RUN_TARGET_BLOCKED, id);
+        // the nearest neighbour that isn't blocked, first in neighbors8() order
+        Point free = null;
+        for (int i = 0; i < 8; i++) {
+          int x = dest.x + permutations[i].x;
+          int y = dest.y + permutations[i].y;
+          if (onBoard(x, y) && !isBlocked(at(x, y)) &&
+              (free == null || euclidean(at(x, y), pos()) < euclidean(free, pos()))) {
+            free = at(x, y);
           }
         }
+        if (free != null) {
+          setRunTarget(free);
+          return;
+        }
         if (isBlocked(dest)) {
-          setRunTarget(bestDestinationCloseTo(dest, pos, false));
-          log("%s runTarget is still blocked, choosing nearby", this);
+          setRunTarget(bestDestinationCloseTo(dest, pos(), false));
+          trace.record(Trace.Event.RUN_TARGET_STILL_BLOCKED, id);
         }
       }
     }
 
     boolean checkExcessiveDuration() {
+      if (revisits > MAX_REVISITS) {
+        return true;
+      }
       return (activity == null || activity.isComplete()) ?
-        currentPositionDuration > 15 : currentPositionDuration > 5;
+        currentPositionDuration > params.idleTurns : currentPositionDuration > params.buildingTurns;
     }
 
-    boolean retreat = false;
     /**
      * Run the OODA (observe-orient-decide-act) loop
      *
@@ -1370,22 +2036,29 @@ public class Seeker {
      * @return the move to support orientation or activity
      */
     public Move chooseMove() {
-      if (dazed > 0) {
+      nextMove = 0;
+      if (dazed() > 0) {
         // unable to act for now
-        return new Move();
+        branch = "dazed";
+        return move("idle");
       }
 
-      List<Point> enemyPositions = knownEnemies().stream()
-          .filter(threat -> threat.dazed == 0 &&
-              threat.holding >= Const.HOLD_S1 &&
-              threat.holding <= Const.HOLD_S3)
-          .sorted(Comparator.comparingInt(threat -> euclidean(threat.pos, pos)))
-          .map(ea -> ea.pos)
-          .collect(Collectors.toList());
+      int armedCount = armedEnemies();
+      List<Point> enemyPositions = armedPositions;
+      enemyPositions.clear();
+      for (int i = 0; i < armedCount; i++) {
+        enemyPositions.add(armed[i].pos());
+      }
 
       Move defenseResponse = handleDefense();
       Move enemyResponse = handleThreats(enemyPositions);
-      Move enemySnowmanResponse = handleThreats(nearbyItems(Const.GROUND_SMB));
+      List<Point> blueSnowmen = nearbyItems(Const.GROUND_SMB, theirSnowmen);
+      for (int i = blueSnowmen.size() - 1; i >= 0; i--) {
+        if (!mayDo(TaskAssignment.DECAP, blueSnowmen.get(i))) {
+          blueSnowmen.remove(i);
+        }
+      }
+      Move enemySnowmanResponse = handleThreats(blueSnowmen);
 
       // Opportunities might be a higher priority than threats
       // if the cost of exploiting them is low and the risk of interruption is small
@@ -1396,78 +2069,80 @@ public class Seeker {
       // 4. if there are no threats or opportunities, continue to the runTarget
 
       // handle adjacent snowman and partial snowman as special cases
-      Optional<Point> adjacentSnowman = neighbors8(pos).stream()
-          .filter(pt -> ground[pt.x][pt.y] == Const.GROUND_SMB)
-          .findAny();
+      Point adjacentSnowman = neighbor8(pos(), Const.GROUND_SMB);
 
-      List<Point> ourSnowmen = ourSnowmen(zoneContaining(pos));
+      boolean ourSnowmenHere = hasOurSnowmanIn(zoneContaining(pos()));
 
-      Optional<Point> adjacentPartial = neighbors8(pos).stream()
-          .filter(pt -> ground[pt.x][pt.y] == Const.GROUND_LM || ground[pt.x][pt.y] == Const.GROUND_L)
-          .findAny();
+      Point adjacentPartial = null;
+      for (int i = 0; i < 8; i++) {
+        int x = pos().x + permutations[i].x;
+        int y = pos().y + permutations[i].y;
+        if (onBoard(x, y) && (ground[x][y] == Const.GROUND_LM || ground[x][y] == Const.GROUND_L)) {
+          adjacentPartial = at(x, y);
+          break;
+        }
+      }
 
-      Optional<Player> nearestThreat = knownEnemies().stream()
-          .filter(threat -> threat.dazed == 0 &&
-              threat.holding >= Const.HOLD_S1 &&
-              threat.holding <= Const.HOLD_S3)
-          .sorted(Comparator.comparingInt(threat -> euclidean(threat.pos, pos)))
-          .findAny();
+      Player nearestThreat = armedCount > 0 ? armed[0] : null;
 
       // maybe there's a nearby unfinished snowman we can work on
-      List<Point> nearestPartials = nearestIncomplete(pos);
+      List<Point> nearestPartials = nearestIncomplete(partials);
 
-      // where are teammates working on snowmen
-      List<Point> inProgress = friends().stream()
-          .filter(p -> p.activity != null)
-          .map(p -> p.activity.site)
-          .collect(Collectors.toList());
-
-      Optional<Point> nearestPartial = nearestPartials.stream()
-          .filter(p -> !inProgress.contains(p) && euclidean(p, pos) < 5)
-          .findAny();
+      Point nearestPartial = null;
+      for (int i = 0; i < nearestPartials.size() && nearestPartial == null; i++) {
+        Point p = nearestPartials.get(i);
+        if (euclidean(p, pos()) < params.partialRange && mayDo(TaskAssignment.BUILD, p)) {
+          nearestPartial = p;
+        }
+      }
 
       // if we are adjacent to the target, no need to waste a snowball
-      if (canEquipSnowball() && adjacentSnowman.isPresent()) {
+      if (canEquipSnowball() && adjacentSnowman != null) {
         activity = null;
-        return decap(adjacentSnowman.get());
+        branch = "decapitate";
+        return decap(adjacentSnowman);
       }
       // if we are being targeted, we can catch instead of getting hit
-      else if (nearestThreat.isPresent() && prioritizeCatch(nearestThreat.get())) {
-        Point threat = nearestThreat.get().pos;
+      else if (nearestThreat != null && prioritizeCatch(nearestThreat)) {
+        Point threat = nearestThreat.pos();
         activity = null;
-        log("%s is preparing to catch snowball from %s", this, threat);
-        return new Move("catch", threat.x, threat.y);
+        trace.record(Trace.Event.CATCH, id, Trace.point(threat));
+        branch = "catch";
+        return move("catch", threat.x, threat.y);
       }
       // if we are building and have a snowball, we are on the last step
       else if (currentSnowballCount() > 0 && enemyResponse != null && !isBuilding()) {
-        log("%s choice is threat response", this);
+        trace.record(Trace.Event.CHOICE_THREAT, id);
+        branch = "threat response";
         return enemyResponse;
       }
-      else if (adjacentPartial.isPresent()) {
-        log("%s choice is to finish existing snowman", this);
-        if (holding >= Const.HOLD_S1 && holding <= Const.HOLD_S3) {
-          Point dest = adjacentPartial.get();
+      else if (adjacentPartial != null) {
+        trace.record(Trace.Event.CHOICE_FINISH, id);
+        branch = "finish snowman";
+        if (holding() >= Const.HOLD_S1 && holding() <= Const.HOLD_S3) {
+          Point dest = adjacentPartial;
           if (isBuilding()) {
             activity = null;
           }
-          return new Move("drop", dest.x, dest.y);
+          return move("drop", dest.x, dest.y);
         }
         if (activity == null || activity.isComplete()) {
-          activity = new Build();
+          activity = build.restart();
         }
         return activity.nextMove(this);
       }
       else if (enemySnowmanResponse != null) {
-        int h0 = this.standing ? Const.STANDING_HEIGHT : Const.CROUCHING_HEIGHT;
-        Point sm = nearbyItems(Const.GROUND_SMB).get(0);
+        branch = "enemy snowman";
+        int h0 = this.standing() ? Const.STANDING_HEIGHT : Const.CROUCHING_HEIGHT;
+        Point sm = blueSnowmen.get(0);
         // if the snowman is 9 units tall, we need to be adjacent
         if (h0 == height[sm.x][sm.y]) {
-          if (neighbors8(sm).contains(pos)) {
-            if (standing) {
-              return new Move("crouch");
+          if (isNeighbor8(sm, pos())) {
+            if (standing()) {
+              return move("crouch");
             }
-            setRunTarget(pos);
-            return new Move("pickup", sm.x, sm.y);
+            setRunTarget(pos());
+            return move("pickup", sm.x, sm.y);
           }
           else {
             setAvailableRunTarget(sm);
@@ -1477,44 +2152,52 @@ public class Seeker {
         return enemySnowmanResponse;
       }
       else if (defenseResponse != null) {
+        branch = "defense";
         return defenseResponse;
       }
-      else if ((holding == Const.HOLD_EMPTY || holding == Const.HOLD_S1) &&
-          nearestPartial.isPresent() && ourSnowmen.isEmpty()) {
-        log("%s choice is opportunistic build", this);
+      else if ((holding() == Const.HOLD_EMPTY || holding() == Const.HOLD_S1) &&
+          nearestPartial != null && !ourSnowmenHere) {
+        trace.record(Trace.Event.CHOICE_OPPORTUNISTIC, id);
+        branch = "opportunistic build";
         if (activity == null || activity.isComplete()) {
-          activity = new Build();
-          activity.site = nearestPartial.get();
+          activity = build.restart();
+          activity.site = nearestPartial;
         }
-        setAvailableRunTarget(nearestPartial.get());
+        setAvailableRunTarget(nearestPartial);
         return moveToTarget();
       }
       else if (activity == null || activity.isComplete()) {
-        if (holding < Const.HOLD_S1 || holding > Const.HOLD_S3) {
-          log("%s is acquiring a snowball", this);
+        if (holding() < Const.HOLD_S1 || holding() > Const.HOLD_S3) {
+          trace.record(Trace.Event.ACQUIRING, id);
+          branch = "acquire snowball";
           return acquireSnowball();
         }
-        else if (!standing) {
-          log("%s choice is to stand for navigation", this);
-          return new Move("stand");
+        else if (!standing()) {
+          trace.record(Trace.Event.CHOICE_STAND, id);
+          branch = "stand";
+          return move("stand");
         }
         else if (!reachedTarget()) {
           setAvailableRunTarget(runTarget);
-          log("%s choice is navigation", this);
+          trace.record(Trace.Event.CHOICE_NAVIGATION, id);
+          branch = "navigation";
           return moveToTarget();
         }
-        else if ((holding == Const.HOLD_EMPTY || holding == Const.HOLD_S1) && ourSnowmen.isEmpty()) {
-          log("%s choice is new build", this);
-          activity = new Build();
+        else if ((holding() == Const.HOLD_EMPTY || holding() == Const.HOLD_S1) && !ourSnowmenHere) {
+          trace.record(Trace.Event.CHOICE_NEW_BUILD, id);
+          branch = "new build";
+          activity = build.restart();
           return activity.nextMove(this);
         }
         else {
+          branch = "reposition";
           reposition();
           return moveToTarget();
         }
       }
       else {
-        log("%s choice is continue building", this);
+        trace.record(Trace.Event.CHOICE_CONTINUE, id);
+        branch = "continue build";
         return activity.nextMove(this);
       }
     }
@@ -1523,12 +2206,29 @@ public class Seeker {
   // Simple representation for a child's action
   static class Move {
     String action;
-    Point dest;
+
+    /** Where the action is aimed, if hasDest; a throw's may be off the board. */
+    int x;
+    int y;
+    boolean hasDest;
 
     String getAction() {
       return action;
     }
 
+    /** Where the action is aimed, or null if it isn't aimed anywhere. */
+    Point dest() {
+      if (!hasDest) {
+        return null;
+      }
+      return onBoard(x, y) ? at(x, y) : new Point(x, y);
+    }
+
+    /** True if this is aimed at (x, y). */
+    boolean isTo(int x, int y) {
+      return hasDest && this.x == x && this.y == y;
+    }
+
     public boolean equals(Object other) {
       if (other == null) {
         return false;
@@ -1540,7 +2240,8 @@ public class Seeker {
         return false;
       }
       Move move = (Move)other;
-      return move.action.equals(this.action) && (move.dest == this.dest || move.dest.equals(this.dest));
+      return move.action.equals(this.action) && move.hasDest == this.hasDest &&
+          (!hasDest || move.x == this.x && move.y == this.y);
     }
 
     Move() {
@@ -1552,33 +2253,44 @@ public class Seeker {
     }
 
     Move(String act, int x, int y) {
+      set(act, x, y);
+    }
+
+    Move set(String act) {
       action = act;
-      dest = new Point(x, y);
+      hasDest = false;
+      return this;
+    }
+
+    Move set(String act, int x, int y) {
+      action = act;
+      this.x = x;
+      this.y = y;
+      hasDest = true;
+      return this;
+    }
+
+    /** set() to the point, or to nowhere if it's null. */
+    Move set(String act, Point dest) {
+      return dest == null ? set(act) : set(act, dest.x, dest.y);
+    }
+
+    /** Make this a copy of the move. */
+    Move set(Move move) {
+      return move.hasDest ? set(move.action, move.x, move.y) : set(move.action);
     }
   }
 
   class Build {
 
-    Move[] instructions = {
-        new Move("idle"), // placeholder: state 0 does not generate a move
-        new Move("pickup", 1, 0),
-        new Move("pickup", 1, 0),
-        new Move("pickup", 1, 0),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("pickup", 1, 1),
-        new Move("pickup", 1, 1),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("pickup", 1, 1),
-        new Move("crush"),
-        new Move("drop", 1, 0),
-        new Move("stand"),
-    };
+    /** The plan being followed, if there is one, and how far along it the child is. */
+    final BuildPlanner.Plan plan = new BuildPlanner.Plan();
+    boolean planned = false;
+    int step = 0;
 
+    /** Steps taken towards this snowman, over every plan. */
     int state = 0;
-    int start_m = 6;     // offset in instruction list when L is complete
-    int start_lm = 10;    // offset in instruction list when L, M are complete
+    boolean done = false;
 
     Point site = null;
 
@@ -1591,122 +2303,109 @@ public class Seeker {
     }
 
     public boolean isComplete() {
-      return state >= instructions.length - 1;
+      return done;
     }
 
-    public Move nextMove(Player c) {
-      // See if we should start running our build script.
-      // Are we far from other things, is the ground empty
-      // and do we have enough snow to build a snowman.
-      // Make sure we have at least 4 empty squares around us
-
-      // we need 2 nearby sources of snow with height >= 3, and an unblocked dest
-
-      // maybe there's a nearby unfinished snowman we can work on
-      List<Point> nearestPartials = nearestIncomplete(c.pos);
-      Point partial = nearestPartials.size() > 0 ? nearestPartials.get(0) : null;
+    /** Start over for a new snowman. */
+    Build restart() {
+      planned = false;
+      step = 0;
+      state = 0;
+      done = false;
+      site = null;
+      return this;
+    }
 
-      // ensure other players on our team aren't building here
-      List<Point> others = players().stream()
-          .filter(ea -> ea != c && ea.isBuilding())
-          .map(ea -> ea.activity.site)
-          .collect(Collectors.toList());
-
-      // 2. check for a partially completed snowman nearby
-      if (partial != null && Collections.disjoint(others, neighbors8(partial))) {
-        if (site == null) {
-          if (neighbors8(c.pos).contains(partial)) {
-            site = partial;
-            state = ground[partial.x][partial.y] == Const.GROUND_L ? start_m : start_lm;
-            log("%s found partial (%d) at %s, activity = %s", c, ground[partial.x][partial.y], partial, this);
-          }
-          else if (euclidean(c.pos, partial) < 8) {
-            log("%s moving toward partial snowman at %s", c, partial);
-            Point dest = nearestPointBetween(partial, c.pos);
-            return c.moveToTarget(dest);
-          }
+    /** True if one of c's teammates is building with its site at the cell */
+    boolean builtByOthers(Player c, int x, int y) {
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Player ea = cList[i];
+        if (ea != c && ea.isBuilding() && ea.activity.site != null &&
+            ea.activity.site.x == x && ea.activity.site.y == y) {
+          return true;
         }
       }
+      return false;
+    }
 
-      if (state == 0) {
-        // If we didn't get to finish the last snowman, maybe we're holding something.
-        if (c.holding != Const.HOLD_EMPTY) {
-          for (Point p : neighbors8(c.pos)) {
-            if (ground[p.x][p.y] == Const.GROUND_EMPTY && height[p.x][p.y] <= Const.MAX_PILE - 3) {
-              return new Move("drop", p.x, p.y);
-            }
-          }
-        }
+    public Move nextMove(Player c) {
+      // maybe there's a nearby unfinished snowman we can work on
+      List<Point> nearestPartials = c.nearestIncomplete(c.partials);
+      Point partial = nearestPartials.size() > 0 ? nearestPartials.get(0) : null;
 
-        // 3. start a new snowman if there isn't a partial in progress
-        if (site == null) {
-          int powder = 0;
-          for (Point p : neighbors8(c.pos)) {
-            powder += height[p.x][p.y];
-            if (site == null && ground[p.x][p.y] == Const.GROUND_EMPTY && !others.contains(p)) {
-              log("%s building snowman at %s", c, p);
-              site = p;
-            }
-            if (site != null && powder >= 6) {
-              state = 1;
-            }
-          }
+      // 1. head for a partially completed snowman nearby, unless
+      // other players on our team are building there
+      if (partial != null && site == null && !nearOthers(c, partial)) {
+        if (isNeighbor8(c.pos(), partial)) {
+          site = partial;
+          trace.record(Trace.Event.FOUND_PARTIAL, c.id, ground[partial.x][partial.y], Trace.point(partial), state);
         }
-
-        if (state == 0) {
-          c.reposition();
-          log("%s => no suitable snowman site found nearby", c);
+        else if (euclidean(c.pos(), partial) < params.builderPartialRange) {
+          trace.record(Trace.Event.TO_PARTIAL, c.id, Trace.point(partial));
+          Point dest = nearestPointBetween(partial, c.pos());
+          return c.moveToTarget(dest);
         }
       }
 
-      // are we building a snowman?
-      if (state > 0) {
-        // return a move from our instruction template
-        Move m = new Move(instructions[state].action);
+      // ensure we did not move away from our building site
+      if (site != null && !isNeighbor8(c.pos(), site)) {
+        trace.record(Trace.Event.LEFT_BUILD_SITE, c.id, Trace.point(site));
+        Point p = nearestPointBetween(site, c.pos());
+        c.setRunTarget(p);
+        return c.moveToTarget();
+      }
 
-        // don't add to instruction list because we could be working on a partial
-        if (m.action.equals("pickup") && c.standing) {
-          return new Move("crouch");
+      // 2. follow the plan while the neighbourhood is as it expects, otherwise plan again
+      long cells = BuildPlanner.pack(height, ground, c.pos().x, c.pos().y);
+      for (int n = 0; n < BuildPlanner.OFFSETS.length; n++) {
+        if (builtByOthers(c, c.pos().x + BuildPlanner.OFFSETS[n][0], c.pos().y + BuildPlanner.OFFSETS[n][1])) {
+          cells = BuildPlanner.block(cells, n);
         }
-
-        // ensure we did not move away from our building site
-        if (!neighbors8(c.pos).contains(site)) {
-          log("%s moved away from building site, returning to %s", this, site);
-          Point p = nearestPointBetween(site, c.pos);
-          c.setRunTarget(p);
+      }
+      if (!planned || plan.cells[step] != cells || plan.holding[step] != c.holding()) {
+        BuildPlanner.Plan found = planner.plan(cells, c.holding());
+        step = 0;
+        if (found == null) {
+          trace.record(Trace.Event.NO_BUILD_SITE, c.id);
+          planned = false;
+          site = null;
+          done = true;
+          c.reposition();
           return c.moveToTarget();
         }
-
-        if (instructions[state].dest != null) {
-          if (m.action.equals("drop")) {
-            m.dest = site;
-          }
-          else if (m.action.equals("pickup")) {
-            for (Point p : neighbors8(c.pos)) {
-              if (ground[p.x][p.y] == Const.GROUND_EMPTY && height[p.x][p.y] > 0) {
-                m.dest = p;
-              }
-            }
-            if (m.dest == null) {
-              log("%s: No snow near %s", c, site);
-              c.reposition();
-              state = 0;
-              return new Move("stand");
-            }
-          }
-
-          if (m.dest != null && ground[m.dest.x][m.dest.y] == GROUND_CHILD) {
-            // if someone has stepped on our pickup or build destination, wait before continuing
-            log("%s someone is in the way (%s) at activity step %d: idling", c, m.dest, state);
-            return new Move();
-          }
+        plan.copy(found);
+        planned = true;
+        int n = plan.site();
+        site = at(c.pos().x + BuildPlanner.OFFSETS[n][0], c.pos().y + BuildPlanner.OFFSETS[n][1]);
+        trace.record(Trace.Event.BUILD_SITE, c.id, Trace.point(site), plan.length());
+      }
+
+      // 3. take the next step
+      int action = plan.action[step];
+      int n = plan.cell[step];
+      if (action == Rules.PICKUP && c.standing()) {
+        return c.move("crouch");
+      }
+      step++;
+      state++;
+      done = step == plan.length();
+      if (action == Rules.CRUSH) {
+        return c.move("crush");
+      }
+      return c.move(action == Rules.PICKUP ? "pickup" : "drop",
+          c.pos().x + BuildPlanner.OFFSETS[n][0], c.pos().y + BuildPlanner.OFFSETS[n][1]);
+    }
+
+    /** True if one of c's teammates is building at a site next to the point */
+    boolean nearOthers(Player c, Point p) {
+      for (int i = 0; i < 8; i++) {
+        int x = p.x + permutations[i].x;
+        int y = p.y + permutations[i].y;
+        if (onBoard(x, y) && builtByOthers(c, x, y)) {
+          return true;
         }
-        state++;
-        return m;
       }
-
-      log(c.activity + " is complete, should not be idling");
-      return new Move();
+      return false;
     }
   }
 
@@ -1740,14 +2439,16 @@ public class Seeker {
     // - BUT -
     // if path is partially obstructed, this will lead to a confusing outcome
     // better to follow c to s until we hit the first invisible
-    List<Point> path = interpolate(s, c);
+    int n = Math.max(Math.abs(c.x - s.x), Math.abs(c.y - s.y));
     Point furthest = s;
-    for (Point p : path) {
-      if (ground[p.x][p.y] >= 0) {
-        furthest = p;
+    for (int t = 0; t <= n; t++) {
+      int x = lerp(s.x, c.x, t, n);
+      int y = lerp(s.y, c.y, t, n);
+      if (ground[x][y] >= 0) {
+        furthest = at(x, y);
       }
     }
-    log(" => furthest visible point between %s and %s is %s", s, c, furthest);
+    trace.record(Trace.Event.FURTHEST_VISIBLE, -1, Trace.point(s), Trace.point(c), Trace.point(furthest));
     return furthest;
   }
 
@@ -1765,7 +2466,8 @@ public class Seeker {
     nearestPartials.addAll(nearestLMs);
     nearestPartials.addAll(nearestLs);
     nearestPartials.addAll(nearestBlumen);
-    nearestPartials.sort(Comparator.comparingInt(a -> euclidean(p, a)));
+    nearestPartials.sort(Comparator.<Point>comparingInt(a -> walking(p, a))
+        .thenComparingInt(a -> euclidean(p, a)));
     return nearestPartials;
   }
 
@@ -1784,30 +2486,17 @@ public class Seeker {
       return end;
     }
 
-    Queue<Point> frontier = new LinkedList<>();
-    frontier.add(start);
-    Map<Point, Point> cameFrom = new HashMap<>();
-    cameFrom.put(start, null);
+    SeekerEvents.PathSearch event = SeekerEvents.PathSearch.start();
 
     // "flood fill" algorithm -- all points reachable from start
-    while (!frontier.isEmpty()) {
-      Point current = frontier.remove();
+    int reached = search(TurnChanges.cell(start.x, start.y), -1, true, false);
 
-      List<Point> neighbors = neighbors12(current, true);
-
-      for (Point next : neighbors) {
-        if (!cameFrom.containsKey(next)) {
-          frontier.add(next);
-          cameFrom.put(next, current);
-        }
-      }
-    }
+    SeekerEvents.PathSearch.end(event, "flood", start, end, reached, 0);
 
     int closest = Const.SIZE * 2;
     Point best = null;
-    Set<Point> fill = cameFrom.keySet();
-    fill.remove(start);
-    for (Point p : fill) {
+    for (int i = 1; i < reached; i++) {
+      Point p = at(frontier[i]);
       int dist = euclidean(p, end);
       if (dist < closest) {
         best = p;
@@ -1815,82 +2504,241 @@ public class Seeker {
       }
     }
 
-//    String allVisible = cameFrom.keySet().stream()
-//        .map(Point::toString).collect(Collectors.joining(", "));
-
-    log("  => Best choice is " + best);
+    trace.record(Trace.Event.BEST_DESTINATION, -1, Trace.point(best));
     // TODO sometimes returns null - this algorithm seems overly complicated
     return best == null ? start : best;
   }
 
-  public void run() {
+  /**
+   * Phase timings, only when SEEKER_TIMING is set.
+   */
+  private final TurnTimer timer = TurnTimer.ENABLED ? new TurnTimer(Const.CCOUNT) : null;
 
-    for (int i = 0; i < cList.length; i++) {
-      Player player = new Player();
-      cList[i] = player;
+  @Override
+  public void chooseMoves(TurnSnapshot turn, MoveList moves) {
+    if (TurnTimer.ENABLED) {
+      timer.startTurn();
     }
+    SeekerEvents.TurnParsed parsed = null;
+    if (SeekerEvents.recording()) {
+      parsed = new SeekerEvents.TurnParsed();
+      parsed.begin();
+    }
+    decide(turn, moves, parsed);
+    if (TurnTimer.ENABLED) {
+      timer.endTurn(turn.turn);
+    }
+  }
 
-    // Scanner to parse input from the game engine.
-    Scanner in = new Scanner(System.in);
+  @Override
+  public void gameOver() {
+    if (TurnTimer.ENABLED) {
+      timer.dump();
+    }
+    if (Trace.ENABLED) {
+      trace.dump(System.err);
+    }
+    layout.save();
+    if (visibility != null) {
+      try {
+        visibility.close();
+      }
+      catch (IOException e) {
+        System.err.println("exception occurred" + e);
+      }
+      visibility = null;
+    }
+  }
 
-    // Keep reading states until the game ends.
-    int turnNum = in.nextInt();
-    while (turnNum >= 0) {
+  /**
+   * Decide this turn's moves
+   *
+   * @param parsed event begun when reading the turn started, committed once it's on the
+   *     board, or null if Flight Recorder isn't running
+   */
+  private void decide(TurnSnapshot turn, MoveList moves, SeekerEvents.TurnParsed parsed) {
 
-      log("---------------- Turn %d ---------------- ", turnNum);
+    trace.turn(turn.turn);
+    changes.turn(turn.turn);
+    trace.record(Trace.Event.TURN, -1, turn.turn);
 
-      // Read current game score.
-      score[Const.RED] = in.nextInt();
-      score[Const.BLUE] = in.nextInt();
+    copyTurn(turn);
+    if (TurnTimer.ENABLED) {
+      timer.phase(TurnTimer.COPY);
+    }
 
-      // Parse the current map.
-      readCurrentMap(in);
+    // Mark all the children in the map, so they are easy to
+    // look up.
+    markChildren();
 
-      // Read the states of all the children.
-      readChildrenStates(in);
+    // initialize run targets, if required
+    initializePlayerPositions();
+    if (TurnTimer.ENABLED) {
+      timer.phase(TurnTimer.MARK);
+    }
+    if (parsed != null && parsed.shouldCommit()) {
+      parsed.turn = turn.turn;
+      parsed.visibleEnemies = Integer.bitCount(children.visible() & ChildTable.THEIRS);
+      parsed.commit();
+    }
 
-      // Mark all the children in the map, so they are easy to
-      // look up.
-      markChildren();
+    if (Trace.ENABLED) {
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        Player c = cList[i];
+        int zone = c.pos().x >= 0 ? Zones.indexOf(zoneContaining(c.pos())) : -1;
+        trace.record(Trace.Event.CHILD_STATE, i, Trace.point(c.pos()), Trace.point(c.runTarget), zone,
+            c.holding(), c.standing() ? 1 : 0, c.dazed());
+      }
+    }
 
-      // initialize run targets, if required
-      initializePlayerPositions();
+    if (verboseDebug) {
+      recordVisibility(turn);
+    }
 
-      if (verboseDebug) {
-        logVisibility("visibility.txt", "Turn " + turnNum);
-      }
+    assignTasks();
 
-      // check for conflicts
-      Point[] dests = new Point[Const.CCOUNT];
+    // check for conflicts
+    Arrays.fill(chosen, null);
 
-      // Decide what each child should do
-      for (int i = 0; i < Const.CCOUNT; i++) {
+    // Decide what each child should do
+    for (int i = 0; i < Const.CCOUNT; i++) {
 
-        Move m = cList[i].chooseMove();
-        for (int j = 0; j <= i; j++) {
-          if (dests[j] != null && dests[j].equals(m.dest)) {
-            // this way at least one of our players gets to act (priority to lower player numbers)
-            log("%s action conflicts with %s", cList[i], cList[j]);
-            m.action = "idle";
-            m.dest = null;
-          }
+      SeekerEvents.ChildDecision decision = null;
+      if (SeekerEvents.recording()) {
+        decision = new SeekerEvents.ChildDecision();
+        decision.begin();
+      }
+      cList[i].branch = null;
+      Move m = cList[i].chooseMove();
+      if (decision != null && decision.shouldCommit()) {
+        decision.turn = turn.turn;
+        decision.child = i;
+        decision.branch = cList[i].branch;
+        decision.action = m.action;
+        decision.commit();
+      }
+      for (int j = 0; j < i; j++) {
+        if (m.hasDest && chosen[j].isTo(m.x, m.y)) {
+          // this way at least one of our players gets to act (priority to lower player numbers)
+          trace.record(Trace.Event.CONFLICT, i, j);
+          m.set("idle");
         }
-        dests[i] = m.dest;
+      }
+      chosen[i] = m;
+
+      if (!m.hasDest) {
+        trace.record(Trace.Event.ACTION, i, Trace.action(m.action));
+        moves.set(i, Rules.actionCode(m.action));
+      }
+      else {
+        trace.record(Trace.Event.ACTION_TO, i, Trace.action(m.action), Trace.point(m.x, m.y));
+        moves.set(i, Rules.actionCode(m.action), m.x, m.y);
+      }
+      cList[i].lastMove.set(m);
+      if (TurnTimer.ENABLED) {
+        timer.child(i);
+      }
+    }
+  }
 
-        /* Write out the child's move */
-        if (m.dest == null) {
-          log("%s action is %s", cList[i], m.action);
-          System.out.println(m.action);
+  /** The move each child has chosen this turn, to check for conflicts */
+  private final Move[] chosen = new Move[Const.CCOUNT];
+
+  /**
+   * List the team's tasks for this turn and give each to the child it
+   * suits best: partly built snowmen to finish, their snowmen to knock
+   * down and our snowmen to defend.  Enemies aren't tasks; several
+   * children throwing at the nearest one does better than spreading out.
+   * The partly built snowmen listed are those near any of our children,
+   * so the list doesn't depend on where one of them is.
+   */
+  void assignTasks() {
+    tasks.clear();
+    for (int cover : INCOMPLETE) {
+      for (int c = nextItem(cover, 0); c >= 0; c = nextItem(cover, c + 1)) {
+        if (nearAnyOfOurs(TurnChanges.x(c), TurnChanges.y(c), params.partialRange)) {
+          tasks.add(TaskAssignment.BUILD, TurnChanges.x(c), TurnChanges.y(c));
         }
-        else {
-          log("%s action is %s %s", cList[i], m.action, m.dest);
-          System.out.println(m.action + " " + m.dest.x + " " + m.dest.y);
+      }
+    }
+    for (int c = nextItem(Const.GROUND_SMB, 0); c >= 0; c = nextItem(Const.GROUND_SMB, c + 1)) {
+      tasks.add(TaskAssignment.DECAP, TurnChanges.x(c), TurnChanges.y(c));
+    }
+    for (int armed = children.armed(ChildTable.THEIRS & children.visible()); armed != 0; armed &= armed - 1) {
+      Player enemy = cList[Integer.numberOfTrailingZeros(armed)];
+      for (int c = nextItem(Const.GROUND_SMR, 0); c >= 0; c = nextItem(Const.GROUND_SMR, c + 1)) {
+        Point ours = at(c);
+        if (euclidean(enemy.pos(), ours) < params.defenseRange) {
+          tasks.add(TaskAssignment.DEFEND, ours.x, ours.y);
         }
-        cList[i].lastMove = m;
       }
+    }
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      for (int t = 0; t < tasks.count(); t++) {
+        tasks.cost(i, t, cList[i].taskCost(t));
+      }
+    }
+    tasks.solve();
 
-      turnNum = in.nextInt();
+    if (Trace.ENABLED) {
+      for (int i = 0; i < Const.CCOUNT; i++) {
+        int t = tasks.task(i);
+        if (t >= 0) {
+          trace.record(Trace.Event.TASK, i, tasks.kind(t), Trace.point(tasks.x(t), tasks.y(t)));
+        }
+      }
+    }
+  }
+
+  /** True if one of our children that can be seen is closer than range to (x, y). */
+  private boolean nearAnyOfOurs(int x, int y, int range) {
+    return children.within(ChildTable.OURS & children.visible(), x, y, range) != 0;
+  }
+
+  public void run() {
+    run(System.in, System.out);
+  }
+
+  /**
+   * Play a game read from input in the engine's text protocol, writing
+   * the moves to output.
+   */
+  public void run(InputStream input, PrintStream output) {
+
+    // Scanner to parse input from the game engine.
+    Scanner in = new Scanner(input);
+    TurnSnapshot turn = new TurnSnapshot();
+    MoveList moves = new MoveList();
+
+    // Keep reading states until the game ends.
+    while (true) {
+      SeekerEvents.TurnParsed parsed = SeekerEvents.recording() ? new SeekerEvents.TurnParsed() : null;
+      if (TurnTimer.ENABLED || parsed != null && parsed.isEnabled()) {
+        // wait for the engine's input before starting the clock
+        in.hasNext();
+      }
+      if (TurnTimer.ENABLED) {
+        timer.startTurn();
+      }
+      if (parsed != null) {
+        parsed.begin();
+      }
+      if (!turn.read(in)) {
+        break;
+      }
+      if (TurnTimer.ENABLED) {
+        timer.phase(TurnTimer.PARSE);
+      }
+      decide(turn, moves, parsed);
+
+      /* Write out the children's moves */
+      moves.write(output);
+      if (TurnTimer.ENABLED) {
+        timer.phase(TurnTimer.OUTPUT);
+        timer.endTurn(turn.turn);
+      }
     }
+    gameOver();
   }
 
   int[][] copyBoard(int[][] board) {
@@ -1968,57 +2816,77 @@ public class Seeker {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       // {x:0, y:2, stance:'S', carry:'a', dazed:0}
       Player c = cList[i];
-      String status = String.format("%d %d %s %s %d\n", c.pos.x, c.pos.y,
-          c.standing ? "S" : "C", (char)(c.holding + 'a'), c.dazed);
+      String status = String.format("%d %d %s %s %d\n", c.pos().x, c.pos().y,
+          c.standing() ? "S" : "C", (char)(c.holding() + 'a'), c.dazed());
       b.append(status);
     }
     return b.toString();
   }
 
-  public void logVisibility(String fileName, String prefixMessage) {
-    try {
-      // Open given file in append mode.
-      BufferedWriter out = new BufferedWriter(
-          new FileWriter(fileName, true));
-
-      out.write(prefixMessage + '\n');
-      out.write(printVisibility(ground));
-      out.write('\n');
+  /**
+   * Visibility recording, opened on the first turn when SEEKER_VERBOSE_DEBUG is set
+   */
+  private VisibilityRecorder visibility;
 
-      out.close();
+  void recordVisibility(TurnSnapshot turn) {
+    try {
+      if (visibility == null) {
+        visibility = new VisibilityRecorder(Paths.get("visibility.bin"));
+      }
+      visibility.record(turn);
     }
     catch (IOException e) {
       System.err.println("exception occurred" + e);
+      verboseDebug = false;
     }
   }
 
   static boolean verboseDebug;
-  static boolean debug;
 
-  static void log(String format, Object ... args) {
-    if (debug) {
-      System.err.println(String.format(format, args));
-    }
-  }
+  /**
+   * Debug log, kept only when SEEKER_DEBUG is set and written out when the game ends
+   */
+  final Trace trace = new Trace();
 
   public static void main(String[] args) {
     Map<String, String> environment = System.getenv();
 
     // need to use environment variables because the command line is inaccessible
     verboseDebug = environment.containsKey("SEEKER_VERBOSE_DEBUG");
-    debug = environment.containsKey("SEEKER_DEBUG");
 
     Seeker seeker = new Seeker();
     seeker.run();
   }
 
+  /**
+   * Copy the score, the board and the states of the children from the
+   * turn, for markChildren() to pass on to the listeners.
+   */
+  void copyTurn(TurnSnapshot turn) {
+    // Copy the current game score.
+    score[Const.RED] = turn.score[Const.RED];
+    score[Const.BLUE] = turn.score[Const.BLUE];
+
+    // Copy the current map.
+    for (int i = 0; i < Const.SIZE; i++) {
+      System.arraycopy(turn.height[i], 0, height[i], 0, Const.SIZE);
+      System.arraycopy(turn.ground[i], 0, ground[i], 0, Const.SIZE);
+    }
+
+    // Copy the states of all the children.
+    for (int i = 0; i < Const.CCOUNT * 2; i++) {
+      updateChildState(i, turn.x[i], turn.y[i], turn.standing[i], turn.holding[i], turn.dazed[i]);
+    }
+  }
+
   void markChildren() {
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Player c = cList[i];
-      if (c.pos.x >= 0) {
-        ground[c.pos.x][c.pos.y] = GROUND_CHILD;
+      if (c.pos().x >= 0) {
+        ground[c.pos().x][c.pos().y] = GROUND_CHILD;
       }
     }
+    changes.update(height, ground, cList);
   }
 
   void readCurrentMap(Scanner in) {
@@ -2037,59 +2905,81 @@ public class Seeker {
         }
       }
     }
+    changes.update(height, ground, cList);
   }
 
   void readChildrenStates(Scanner in) {
     String token;
     for (int i = 0; i < Const.CCOUNT * 2; i++) {
       Player c = cList[i];
-      // keep track of attempts to catch snowballs
-      c.previousSnowballCount = c.currentSnowballCount();
-      c.previousPosition = new Point(c.pos.x, c.pos.y);
 
       // Can we see this child?
       token = in.next();
       if (token.equals("*")) {
-        c.pos.x = -1;
-        c.pos.y = -1;
+        updateChildState(i, -1, -1, c.standing(), c.holding(), c.dazed());
       }
       else {
-        // Record the child's location.
-        c.pos.x = Integer.parseInt(token);
-        c.pos.y = in.nextInt();
-
-        // set initial runTargets
-        // Compute child color based on it's index.
-        c.color = (i < Const.CCOUNT ? Const.RED : Const.BLUE);
-
-        // Read the stance, what the child is holding and how much
-        // longer he's dazed.
-        token = in.next();
-        c.standing = token.equals("S");
-
-        token = in.next();
-        c.holding = token.charAt(0) - 'a';
+        // Read the child's location, the stance, what the child is
+        // holding and how much longer he's dazed.
+        int x = Integer.parseInt(token);
+        int y = in.nextInt();
+        boolean standing = in.next().equals("S");
+        int holding = in.next().charAt(0) - 'a';
+        int dazed = in.nextInt();
 
-        c.dazed = in.nextInt();
+        updateChildState(i, x, y, standing, holding, dazed);
       }
+    }
+  }
 
-      if (i < Const.CCOUNT) {
-        if (c.pos.equals(c.previousPosition)) {
-          if (c.checkExcessiveDuration()) {
-            log("%s has been at %s for %d turns", c, c.pos, c.currentPositionDuration);
-          }
-          c.currentPositionDuration++;
-        }
-        else {
-          c.currentPositionDuration = 0;
+  /**
+   * Record the state of one child at the start of a turn
+   *
+   * @param i index of the child, our team first
+   * @param x column, or -1 if the child can't be seen
+   * @param y row, or -1 if the child can't be seen
+   * @param standing stance (ignored if the child can't be seen)
+   * @param holding what the child is holding (ignored if the child can't be seen)
+   * @param dazed remaining daze turns (ignored if the child can't be seen)
+   */
+  void updateChildState(int i, int x, int y, boolean standing, int holding, int dazed) {
+    Player c = cList[i];
+    // keep track of attempts to catch snowballs
+    c.previousSnowballCount = c.currentSnowballCount();
+    c.previousPosition = c.pos();
+
+    children.update(i, x, y, standing, holding, dazed, changes.turn());
+
+    if (i < Const.CCOUNT) {
+      if (c.pos().equals(c.previousPosition)) {
+        if (c.checkExcessiveDuration()) {
+          trace.record(Trace.Event.STUCK, i, Trace.point(c.pos()), c.currentPositionDuration);
         }
+        c.currentPositionDuration++;
+      }
+      else {
+        c.currentPositionDuration = 0;
+      }
 
-        if (c.missedCatch()) {
-          c.missedCatchCount++;
+      // a child going back and forth never stays put long enough for the above
+      if (x >= 0 && !c.pos().equals(c.previousPosition)) {
+        long key = StateKeys.child(i, x, y, standing, holding);
+        long seen = visits.get(key, Integer.MIN_VALUE);
+        if (changes.turn() - seen <= OSCILLATION_WINDOW) {
+          c.revisits++;
+          trace.record(Trace.Event.OSCILLATING, i, Trace.point(c.pos()), c.revisits);
         }
         else {
-          c.missedCatchCount = 0;
+          c.revisits = 0;
         }
+        visits.put(key, changes.turn());
+      }
+
+      if (c.missedCatch()) {
+        c.missedCatchCount++;
+      }
+      else {
+        c.missedCatchCount = 0;
       }
     }
   }
@@ -0,0 +1,145 @@
+package oocl.icypc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * Flight Recorder events for Seeker, so a recording of a game shows what
+ * the bot was doing as well as where the time went.
+ *
+ * <pre>
+ *   java -XX:StartFlightRecording=filename=seeker.jfr -Xlog:jfr+startup=off oocl.icypc.Seeker
+ * </pre>
+ *
+ * The startup message has to be turned off, since it goes to stdout and
+ * the engine would read it as moves.
+ *
+ * Until Flight Recorder starts Seeker doesn't make the events at all, so
+ * its turns allocate nothing whether or not the compiler could have
+ * removed them.
+ */
+final class SeekerEvents {
+
+  private SeekerEvents() {
+  }
+
+  /** True once Flight Recorder has started, and events are worth making. */
+  static boolean recording() {
+    return FlightRecorder.isInitialized();
+  }
+
+  @Name("oocl.icypc.TurnParsed")
+  @Label("Turn Parsed")
+  @Category({"ICYPC", "Seeker"})
+  @Description("Reading a turn's state into Seeker's board")
+  static final class TurnParsed extends Event {
+    @Label("Turn")
+    int turn;
+
+    @Label("Visible Enemies")
+    int visibleEnemies;
+  }
+
+  @Name("oocl.icypc.ChildDecision")
+  @Label("Child Decision")
+  @Category({"ICYPC", "Seeker"})
+  @Description("One child's chooseMove and the branch it took")
+  static final class ChildDecision extends Event {
+    @Label("Turn")
+    int turn;
+
+    @Label("Child")
+    int child;
+
+    @Label("Branch")
+    String branch;
+
+    @Label("Action")
+    String action;
+  }
+
+  @Name("oocl.icypc.PathSearch")
+  @Label("Path Search")
+  @Category({"ICYPC", "Seeker"})
+  @Description("Breadth-first search over the board")
+  static final class PathSearch extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Start")
+    String start;
+
+    @Label("Target")
+    String target;
+
+    @Label("Nodes")
+    @Description("Cells reached by the search")
+    int nodes;
+
+    @Label("Path Length")
+    @Description("Cells on the path found, 0 if there is none")
+    int length;
+
+    /** A search begun now, or null if there's no recording. */
+    static PathSearch start() {
+      if (!recording()) {
+        return null;
+      }
+      PathSearch search = new PathSearch();
+      search.begin();
+      return search;
+    }
+
+    /** Commit the search begun by start(), if there is one. */
+    static void end(PathSearch search, String kind, Point start, Point target, int nodes, int length) {
+      if (search != null && search.shouldCommit()) {
+        search.kind = kind;
+        search.start = start.toString();
+        search.target = target.toString();
+        search.nodes = nodes;
+        search.length = length;
+        search.commit();
+      }
+    }
+  }
+
+  @Name("oocl.icypc.TrajectoryCheck")
+  @Label("Trajectory Check")
+  @Category({"ICYPC", "Seeker"})
+  @Description("Checking a throw's path for obstacles")
+  static final class TrajectoryCheck extends Event {
+    @Label("Path Length")
+    int length;
+
+    @Label("Target")
+    String target;
+
+    @Label("Accurate")
+    boolean accurate;
+
+    /** A check begun now, or null if there's no recording. */
+    static TrajectoryCheck start() {
+      if (!recording()) {
+        return null;
+      }
+      TrajectoryCheck check = new TrajectoryCheck();
+      check.begin();
+      return check;
+    }
+
+    /** Commit the check begun by start(), if there is one. */
+    static void end(TrajectoryCheck check, int length, Point target, boolean accurate) {
+      if (check != null && check.shouldCommit()) {
+        check.length = length;
+        check.target = target.toString();
+        check.accurate = accurate;
+        check.commit();
+      }
+    }
+  }
+}
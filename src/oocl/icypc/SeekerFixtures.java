@@ -0,0 +1,134 @@
+package oocl.icypc;
+
+/**
+ * Board states in the engine's text format, shared by the tests and the
+ * benchmarks.
+ */
+final class SeekerFixtures {
+
+  /**
+   * Opening turn as seen by red: the four children in the corner and
+   * nothing else visible.
+   */
+  static final String INITIAL_MAP = "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "0 2 S a 0\n"
+      + "1 2 S a 0\n"
+      + "2 1 S a 0\n"
+      + "2 0 S a 0\n"
+      + "* *\n"
+      + "* * \n"
+      + "* * \n"
+      + "* *";
+
+  /**
+   * Mid-game map with trees, snowmen and all eight children in view, but
+   * without the children's states.
+   */
+  static final String BUSY_MAP = "* 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * *\n"
+      + "* 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
+      + "* 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 9i 0a 3a 3a 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 4c 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 6i 0a 3a 3a 3a 3a 3a 3a 0b 3a 3a 3a 3a 3a 3a 3a 0a 3a 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 3a * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 0a 0a 0a 2a 3a 3a 3a 3a * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 0a 3k 3a 3k 3a 3a 3a 3a * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 0a 2a 3a 3a * * * * * *\n"
+      + "* * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 0b 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a * * * * * * *\n"
+      + "3a 3a 3k 3a 3a 3a 3a 3a 4c 3a 3a 3a 0a 2a 3a 0b 3a 3a 3a 3a 3a 3a 3a 0k * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 8g 0a 1a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
+      + "* * * * * * * * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * *";
+
+  /**
+   * Turn 53 of a recorded game, map and children.
+   */
+  static final String TURN_53 = "* * * * * * * * * * * * * * * * * * * * * 3a 3a 3a 3a 3a 3a 3a * * *\n"
+      + "* * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a *\n"
+      + "* * 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3k 2a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 9i 0a 9i 3a 3a 3a 3a 3a 0b 3a 3a 3a 3a 3a 3a 9i 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 0k 7f\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
+      + "3a 3a 3a 3a 3a 3a 3a 9i 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 0a 9i 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 6j 3a 3a 3a 3a 3a 3a * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 0b 3a 3a 3k 3a 3a 3a 0b 3a 3a 3a 3a 3a * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3f 3k 3a * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3k * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 9i 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
+      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
+      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * *\n"
+      + "* * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * *\n"
+      + "7 24 S a 0\n"
+      + "15 11 S e 0\n"
+      + "13 10 S e 0\n"
+      + "10 14 S e 0\n"
+      + "22 14 C b 0\n"
+      + "9 29 S a 4\n"
+      + "-1 -1 C a 0\n"
+      + "21 15 S a 0\n";
+
+  private SeekerFixtures() {
+  }
+}
@@ -0,0 +1,187 @@
+package oocl.icypc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The numbers Seeker's judgement hangs on, such as how close an enemy has
+ * to be before a child tries to catch its snowball, gathered in one place
+ * so they can be tuned without touching the code.
+ *
+ * A profile is a properties file with a value for any of the parameters;
+ * the rest keep their defaults.  If SEEKER_PARAMS names a profile, every
+ * Seeker plays by it.  Each parameter also has a range that SeekerTuner
+ * searches within; a profile can go outside it.
+ */
+final class SeekerParams {
+
+  /** Environment variable naming the profile; defaults if unset. */
+  static final String PROFILE_ENV = "SEEKER_PARAMS";
+
+  /** A tunable number, with its property name, default and search range. */
+  enum Param {
+    /** Furthest an armed enemy can be for a child to wait to catch its snowball. */
+    CATCH_RANGE("catch.range", 8, 2, 16, true),
+    /** How close an armed enemy has to be to one of our snowmen to defend it. */
+    DEFENSE_RANGE("defense.range", 10, 4, 16, true),
+    /** How close one of our snowmen has to be for a child to stand guard over it. */
+    GUARD_RANGE("guard.range", 3, 2, 8, true),
+    /** How close a partly built snowman has to be to go and finish it. */
+    PARTIAL_RANGE("partial.range", 5, 2, 10, true),
+    /** How close a partly built snowman has to be for a builder to give up its own site for it. */
+    BUILDER_PARTIAL_RANGE("builder.partial.range", 8, 3, 16, true),
+    /** Fraction of a zone out of sight that makes it worth looking into. */
+    DARK_ZONE_RATIO("dark.zone.ratio", 0.30, 0.05, 0.80, false),
+    /** Turns in one spot before a child with nothing to do counts as stuck. */
+    IDLE_TURNS("stuck.idle.turns", 15, 4, 40, true),
+    /** Turns in one spot before a child that is building counts as stuck. */
+    BUILDING_TURNS("stuck.building.turns", 5, 2, 20, true);
+
+    final String key;
+    final double defaultValue;
+    final double min;
+    final double max;
+    final boolean integer;
+
+    Param(String key, double defaultValue, double min, double max, boolean integer) {
+      this.key = key;
+      this.defaultValue = defaultValue;
+      this.min = min;
+      this.max = max;
+      this.integer = integer;
+    }
+  }
+
+  static final SeekerParams DEFAULTS = new SeekerParams(defaultValues());
+
+  final int catchRange;
+  final int defenseRange;
+  final int guardRange;
+  final int partialRange;
+  final int builderPartialRange;
+  final double darkZoneRatio;
+  final int idleTurns;
+  final int buildingTurns;
+
+  private final double[] values;
+
+  /**
+   * @param values a value for each Param, by ordinal; integer parameters are rounded
+   */
+  SeekerParams(double[] values) {
+    if (values.length != Param.values().length) {
+      throw new IllegalArgumentException("expected " + Param.values().length + " values");
+    }
+    this.values = values.clone();
+    for (Param p : Param.values()) {
+      if (p.integer) {
+        this.values[p.ordinal()] = Math.round(values[p.ordinal()]);
+      }
+    }
+    catchRange = intValue(Param.CATCH_RANGE);
+    defenseRange = intValue(Param.DEFENSE_RANGE);
+    guardRange = intValue(Param.GUARD_RANGE);
+    partialRange = intValue(Param.PARTIAL_RANGE);
+    builderPartialRange = intValue(Param.BUILDER_PARTIAL_RANGE);
+    darkZoneRatio = value(Param.DARK_ZONE_RATIO);
+    idleTurns = intValue(Param.IDLE_TURNS);
+    buildingTurns = intValue(Param.BUILDING_TURNS);
+  }
+
+  private static double[] defaultValues() {
+    double[] values = new double[Param.values().length];
+    for (Param p : Param.values()) {
+      values[p.ordinal()] = p.defaultValue;
+    }
+    return values;
+  }
+
+  double value(Param p) {
+    return values[p.ordinal()];
+  }
+
+  int intValue(Param p) {
+    return (int) values[p.ordinal()];
+  }
+
+  /** The value of each Param, by ordinal. */
+  double[] values() {
+    return values.clone();
+  }
+
+  /** The profile named by SEEKER_PARAMS, or the defaults if it's unset. */
+  static SeekerParams fromEnvironment() {
+    String file = System.getenv(PROFILE_ENV);
+    if (file == null || file.isEmpty()) {
+      return DEFAULTS;
+    }
+    try {
+      return load(Paths.get(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException("can't read " + PROFILE_ENV + " profile " + file, e);
+    }
+  }
+
+  static SeekerParams load(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(in);
+    }
+    return from(properties);
+  }
+
+  /**
+   * The parameters given in the properties, with defaults for the rest.
+   *
+   * @throws IllegalArgumentException for a property that isn't a parameter
+   *     or a value that isn't a number
+   */
+  static SeekerParams from(Properties properties) {
+    double[] values = defaultValues();
+    for (String key : properties.stringPropertyNames()) {
+      Param param = null;
+      for (Param p : Param.values()) {
+        if (p.key.equals(key)) {
+          param = p;
+        }
+      }
+      if (param == null) {
+        throw new IllegalArgumentException("unknown parameter " + key);
+      }
+      values[param.ordinal()] = Double.parseDouble(properties.getProperty(key).trim());
+    }
+    return new SeekerParams(values);
+  }
+
+  Properties toProperties() {
+    Properties properties = new Properties();
+    for (Param p : Param.values()) {
+      properties.setProperty(p.key, p.integer ? Integer.toString(intValue(p)) : Double.toString(value(p)));
+    }
+    return properties;
+  }
+
+  /** Write every parameter to the profile, with the comment at the top. */
+  void save(Path file, String comment) throws IOException {
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      toProperties().store(out, comment);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Param p : Param.values()) {
+      sb.append(sb.length() == 0 ? "" : " ").append(p.key).append('=')
+          .append(p.integer ? Integer.toString(intValue(p)) : String.format("%.3f", value(p)));
+    }
+    return sb.toString();
+  }
+}
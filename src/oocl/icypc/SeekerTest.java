@@ -3,17 +3,35 @@ package oocl.icypc;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import icypc.Const;
+import icypc.Seeds;
+import icypc.sim.GameMap;
+import icypc.sim.GameState;
+import icypc.sim.Match;
+import icypc.sim.MoveList;
+import icypc.sim.PlayerStrategy;
+import icypc.sim.Rules;
+import icypc.sim.Simulator;
+import icypc.sim.TurnSnapshot;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.Scanner;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import oocl.icypc.Seeker.Player;
 import oocl.icypc.Seeker.Point;
 import oocl.icypc.Seeker.Point3;
@@ -26,117 +44,11 @@ import org.junit.jupiter.api.TestInstance.Lifecycle;
 @TestInstance(Lifecycle.PER_CLASS)
 class SeekerTest {
 
-  String initialMap = "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "0 2 S a 0\n"
-      + "1 2 S a 0\n"
-      + "2 1 S a 0\n"
-      + "2 0 S a 0\n"
-      + "* *\n"
-      + "* * \n"
-      + "* * \n"
-      + "* *";
-
-  String busyMap = "* 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * *\n"
-      + "* 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
-      + "* 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 9i 0a 3a 3a 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 4c 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 6i 0a 3a 3a 3a 3a 3a 3a 0b 3a 3a 3a 3a 3a 3a 3a 0a 3a 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 3a * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 0a 0a 0a 2a 3a 3a 3a 3a * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 0a 3k 3a 3k 3a 3a 3a 3a * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 0a 2a 3a 3a * * * * * *\n"
-      + "* * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 0b 3a 3a * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3a * * * * * * *\n"
-      + "3a 3a 3k 3a 3a 3a 3a 3a 4c 3a 3a 3a 0a 2a 3a 0b 3a 3a 3a 3a 3a 3a 3a 0k * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 8g 0a 1a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * *\n"
-      + "* * * * * * * * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * *";
-
-  String turn53 = "* * * * * * * * * * * * * * * * * * * * * 3a 3a 3a 3a 3a 3a 3a * * *\n"
-      + "* * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a *\n"
-      + "* * 2a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3k 2a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 9i 0a 9i 3a 3a 3a 3a 3a 0b 3a 3a 3a 3a 3a 3a 9i 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 0k 7f\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a\n"
-      + "3a 3a 3a 3a 3a 3a 3a 9i 3a 3a 3k 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 0a 9i 0a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 0a 6j 3a 3a 3a 3a 3a 3a * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 0b 3a 3a 3k 3a 3a 3a 0b 3a 3a 3a 3a 3a * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 2a 3f 3k 3a * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 0a 3a 0a 3a 3a 3a 3a 3a 3k * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 9i 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * *\n"
-      + "3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * *\n"
-      + "* 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * *\n"
-      + "* * 3a 3a 3a 3a 3a 3a 3a 3a 3a 3a * * * * * * * * * * * * * * * * * * *\n"
-      + "7 24 S a 0\n"
-      + "15 11 S e 0\n"
-      + "13 10 S e 0\n"
-      + "10 14 S e 0\n"
-      + "22 14 C b 0\n"
-      + "9 29 S a 4\n"
-      + "-1 -1 C a 0\n"
-      + "21 15 S a 0\n";
+  String initialMap = SeekerFixtures.INITIAL_MAP;
+
+  String busyMap = SeekerFixtures.BUSY_MAP;
+
+  String turn53 = SeekerFixtures.TURN_53;
 
   Seeker seeker = new Seeker();
 
@@ -185,18 +97,18 @@ class SeekerTest {
     Player player2 = players.get(2);
     Player player3 = players.get(3);
 
-    assertEquals(player0.pos, new Point(0, 2));
-    assertEquals(player1.pos, new Point(1, 2));
-    assertEquals(player2.pos, new Point(2, 1));
-    assertEquals(player3.pos, new Point(2, 0));
+    assertEquals(player0.pos(), new Point(0, 2));
+    assertEquals(player1.pos(), new Point(1, 2));
+    assertEquals(player2.pos(), new Point(2, 1));
+    assertEquals(player3.pos(), new Point(2, 0));
 
     // reposition everyone after a snowman has been planted
-    player0.pos = new Point(7, 23);
-    player1.pos = new Point(12, 13);
-    player2.pos = new Point(22, 7);
-    player3.pos = new Point(7, 7);
+    player0.moveTo(new Point(7, 23));
+    player1.moveTo(new Point(12, 13));
+    player2.moveTo(new Point(22, 7));
+    player3.moveTo(new Point(7, 7));
 
-    seeker.markVisibles(board, players.stream().map(e -> e.pos).collect(Collectors.toList()));
+    seeker.markVisibles(board, players.stream().map(Player::pos).collect(Collectors.toList()));
     for (Player player : players) {
       player.reposition();
     }
@@ -275,7 +187,7 @@ class SeekerTest {
   public void test8Neighbors() {
     Point center = new Point(15, 15);
     Player player = seeker.players().get(0);
-    player.pos = center;
+    player.moveTo(center);
 
     Point[] nearby = {
         new Point(15, 16),  // N
@@ -294,7 +206,8 @@ class SeekerTest {
   public void testClone() {
     Point p = new Point(3, 2);
     Point q = p.clone();
-    p.x = 4;
+    assertTrue(p != q);
+    assertEquals(p, q);
     assertEquals(q.x, 3);
     assertEquals(q.y, 2);
   }
@@ -315,8 +228,8 @@ class SeekerTest {
     };
 
     List<Player> players = seeker.players();
-    assertEquals(seeker.neighbors4(players.get(0).pos), Arrays.asList(neighbors0_4));
-    assertEquals(seeker.neighbors8(players.get(0).pos), Arrays.asList(neighbors0_8));
+    assertEquals(seeker.neighbors4(players.get(0).pos()), Arrays.asList(neighbors0_4));
+    assertEquals(seeker.neighbors8(players.get(0).pos()), Arrays.asList(neighbors0_8));
   }
 
   @Test
@@ -332,7 +245,7 @@ class SeekerTest {
     };
 
     for (int i = 0; i < points.length; i++) {
-      players.get(i).pos = points[i];
+      players.get(i).moveTo(points[i]);
     }
 
     seeker.markVisibles(board, Arrays.asList(points));
@@ -414,10 +327,10 @@ class SeekerTest {
     // "[23, 23]"  Blue
     // "[24, 16]"  Red
     List<Player> players = seeker.players();
-    players.get(0).pos = locs.get(0);
-    players.get(1).pos = locs.get(1);
-    players.get(2).pos = locs.get(4);
-    players.get(3).pos = locs.get(7);
+    players.get(0).moveTo(locs.get(0));
+    players.get(1).moveTo(locs.get(1));
+    players.get(2).moveTo(locs.get(4));
+    players.get(3).moveTo(locs.get(7));
 
     Player player1 = players.get(1);
     player1.reposition();
@@ -445,8 +358,8 @@ class SeekerTest {
     Point focus = new Point((int) (start.x + (dist * 3) * Math.cos(angle)),
         (int) (start.y + (dist * 3) * Math.sin(angle)));
 
-    List<Point3> path = seeker.interpolate(start, focus, 9);
-    assertTrue(seeker.isAccurateTrajectory(path, target));
+    assertEquals(13, seeker.interpolate(start, focus, 9).size());
+    assertTrue(seeker.isAccurateTrajectory(start, focus, 9, target));
   }
 
   @Test
@@ -463,4 +376,494 @@ class SeekerTest {
     assertEquals(path.size(), 2);
   }
 
+  @Test
+  public void testIncrementalIndexes() {
+    // each board differs from the last, so the indexes are updated, not built
+    Seeker s = new Seeker(1);
+    for (String map : Arrays.asList(initialMap, turn53, busyMap, initialMap)) {
+      Scanner in = new Scanner(new ByteArrayInputStream(map.getBytes()));
+      s.readCurrentMap(in);
+      if (in.hasNext()) {
+        s.readChildrenStates(in);
+        s.markChildren();
+      }
+      int[][] board = s.getGround();
+      for (int g = -1; g <= Seeker.GROUND_CHILD; g++) {
+        List<Point> scanned = new ArrayList<>();
+        for (int i = 0; i < Const.SIZE; i++) {
+          for (int j = 0; j < Const.SIZE; j++) {
+            if (board[i][j] == g) {
+              scanned.add(new Point(i, j));
+            }
+          }
+        }
+        assertEquals(scanned, s.itemsMatching(g));
+      }
+      for (Zone zone : Seeker.Zones) {
+        assertEquals(zone.hiddenCount(board), s.zoneStats.hiddenCount(zone));
+      }
+      assertEquals(s.visibleCount(board), s.zoneStats.visibleCount());
+    }
+  }
+
+  @Test
+  public void testBoardMemory() {
+    Seeker s = new Seeker(1);
+    s.changes.turn(1);
+    s.readCurrentMap(new Scanner(new ByteArrayInputStream(busyMap.getBytes())));
+    int[][] before = Arrays.stream(s.getGround()).map(int[]::clone).toArray(int[][]::new);
+    s.changes.turn(2);
+    s.readCurrentMap(new Scanner(new ByteArrayInputStream(initialMap.getBytes())));
+    int[][] board = s.getGround();
+    int remembered = 0;
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        if (board[i][j] >= 0) {
+          if (board[i][j] != Seeker.GROUND_CHILD) {
+            assertEquals(board[i][j], s.memory.ground(i, j));
+          }
+          assertEquals(2, s.memory.lastSeen(i, j));
+        } else if (before[i][j] >= 0) {
+          // out of sight now, but the trees and snowmen haven't gone anywhere
+          if (before[i][j] != Seeker.GROUND_CHILD) {
+            assertEquals(before[i][j], s.memory.ground(i, j));
+          }
+          assertEquals(1, s.memory.lastSeen(i, j));
+          remembered++;
+        } else {
+          assertEquals(BoardMemory.UNKNOWN, s.memory.ground(i, j));
+          assertEquals(-1, s.memory.lastSeen(i, j));
+        }
+      }
+    }
+    assertTrue(remembered > 0);
+  }
+
+  @Test
+  public void testStateKeys() {
+    Seeker s = new Seeker(1);
+    s.readCurrentMap(new Scanner(new ByteArrayInputStream(busyMap.getBytes())));
+    long busy = s.keys.board();
+    s.readCurrentMap(new Scanner(new ByteArrayInputStream(initialMap.getBytes())));
+    // kept up to date from the changes, the key is the same as one worked out from scratch
+    Seeker fresh = new Seeker(1);
+    fresh.readCurrentMap(new Scanner(new ByteArrayInputStream(initialMap.getBytes())));
+    assertEquals(fresh.keys.board(), s.keys.board());
+    assertNotEquals(busy, s.keys.board());
+
+    TranspositionTable table = new TranspositionTable(4);
+    table.put(s.keys.key(), 42);
+    assertEquals(42, table.get(s.keys.key(), -1));
+    assertEquals(-1, table.get(busy, -1));
+    // a full table keeps the newest entries
+    for (int i = 0; i < 100; i++) {
+      table.put(StateKeys.mix(busy, i), i);
+    }
+    assertEquals(99, table.get(StateKeys.mix(busy, 99), -1));
+  }
+
+  @Test
+  public void testTaskAssignment() {
+    int[] result = new int[3];
+    TaskAssignment.solve(new int[]{4, 1, 3, 2, 0, 5, 3, 2, 2}, 3, 3, result);
+    assertEquals(Arrays.asList(1, 0, 2), Arrays.stream(result).boxed().collect(Collectors.toList()));
+
+    // both children are nearest the first site, but only one of them goes there
+    TaskAssignment tasks = new TaskAssignment(2);
+    int near = tasks.add(TaskAssignment.BUILD, 5, 5);
+    int far = tasks.add(TaskAssignment.BUILD, 9, 9);
+    int never = tasks.add(TaskAssignment.DECAP, 20, 20);
+    assertEquals(near, tasks.add(TaskAssignment.BUILD, 5, 5));
+    tasks.cost(0, near, 1);
+    tasks.cost(0, far, 2);
+    tasks.cost(1, near, 2);
+    tasks.cost(1, far, 5);
+    tasks.cost(0, never, TaskAssignment.INFEASIBLE);
+    tasks.cost(1, never, TaskAssignment.FREE + 1);
+    tasks.solve();
+    assertEquals(far, tasks.task(0));
+    assertEquals(near, tasks.task(1));
+    assertEquals(-1, tasks.child(never));
+
+    // a task nobody was given is closed to everyone; one never listed isn't
+    List<Player> players = seeker.players();
+    seeker.tasks.clear();
+    int given = seeker.tasks.add(TaskAssignment.BUILD, 5, 5);
+    int left = seeker.tasks.add(TaskAssignment.BUILD, 9, 9);
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      seeker.tasks.cost(i, given, i == 1 ? 1 : TaskAssignment.INFEASIBLE);
+      seeker.tasks.cost(i, left, TaskAssignment.INFEASIBLE);
+    }
+    seeker.tasks.solve();
+    assertTrue(players.get(1).mayDo(TaskAssignment.BUILD, new Point(5, 5)));
+    assertFalse(players.get(0).mayDo(TaskAssignment.BUILD, new Point(5, 5)));
+    assertFalse(players.get(0).mayDo(TaskAssignment.BUILD, new Point(9, 9)));
+    assertFalse(players.get(1).mayDo(TaskAssignment.BUILD, new Point(9, 9)));
+    assertTrue(players.get(0).mayDo(TaskAssignment.BUILD, new Point(20, 20)));
+  }
+
+  @Test
+  public void testSeekerParams() throws IOException {
+    assertEquals(8, SeekerParams.DEFAULTS.catchRange);
+    assertEquals(3, SeekerParams.DEFAULTS.guardRange);
+    assertEquals(8, SeekerParams.DEFAULTS.builderPartialRange);
+    assertEquals(0.30, SeekerParams.DEFAULTS.darkZoneRatio, 1e-9);
+
+    // a profile only has to give the parameters it changes; integers are rounded
+    Properties properties = new Properties();
+    properties.setProperty("catch.range", "5.6");
+    properties.setProperty("dark.zone.ratio", "0.5");
+    SeekerParams params = SeekerParams.from(properties);
+    assertEquals(6, params.catchRange);
+    assertEquals(0.5, params.darkZoneRatio, 1e-9);
+    assertEquals(SeekerParams.DEFAULTS.idleTurns, params.idleTurns);
+
+    Path file = Files.createTempFile("seeker", ".properties");
+    try {
+      params.save(file, "test");
+      assertEquals(params.toString(), SeekerParams.load(file).toString());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testBuildPlanner() {
+    BuildPlanner planner = new BuildPlanner();
+    int[][] height = new int[Const.SIZE][Const.SIZE];
+    int[][] ground = new int[Const.SIZE][Const.SIZE];
+    for (int[] column : height) {
+      Arrays.fill(column, 3);
+    }
+
+    // a whole snowman from fresh snow, the same as the old template
+    BuildPlanner.Plan plan = planner.plan(BuildPlanner.pack(height, ground, 5, 5), Const.HOLD_EMPTY);
+    assertEquals(12, plan.length());
+    assertEquals(Const.GROUND_SMR, BuildPlanner.ground(plan.cells[plan.length()], plan.site()));
+    assertSame(plan, planner.plan(BuildPlanner.pack(height, ground, 5, 5), Const.HOLD_EMPTY));
+
+    // a snowball already in hand is used rather than put down
+    assertTrue(planner.plan(BuildPlanner.pack(height, ground, 5, 5), Const.HOLD_S1).length() < 13);
+
+    // a large and medium stack is finished with the small snowball lying beside it
+    ground[6][5] = Const.GROUND_LM;
+    ground[4][4] = Const.GROUND_S;
+    plan = planner.plan(BuildPlanner.pack(height, ground, 5, 5), Const.HOLD_EMPTY);
+    assertEquals(2, plan.length());
+    assertEquals(Rules.PICKUP, plan.action[0]);
+    assertEquals(Rules.DROP, plan.action[1]);
+    assertEquals(6, plan.site());
+
+    // nothing to build with among trees and snowmen of ours
+    for (int[] column : ground) {
+      Arrays.fill(column, Const.GROUND_TREE);
+    }
+    ground[4][5] = Const.GROUND_SMR;
+    assertNull(planner.plan(BuildPlanner.pack(height, ground, 5, 5), Const.HOLD_EMPTY));
+  }
+
+  @Test
+  public void testSearchGuess() {
+    GameState state = new GameState();
+    GameMap.defaultMap().initialize(state);
+    TurnSnapshot turn = new TurnSnapshot();
+    turn.fill(state, Const.RED);
+    SearchSeeker search = new SearchSeeker(1, 5);
+    search.chooseMoves(turn, new MoveList());
+
+    GameState world = new GameState();
+    search.guess(turn, world);
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        if (turn.ground[i][j] >= 0) {
+          assertEquals(turn.ground[i][j], world.ground[GameState.cell(i, j)]);
+          assertEquals(turn.height[i][j], world.height[GameState.cell(i, j)]);
+        }
+      }
+    }
+    // the enemies can't be seen yet, but they have to be somewhere
+    for (int e = Const.CCOUNT; e < GameState.CHILDREN; e++) {
+      int c = GameState.cell(world.cx[e], world.cy[e]);
+      assertFalse(Rules.GROUND_OBSTACLE[world.ground[c]]);
+      assertEquals(e, world.childAt(world.cx[e], world.cy[e]));
+    }
+    assertEquals(turn.score[0], world.score[Const.RED]);
+    assertEquals(turn.score[1], world.score[Const.BLUE]);
+  }
+
+  @Test
+  public void testBeliefsSkipTrees() {
+    TurnSnapshot turn = new TurnSnapshot();
+    for (int[] column : turn.ground) {
+      Arrays.fill(column, Const.GROUND_EMPTY);
+    }
+    turn.ground[10][11] = Const.GROUND_TREE;
+    turn.height[10][11] = Const.OBSTACLE_HEIGHT;
+    Arrays.fill(turn.x, -1);
+    Arrays.fill(turn.y, -1);
+    for (int i = 0; i < Const.CCOUNT; i++) {
+      turn.x[i] = 20 + i;
+      turn.y[i] = 20 + i;
+      turn.standing[i] = true;
+    }
+    turn.x[Const.CCOUNT] = 10;
+    turn.y[Const.CCOUNT] = 10;
+    turn.standing[Const.CCOUNT] = true;
+    Seeker s = new Seeker(1);
+    s.chooseMoves(turn, new MoveList());
+
+    // the enemy and the cells it could have run to go out of sight
+    turn.turn++;
+    turn.x[Const.CCOUNT] = -1;
+    turn.y[Const.CCOUNT] = -1;
+    for (int i = 2; i <= 18; i++) {
+      for (int j = 2; j <= 18; j++) {
+        turn.ground[i][j] = -1;
+        turn.height[i][j] = -1;
+      }
+    }
+    s.chooseMoves(turn, new MoveList());
+    assertEquals(0f, s.enemies.probability(0, 10, 11));
+    assertTrue(s.enemies.probability(0, 10, 9) > 0f);
+    assertNotEquals(new Point(10, 11), s.enemies.mostLikely(0));
+  }
+
+  @Test
+  public void testSteadyStateAllocation() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+      return;
+    }
+    GameState state = new GameState();
+    GameMap.defaultMap().initialize(state);
+    Simulator sim = new Simulator(state);
+    PlayerStrategy[] players = {new Seeker(3), Match.newLocalPlayer("icypc.Hunter", 3)};
+    TurnSnapshot[] views = {new TurnSnapshot(), new TurnSnapshot()};
+    MoveList[] moves = {new MoveList(), new MoveList()};
+
+    // after the opening, a turn only allocates when a cache fills or a list grows
+    int measured = 0;
+    int allocating = 0;
+    while (state.turn < 300) {
+      sim.beginTurn();
+      for (int side = 0; side < 2; side++) {
+        views[side].fill(state, side);
+        moves[side].clear();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        players[side].chooseMoves(views[side], moves[side]);
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+        if (side == Const.RED && state.turn >= 100) {
+          measured++;
+          allocating += bytes > 0 ? 1 : 0;
+        }
+        sim.setMoves(side, moves[side]);
+      }
+      sim.endTurn();
+    }
+    assertEquals(200, measured);
+    assertTrue(allocating <= 10, allocating + " of " + measured + " turns allocated");
+  }
+
+  @Test
+  public void testStuckChildrenDontOverflow() throws Exception {
+    // children get stuck a lot on map96, and repositioning once led to
+    // repositioning again in the same turn until the stack ran out
+    GameMap map = GameMap.load(Paths.get("maps", "map96.txt"));
+    Throwable[] failure = new Throwable[1];
+    Thread game = new Thread(null, () -> {
+      try {
+        new Match(map, new Seeker(Seeds.derive(13, Const.RED)),
+            Match.newLocalPlayer("icypc.Hunter", Seeds.derive(13, Const.BLUE))).play();
+      } catch (Throwable t) {
+        failure[0] = t;
+      }
+    }, "small-stack", 1 << 20);
+    game.start();
+    game.join();
+    assertNull(failure[0]);
+  }
+
+  @Test
+  public void testMovesLastTheTurn() {
+    Seeker s = new Seeker(1);
+    Scanner in = new Scanner(new ByteArrayInputStream(initialMap.getBytes()));
+    s.readCurrentMap(in);
+    s.readChildrenStates(in);
+    s.markChildren();
+    Player player = s.players().get(0);
+
+    // repositioning and moving on, as the recursion in a stuck turn does,
+    // makes many more moves than a turn usually does
+    Seeker.Move first = player.chooseMove();
+    Seeker.Move kept = new Seeker.Move().set(first);
+    for (int i = 0; i < 40; i++) {
+      player.reposition();
+      player.moveToTarget();
+    }
+    assertEquals(kept, first);
+
+    // the next turn reuses the moves
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+      return;
+    }
+    long before = threads.getCurrentThreadAllocatedBytes();
+    player.chooseMove();
+    for (int i = 0; i < 40; i++) {
+      player.reposition();
+      player.moveToTarget();
+    }
+    assertEquals(0, threads.getCurrentThreadAllocatedBytes() - before);
+  }
+
+  @Test
+  public void testMapLayout() throws IOException {
+    // a wall down the middle with a gap in it
+    int[][] height = new int[Const.SIZE][Const.SIZE];
+    int[][] ground = new int[Const.SIZE][Const.SIZE];
+    for (int j = 0; j < Const.SIZE; j++) {
+      if (j != 15) {
+        ground[15][j] = Const.GROUND_TREE;
+      }
+    }
+    Path dir = Files.createTempDirectory("layout");
+    try {
+      MapLayout layout = new MapLayout(dir);
+      TurnChanges changes = new TurnChanges();
+      changes.subscribe(layout);
+      changes.update(height, ground, new Player[0]);
+      assertFalse(layout.isCached());
+      assertTrue(layout.isChokepoint(15, 15));
+      assertFalse(layout.isChokepoint(14, 15));
+      assertTrue(layout.connected(new Point(0, 0), new Point(30, 30)));
+      assertEquals(-1, layout.region(15, 0));
+      // a turn diagonally and seven runs to the gap, and the same back
+      assertEquals(16, layout.distance(14, 0, 16, 0));
+      assertEquals(1, layout.distance(14, 15, 16, 15));
+      int corners = layout.distance(0, 0, 30, 30);
+      layout.save();
+
+      MapLayout again = new MapLayout(dir);
+      TurnChanges next = new TurnChanges();
+      next.subscribe(again);
+      next.update(height, ground, new Player[0]);
+      assertTrue(again.isCached());
+      assertEquals(layout.fingerprint(), again.fingerprint());
+      assertTrue(again.isChokepoint(15, 15));
+      assertEquals(layout.trees(), again.trees());
+      assertEquals(16, again.distance(14, 0, 16, 0));
+      assertEquals(corners, again.distance(30, 30, 0, 0));
+
+      // another map, with the gap somewhere else
+      ground[15][15] = Const.GROUND_TREE;
+      ground[15][14] = Const.GROUND_EMPTY;
+      ground[15][16] = Const.GROUND_EMPTY;
+      MapLayout other = new MapLayout(dir);
+      TurnChanges third = new TurnChanges();
+      third.subscribe(other);
+      third.update(height, ground, new Player[0]);
+      assertFalse(other.isCached());
+      assertFalse(other.isChokepoint(15, 15));
+      other.save();
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(2, files.count());
+      }
+
+      // a corner that agrees with both is too little to say which map it is
+      for (int i = 0; i < Const.SIZE; i++) {
+        for (int j = 0; j < Const.SIZE; j++) {
+          if (i > 5 || j > 5) {
+            ground[i][j] = -1;
+          }
+        }
+      }
+      MapLayout corner = new MapLayout(dir);
+      TurnChanges fourth = new TurnChanges();
+      fourth.subscribe(corner);
+      fourth.update(height, ground, new Player[0]);
+      corner.save();
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(3, files.count());
+      }
+    } finally {
+      try (Stream<Path> files = Files.list(dir)) {
+        for (Path f : (Iterable<Path>) files::iterator) {
+          Files.delete(f);
+        }
+      }
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void testChildTable() {
+    ChildTable table = new ChildTable();
+    int enemy = Const.CCOUNT;
+    table.update(enemy, 10, 12, true, Const.HOLD_S2, 0, 5);
+    table.update(enemy + 1, 20, 20, false, Const.HOLD_S1, 3, 5);
+    table.update(enemy + 2, 11, 12, true, Const.HOLD_EMPTY, 0, 5);
+    int armed = table.armed(ChildTable.THEIRS);
+    assertTrue(ChildTable.has(armed, enemy));
+    assertFalse(ChildTable.has(armed, enemy + 1)); // dazed
+    assertFalse(ChildTable.has(armed, enemy + 2)); // empty handed
+    assertEquals(1 << enemy, table.within(armed, 10, 14, 3));
+    assertEquals(0, table.within(armed, 10, 20, 3));
+
+    // out of sight, it keeps what it was holding and when it was seen
+    table.update(enemy, -1, -1, false, Const.HOLD_EMPTY, 0, 6);
+    assertFalse(table.isVisible(enemy));
+    assertEquals(Const.HOLD_S2, table.holding(enemy));
+    assertTrue(table.standing(enemy));
+    assertEquals(5, table.lastSeen(enemy));
+    assertEquals(1 << enemy, table.armed(ChildTable.THEIRS & ~table.visible()));
+  }
+
+  @Test
+  public void testForbiddenDestinations() {
+    Seeker s = new Seeker(1);
+    Scanner in = new Scanner(new ByteArrayInputStream(initialMap.getBytes()));
+    s.readCurrentMap(in);
+    s.readChildrenStates(in);
+    s.markChildren();
+    List<Player> players = s.players();
+    Player player = players.get(0);
+
+    // moving on from a run target the child reached
+    Point p = new Point(10, 10);
+    player.moveTo(p);
+    player.setRunTarget(p);
+    s.changes.turn(20);
+    player.reposition();
+    assertNotEquals(p, player.runTarget);
+    assertTrue(player.forbidden(p));
+    s.changes.turn(20 + Player.VISIT_MEMORY - 1);
+    assertTrue(player.forbidden(p));
+    s.changes.turn(20 + Player.VISIT_MEMORY);
+    assertFalse(player.forbidden(p));
+
+    // the cells around a teammate's run target
+    players.get(1).setRunTarget(new Point(12, 12));
+    player.reposition();
+    assertTrue(player.forbidden(new Point(11, 11)));
+    assertTrue(player.forbidden(new Point(13, 13)));
+
+    // a new position in a zone steers clear of where the child has been
+    Zone zone = Seeker.zoneContaining(new Point(20, 20));
+    for (Point q : zone.points) {
+      if ((q.x + q.y) % 2 == 0) {
+        player.visited(q);
+      }
+    }
+    for (int i = 0; i < 20; i++) {
+      assertFalse(player.forbidden(player.unvisitedPosition(zone)));
+    }
+
+    // and a task next to where it was posted costs it more than a teammate
+    assertEquals(Player.REVISIT_COST, player.revisitCost(new Point(21, 21)));
+    assertEquals(0, player.revisitCost(new Point(5, 5)));
+    assertEquals(0, players.get(1).revisitCost(new Point(21, 21)));
+  }
+
 } // class
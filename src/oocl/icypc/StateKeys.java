@@ -0,0 +1,129 @@
+package oocl.icypc;
+
+import icypc.Const;
+import java.util.SplittableRandom;
+import oocl.icypc.Seeker.Player;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * 64-bit Zobrist keys for what Seeker can see: one random number for
+ * each cell with each ground and each height, and for each child with
+ * each position, stance and holding, XORed together.  Two boards with
+ * the same key are, for practical purposes, the same board, so a key can
+ * stand for a position in a TranspositionTable.
+ *
+ * The board key is kept up to date from each turn's changed cells,
+ * XORing out the old value of a cell and in the new one, so it costs
+ * nothing for the cells that didn't change.  The children are few enough
+ * that their keys are worked out afresh on every update.  Hidden cells
+ * have a ground and height of -1, and hidden children their own position,
+ * like any other value.  The numbers are the same in every game, so keys
+ * can be compared across games.
+ */
+final class StateKeys implements TurnChanges.Listener {
+
+  private static final int CELLS = TurnChanges.CELLS;
+
+  /** Grounds from -1 (hidden) to Seeker.GROUND_CHILD. */
+  private static final int GROUNDS = Seeker.GROUND_CHILD + 2;
+
+  /** Heights from -1 (hidden) up; taller piles share the last key. */
+  private static final int HEIGHTS = 16;
+
+  private static final int HOLDINGS = Const.HOLD_L + 1;
+
+  private static final long[] GROUND = new long[CELLS * GROUNDS];
+  private static final long[] HEIGHT = new long[CELLS * HEIGHTS];
+
+  /** Position of each child, with CELLS for out of sight. */
+  private static final long[] POSITION = new long[2 * Const.CCOUNT * (CELLS + 1)];
+  private static final long[] STANDING = new long[2 * Const.CCOUNT];
+  private static final long[] HOLDING = new long[2 * Const.CCOUNT * HOLDINGS];
+
+  static {
+    SplittableRandom rnd = new SplittableRandom(0x5EEC4E25L);
+    for (long[] keys : new long[][]{GROUND, HEIGHT, POSITION, STANDING, HOLDING}) {
+      for (int k = 0; k < keys.length; k++) {
+        keys[k] = rnd.nextLong();
+      }
+    }
+  }
+
+  private final Player[] cList;
+
+  private long board;
+
+  private final long[] children = new long[2 * Const.CCOUNT];
+
+  StateKeys(Player[] cList) {
+    this.cList = cList;
+  }
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      if (changes.oldGround(k) != TurnChanges.UNSEEN) {
+        board ^= cell(c, changes.oldHeight(k), changes.oldGround(k));
+      }
+      board ^= cell(c, height[TurnChanges.x(c)][TurnChanges.y(c)],
+          ground[TurnChanges.x(c)][TurnChanges.y(c)]);
+    }
+    for (int i = 0; i < children.length; i++) {
+      Player p = cList[i];
+      Point pos = p.pos();
+      children[i] = pos.x < 0 ? child(i, -1, -1, false, Const.HOLD_EMPTY)
+          : child(i, pos.x, pos.y, p.standing(), p.holding());
+    }
+  }
+
+  /** The key of a cell with the height and ground. */
+  static long cell(int c, int height, int ground) {
+    return GROUND[c * GROUNDS + ground + 1] ^ HEIGHT[c * HEIGHTS + Math.min(height + 1, HEIGHTS - 1)];
+  }
+
+  /** The key of child i in the cell, or out of sight if x is negative. */
+  static long child(int i, int x, int y, boolean standing, int holding) {
+    if (x < 0) {
+      return POSITION[i * (CELLS + 1) + CELLS];
+    }
+    long key = POSITION[i * (CELLS + 1) + TurnChanges.cell(x, y)] ^ HOLDING[i * HOLDINGS + holding];
+    return standing ? key ^ STANDING[i] : key;
+  }
+
+  /** Key of the board: every cell's height and ground. */
+  long board() {
+    return board;
+  }
+
+  /** Key of child i's position, stance and holding. */
+  long child(int i) {
+    return children[i];
+  }
+
+  /** Key of all the children, leaving out the board. */
+  long children() {
+    long key = 0;
+    for (long k : children) {
+      key ^= k;
+    }
+    return key;
+  }
+
+  /** Key of the board and all the children. */
+  long key() {
+    return board ^ children();
+  }
+
+  /**
+   * A key for the value together with the key, such as a move made from
+   * the position the key stands for.  Unlike XOR, mixing the same value
+   * in twice doesn't cancel out.
+   */
+  static long mix(long key, long value) {
+    long z = key + 0x9E3779B97F4A7C15L * (value + 1);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
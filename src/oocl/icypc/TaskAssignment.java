@@ -0,0 +1,236 @@
+package oocl.icypc;
+
+import java.util.Arrays;
+
+/**
+ * This turn's tasks for the team and which child does each, so that no
+ * two children set off to do the same thing.
+ *
+ * Seeker lists the tasks worth doing and what each would cost each child,
+ * and the Hungarian algorithm finds the assignment with the lowest total
+ * cost, at most one task per child and one child per task.  Every child
+ * also gets a column of its own costing FREE, so a child is only given a
+ * task that costs it less than that, and is otherwise left to its own
+ * devices; costs of INFEASIBLE or more mean the child can't do the task at
+ * all.  The tasks, the costs and the solver's working storage are kept in
+ * primitive arrays reused every turn.
+ */
+final class TaskAssignment {
+
+  /** Finish a partly built snowman. */
+  static final int BUILD = 1;
+
+  /** Stand between one of our snowmen and an armed enemy. */
+  static final int DEFEND = 2;
+
+  /** Knock the head off one of their snowmen. */
+  static final int DECAP = 3;
+
+  static final int FREE = 1000;
+
+  static final int INFEASIBLE = 1 << 20;
+
+  private static final int MAX_TASKS = 64;
+
+  private final int rows;
+
+  private int count;
+  private final int[] kind = new int[MAX_TASKS];
+  private final int[] x = new int[MAX_TASKS];
+  private final int[] y = new int[MAX_TASKS];
+
+  private final int[] cost;
+
+  /** Task of each child, or -1. */
+  private final int[] assigned;
+
+  // scratch for solve()
+  private final int[] column;
+  private final Work work;
+
+  /**
+   * @param rows number of children to assign
+   */
+  TaskAssignment(int rows) {
+    this.rows = rows;
+    cost = new int[rows * (MAX_TASKS + rows)];
+    assigned = new int[rows];
+    column = new int[rows];
+    work = new Work(rows, MAX_TASKS + rows);
+    clear();
+  }
+
+  /** Start a new turn with no tasks. */
+  void clear() {
+    count = 0;
+    Arrays.fill(assigned, -1);
+  }
+
+  /**
+   * Add a task unless it's already there.  All the tasks must be added
+   * before any costs are set.
+   *
+   * @return the task's index, or -1 if there are too many
+   */
+  int add(int kind, int x, int y) {
+    int t = find(kind, x, y);
+    if (t >= 0) {
+      return t;
+    }
+    if (count == MAX_TASKS) {
+      return -1;
+    }
+    this.kind[count] = kind;
+    this.x[count] = x;
+    this.y[count] = y;
+    return count++;
+  }
+
+  /** Index of the task, or -1 if it wasn't added. */
+  int find(int kind, int x, int y) {
+    for (int t = 0; t < count; t++) {
+      if (this.kind[t] == kind && this.x[t] == x && this.y[t] == y) {
+        return t;
+      }
+    }
+    return -1;
+  }
+
+  int count() {
+    return count;
+  }
+
+  int kind(int task) {
+    return kind[task];
+  }
+
+  int x(int task) {
+    return x[task];
+  }
+
+  int y(int task) {
+    return y[task];
+  }
+
+  /** Set what the task would cost the child. */
+  void cost(int child, int task, int c) {
+    cost[child * (count + rows) + task] = c;
+  }
+
+  /** Assign the tasks, once every cost has been set. */
+  void solve() {
+    int cols = count + rows;
+    for (int i = 0; i < rows; i++) {
+      for (int j = count; j < cols; j++) {
+        cost[i * cols + j] = j - count == i ? FREE : INFEASIBLE;
+      }
+    }
+    solve(cost, rows, cols, column, work);
+    for (int i = 0; i < rows; i++) {
+      int t = column[i];
+      assigned[i] = t < count && cost[i * cols + t] < FREE ? t : -1;
+    }
+  }
+
+  /** The task the child was given, or -1. */
+  int task(int child) {
+    return assigned[child];
+  }
+
+  /** The child given the task, or -1. */
+  int child(int task) {
+    for (int i = 0; i < rows; i++) {
+      if (assigned[i] == task) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The assignment of rows to columns with the lowest total cost, by the
+   * Hungarian algorithm with potentials, in O(rows^2 cols).
+   *
+   * @param cost row-major rows x cols costs, with rows <= cols
+   * @param result the column of each row
+   */
+  static void solve(int[] cost, int rows, int cols, int[] result) {
+    solve(cost, rows, cols, result, new Work(rows, cols));
+  }
+
+  /** Working storage for solve(), big enough for up to rows x cols. */
+  private static final class Work {
+    final long[] u;
+    final long[] v;
+    final int[] match;
+    final int[] way;
+    final long[] min;
+    final boolean[] used;
+
+    Work(int rows, int cols) {
+      u = new long[rows + 1];
+      v = new long[cols + 1];
+      match = new int[cols + 1];
+      way = new int[cols + 1];
+      min = new long[cols + 1];
+      used = new boolean[cols + 1];
+    }
+  }
+
+  private static void solve(int[] cost, int rows, int cols, int[] result, Work work) {
+    // 1-based, with row and column 0 as sentinels
+    long[] u = work.u;
+    long[] v = work.v;
+    int[] match = work.match;
+    int[] way = work.way;
+    long[] min = work.min;
+    boolean[] used = work.used;
+    Arrays.fill(u, 0, rows + 1, 0L);
+    Arrays.fill(v, 0, cols + 1, 0L);
+    Arrays.fill(match, 0, cols + 1, 0);
+    for (int i = 1; i <= rows; i++) {
+      match[0] = i;
+      int j0 = 0;
+      Arrays.fill(min, 0, cols + 1, Long.MAX_VALUE);
+      Arrays.fill(used, 0, cols + 1, false);
+      do {
+        used[j0] = true;
+        int i0 = match[j0];
+        long delta = Long.MAX_VALUE;
+        int j1 = 0;
+        for (int j = 1; j <= cols; j++) {
+          if (!used[j]) {
+            long c = cost[(i0 - 1) * cols + j - 1] - u[i0] - v[j];
+            if (c < min[j]) {
+              min[j] = c;
+              way[j] = j0;
+            }
+            if (min[j] < delta) {
+              delta = min[j];
+              j1 = j;
+            }
+          }
+        }
+        for (int j = 0; j <= cols; j++) {
+          if (used[j]) {
+            u[match[j]] += delta;
+            v[j] -= delta;
+          } else {
+            min[j] -= delta;
+          }
+        }
+        j0 = j1;
+      } while (match[j0] != 0);
+      do {
+        int j1 = way[j0];
+        match[j0] = match[j1];
+        j0 = j1;
+      } while (j0 != 0);
+    }
+    for (int j = 1; j <= cols; j++) {
+      if (match[j] != 0) {
+        result[match[j] - 1] = j - 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package oocl.icypc;
+
+import icypc.sim.Rules;
+import java.io.PrintStream;
+
+/**
+ * Seeker's debug log, kept as fixed-width binary records in a ring buffer
+ * and only turned into text when it is dumped.
+ *
+ * Each record is the turn, the event, the child it concerns (-1 for none)
+ * and up to six ints.  Points are packed into one int with point(), and
+ * actions are stored as their protocol codes, so recording allocates
+ * nothing; the event's format and argument kinds say how to decode them.
+ *
+ * Enabled by the SEEKER_DEBUG environment variable.  When it isn't set
+ * ENABLED is a constant false, record() returns straight away and the
+ * compiler drops the calls, arguments and all, as long as working out the
+ * arguments has no side effects.
+ */
+final class Trace {
+  /** Environment variable that turns tracing on. */
+  static final String DEBUG_ENV = "SEEKER_DEBUG";
+
+  static final boolean ENABLED = System.getenv(DEBUG_ENV) != null;
+
+  /** Records kept; older ones are overwritten. */
+  static final int CAPACITY = 1 << 16;
+
+  /** Ints per record: turn, event, child and the arguments. */
+  private static final int WIDTH = 9;
+
+  private static final int ARGS = WIDTH - 3;
+
+  /** Packed value of a null point. */
+  static final int NO_POINT = Integer.MIN_VALUE;
+
+  /** How an argument is turned back into text. */
+  enum Kind {
+    INT, POINT, ACTION, ZONE, CHILD, TARGET, STANCE
+  }
+
+  private static final Kind I = Kind.INT;
+  private static final Kind P = Kind.POINT;
+  private static final Kind A = Kind.ACTION;
+  private static final Kind Z = Kind.ZONE;
+  private static final Kind C = Kind.CHILD;
+  private static final Kind T = Kind.TARGET;
+  private static final Kind S = Kind.STANCE;
+
+  /** Everything Seeker logs, with its message and argument kinds. */
+  enum Event {
+    TURN("---------------- Turn %d ----------------", I),
+    CHILD_STATE("pos:%s dest:%s zone:%d hold:%d stand:%s dazed:%d", P, P, I, I, S, I),
+    TRAJECTORY_FRIENDLY("invalid trajectory: friendly at %s, height %d", P, I),
+    TRAJECTORY_OBSTACLE("invalid trajectory: obstacle at %s, height %d", P, I),
+    PATH(" => path from %s to %s is %d steps", P, P, I),
+    ENCROACHED("snowman at %s is encroached at %d points, nearest %s", P, I, P),
+    REPOSITION_ENCROACHMENT("is repositioning to encroachment at %s", P),
+    REPOSITION_HOT_ZONE("is repositioning to hot zone: %s", Z),
+    REPOSITIONING("is repositioning. Current zone is %s", Z),
+    REPOSITION_DARK_ZONE("is repositioning to dark zone: %s", Z),
+    DEFENSIVE_MOVE("defensive move to %s", P),
+    MOVING_TOWARD("is moving toward %s", P),
+    TARGET_INVISIBLE(" => %s is invisible, temporary dest is %s", P, P),
+    DEST_OCCUPIED(" => %s is occupied (%d)", P, I),
+    ALL_BLOCKED(" => unable to move to target at %s, all neighbors of %s are blocked", P, P),
+    UNREACHABLE(" => %s is unreachable, temporary dest is %s", P, P),
+    UNREACHABLE_IDLE(" => %s is unreachable, idling", P),
+    NO_PLAYER_NEAR("There must be a player close to %s", P),
+    SEES_TARGETS("sees %d targets, nearest at %s", I, P),
+    OVERTHROW("  => overthrow = %d, interpolate %s to %s is %d steps", I, P, P, I),
+    THROW("*** distance %d to target %s: %s, p1:%s, h:%d", I, T, P, P, I),
+    DROP_LARGE("is dropping a large snowball at %s", P),
+    TO_SNOWBALL("%s to %s to pick up a snowball at %s", A, P, P),
+    DECAP("decap snowman at %s", P),
+    RUN_TARGET_BLOCKED("runTarget is blocked"),
+    RUN_TARGET_STILL_BLOCKED("runTarget is still blocked, choosing nearby"),
+    CATCH("is preparing to catch snowball from %s", P),
+    CHOICE_THREAT("choice is threat response"),
+    CHOICE_FINISH("choice is to finish existing snowman"),
+    CHOICE_OPPORTUNISTIC("choice is opportunistic build"),
+    ACQUIRING("is acquiring a snowball"),
+    CHOICE_STAND("choice is to stand for navigation"),
+    CHOICE_NAVIGATION("choice is navigation"),
+    CHOICE_NEW_BUILD("choice is new build"),
+    CHOICE_CONTINUE("choice is continue building"),
+    FOUND_PARTIAL("found partial (%d) at %s, build state %d", I, P, I),
+    TO_PARTIAL("moving toward partial snowman at %s", P),
+    BUILD_SITE("building snowman at %s in %d steps", P, I),
+    NO_BUILD_SITE("=> no suitable snowman site found nearby"),
+    LEFT_BUILD_SITE("moved away from building site, returning to %s", P),
+    FURTHEST_VISIBLE(" => furthest visible point between %s and %s is %s", P, P, P),
+    BEST_DESTINATION("  => Best choice is %s", P),
+    CONFLICT("action conflicts with %s", C),
+    ACTION("action is %s", A),
+    ACTION_TO("action is %s %s", A, P),
+    STUCK("has been at %s for %d turns", P, I),
+    OSCILLATING("is back at %s, %d turns in a row", P, I),
+    TASK("has task %d at %s", I, P);
+
+    final String format;
+
+    final Kind[] args;
+
+    Event(String format, Kind... args) {
+      if (args.length > ARGS) {
+        throw new IllegalArgumentException(name() + " has too many arguments");
+      }
+      this.format = format;
+      this.args = args;
+    }
+  }
+
+  private final int[] records = ENABLED ? new int[CAPACITY * WIDTH] : null;
+
+  /** Records written so far; the next one goes at next % CAPACITY. */
+  private long next;
+
+  private int turn;
+
+  /** Stamp the following records with this turn. */
+  void turn(int turn) {
+    this.turn = turn;
+  }
+
+  static int point(Seeker.Point p) {
+    return p == null ? NO_POINT : point(p.x, p.y);
+  }
+
+  static int point(int x, int y) {
+    return (x << 16) | (y & 0xFFFF);
+  }
+
+  static int action(String action) {
+    return Rules.actionCode(action);
+  }
+
+  void record(Event e, int child) {
+    if (ENABLED) {
+      put(e, child, 0, 0, 0, 0, 0, 0);
+    }
+  }
+
+  void record(Event e, int child, int a) {
+    if (ENABLED) {
+      put(e, child, a, 0, 0, 0, 0, 0);
+    }
+  }
+
+  void record(Event e, int child, int a, int b) {
+    if (ENABLED) {
+      put(e, child, a, b, 0, 0, 0, 0);
+    }
+  }
+
+  void record(Event e, int child, int a, int b, int c) {
+    if (ENABLED) {
+      put(e, child, a, b, c, 0, 0, 0);
+    }
+  }
+
+  void record(Event e, int child, int a, int b, int c, int d) {
+    if (ENABLED) {
+      put(e, child, a, b, c, d, 0, 0);
+    }
+  }
+
+  void record(Event e, int child, int a, int b, int c, int d, int f) {
+    if (ENABLED) {
+      put(e, child, a, b, c, d, f, 0);
+    }
+  }
+
+  void record(Event e, int child, int a, int b, int c, int d, int f, int g) {
+    if (ENABLED) {
+      put(e, child, a, b, c, d, f, g);
+    }
+  }
+
+  private void put(Event e, int child, int a, int b, int c, int d, int f, int g) {
+    int i = (int) (next++ % CAPACITY) * WIDTH;
+    records[i] = turn;
+    records[i + 1] = e.ordinal();
+    records[i + 2] = child;
+    records[i + 3] = a;
+    records[i + 4] = b;
+    records[i + 5] = c;
+    records[i + 6] = d;
+    records[i + 7] = f;
+    records[i + 8] = g;
+  }
+
+  /** Decode the records still in the buffer, oldest first. */
+  void dump(PrintStream out) {
+    if (!ENABLED) {
+      return;
+    }
+    long first = Math.max(0, next - CAPACITY);
+    if (first > 0) {
+      out.printf("(%d earlier records dropped)%n", first);
+    }
+    Event[] events = Event.values();
+    for (long n = first; n < next; n++) {
+      out.println(decode(events, (int) (n % CAPACITY) * WIDTH));
+    }
+    out.flush();
+  }
+
+  private String decode(Event[] events, int i) {
+    Event e = events[records[i + 1]];
+    Object[] values = new Object[e.args.length];
+    for (int k = 0; k < values.length; k++) {
+      values[k] = decode(e.args[k], records[i + 3 + k]);
+    }
+    int child = records[i + 2];
+    String prefix = child < 0 ? "" : "Player " + child + " ";
+    return String.format("%4d %s%s", records[i], prefix, String.format(e.format, values));
+  }
+
+  private static Object decode(Kind kind, int v) {
+    switch (kind) {
+      case POINT:
+        return v == NO_POINT ? "null" : "[" + (v >> 16) + ", " + (short) v + "]";
+      case ACTION:
+        return v >= 0 && v < Rules.ACTION_NAMES.length ? Rules.ACTION_NAMES[v] : "?" + v;
+      case ZONE:
+        return v < 0 || v >= Seeker.Zones.size() ? "none" : Seeker.Zones.get(v);
+      case CHILD:
+        return "Player " + v;
+      case TARGET:
+        return v != 0 ? "snowman" : "player";
+      case STANCE:
+        return v != 0 ? "S" : "C";
+      default:
+        return v;
+    }
+  }
+}
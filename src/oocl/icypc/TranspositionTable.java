@@ -0,0 +1,77 @@
+package oocl.icypc;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table from StateKeys keys to a long, for remembering
+ * what was found out about a position until it comes up again.
+ *
+ * Open addressing: a key can go in any of PROBES slots from the one its
+ * low bits pick, and when they're all taken the first of them is
+ * overwritten, so the table never grows and newer entries win.  Threads
+ * can read and write it at once without locking: each slot holds the
+ * value and the key XORed with the value, written separately, and a read
+ * only believes a slot if the two still agree.  A slot half written by
+ * another thread, or by two at once, doesn't match any key and reads as
+ * missing.  A key of 0 can't be stored; with random keys it doesn't come
+ * up.
+ */
+final class TranspositionTable {
+
+  static final int PROBES = 4;
+
+  private final long[] checks;
+
+  private final long[] values;
+
+  private final int mask;
+
+  /**
+   * @param bits log2 of the number of slots
+   */
+  TranspositionTable(int bits) {
+    checks = new long[1 << bits];
+    values = new long[1 << bits];
+    mask = (1 << bits) - 1;
+  }
+
+  /** The value stored for the key, or missing if there isn't one. */
+  long get(long key, long missing) {
+    int slot = (int) key & mask;
+    for (int p = 0; p < PROBES; p++) {
+      int s = (slot + p) & mask;
+      long value = values[s];
+      if ((checks[s] ^ value) == key) {
+        return value;
+      }
+    }
+    return missing;
+  }
+
+  /** Store the value for the key, replacing any value it had. */
+  void put(long key, long value) {
+    int slot = (int) key & mask;
+    int free = -1;
+    for (int p = 0; p < PROBES; p++) {
+      int s = (slot + p) & mask;
+      long check = checks[s];
+      long old = values[s];
+      if ((check ^ old) == key) {
+        free = s;
+        break;
+      }
+      if (free < 0 && check == 0 && old == 0) {
+        free = s;
+      }
+    }
+    int s = free < 0 ? slot : free;
+    values[s] = value;
+    checks[s] = key ^ value;
+  }
+
+  /** Forget everything. */
+  void clear() {
+    Arrays.fill(checks, 0L);
+    Arrays.fill(values, 0L);
+  }
+}
@@ -0,0 +1,195 @@
+package oocl.icypc;
+
+import icypc.Const;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import oocl.icypc.Seeker.Player;
+import oocl.icypc.Seeker.Point;
+
+/**
+ * What changed on Seeker's board and among the children since the last
+ * update, handed to whatever keeps state derived from them so it can be
+ * brought up to date instead of being rebuilt.
+ *
+ * The board compared is the one Seeker plays on, with the children
+ * marked as GROUND_CHILD, against a copy kept from the previous update.
+ * Nothing has been seen before the first update, so it reports every
+ * cell and every child as changed, and a listener can build its state
+ * from that the same way it keeps it up to date later.
+ */
+final class TurnChanges {
+
+  /** Told about every update, in the order the listeners subscribed. */
+  interface Listener {
+    void changed(TurnChanges changes, int[][] height, int[][] ground);
+  }
+
+  static final int CELLS = Const.SIZE * Const.SIZE;
+
+  /** The child is somewhere else, including from or to being unseen. */
+  static final int MOVED = 1;
+
+  static final int STANCE = 2;
+
+  static final int HOLDING = 4;
+
+  /** The child couldn't be seen last time and can now. */
+  static final int APPEARED = 8;
+
+  /** The child could be seen last time and now can't. */
+  static final int DISAPPEARED = 16;
+
+  /**
+   * Old value of every cell in the first update; no cell or child can
+   * have it, so the first update sees everything change.
+   */
+  static final int UNSEEN = Integer.MIN_VALUE;
+
+  private final List<Listener> listeners = new ArrayList<>();
+
+  // the board as of the last update, indexed by cell()
+  private final int[] height = new int[CELLS];
+  private final int[] ground = new int[CELLS];
+
+  // the children as of the last update
+  private final int[] childX = new int[2 * Const.CCOUNT];
+  private final int[] childY = new int[2 * Const.CCOUNT];
+  private final boolean[] childStanding = new boolean[2 * Const.CCOUNT];
+  private final int[] childHolding = new int[2 * Const.CCOUNT];
+
+  // this update's changes
+  private final int[] cells = new int[CELLS];
+  private final int[] oldHeight = new int[CELLS];
+  private final int[] oldGround = new int[CELLS];
+  private int cellCount;
+  private final int[] children = new int[2 * Const.CCOUNT];
+
+  private int turn;
+
+  TurnChanges() {
+    Arrays.fill(height, UNSEEN);
+    Arrays.fill(ground, UNSEEN);
+    Arrays.fill(childX, UNSEEN);
+    Arrays.fill(childHolding, UNSEEN);
+  }
+
+  static int cell(int x, int y) {
+    return x * Const.SIZE + y;
+  }
+
+  static int x(int cell) {
+    return cell / Const.SIZE;
+  }
+
+  static int y(int cell) {
+    return cell % Const.SIZE;
+  }
+
+  void subscribe(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /** Set the turn the next update is for. */
+  void turn(int turn) {
+    this.turn = turn;
+  }
+
+  /** The turn of the current update. */
+  int turn() {
+    return turn;
+  }
+
+  /**
+   * Compare the board and children with the last update and tell the
+   * listeners what changed.
+   */
+  void update(int[][] height, int[][] ground, Player[] cList) {
+    cellCount = 0;
+    for (int i = 0; i < Const.SIZE; i++) {
+      int[] h = height[i];
+      int[] g = ground[i];
+      for (int j = 0; j < Const.SIZE; j++) {
+        int c = i * Const.SIZE + j;
+        if (h[j] != this.height[c] || g[j] != this.ground[c]) {
+          cells[cellCount] = c;
+          oldHeight[cellCount] = this.height[c];
+          oldGround[cellCount] = this.ground[c];
+          cellCount++;
+          this.height[c] = h[j];
+          this.ground[c] = g[j];
+        }
+      }
+    }
+
+    for (int i = 0; i < cList.length; i++) {
+      Player p = cList[i];
+      Point pos = p.pos();
+      int x = pos.x;
+      int flags = 0;
+      if (x != childX[i] || pos.y != childY[i]) {
+        flags |= MOVED;
+        if (childX[i] < 0 && x >= 0) {
+          flags |= APPEARED;
+        } else if (childX[i] >= 0 && x < 0) {
+          flags |= DISAPPEARED;
+        }
+      }
+      // Stance and holding are compared with when the child was last seen,
+      // and count as changed the first time it is seen at all.
+      boolean neverSeen = childHolding[i] == UNSEEN;
+      if (x >= 0 && (neverSeen || p.standing() != childStanding[i])) {
+        flags |= STANCE;
+      }
+      if (x >= 0 && p.holding() != childHolding[i]) {
+        flags |= HOLDING;
+      }
+      children[i] = flags;
+      childX[i] = x;
+      childY[i] = pos.y;
+      if (x >= 0) {
+        childStanding[i] = p.standing();
+        childHolding[i] = p.holding();
+      }
+    }
+
+    for (int i = 0; i < listeners.size(); i++) {
+      listeners.get(i).changed(this, height, ground);
+    }
+  }
+
+  /** Number of cells whose height or ground changed. */
+  int cellCount() {
+    return cellCount;
+  }
+
+  /** The k'th changed cell, as cell(x, y). */
+  int cell(int k) {
+    return cells[k];
+  }
+
+  /** The k'th changed cell's height before the update, or UNSEEN in the first. */
+  int oldHeight(int k) {
+    return oldHeight[k];
+  }
+
+  /** The k'th changed cell's ground before the update, or UNSEEN in the first. */
+  int oldGround(int k) {
+    return oldGround[k];
+  }
+
+  /** MOVED, STANCE, HOLDING, APPEARED and DISAPPEARED flags for a child. */
+  int childChanges(int i) {
+    return children[i];
+  }
+
+  /** True if any child changed in any way. */
+  boolean childrenChanged() {
+    for (int flags : children) {
+      if (flags != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,186 @@
+package oocl.icypc;
+
+import icypc.LatencyHistogram;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Times each phase of Seeker's turns and each child's decision.
+ *
+ * Enabled by the SEEKER_TIMING environment variable, whose value is a
+ * file to append the report to, or "stderr".  When it isn't set ENABLED is
+ * a constant false and every call site is guarded by it, so the compiler
+ * drops the timing code altogether.
+ *
+ * The slowest turns are kept along with the number of collections that
+ * ran during them, to tell the bot's own spikes from GC pauses.
+ */
+final class TurnTimer {
+  /** Environment variable that turns the timer on. */
+  static final String TIMING_ENV = "SEEKER_TIMING";
+
+  static final boolean ENABLED = System.getenv(TIMING_ENV) != null;
+
+  /** Reading the engine's input. */
+  static final int PARSE = 0;
+
+  /** Copying the snapshot into Seeker's own board. */
+  static final int COPY = 1;
+
+  /** Marking children and setting up run targets. */
+  static final int MARK = 2;
+
+  /** Writing the moves. */
+  static final int OUTPUT = 3;
+
+  private static final String[] PHASE_NAMES = {"parse", "copy", "mark", "output"};
+
+  /** Number of slow turns kept for the report. */
+  private static final int SLOWEST = 10;
+
+  private final LatencyHistogram[] phases = new LatencyHistogram[PHASE_NAMES.length];
+
+  private final LatencyHistogram[] children;
+
+  private final LatencyHistogram turns = new LatencyHistogram();
+
+  private final GarbageCollectorMXBean[] collectors;
+
+  // slowest turns so far, slowest first
+  private final int[] slowTurn = new int[SLOWEST];
+  private final long[] slowNanos = new long[SLOWEST];
+  private final long[] slowGcs = new long[SLOWEST];
+  private final long[] slowGcMillis = new long[SLOWEST];
+
+  private long turnStart;
+
+  private long mark;
+
+  private long gcCountAtStart;
+
+  private long gcMillisAtStart;
+
+  TurnTimer(int childCount) {
+    for (int i = 0; i < phases.length; i++) {
+      phases[i] = new LatencyHistogram();
+    }
+    children = new LatencyHistogram[childCount];
+    for (int i = 0; i < childCount; i++) {
+      children[i] = new LatencyHistogram();
+    }
+    List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+    collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+  }
+
+  /**
+   * Start timing a turn.  run() starts it before parsing the input, so
+   * the parse phase only shows up when the engine drives the player.
+   */
+  void startTurn() {
+    long gcs = 0;
+    long gcMillis = 0;
+    for (GarbageCollectorMXBean gc : collectors) {
+      gcs += Math.max(0, gc.getCollectionCount());
+      gcMillis += Math.max(0, gc.getCollectionTime());
+    }
+    gcCountAtStart = gcs;
+    gcMillisAtStart = gcMillis;
+    turnStart = System.nanoTime();
+    mark = turnStart;
+  }
+
+  /** Charge the time since the last mark to a phase. */
+  void phase(int phase) {
+    long now = System.nanoTime();
+    phases[phase].record(now - mark);
+    mark = now;
+  }
+
+  /** Charge the time since the last mark to one child's decision. */
+  void child(int i) {
+    long now = System.nanoTime();
+    children[i].record(now - mark);
+    mark = now;
+  }
+
+  void endTurn(int turn) {
+    long nanos = System.nanoTime() - turnStart;
+    turns.record(nanos);
+    if (nanos <= slowNanos[SLOWEST - 1]) {
+      return;
+    }
+
+    long gcs = 0;
+    long gcMillis = 0;
+    for (GarbageCollectorMXBean gc : collectors) {
+      gcs += Math.max(0, gc.getCollectionCount());
+      gcMillis += Math.max(0, gc.getCollectionTime());
+    }
+    int i = SLOWEST - 1;
+    while (i > 0 && slowNanos[i - 1] < nanos) {
+      slowTurn[i] = slowTurn[i - 1];
+      slowNanos[i] = slowNanos[i - 1];
+      slowGcs[i] = slowGcs[i - 1];
+      slowGcMillis[i] = slowGcMillis[i - 1];
+      i--;
+    }
+    slowTurn[i] = turn;
+    slowNanos[i] = nanos;
+    slowGcs[i] = gcs - gcCountAtStart;
+    slowGcMillis[i] = gcMillis - gcMillisAtStart;
+  }
+
+  /** Write the report to wherever SEEKER_TIMING says. */
+  void dump() {
+    String report = report();
+    String target = System.getenv(TIMING_ENV);
+    if (target == null || target.isEmpty() || target.equals("stderr")) {
+      System.err.print(report);
+      return;
+    }
+    try (FileWriter out = new FileWriter(target, true)) {
+      out.write(report);
+    } catch (IOException e) {
+      System.err.println("Can't write timing to " + target + ": " + e);
+    }
+  }
+
+  String report() {
+    StringWriter text = new StringWriter();
+    PrintWriter out = new PrintWriter(text);
+    out.printf("Seeker timing over %d turns (microseconds)%n", turns.count());
+    out.printf("%-8s %8s %10s %10s %10s %10s%n", "phase", "count", "p50", "p99", "max", "mean");
+    for (int i = 0; i < phases.length; i++) {
+      line(out, PHASE_NAMES[i], phases[i]);
+    }
+    for (int i = 0; i < children.length; i++) {
+      line(out, "child" + i, children[i]);
+    }
+    line(out, "turn", turns);
+
+    out.println("Slowest turns:");
+    for (int i = 0; i < SLOWEST && slowNanos[i] > 0; i++) {
+      out.printf("  turn %3d %10.3f ms", slowTurn[i], slowNanos[i] / 1e6);
+      if (slowGcs[i] > 0) {
+        out.printf("  %d gc, %d ms", slowGcs[i], slowGcMillis[i]);
+      }
+      out.println();
+    }
+    out.flush();
+    return text.toString();
+  }
+
+  private static void line(PrintWriter out, String name, LatencyHistogram h) {
+    if (h.count() == 0) {
+      return;
+    }
+    out.printf("%-8s %8d %10.1f %10.1f %10.1f %10.1f%n", name, h.count(),
+        h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3, h.max() / 1e3,
+        h.total() / 1e3 / h.count());
+  }
+}
@@ -0,0 +1,90 @@
+package oocl.icypc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Renders a file written by VisibilityRecorder back into the engine's text
+ * format, one turn after another, the way visibility.txt used to look.
+ *
+ * <pre>
+ *   java oocl.icypc.VisibilityReader visibility.bin [visibility.txt]
+ * </pre>
+ */
+public class VisibilityReader {
+
+  public static void render(Path file, Writer out) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.remaining() < VisibilityRecorder.HEADER_SIZE || in.getInt() != VisibilityRecorder.MAGIC) {
+        throw new IOException(file + " is not a visibility recording");
+      }
+      int frameSize = in.getInt();
+      int size = in.getInt();
+      int children = in.getInt();
+      int frames = in.getInt();
+
+      StringBuilder b = new StringBuilder(frameSize * 2);
+      for (int f = 0; f < frames && in.remaining() >= frameSize; f++) {
+        b.setLength(0);
+        b.append("Turn ").append(in.getInt()).append('\n');
+        for (int i = 0; i < size; i++) {
+          for (int j = 0; j < size; j++) {
+            int height = in.get();
+            int ground = in.get();
+            if (j > 0) {
+              b.append(' ');
+            }
+            if (height < 0) {
+              b.append('*');
+            } else {
+              b.append(height).append((char) (ground + 'a'));
+            }
+          }
+          b.append('\n');
+        }
+        for (int i = 0; i < children; i++) {
+          int x = in.get();
+          int y = in.get();
+          boolean standing = in.get() != 0;
+          int holding = in.get();
+          int dazed = in.get();
+          if (x < 0) {
+            b.append("*\n");
+          } else {
+            b.append(x).append(' ').append(y).append(' ').append(standing ? 'S' : 'C').append(' ')
+                .append((char) (holding + 'a')).append(' ').append(dazed).append('\n');
+          }
+        }
+        b.append('\n');
+        out.append(b);
+      }
+    }
+    out.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("usage: VisibilityReader <recording> [<text file>]");
+      System.exit(2);
+    }
+    Path file = Paths.get(args[0]);
+    Writer out = args.length > 1
+        ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+        : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    try {
+      render(file, out);
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package oocl.icypc;
+
+import icypc.Const;
+import icypc.sim.GameState;
+import icypc.sim.TurnSnapshot;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records what a player could see each turn, for working out later how
+ * much of the board it was missing.
+ *
+ * Each turn is a fixed-size binary frame: the turn number, two bytes per
+ * cell (height, or -1 if hidden, and ground) and five bytes per child.
+ * The game thread only copies the snapshot into a spare frame; a
+ * background thread writes the frames into a memory-mapped file.  If the
+ * writer falls behind and there is no spare frame, the turn is dropped
+ * rather than holding up the game.  VisibilityReader turns the file back
+ * into the engine's text format.
+ *
+ * The file is left the size of the chunks mapped, since truncating it
+ * under a live mapping isn't safe; the header says how many frames were
+ * written, and the reader ignores the rest.
+ */
+public class VisibilityRecorder implements AutoCloseable {
+  /** First bytes of the file. */
+  static final int MAGIC = 0x49435632; // "ICV2"
+
+  /** Magic, frame size, board size, number of children and number of frames. */
+  static final int HEADER_SIZE = 20;
+
+  /** Where the number of frames is, filled in by close(). */
+  static final int FRAMES_OFFSET = 16;
+
+  static final int CELL_BYTES = 2;
+
+  static final int CHILD_BYTES = 5;
+
+  static final int FRAME_SIZE = 4 + Const.SIZE * Const.SIZE * CELL_BYTES
+      + GameState.CHILDREN * CHILD_BYTES;
+
+  /** Frames the game can get ahead of the writer by. */
+  private static final int POOL = 64;
+
+  /** The file is mapped this much at a time. */
+  private static final long CHUNK = 4L << 20;
+
+  private static final byte[] CLOSE = new byte[0];
+
+  private final FileChannel channel;
+
+  private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(POOL);
+
+  private final BlockingQueue<byte[]> filled = new ArrayBlockingQueue<>(POOL + 1);
+
+  private final Thread writer;
+
+  private MappedByteBuffer map;
+
+  /** End of the data written so far. */
+  private long position;
+
+  /** Frames written by the writer thread. */
+  private int frames;
+
+  private int dropped;
+
+  private IOException failure;
+
+  public VisibilityRecorder(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    remap(HEADER_SIZE);
+    map.putInt(MAGIC).putInt(FRAME_SIZE).putInt(Const.SIZE).putInt(GameState.CHILDREN).putInt(0);
+    position = HEADER_SIZE;
+
+    for (int i = 0; i < POOL; i++) {
+      free.add(new byte[FRAME_SIZE]);
+    }
+    writer = new Thread(this::write, "visibility-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queue a turn for writing.  Never waits for the disk.
+   */
+  public void record(TurnSnapshot turn) {
+    byte[] frame = free.poll();
+    if (frame == null) {
+      dropped++;
+      return;
+    }
+
+    int k = 0;
+    frame[k++] = (byte) (turn.turn >>> 24);
+    frame[k++] = (byte) (turn.turn >>> 16);
+    frame[k++] = (byte) (turn.turn >>> 8);
+    frame[k++] = (byte) turn.turn;
+    for (int i = 0; i < Const.SIZE; i++) {
+      for (int j = 0; j < Const.SIZE; j++) {
+        frame[k++] = (byte) turn.height[i][j];
+        frame[k++] = (byte) turn.ground[i][j];
+      }
+    }
+    for (int i = 0; i < GameState.CHILDREN; i++) {
+      frame[k++] = (byte) turn.x[i];
+      frame[k++] = (byte) turn.y[i];
+      frame[k++] = (byte) (turn.standing[i] ? 1 : 0);
+      frame[k++] = (byte) turn.holding[i];
+      frame[k++] = (byte) turn.dazed[i];
+    }
+    filled.add(frame);
+  }
+
+  private void write() {
+    try {
+      while (true) {
+        byte[] frame = filled.take();
+        if (frame == CLOSE) {
+          return;
+        }
+        if (failure == null) {
+          try {
+            if (map.remaining() < FRAME_SIZE) {
+              remap(FRAME_SIZE);
+            }
+            map.put(frame);
+            position += FRAME_SIZE;
+            frames++;
+          } catch (IOException e) {
+            failure = e;
+          }
+        }
+        free.add(frame);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Map the next chunk of the file, starting at the end of the data. */
+  private void remap(int needed) throws IOException {
+    map = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK, needed));
+    map.order(ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Write out the frames still queued and record how many there are.
+   */
+  @Override
+  public void close() throws IOException {
+    filled.add(CLOSE);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    map.force();
+    map = null;
+    ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putInt(frames);
+    count.flip();
+    while (count.hasRemaining()) {
+      channel.write(count, FRAMES_OFFSET + count.position());
+    }
+    channel.close();
+
+    if (dropped > 0) {
+      System.err.println("Visibility recorder dropped " + dropped + " turns");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
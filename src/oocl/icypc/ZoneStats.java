@@ -0,0 +1,58 @@
+package oocl.icypc;
+
+import icypc.Const;
+import oocl.icypc.Seeker.Point;
+import oocl.icypc.Seeker.Zone;
+
+/**
+ * How many cells of each zone are hidden, kept up to date from each
+ * turn's changes.  The zones are shared by every Seeker, so the counts
+ * for a game live here rather than in Zone.
+ */
+final class ZoneStats implements TurnChanges.Listener {
+
+  /** Index of the zone each cell is in; the zones cover the board. */
+  private static final int[] ZONE_OF_CELL = new int[TurnChanges.CELLS];
+
+  static {
+    for (int z = 0; z < Seeker.Zones.size(); z++) {
+      for (Point p : Seeker.Zones.get(z).points) {
+        ZONE_OF_CELL[TurnChanges.cell(p.x, p.y)] = z;
+      }
+    }
+  }
+
+  private final int[] hidden = new int[Seeker.Zones.size()];
+
+  @Override
+  public void changed(TurnChanges changes, int[][] height, int[][] ground) {
+    for (int k = 0; k < changes.cellCount(); k++) {
+      int c = changes.cell(k);
+      int old = changes.oldGround(k);
+      boolean wasHidden = old != TurnChanges.UNSEEN && old < 0;
+      boolean isHidden = ground[TurnChanges.x(c)][TurnChanges.y(c)] < 0;
+      if (wasHidden != isHidden) {
+        hidden[ZONE_OF_CELL[c]] += isHidden ? 1 : -1;
+      }
+    }
+  }
+
+  /** Cells of the zone that can't be seen. */
+  int hiddenCount(Zone zone) {
+    return hidden[Seeker.Zones.indexOf(zone)];
+  }
+
+  /** Cells of the zone that can be seen. */
+  int visibleCount(Zone zone) {
+    return zone.points.size() - hiddenCount(zone);
+  }
+
+  /** Cells of the board that can be seen. */
+  int visibleCount() {
+    int count = Const.SIZE * Const.SIZE;
+    for (int h : hidden) {
+      count -= h;
+    }
+    return count;
+  }
+}